@@ -0,0 +1,97 @@
+#!/usr/bin/env python2.7
+
+# Runs the per-ReflectiveOp benchmarks of this folder under the different
+# Mate configurations and prints a CSV table with the overhead of each
+# operation relative to TruffleSOM with Mate disabled.
+#
+# Columns: operation, handled, configuration, flags, median runtime in us,
+# and the overhead factor over the baseline (plain variant, Mate disabled).
+
+from __future__ import print_function
+
+import argparse
+import csv
+import os
+import re
+import subprocess
+import sys
+
+BASE_DIR = os.path.realpath(os.path.join(os.path.dirname(__file__), '../../..'))
+CLASS_PATH = ('Smalltalk:Smalltalk/Mate/:Smalltalk/Mate/MOP:'
+              'Benchmarks/Mate/Operations')
+HARNESS = 'Examples/Benchmarks/BenchmarkHarness.som'
+
+OPERATIONS = ['MessageLookup', 'MessageActivation',
+              'ExecutorReadField', 'ExecutorWriteField', 'ExecutorReturn',
+              'ExecutorLocalArg', 'ExecutorReadLocal', 'ExecutorWriteLocal',
+              'LayoutReadField', 'LayoutWriteField',
+              'LayoutPrimReadField', 'LayoutPrimWriteField']
+
+BASELINE = 'disabled'
+
+# name, VM flags, whether handlers are reachable
+CONFIGURATIONS = [
+    (BASELINE,                          [],                                    False),
+    ('enabled',                         ['--mate'],                            False),
+    ('activated',                       ['--mate', '-activateMate'],           True),
+    ('activated-unoptimizedIH',         ['--mate', '-activateMate',
+                                         '--unoptimizedIH'],                   True),
+    ('activated-envInObject',           ['--mate', '-activateMate',
+                                         '--envInObject'],                     True),
+    ('activated-unoptimizedIH-envInObject',
+                                        ['--mate', '-activateMate',
+                                         '--unoptimizedIH', '--envInObject'],  True)]
+
+RUNTIME = re.compile(r'runtime: (\d+)us')
+
+
+def run(flags, benchmark, iterations, warmup):
+    cmd = ([os.path.join(BASE_DIR, 'som')] + flags +
+           ['-cp', CLASS_PATH, HARNESS, benchmark,
+            str(iterations), str(warmup), '1'])
+    output = subprocess.check_output(cmd, cwd=BASE_DIR,
+                                     stderr=subprocess.STDOUT)
+    times = [int(t) for t in RUNTIME.findall(output.decode('utf-8'))]
+    if not times:
+        raise Exception('No runtime reported by ' + ' '.join(cmd))
+    times = sorted(times[-iterations:])
+    return times[len(times) // 2]
+
+
+def main():
+    parser = argparse.ArgumentParser(
+        description='Per-ReflectiveOp overhead table for TruffleMate')
+    parser.add_argument('-n', '--iterations', type=int, default=30,
+                        help='measured iterations per benchmark')
+    parser.add_argument('-w', '--warmup', type=int, default=20,
+                        help='warmup iterations per benchmark')
+    parser.add_argument('-o', '--output', default=None,
+                        help='write the table to a file instead of stdout')
+    parser.add_argument('operations', nargs='*', default=OPERATIONS,
+                        help='operations to measure, default: all')
+    args = parser.parse_args()
+
+    out = open(args.output, 'w') if args.output else sys.stdout
+    table = csv.writer(out)
+    table.writerow(['operation', 'handled', 'configuration', 'flags',
+                    'median_us', 'overhead'])
+
+    for operation in args.operations:
+        baseline = None
+        for name, flags, handlers in CONFIGURATIONS:
+            variants = [False, True] if handlers else [False]
+            for handled in variants:
+                benchmark = operation + ('OpHandled' if handled else 'Op')
+                median = run(flags, benchmark, args.iterations, args.warmup)
+                if baseline is None:
+                    baseline = median
+                table.writerow([operation, handled, name, ' '.join(flags),
+                                median, '%.3f' % (float(median) / baseline)])
+                out.flush()
+
+    if args.output:
+        out.close()
+
+
+if __name__ == '__main__':
+    main()
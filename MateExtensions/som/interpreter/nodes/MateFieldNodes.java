@@ -27,6 +27,12 @@ public abstract class MateFieldNodes {
       this.initialize(node.getSourceSection());
     }
 
+    /** The read intercession needs the generic read. */
+    @Override
+    protected boolean typedReads() {
+      return false;
+    }
+
     @Override
     @Specialization
     public Object executeEvaluated(final VirtualFrame frame, final DynamicObject obj) {
@@ -60,6 +66,11 @@ public abstract class MateFieldNodes {
       initialize(node.getSourceSection());
     }
 
+    @Override
+    protected boolean typedWrites() {
+      return false;
+    }
+
     @Override
     @Specialization
     public final Object executeEvaluated(final VirtualFrame frame,
@@ -7,6 +7,7 @@ import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.object.DynamicObject;
 
 import som.interpreter.SArguments;
+import som.interpreter.nodes.dispatch.SplittingPolicy.Decision;
 import som.matenodes.IntercessionHandling;
 import som.vm.constants.ExecutionLevel;
 import som.vmobjects.SInvokable.SMethod;
@@ -16,8 +17,8 @@ public class MateCachedDispatchNode extends CachedDispatchNode {
   final DynamicObject method;
 
   public MateCachedDispatchNode(final DispatchGuard guard, final DynamicObject methodToCall,
-      final AbstractDispatchNode nextInCache, final boolean shouldSplit, final ExecutionLevel level) {
-    super(guard, methodToCall, nextInCache, shouldSplit, level);
+      final AbstractDispatchNode nextInCache, final Decision splitting, final ExecutionLevel level) {
+    super(guard, methodToCall, nextInCache, splitting, level);
     method = methodToCall;
     ih = IntercessionHandling.createForMethodActivation(SMethod.getSignature(method));
   }
@@ -3,6 +3,7 @@ package som.interpreter.nodes.dispatch;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.source.SourceSection;
 
+import som.interpreter.nodes.dispatch.SplittingPolicy.Decision;
 import som.vm.constants.ExecutionLevel;
 import som.vmobjects.SSymbol;
 
@@ -13,8 +14,8 @@ public class MateUninitializedDispatchNode extends UninitializedDispatchNode {
 
   @Override
   protected CachedDispatchNode cacheNode(final DispatchGuard guard, final DynamicObject methodCall,
-      final UninitializedDispatchNode newChainEnd, final Boolean shouldSplit, final ExecutionLevel level) {
-    return new MateCachedDispatchNode(guard, methodCall, newChainEnd, shouldSplit, level);
+      final UninitializedDispatchNode newChainEnd, final Decision splitting, final ExecutionLevel level) {
+    return new MateCachedDispatchNode(guard, methodCall, newChainEnd, splitting, level);
   }
 
   @Override
@@ -38,6 +38,22 @@ public final class MateLayoutFieldReadNode extends ReadFieldNode
     return null;
   }
 
+  @Override
+  public long executeLong(final DynamicObject obj) {
+    /*Should never enter here*/
+    assert (false);
+    Universe.errorExit("Mate enters an unexpected method");
+    return 0;
+  }
+
+  @Override
+  public double executeDouble(final DynamicObject obj) {
+    /*Should never enter here*/
+    assert (false);
+    Universe.errorExit("Mate enters an unexpected method");
+    return 0;
+  }
+
   /*
    * This is blocking some optimizations. I still need to figure out why
    * @Override
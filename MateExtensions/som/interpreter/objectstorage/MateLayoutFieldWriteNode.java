@@ -38,6 +38,20 @@ public final class MateLayoutFieldWriteNode extends WriteFieldNode
     return value;
   }
 
+  @Override
+  public void executeWriteLong(final DynamicObject obj, final long value, final boolean generalized) {
+    /*Should never enter here*/
+    assert (false);
+    Universe.errorExit("Mate enters an unexpected method");
+  }
+
+  @Override
+  public void executeWriteDouble(final DynamicObject obj, final double value, final boolean generalized) {
+    /*Should never enter here*/
+    assert (false);
+    Universe.errorExit("Mate enters an unexpected method");
+  }
+
   /*
    * This is blocking some optimizations. I still need to figure out why
    * @Override
@@ -15,6 +15,7 @@ import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchFieldRead
 import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchFieldWriteNodeGen;
 import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchLocalVarReadNodeGen;
 import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchLocalVarWriteNodeGen;
+import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchPrimAllFieldsWriteNodeGen;
 import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchPrimFieldReadNodeGen;
 import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchPrimFieldWriteNodeGen;
 import som.matenodes.MateAbstractReflectiveDispatchFactory.MateDispatchReturnNodeGen;
@@ -82,6 +83,9 @@ public abstract class IntercessionHandling extends Node {
         case LayoutPrimWriteField:
           reflectiveDispatch = MateDispatchPrimFieldWriteNodeGen.create();
           break;
+        case LayoutPrimWriteAllFields:
+          reflectiveDispatch = MateDispatchPrimAllFieldsWriteNodeGen.create();
+          break;
         case ExecutorLocalArg: case ExecutorNonLocalArg: case ExecutorLocalSuperArg: case ExecutorNonLocalSuperArg:
           reflectiveDispatch = MateDispatchLocalVarReadNodeGen.create();
           break;
@@ -1,5 +1,6 @@
 package som.matenodes;
 
+import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -15,11 +16,13 @@ import com.oracle.truffle.api.profiles.ValueProfile;
 import som.interpreter.SArguments;
 import som.interpreter.nodes.ExpressionNode;
 import som.interpreter.nodes.ISuperReadNode;
+import som.interpreter.nodes.dispatch.CachedDnuNode;
+import som.vm.PureLookupCache;
 import som.vm.Universe;
 import som.vm.constants.Classes;
 import som.vm.constants.ExecutionLevel;
 import som.vm.constants.Nil;
-import som.vmobjects.MockJavaObject;
+import som.vmobjects.LazyMockFrame;
 import som.vmobjects.SArray;
 import som.vmobjects.SBlock;
 import som.vmobjects.SInvokable;
@@ -46,6 +49,10 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
     return node;
   }
 
+  public static MateSplicedHandlerNode createSplicedHandler(final DynamicObject metaMethod) {
+    return MateSplicedHandlerNode.createIfSpliceable(metaMethod);
+  }
+
   @Override
   public NodeCost getCost() {
     return NodeCost.NONE;
@@ -57,21 +64,41 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
   public abstract static class MateDispatchFieldRead extends
       MateAbstractReflectiveDispatch {
 
+    @Specialization(guards = {"cachedMethod==method", "splicedHandler != null"}, limit = "INLINE_CACHE_SIZE")
+    public Object doSplicedMateNode(final VirtualFrame frame, final DynamicObject method,
+        final Object subject, final Object[] arguments,
+        @Cached("method") final DynamicObject cachedMethod,
+        @Cached("createSplicedHandler(method)") final MateSplicedHandlerNode splicedHandler) {
+      Object[] metaArguments = this.computeArgumentsForMetaDispatch(frame, arguments);
+      Object result = splicedHandler.execute(metaArguments);
+      this.leaveMetaDispatch(frame, metaArguments);
+      return result;
+    }
+
     @Specialization(guards = "cachedMethod==method", limit = "INLINE_CACHE_SIZE")
     public Object doMateNode(final VirtualFrame frame, final DynamicObject method,
         final Object subject, final Object[] arguments,
         @Cached("method") final DynamicObject cachedMethod,
         @Cached("createDispatch(method)") final DirectCallNode reflectiveMethod) {
-      return reflectiveMethod.call(this.computeArgumentsForMetaDispatch(frame, arguments));
+      Object[] metaArguments = this.computeArgumentsForMetaDispatch(frame, arguments);
+      Object result = reflectiveMethod.call(metaArguments);
+      this.leaveMetaDispatch(frame, metaArguments);
+      return result;
     }
 
-    @Specialization(replaces = {"doMateNode"})
+    @Specialization(replaces = {"doSplicedMateNode", "doMateNode"})
     public Object doMegaMorphic(final VirtualFrame frame, final DynamicObject method,
         final Object subject, final Object[] arguments,
         @Cached("createIndirectCall()") final IndirectCallNode callNode) {
-      return callNode.call(SInvokable.getCallTarget(method, ExecutionLevel.Meta), this.computeArgumentsForMetaDispatch(frame, arguments));
+      Object[] metaArguments = this.computeArgumentsForMetaDispatch(frame, arguments);
+      Object result = callNode.call(SInvokable.getCallTarget(method, ExecutionLevel.Meta), metaArguments);
+      this.leaveMetaDispatch(frame, metaArguments);
+      return result;
     }
 
+    /** Called when the handler returned, with the arguments it received. */
+    protected void leaveMetaDispatch(final VirtualFrame frame, final Object[] metaArguments) { }
+
     @Override
     protected Object[] computeArgumentsForMetaDispatch(final VirtualFrame frame, final Object[] arguments) {
       return new Object[]{SArguments.getEnvironment(frame), ExecutionLevel.Meta, arguments[0], ((long) arguments[1]) + 1};
@@ -107,7 +134,12 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
     @Override
     protected Object[] computeArgumentsForMetaDispatch(final VirtualFrame frame, final Object[] arguments) {
       return new Object[]{SArguments.getEnvironment(frame), ExecutionLevel.Meta, arguments[0],
-          arguments[1], new MockJavaObject(frame.materialize(), context)};
+          arguments[1], new LazyMockFrame(frame.getArguments(), context)};
+    }
+
+    @Override
+    protected void leaveMetaDispatch(final VirtualFrame frame, final Object[] metaArguments) {
+      ((LazyMockFrame) metaArguments[4]).leave();
     }
   }
 
@@ -117,7 +149,7 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
     protected Object[] computeArgumentsForMetaDispatch(final VirtualFrame frame, final Object[] arguments) {
       return new Object[]{SArguments.getEnvironment(frame), ExecutionLevel.Meta, arguments[0],
           arguments[1],
-          new MockJavaObject(frame.materialize(), context),
+          new LazyMockFrame(frame.getArguments(), context),
           ((ExpressionNode) arguments[2]).executeGeneric(frame)};
     }
   }
@@ -140,6 +172,15 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
     }
   }
 
+  public abstract static class MateDispatchPrimAllFieldsWrite extends
+      MateDispatchFieldRead {
+
+    @Override
+    protected Object[] computeArgumentsForMetaDispatch(final VirtualFrame frame, final Object[] arguments) {
+      return new Object[]{SArguments.getEnvironment(frame), ExecutionLevel.Meta, arguments[0], arguments[1]};
+    }
+  }
+
   public abstract static class MateDispatchMessageLookup extends
       MateAbstractReflectiveDispatch {
 
@@ -160,11 +201,35 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
       // The MOP receives the class where the lookup must start (find: aSelector since: aClass)
       DynamicObject actualMethod = this.reflectiveLookup(frame, reflectiveMethod, subject, lookupSinceFor(subject));
       // return activationNode.doActivation(frame, actualMethod, arguments);
+      Object[] realArgs = this.activationArguments(frame, actualMethod, arguments);
+      return cachedCall.call(SMethod.getCallTarget(methodToActivate(actualMethod, subject), ExecutionLevel.Base), realArgs);
+    }
+
+    /** The handler answers nil if the receiver does not understand the selector. */
+    protected static boolean isDnu(final DynamicObject lookupResult) {
+      return lookupResult == null || lookupResult == Nil.nilObject;
+    }
+
+    /** @return the method found, or doesNotUnderstand:arguments: like {@link CachedDnuNode} */
+    protected static DynamicObject methodToActivate(final DynamicObject lookupResult,
+        final DynamicObject receiver) {
+      if (isDnu(lookupResult)) {
+        return CachedDnuNode.getDnuMethod(SObject.getSOMClass(receiver));
+      }
+      return lookupResult;
+    }
+
+    protected Object[] activationArguments(final VirtualFrame frame,
+        final DynamicObject lookupResult, final Object[] arguments) {
+      if (isDnu(lookupResult)) {
+        return new Object[] {SArguments.getEnvironment(frame), ExecutionLevel.Base,
+            arguments[0], this.getSelector(), SArguments.getArgumentsWithoutReceiver(arguments)};
+      }
       Object[] realArgs = (Object[]) ih.doMateSemantics(frame, arguments);
       if (realArgs == null) {
         realArgs = SArguments.createSArguments(SArguments.getEnvironment(frame), ExecutionLevel.Base, arguments);
       }
-      return cachedCall.call(SMethod.getCallTarget(actualMethod, ExecutionLevel.Base), realArgs);
+      return realArgs;
     }
 
     public DynamicObject reflectiveLookup(final VirtualFrame frame, final DirectCallNode reflectiveMethod,
@@ -306,6 +371,25 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
       return cachedCall.call(realArgs);
     }
 
+    /**
+     * Handlers declared as pure lookups are cached on the class where the
+     * lookup starts instead of the receiver's shape, and share their results
+     * with every other send site through the {@link PureLookupCache}.
+     */
+    @Specialization(guards = {"cachedMethod == method", "pure", "lookupSinceFor(subject) == cachedSince"},
+        assumptions = "stable", insertBefore = "doMateNode", limit = "INLINE_CACHE_SIZE")
+    public Object doPureLookupCached(final VirtualFrame frame, final DynamicObject method,
+        final DynamicObject subject, final Object[] arguments,
+        @Cached("method") final DynamicObject cachedMethod,
+        @Cached("isPureLookup(method)") final boolean pure,
+        @Cached("lookupSinceFor(subject)") final DynamicObject cachedSince,
+        @Cached("getPureLookupAssumption()") final Assumption stable,
+        @Cached("pureLookupResult(frame, createDispatch(method), method, subject, cachedSince)") final DynamicObject lookupResult,
+        @Cached("createDirectCall(methodToActivate(lookupResult, subject))") final DirectCallNode cachedCall) {
+      Object[] realArgs = this.activationArguments(frame, lookupResult, arguments);
+      return cachedCall.call(realArgs);
+    }
+
     @Specialization(guards = {"cachedMethod == method", "shapeOfReceiver(arguments) == cachedShape"},
         insertBefore = "doMateNode", limit = "INLINE_CACHE_SIZE")
     public Object doMateNodeCached(final VirtualFrame frame, final DynamicObject method,
@@ -313,22 +397,25 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
         @Cached("method") final DynamicObject cachedMethod,
         @Cached("shapeOfReceiver(arguments)") final Shape cachedShape,
         @Cached("lookupResult(frame, method, subject, arguments)") final DynamicObject lookupResult,
-        @Cached("createDirectCall(lookupResult)") final DirectCallNode cachedCall) {
+        @Cached("createDirectCall(methodToActivate(lookupResult, subject))") final DirectCallNode cachedCall) {
       // The MOP receives the class where the lookup must start (find: aSelector since: aClass)
-      Object[] realArgs = (Object[]) ih.doMateSemantics(frame, arguments);
-      if (realArgs == null) {
-        realArgs = SArguments.createSArguments(SArguments.getEnvironment(frame), ExecutionLevel.Base, arguments);
-      }
+      Object[] realArgs = this.activationArguments(frame, lookupResult, arguments);
       return cachedCall.call(realArgs);
     }
 
-    @Specialization(guards = {"cachedMethod==method"}, replaces = {"doMateNodeCached"}, insertBefore = "doMateNode")
+    @Specialization(guards = {"cachedMethod==method"}, replaces = {"doPureLookupCached", "doMateNodeCached"}, insertBefore = "doMateNode")
     public Object doMegaMorphic(final VirtualFrame frame, final DynamicObject method,
         final DynamicObject subject, final Object[] arguments,
         @Cached("method") final DynamicObject cachedMethod,
+        @Cached("isPureLookup(method)") final boolean pure,
         @Cached("createDispatch(method)") final DirectCallNode reflectiveMethod,
         @Cached("createIndirectCall()") final IndirectCallNode indirect) {
-      return super.doMateNode(frame, method, subject, arguments, cachedMethod, reflectiveMethod, indirect);
+      if (!pure) {
+        return super.doMateNode(frame, method, subject, arguments, cachedMethod, reflectiveMethod, indirect);
+      }
+      DynamicObject actualMethod = this.pureLookupResult(frame, reflectiveMethod, method, subject, lookupSinceFor(subject));
+      Object[] realArgs = this.activationArguments(frame, actualMethod, arguments);
+      return indirect.call(SMethod.getCallTarget(methodToActivate(actualMethod, subject), ExecutionLevel.Base), realArgs);
     }
 
     protected Shape shapeOfReceiver(final Object[] arguments) {
@@ -340,6 +427,24 @@ public abstract class MateAbstractReflectiveDispatch extends Node {
         return this.reflectiveLookup(frame, this.createDispatch(method), receiver, lookupSinceFor(receiver));
     }
 
+    public DynamicObject pureLookupResult(final VirtualFrame frame, final DirectCallNode reflectiveMethod,
+        final DynamicObject handler, final Object receiver, final DynamicObject sinceClass) {
+      DynamicObject result = PureLookupCache.lookup(handler, sinceClass, this.getSelector());
+      if (result == null) {
+        result = this.reflectiveLookup(frame, reflectiveMethod, receiver, sinceClass);
+        PureLookupCache.record(handler, sinceClass, this.getSelector(), result);
+      }
+      return result;
+    }
+
+    protected static boolean isPureLookup(final DynamicObject handler) {
+      return PureLookupCache.isPure(handler);
+    }
+
+    protected static Assumption getPureLookupAssumption() {
+      return PureLookupCache.getAssumption();
+    }
+
     public DynamicObject lookupResultFixedType(final VirtualFrame frame, final DynamicObject method,
         final Object receiver, final Object[] arguments, final DynamicObject sinceClass) {
         return this.reflectiveLookup(frame, this.createDispatch(method), receiver, sinceClass);
@@ -0,0 +1,87 @@
+package som.matenodes;
+
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeCost;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.interpreter.Invokable;
+import som.interpreter.nodes.ArgumentReadNode.ThisContextNode;
+import som.interpreter.nodes.ExpressionNode;
+import som.interpreter.nodes.LazyMethodBodyNode;
+import som.interpreter.nodes.MateReturnNode;
+import som.interpreter.nodes.ReturnNonLocalNode;
+import som.interpreter.nodes.ReturnNonLocalNode.CatchNonLocalReturnNode;
+import som.interpreter.nodes.ReturnNonLocalNode.ReturnLocalNode;
+import som.vm.Universe;
+import som.vm.constants.ExecutionLevel;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SInvokable.SMethod;
+
+/**
+ * Executes a copy of a meta-method's body directly at the intercession site,
+ * instead of calling it through a DirectCallNode. The arguments are passed
+ * in a frame created at the site, so their number and position are constant
+ * for the compiler and the array never escapes.
+ *
+ * Only small handlers without blocks are spliced (see {@link #createIfSpliceable}).
+ * The body runs under the root node of the intercession site. Handlers with
+ * nodes that depend on their own root, e.g., returns, which are caught by
+ * the handler's method, or thisContext, are therefore not spliced. Like the
+ * root of the handler, the body is wrapped to intercede the returned value.
+ * Everything else keeps going through the regular call node.
+ */
+public final class MateSplicedHandlerNode extends Node {
+  private static final int MAX_SPLICED_HANDLER_SIZE = 64;
+
+  @Child private ExpressionNode body;
+  private final FrameDescriptor frameDescriptor;
+
+  private MateSplicedHandlerNode(final Invokable handler, final ExpressionNode body) {
+    this.body = handler.hasMateReturn() ? new MateReturnNode(body) : body;
+    frameDescriptor = handler.getFrameDescriptor();
+  }
+
+  private static boolean isRootSensitive(final Node node) {
+    return node instanceof ReturnLocalNode || node instanceof ReturnNonLocalNode
+        || node instanceof CatchNonLocalReturnNode || node instanceof ThisContextNode
+        || node instanceof LazyMethodBodyNode;
+  }
+
+  private static boolean hasRootSensitiveNodes(final ExpressionNode body) {
+    boolean[] found = {false};
+    body.accept(node -> {
+      found[0] = isRootSensitive(node);
+      return !found[0];
+    });
+    return found[0];
+  }
+
+  public static MateSplicedHandlerNode createIfSpliceable(final DynamicObject metaMethod) {
+    if (!Universe.getCurrent().splicedIH() || !SMethod.isSMethod(metaMethod)) {
+      return null;
+    }
+    Invokable handler = (Invokable) SInvokable.getCallTarget(metaMethod, ExecutionLevel.Meta).getRootNode();
+    // parses a lazy body, which also determines the embedded blocks
+    ExpressionNode body = handler.copyUninitializedBody();
+    if (SMethod.getEmbeddedBlocks(metaMethod).length > 0
+        || NodeUtil.countNodes(body) > MAX_SPLICED_HANDLER_SIZE
+        || hasRootSensitiveNodes(body)) {
+      return null;
+    }
+    return new MateSplicedHandlerNode(handler, body);
+  }
+
+  public Object execute(final Object[] arguments) {
+    VirtualFrame handlerFrame = Truffle.getRuntime().createVirtualFrame(arguments, frameDescriptor);
+    return body.executeGeneric(handlerFrame);
+  }
+
+  @Override
+  public NodeCost getCost() {
+    return NodeCost.NONE;
+  }
+}
@@ -12,6 +12,7 @@ import com.oracle.truffle.api.frame.FrameInstance.FrameAccess;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.MaterializedFrame;
+import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.object.DynamicObject;
 
 import bd.primitives.Primitive;
@@ -24,10 +25,20 @@ import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.TernaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
 import som.vm.Universe;
+import som.vmobjects.LazyMockFrame;
 import som.vmobjects.MockJavaObject;
+import som.vmobjects.SAbstractObject;
 
 
 public class ContextPrims {
+  /** A lazy context was used after the metaobject it was passed to returned. */
+  private static Object invalidContext(final VirtualFrame frame, final LazyMockFrame context) {
+    CompilerDirectives.transferToInterpreter();
+    return SAbstractObject.sendError(context,
+        "The context of a local variable access is only valid while its metaobject runs",
+        SArguments.getEnvironment(frame), SArguments.getExecutionLevel(frame));
+  }
+
   @GenerateNodeFactory
   @Primitive(className = "Context", primitive = "method", selector = "method", receiverType = {FrameInstance.class})
   public abstract static class GetMethodPrim extends UnaryExpressionNode {
@@ -73,6 +84,12 @@ public class ContextPrims {
   @GenerateNodeFactory
   @Primitive(className = "Context", primitive = "localAt:", selector = "localAt:", receiverType = { MockJavaObject.class })
   public abstract static class GetLocalVarAtPrim extends BinaryExpressionNode {
+    @Specialization(guards = "mockedFrame.isInvalid()")
+    public final Object doInvalidFrame(final VirtualFrame frame,
+        final LazyMockFrame mockedFrame, final String identifier) {
+      return invalidContext(frame, mockedFrame);
+    }
+
     @Specialization(guards = {"identifier==cachedIdentifier"})
     public final Object doVirtualFrame(final MockJavaObject mockedFrame,
         final String identifier,
@@ -106,6 +123,12 @@ public class ContextPrims {
   @GenerateNodeFactory
   @Primitive(className = "Context", primitive = "localAt:put:", selector = "localAt:put:", receiverType = { MockJavaObject.class })
   public abstract static class LocalVarAtPutPrim extends TernaryExpressionNode {
+    @Specialization(guards = "mockedFrame.isInvalid()")
+    public final Object doInvalidFrame(final VirtualFrame frame,
+        final LazyMockFrame mockedFrame, final String identifier, final Object value) {
+      return invalidContext(frame, mockedFrame);
+    }
+
     @Specialization(guards = {"identifier==cachedIdentifier"})
     public final Object doVirtualFrame(final MockJavaObject mockedFrame,
         final String identifier, final long value,
@@ -143,6 +166,11 @@ public class ContextPrims {
   @Primitive(className = "Context", primitive = "argAt:", selector = "argAt:", receiverType = { MockJavaObject.class })
   public abstract static class GetArgAtPrim extends BinaryExpressionNode {
     // Todo: dispatch chain index->slot
+    @Specialization
+    public final Object doLazyFrame(final LazyMockFrame mockedFrame, final long index) {
+      return mockedFrame.getArgument((int) index);
+    }
+
     @Specialization
     public final Object doVirtualFrame(final MockJavaObject mockedFrame,
         final long index) {
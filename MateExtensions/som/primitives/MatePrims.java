@@ -1,20 +1,36 @@
 package som.primitives;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.FinalLocationException;
+import com.oracle.truffle.api.object.IncompatibleLocationException;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Property;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.profiles.ValueProfile;
 
 import bd.primitives.Primitive;
+import som.interpreter.SArguments;
 import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.TernaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
+import som.matenodes.IntercessionHandling;
 import som.vm.Universe;
 import som.vm.constants.Globals;
 import som.vm.constants.Nil;
+import som.vm.constants.ReflectiveOp;
 import som.vmobjects.MockJavaObject;
 import som.vmobjects.SAbstractObject;
+import som.vmobjects.SArray;
 import som.vmobjects.SClass;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SObject;
 import som.vmobjects.SReflectiveObject;
 import som.vmobjects.SShape;
 
@@ -113,4 +129,216 @@ public final class MatePrims {
       return value == null ? Nil.nilObject : value;
     }
   }
+
+  /**
+   * Bulk version of instVarAt:. Reads all the instance fields of an object
+   * into a single array, so that layout metaobjects doing serialization or
+   * proxying do not need one reflective call per field.
+   */
+  @GenerateNodeFactory
+  @Primitive(className = "Object", primitive = "fieldsAsArray", selector = "fieldsAsArray", mate = true)
+  public abstract static class MateReadAllFieldsPrim extends UnaryExpressionNode {
+    protected static final int LIMIT = 6;
+
+    @ExplodeLoop
+    @Specialization(guards = "receiver.getShape() == cachedShape",
+        assumptions = "cachedShape.getValidAssumption()", limit = "LIMIT")
+    public final SArray doCached(final DynamicObject receiver,
+        @Cached("receiver.getShape()") final Shape cachedShape,
+        @Cached(value = "fieldLocations(cachedShape)", dimensions = 1) final Location[] locations) {
+      Object[] values = new Object[locations.length];
+      for (int i = 0; i < locations.length; i++) {
+        if (locations[i] == null) {
+          values[i] = Nil.nilObject;
+        } else {
+          values[i] = locations[i].get(receiver, cachedShape);
+        }
+      }
+      return SArray.create(values);
+    }
+
+    @TruffleBoundary
+    @Specialization(replaces = "doCached")
+    public final SArray doUncached(final DynamicObject receiver) {
+      Object[] values = new Object[SClass.getNumberOfInstanceFields(SObject.getSOMClass(receiver))];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = receiver.get(i, Nil.nilObject);
+      }
+      return SArray.create(values);
+    }
+
+    protected static Location[] fieldLocations(final Shape shape) {
+      Location[] locations = new Location[
+          SClass.getNumberOfInstanceFields(SObject.getSOMClass(shape.getObjectType()))];
+      for (int i = 0; i < locations.length; i++) {
+        Property property = shape.getProperty(i);
+        locations[i] = property == null ? null : property.getLocation();
+      }
+      return locations;
+    }
+  }
+
+  /**
+   * Bulk version of instVarAt:put:. Writes the instance fields of an object,
+   * in order, from the elements of an array, which needs to have exactly one
+   * element per field. For shapes that have all the fields already, the
+   * locations are cached and the writes do not change the shape. A layout
+   * metaobject sees the whole write as a single writeAll: request.
+   */
+  @GenerateNodeFactory
+  @Primitive(className = "Object", primitive = "fieldsFromArray:", selector = "fieldsFromArray:", mate = true)
+  public abstract static class MateWriteAllFieldsPrim extends BinaryExpressionNode {
+    protected static final int LIMIT = 6;
+
+    @Child private IntercessionHandling layout =
+        IntercessionHandling.createForOperation(ReflectiveOp.LayoutPrimWriteAllFields);
+
+    private final ValueProfile storageType = ValueProfile.createClassProfile();
+
+    @ExplodeLoop
+    @Specialization(guards = {"receiver.getShape() == cachedShape", "locations != null"},
+        assumptions = "cachedShape.getValidAssumption()", limit = "LIMIT")
+    public final Object doCached(final VirtualFrame frame, final DynamicObject receiver, final SArray values,
+        @Cached("receiver.getShape()") final Shape cachedShape,
+        @Cached(value = "completeFieldLocations(cachedShape)", dimensions = 1) final Location[] locations) {
+      Object intercepted = layout.doMateSemantics(frame, new Object[] {receiver, values});
+      if (intercepted != null) {
+        return intercepted;
+      }
+      Object[] elements = values.toJavaArray(storageType);
+      if (elements.length != locations.length) {
+        return fieldsCountMismatch(frame, receiver, "fieldsFromArray:", elements.length, locations.length);
+      }
+      for (int i = 0; i < locations.length; i++) {
+        try {
+          locations[i].set(receiver, elements[i], cachedShape);
+        } catch (IncompatibleLocationException | FinalLocationException e) {
+          // a value of another type, the location needs to be generalized
+          writeFields(receiver, elements);
+          return receiver;
+        }
+      }
+      return receiver;
+    }
+
+    @Specialization(replaces = "doCached")
+    public final Object doUncached(final VirtualFrame frame, final DynamicObject receiver, final SArray values) {
+      Object intercepted = layout.doMateSemantics(frame, new Object[] {receiver, values});
+      if (intercepted != null) {
+        return intercepted;
+      }
+      Object[] elements = values.toJavaArray(storageType);
+      int fieldsCount = fieldsCount(receiver);
+      if (elements.length != fieldsCount) {
+        return fieldsCountMismatch(frame, receiver, "fieldsFromArray:", elements.length, fieldsCount);
+      }
+      writeFields(receiver, elements);
+      return receiver;
+    }
+
+    /** @return the locations of all the fields, or null if the shape lacks some */
+    protected static Location[] completeFieldLocations(final Shape shape) {
+      Location[] locations = MateReadAllFieldsPrim.fieldLocations(shape);
+      for (Location location : locations) {
+        if (location == null) {
+          return null;
+        }
+      }
+      return locations;
+    }
+
+    @TruffleBoundary
+    private static int fieldsCount(final DynamicObject receiver) {
+      return SClass.getNumberOfInstanceFields(SObject.getSOMClass(receiver));
+    }
+
+    @TruffleBoundary
+    private static void writeFields(final DynamicObject receiver, final Object[] values) {
+      for (int i = 0; i < values.length; i++) {
+        receiver.define(i, values[i]);
+      }
+    }
+
+    @Override
+    public ReflectiveOp reflectiveOperation() {
+      return ReflectiveOp.LayoutPrimWriteAllFields;
+    }
+  }
+
+  /**
+   * Sends error: to the receiver of a bulk field primitive that got an array
+   * with fewer or more elements than the receiver has fields.
+   */
+  static Object fieldsCountMismatch(final VirtualFrame frame, final Object receiver,
+      final String selector, final int values, final int fields) {
+    CompilerDirectives.transferToInterpreter();
+    return SAbstractObject.sendError(receiver, selector + " got " + values
+        + " values for " + fields + " fields",
+        SArguments.getEnvironment(frame), SArguments.getExecutionLevel(frame));
+  }
+
+  /**
+   * Makes the receiver adopt the layout of another object: its shape, and with
+   * it class and environment, together with the values of all its fields. The
+   * properties are cached per pair of shapes.
+   */
+  @GenerateNodeFactory
+  @Primitive(className = "Object", primitive = "copyLayoutFrom:", selector = "copyLayoutFrom:", mate = true)
+  public abstract static class MateCopyLayoutPrim extends BinaryExpressionNode {
+    protected static final int LIMIT = 6;
+
+    @ExplodeLoop
+    @Specialization(guards = {"receiver.getShape() == cachedShape", "original.getShape() == cachedOriginalShape"},
+        assumptions = {"cachedShape.getValidAssumption()", "cachedOriginalShape.getValidAssumption()"},
+        limit = "LIMIT")
+    public final DynamicObject doCached(final DynamicObject receiver, final DynamicObject original,
+        @Cached("receiver.getShape()") final Shape cachedShape,
+        @Cached("original.getShape()") final Shape cachedOriginalShape,
+        @Cached(value = "propertiesOf(cachedOriginalShape)", dimensions = 1) final Property[] properties) {
+      receiver.setShapeAndResize(cachedShape, cachedOriginalShape);
+      for (int i = 0; i < properties.length; i++) {
+        properties[i].setInternal(receiver, properties[i].get(original, cachedOriginalShape));
+      }
+      return receiver;
+    }
+
+    @TruffleBoundary
+    @Specialization(replaces = "doCached")
+    public final DynamicObject doUncached(final DynamicObject receiver, final DynamicObject original) {
+      Shape shape = original.getShape();
+      receiver.setShapeAndResize(receiver.getShape(), shape);
+      for (Property property : shape.getPropertyList()) {
+        property.setInternal(receiver, property.get(original, shape));
+      }
+      return receiver;
+    }
+
+    protected static Property[] propertiesOf(final Shape shape) {
+      return shape.getPropertyList().toArray(new Property[0]);
+    }
+  }
+
+  /**
+   * Declares a find:since: handler as a pure function of the class and the
+   * selector it receives, allowing the VM to memoize its results.
+   */
+  @GenerateNodeFactory
+  @Primitive(className = "Method", primitive = "declarePureLookup", selector = "declarePureLookup", mate = true)
+  public abstract static class MateDeclarePureLookupPrim extends UnaryExpressionNode {
+    @TruffleBoundary
+    @Specialization
+    public final DynamicObject doSMethod(final DynamicObject receiver) {
+      SInvokable.getInvokable(receiver).declarePureLookup();
+      return receiver;
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(className = "Method", primitive = "isPureLookup", selector = "isPureLookup", mate = true)
+  public abstract static class MateIsPureLookupPrim extends UnaryExpressionNode {
+    @Specialization
+    public final boolean doSMethod(final DynamicObject receiver) {
+      return SInvokable.getInvokable(receiver).isPureLookup();
+    }
+  }
 }
@@ -2,12 +2,16 @@ package som.primitives;
 
 import java.util.EnumSet;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.HiddenKey;
 import com.oracle.truffle.api.object.LocationModifier;
 import com.oracle.truffle.api.object.Property;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.profiles.ValueProfile;
 
 import bd.primitives.Primitive;
 import som.interpreter.nodes.nary.BinaryExpressionNode;
@@ -92,4 +96,35 @@ public class ShapePrims {
           new SShape(shape.getShape().addProperty(environment))});
     }
   }
+
+  /**
+   * Allocates an object with the given shape and initializes all its fields at
+   * once. It is the counterpart of Object>>#fieldsAsArray for deserialization,
+   * and needs one value per field of the shape.
+   */
+  @GenerateNodeFactory
+  @Primitive(className = "Shape", primitive = "newInstanceWithFields:", mate = true)
+  public abstract static class MateNewInstanceWithFieldsPrim extends BinaryExpressionNode {
+    private final ValueProfile storageType = ValueProfile.createClassProfile();
+
+    @Specialization
+    public final Object doSShape(final VirtualFrame frame, final SShape shape, final SArray values) {
+      Object[] elements = values.toJavaArray(storageType);
+      int fieldsCount = shape.getShape().getPropertyCount();
+      if (elements.length != fieldsCount) {
+        return MatePrims.fieldsCountMismatch(frame, shape, "newInstanceWithFields:",
+            elements.length, fieldsCount);
+      }
+      return newInstance(shape.getShape(), elements);
+    }
+
+    @TruffleBoundary
+    private static DynamicObject newInstance(final Shape shape, final Object[] values) {
+      DynamicObject instance = shape.newInstance();
+      for (int i = 0; i < values.length; i++) {
+        instance.define(i, values[i]);
+      }
+      return instance;
+    }
+  }
 }
@@ -0,0 +1,80 @@
+package som.vm;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.VmSettings;
+import som.interpreter.DeoptTracer;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SSymbol;
+
+/**
+ * Memoizes the results of find:since: handlers declared as pure lookups
+ * (Method>>#declarePureLookup), i.e., whose answer only depends on the
+ * class where the lookup starts and the selector.
+ *
+ * Entries are kept per handler method: an environment only takes part in
+ * the lookup through the handler it answers, so replacing the message
+ * metaobject of an environment, or installing another environment, reaches
+ * a different table. Any change to the methods or the superclass of a class
+ * flushes the whole cache and invalidates the assumption compiled code
+ * depends on.
+ */
+public final class PureLookupCache {
+  private static final Map<DynamicObject, Map<DynamicObject, Map<SSymbol, DynamicObject>>> lookups =
+      new WeakHashMap<>();
+
+  @CompilationFinal private static Assumption stable = createAssumption();
+
+  private PureLookupCache() { }
+
+  public static boolean isPure(final DynamicObject handler) {
+    return SInvokable.getInvokable(handler).isPureLookup();
+  }
+
+  @TruffleBoundary
+  public static synchronized DynamicObject lookup(final DynamicObject handler,
+      final DynamicObject since, final SSymbol selector) {
+    Map<DynamicObject, Map<SSymbol, DynamicObject>> classes = lookups.get(handler);
+    if (classes == null) { return null; }
+    Map<SSymbol, DynamicObject> methods = classes.get(since);
+    if (methods == null) { return null; }
+    return methods.get(selector);
+  }
+
+  @TruffleBoundary
+  public static synchronized void record(final DynamicObject handler,
+      final DynamicObject since, final SSymbol selector, final DynamicObject method) {
+    lookups.computeIfAbsent(handler, h -> new WeakHashMap<>())
+           .computeIfAbsent(since, c -> new HashMap<>())
+           .put(selector, method);
+  }
+
+  /** To be called whenever the methods or the superclass of a class change. */
+  @TruffleBoundary
+  public static synchronized void invalidate() {
+    if (lookups.isEmpty()) { return; }
+    lookups.clear();
+    Assumption old = stable;
+    stable = createAssumption();
+    old.invalidate();
+    if (VmSettings.TRACE_DEOPT) {
+      DeoptTracer.invalidation("pure lookups", "class methods or superclass changed");
+    }
+  }
+
+  public static Assumption getAssumption() {
+    return stable;
+  }
+
+  private static Assumption createAssumption() {
+    return Truffle.getRuntime().createAssumption("Pure lookups are stable");
+  }
+}
@@ -4,6 +4,6 @@ public enum ReflectiveOp {
   ExecutorReadField, ExecutorWriteField, ExecutorLocalArg, ExecutorNonLocalArg,
     ExecutorLocalSuperArg, ExecutorNonLocalSuperArg, ExecutorReadLocal, ExecutorWriteLocal, ExecutorReturn,
   MessageLookup, MessageActivation,
-  LayoutReadField, LayoutWriteField, LayoutPrimReadField, LayoutPrimWriteField,
+  LayoutReadField, LayoutWriteField, LayoutPrimReadField, LayoutPrimWriteField, LayoutPrimWriteAllFields,
   None
 }
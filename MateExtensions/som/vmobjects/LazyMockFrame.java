@@ -0,0 +1,76 @@
+package som.vmobjects;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameInstance;
+import com.oracle.truffle.api.frame.FrameInstance.FrameAccess;
+import com.oracle.truffle.api.frame.MaterializedFrame;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.interpreter.MateVisitors;
+import som.interpreter.SArguments;
+
+/**
+ * Frame handed to the local-variable metaobjects. Instead of materializing the
+ * frame eagerly, it only keeps the arguments array of the activation, which
+ * identifies the frame on the stack. The frame is looked up and materialized
+ * the first time a Context primitive asks for it, arguments are read from the
+ * array directly. Handlers that never look at the frame therefore leave it
+ * virtual.
+ *
+ * The frame is only on the stack while the handler runs. The dispatch calls
+ * {@link #leave} when the handler returns. From then on, a context whose
+ * frame was not materialized is no longer valid, and the Context primitives
+ * report an error instead of looking for the frame. Contexts whose frame
+ * was materialized while the handler ran, e.g., by localAt:, stay valid.
+ */
+public final class LazyMockFrame extends MockJavaObject {
+  private final Object[] frameArguments;
+  private MaterializedFrame materialized;
+  private boolean left;
+
+  public LazyMockFrame(final Object[] frameArguments, final DynamicObject klass) {
+    super(null, klass);
+    this.frameArguments = frameArguments;
+  }
+
+  @Override
+  public Object getMockedObject() {
+    if (materialized == null) {
+      if (left) {
+        throw new IllegalStateException("The context was used after its metaobject returned");
+      }
+      materialized = materializeFrame(frameArguments);
+    }
+    return materialized;
+  }
+
+  public boolean isMaterialized() {
+    return materialized != null;
+  }
+
+  /** @return whether the frame can no longer be looked up */
+  public boolean isInvalid() {
+    return left && materialized == null;
+  }
+
+  public Object getArgument(final int index) {
+    return SArguments.arg(frameArguments, index);
+  }
+
+  /** Called when the handler returned, the frame is not looked up anymore. */
+  public void leave() {
+    left = true;
+  }
+
+  @TruffleBoundary
+  private static MaterializedFrame materializeFrame(final Object[] frameArguments) {
+    FrameInstance frame = Truffle.getRuntime().iterateFrames(
+        new MateVisitors.FindFrameWithArguments(frameArguments));
+    if (frame == null) {
+      throw new IllegalStateException(
+          "The frame of a lazy context must be on the stack while the metaobject is running");
+    }
+    return frame.getFrame(FrameAccess.MATERIALIZE).materialize();
+  }
+}
@@ -24,6 +24,7 @@ public class SMateEnvironment extends SObject {
         field = Semantics_IDX;
         break;
       case LayoutReadField: case LayoutWriteField: case LayoutPrimReadField: case LayoutPrimWriteField:
+      case LayoutPrimWriteAllFields:
         field = Layout_IDX;
         break;
       default:
@@ -68,6 +69,9 @@ public class SMateEnvironment extends SObject {
       case LayoutWriteField: case LayoutPrimWriteField:
         selector = Universe.getCurrent().symbolFor("write:value:");
         break;
+      case LayoutPrimWriteAllFields:
+        selector = Universe.getCurrent().symbolFor("writeAll:");
+        break;
 
       default:
         selector = null;
@@ -26,6 +26,7 @@ public class VMOptions {
   @CompilationFinal public boolean vmReflectionActivated;
   @CompilationFinal public boolean unoptimizedIH;
   @CompilationFinal public boolean envInObject;
+  @CompilationFinal public boolean splicedIH;
   @CompilationFinal public List<URL> classPath;
 
   public VMOptions(final String[] args) {
@@ -33,6 +34,7 @@ public class VMOptions {
     printAST = false;
     unoptimizedIH = false;
     envInObject = false;
+    splicedIH = false;
     classPath = new ArrayList<URL>();
     this.args = processVmArguments(args);
     showUsage = args.length == 0;
@@ -80,6 +82,9 @@ public class VMOptions {
         } else if (arguments[currentArg].equals("--envInObject")) {
           envInObject = true;
           currentArg += 1;
+        } else if (arguments[currentArg].equals("--splicedIH")) {
+          splicedIH = true;
+          currentArg += 1;
         } else {
           parsedArgument = false;
         }
@@ -104,7 +109,7 @@ public class VMOptions {
     Universe.println("  --debug                Run in Truffle Debugger/REPL");
     Universe.println("  --web-debug            Start web debugger");
     Universe.println("");
-    Universe.println("  --profile              Enable the TruffleProfiler");
+    Universe.println("  --profile              Enable the sampling profiler");
     Universe.println("  --dynamic-metrics      Enable the DynamicMetrics tool");
     Universe.println("alternative options include:                                   ");
     Universe.println("    -cp <directories separated by " + File.pathSeparator + ">");
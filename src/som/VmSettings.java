@@ -13,6 +13,17 @@ public class VmSettings implements Settings {
   public static final boolean TRUFFLE_DEBUGGER_ENABLED;
   public static final boolean IGV_DUMP_AFTER_PARSING;
   public static final boolean ANSI_COLOR_IN_OUTPUT;
+  public static final boolean TRACE_DEOPT;
+  public static final boolean CALL_SITE_PROFILES;
+  public static final boolean LAZY_METHODS;
+  public static final boolean SHARE_LITERAL_ARRAYS;
+  public static final boolean FIXED_OBJECT_LAYOUTS;
+  public static final boolean PRESIZED_SHAPES;
+  public static final boolean TRACE_SHAPES;
+  public static final boolean INLINE_BLOCK_CALLEES;
+  public static final boolean SPLIT_BLOCK_CALLEES;
+  public static final boolean SPLITTING;
+  public static final boolean TRACE_SPLITTING;
 
   public static final String BASE_DIRECTORY;
   public static final String INSTRUMENTATION_PROP = "som.instrumentation";
@@ -36,6 +47,22 @@ public class VmSettings implements Settings {
     DNU_PRINT_STACK_TRACE = getBool("som.printStackTraceOnDNU", false);
     IGV_DUMP_AFTER_PARSING = getBool("som.igvDumpAfterParsing", false);
     ANSI_COLOR_IN_OUTPUT = getBool("som.useAnsiColoring", false);
+    TRACE_DEOPT = getBool("som.traceDeopt", false);
+    CALL_SITE_PROFILES = getBool("som.callSiteProfiles", false);
+
+    // tools expect the complete AST, with all its source sections, at load time
+    LAZY_METHODS = getBool("som.lazyMethods", false) && !INSTRUMENTATION
+        && !TRUFFLE_DEBUGGER_ENABLED;
+    // literal arrays are mutable, sharing them is only correct for programs
+    // that do not change them
+    SHARE_LITERAL_ARRAYS = getBool("som.shareLiteralArrays", false);
+    FIXED_OBJECT_LAYOUTS = getBool("som.fixedObjectLayouts", false);
+    PRESIZED_SHAPES = getBool("som.presizedShapes", true) && !FIXED_OBJECT_LAYOUTS;
+    TRACE_SHAPES    = getBool("som.traceShapes", false);
+    INLINE_BLOCK_CALLEES = getBool("som.inlineBlockCallees", false);
+    SPLIT_BLOCK_CALLEES  = getBool("som.splitBlockCallees", false);
+    SPLITTING       = getBool("som.splitting", false);
+    TRACE_SPLITTING = getBool("som.traceSplitting", false);
 
     BASE_DIRECTORY = System.getProperty("som.baseDir", System.getProperty("user.dir"));
 
@@ -0,0 +1,416 @@
+package som.compiler;
+
+import static som.interpreter.SNodeFactory.createBlockNode;
+import static som.interpreter.SNodeFactory.createCascadeMessageSend;
+import static som.interpreter.SNodeFactory.createGlobalRead;
+import static som.interpreter.SNodeFactory.createMessageSend;
+import static som.interpreter.SNodeFactory.createSequence;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.SourceSection;
+
+import som.VmSettings;
+import som.compiler.Variable.Local;
+import som.interpreter.SomLanguage;
+import som.interpreter.nodes.ExpressionNode;
+import som.interpreter.nodes.FieldNode.FieldReadNode;
+import som.interpreter.nodes.FieldNode.FieldWriteNode;
+import som.interpreter.nodes.literals.ArrayLiteralNode;
+import som.interpreter.nodes.literals.BigIntegerLiteralNode;
+import som.interpreter.nodes.literals.CharLiteralNode;
+import som.interpreter.nodes.literals.DoubleLiteralNode;
+import som.interpreter.nodes.literals.IntegerLiteralNode;
+import som.interpreter.nodes.literals.LiteralNode;
+import som.interpreter.nodes.literals.StringLiteralNode;
+import som.interpreter.nodes.literals.SymbolLiteralNode;
+import som.interpreter.nodes.nary.ExpressionWithTagsNode;
+import som.interpreter.nodes.specialized.BooleanInlinedLiteralNode.AndInlinedLiteralNode;
+import som.interpreter.nodes.specialized.BooleanInlinedLiteralNode.OrInlinedLiteralNode;
+import som.interpreter.nodes.specialized.IfInlinedLiteralNode;
+import som.interpreter.nodes.specialized.IfTrueIfFalseInlinedLiteralsNode;
+import som.interpreter.nodes.specialized.IntToDoInlinedLiteralsNodeGen;
+import som.interpreter.nodes.specialized.whileloops.WhileInlinedLiteralsNode;
+import som.vm.Symbols;
+import som.vm.Universe;
+import som.vmobjects.SArray;
+import som.vmobjects.SClass;
+import som.vmobjects.SObject;
+import som.vmobjects.SSymbol;
+import tools.language.StructuralProbe;
+
+
+/**
+ * Creates classes, methods, and the nodes of their ASTs for the
+ * {@link Parser} and the {@link AstReader}. With an {@link AstWriter}, each
+ * step is also encoded, so that reading the encoding repeats the same steps
+ * and results in the same uninitialized ASTs.
+ */
+final class AstBuilder {
+  private final SomLanguage     language;
+  private final StructuralProbe structuralProbe;
+  private final AstWriter       writer;
+
+  /** The literal arrays of the class, shared with -Dsom.shareLiteralArrays. */
+  private final Map<List<Object>, SArray> literalArrays = new HashMap<>();
+
+  AstBuilder(final SomLanguage language, final StructuralProbe structuralProbe,
+      final AstWriter writer) {
+    this.language        = language;
+    this.structuralProbe = structuralProbe;
+    this.writer          = writer;
+  }
+
+  boolean isEncoding() {
+    return writer != null;
+  }
+
+  void className(final ClassGenerationContext cgenc, final SSymbol name) {
+    if (writer != null) { writer.className(name); }
+    cgenc.setName(name);
+  }
+
+  /** @return false, if the super class could not be loaded */
+  boolean superclass(final ClassGenerationContext cgenc, final SSymbol superName) {
+    if (writer != null) { writer.superclass(superName); }
+    cgenc.setSuperName(superName);
+
+    // Load the super class, if it is not nil (break the dependency cycle)
+    if (!superName.getString().equals("nil")) {
+      DynamicObject superClass = Universe.getCurrent().loadClass(superName);
+      if (superClass == null) {
+        return false;
+      }
+
+      cgenc.setInstanceFieldsOfSuper(SClass.getInstanceFields(superClass));
+      cgenc.setClassFieldsOfSuper(SClass.getInstanceFields(SObject.getSOMClass(superClass)));
+    }
+    return true;
+  }
+
+  void instanceField(final ClassGenerationContext cgenc, final SSymbol field) {
+    if (writer != null) { writer.instanceField(field); }
+    cgenc.addInstanceField(field);
+  }
+
+  void classSide(final ClassGenerationContext cgenc) {
+    if (writer != null) { writer.classSide(); }
+    cgenc.setClassSide(true);
+  }
+
+  void classField(final ClassGenerationContext cgenc, final SSymbol field) {
+    if (writer != null) { writer.classField(field); }
+    cgenc.addClassField(field);
+  }
+
+  MethodGenerationContext newMethod(final ClassGenerationContext cgenc) {
+    if (writer != null) { writer.newMethod(); }
+    return new MethodGenerationContext(cgenc, language);
+  }
+
+  MethodGenerationContext newBlock(final MethodGenerationContext outer) {
+    if (writer != null) { writer.newBlock(); }
+    return new MethodGenerationContext(outer.getHolder(), outer, language);
+  }
+
+  void argument(final MethodGenerationContext mgenc, final String name) {
+    if (writer != null) { writer.argument(name); }
+    mgenc.addArgumentIfAbsent(name);
+  }
+
+  void local(final MethodGenerationContext mgenc, final String name) {
+    if (writer != null) { writer.local(name); }
+    mgenc.addLocalIfAbsent(name);
+  }
+
+  void signature(final MethodGenerationContext mgenc, final SSymbol signature) {
+    if (writer != null) { writer.signature(signature); }
+    mgenc.setSignature(signature);
+  }
+
+  void primitive(final MethodGenerationContext mgenc) {
+    if (writer != null) { writer.primitive(); }
+    mgenc.markAsPrimitive();
+  }
+
+  /**
+   * Assembles the method and adds it to the instance or class side.
+   *
+   * @param body is null for primitives
+   */
+  DynamicObject method(final ClassGenerationContext cgenc, final MethodGenerationContext mgenc,
+      final ExpressionWithTagsNode body, final SourceSection section) {
+    if (writer != null) { writer.method(body, section); }
+    DynamicObject method = mgenc.assemble(body, section);
+    if (cgenc.isClassSide()) {
+      cgenc.addClassMethod(method);
+    } else {
+      cgenc.addInstanceMethod(method);
+    }
+    if (structuralProbe != null) {
+      structuralProbe.recordNewMethod(method);
+    }
+    return method;
+  }
+
+  ExpressionWithTagsNode block(final MethodGenerationContext mgenc,
+      final MethodGenerationContext bgenc, final ExpressionWithTagsNode body,
+      final SourceSection methodSection, final SourceSection section) {
+    DynamicObject blockMethod = bgenc.assemble(body, methodSection);
+    mgenc.addEmbeddedBlockMethod(blockMethod);
+    return record(createBlockNode(blockMethod, bgenc.requiresContext(), section),
+        writer == null ? null : w -> w.block(body, methodSection, section));
+  }
+
+  ExpressionWithTagsNode variableRead(final MethodGenerationContext mgenc,
+      final String variableName, final SourceSection source) {
+    return record(read(mgenc, variableName, source),
+        writer == null ? null : w -> w.variableRead(variableName, source));
+  }
+
+  private static ExpressionWithTagsNode read(final MethodGenerationContext mgenc,
+      final String variableName, final SourceSection source) {
+    // we need to handle super special here
+    if ("super".equals(variableName)) {
+      return mgenc.getSuperReadNode(source);
+    }
+
+    // we need to handle thisContext special here
+    if ("thisContext".equals(variableName)) {
+      return mgenc.getThisContextNode(source);
+    }
+
+    // now look up first local variables, or method arguments
+    Variable variable = mgenc.getVariable(variableName);
+    if (variable != null) {
+      return mgenc.getLocalReadNode(variableName, source);
+    }
+
+    // then object fields
+    SSymbol varName = Symbols.symbolFor(variableName);
+    FieldReadNode fieldRead = mgenc.getObjectFieldRead(varName, source);
+
+    if (fieldRead != null) {
+      return fieldRead;
+    }
+
+    // and finally assume it is a global
+    return mgenc.getGlobalRead(varName, source);
+  }
+
+  ExpressionWithTagsNode variableWrite(final MethodGenerationContext mgenc,
+      final String variableName, final ExpressionWithTagsNode exp, final SourceSection source) {
+    return record(write(mgenc, variableName, exp, source),
+        writer == null ? null : w -> w.variableWrite(variableName, exp, source));
+  }
+
+  private static ExpressionWithTagsNode write(final MethodGenerationContext mgenc,
+      final String variableName, final ExpressionWithTagsNode exp, final SourceSection source) {
+    Local variable = mgenc.getLocal(variableName);
+    if (variable != null) {
+      return mgenc.getLocalWriteNode(variableName, exp, source);
+    }
+
+    SSymbol fieldName = Symbols.symbolFor(variableName);
+    FieldWriteNode fieldWrite = mgenc.getObjectFieldWrite(fieldName, exp, source);
+
+    if (fieldWrite != null) {
+      return fieldWrite;
+    } else {
+      throw new RuntimeException("Neither a variable nor a field found "
+          + "in current scope that is named " + variableName + ". Arguments are read-only.");
+    }
+  }
+
+  ExpressionWithTagsNode nonLocalReturn(final MethodGenerationContext mgenc,
+      final ExpressionWithTagsNode exp, final SourceSection source) {
+    return record(mgenc.getNonLocalReturn(exp, source),
+        writer == null ? null : w -> w.nonLocalReturn(exp, source));
+  }
+
+  /** @param source is only used, when there is not exactly one expression */
+  ExpressionWithTagsNode sequence(final List<ExpressionWithTagsNode> expressions,
+      final SourceSection source) {
+    ExpressionWithTagsNode result;
+    if (expressions.size() == 0) {
+      result = createGlobalRead("nil", source);
+    } else if (expressions.size() == 1)  {
+      result = expressions.get(0);
+    } else {
+      result = createSequence(expressions, source);
+    }
+    return record(result, writer == null ? null : w -> w.sequence(expressions, source));
+  }
+
+  /** A unary or binary send. */
+  ExpressionWithTagsNode send(final SSymbol selector, final ExpressionNode[] arguments,
+      final SourceSection source) {
+    return record(createMessageSend(selector, arguments, source),
+        writer == null ? null : w -> w.send(selector, arguments, source));
+  }
+
+  /**
+   * A keyword send, the control structures with literal blocks as arguments
+   * are inlined.
+   */
+  ExpressionWithTagsNode keywordSend(final MethodGenerationContext mgenc,
+      final SSymbol msg, final List<ExpressionWithTagsNode> arguments,
+      final SourceSection source) {
+    return record(keywordMessage(mgenc, msg, arguments, source),
+        writer == null ? null : w -> w.keywordSend(msg, arguments, source));
+  }
+
+  private static ExpressionWithTagsNode keywordMessage(final MethodGenerationContext mgenc,
+      final SSymbol msg, final List<ExpressionWithTagsNode> arguments,
+      final SourceSection source) {
+    String msgStr = msg.getString();
+    if (msg.getNumberOfSignatureArguments() == 2) {
+      if (arguments.get(1) instanceof LiteralNode) {
+        if ("ifTrue:".equals(msgStr)) {
+          ExpressionNode condition = arguments.get(0);
+          condition.markAsControlFlowCondition();
+          ExpressionNode inlinedBody = ((LiteralNode) arguments.get(1)).inline(mgenc);
+          return new IfInlinedLiteralNode(condition, true, inlinedBody,
+              arguments.get(1)).initialize(source);
+        } else if ("ifFalse:".equals(msgStr)) {
+          ExpressionNode condition = arguments.get(0);
+          condition.markAsControlFlowCondition();
+          ExpressionNode inlinedBody = ((LiteralNode) arguments.get(1)).inline(mgenc);
+          return new IfInlinedLiteralNode(condition, false, inlinedBody,
+              arguments.get(1)).initialize(source);
+        } else if ("whileTrue:".equals(msgStr)) {
+          ExpressionNode inlinedCondition = ((LiteralNode) arguments.get(0)).inline(mgenc);
+          inlinedCondition.markAsControlFlowCondition();
+          ExpressionNode inlinedBody      = ((LiteralNode) arguments.get(1)).inline(mgenc);
+          inlinedBody.markAsLoopBody();
+          return new WhileInlinedLiteralsNode(inlinedCondition, inlinedBody,
+              true, arguments.get(0), arguments.get(1)).initialize(source);
+        } else if ("whileFalse:".equals(msgStr)) {
+          ExpressionNode inlinedCondition = ((LiteralNode) arguments.get(0)).inline(mgenc);
+          inlinedCondition.markAsControlFlowCondition();
+          ExpressionNode inlinedBody      = ((LiteralNode) arguments.get(1)).inline(mgenc);
+          inlinedBody.markAsLoopBody();
+          return new WhileInlinedLiteralsNode(inlinedCondition, inlinedBody,
+              false, arguments.get(0), arguments.get(1)).initialize(source);
+        } else if ("or:".equals(msgStr) || "||".equals(msgStr)) {
+          ExpressionNode inlinedArg = ((LiteralNode) arguments.get(1)).inline(mgenc);
+          return new OrInlinedLiteralNode(arguments.get(0), inlinedArg, arguments.get(1)).initialize(source);
+        } else if ("and:".equals(msgStr) || "&&".equals(msgStr)) {
+          ExpressionNode inlinedArg = ((LiteralNode) arguments.get(1)).inline(mgenc);
+          return new AndInlinedLiteralNode(arguments.get(0), inlinedArg, arguments.get(1)).initialize(source);
+        }
+      }
+    } else if (msg.getNumberOfSignatureArguments() == 3) {
+      if ("ifTrue:ifFalse:".equals(msgStr) &&
+          arguments.get(1) instanceof LiteralNode && arguments.get(2) instanceof LiteralNode) {
+        ExpressionNode condition = arguments.get(0);
+        condition.markAsControlFlowCondition();
+        ExpressionNode inlinedTrueNode  = ((LiteralNode) arguments.get(1)).inline(mgenc);
+        ExpressionNode inlinedFalseNode = ((LiteralNode) arguments.get(2)).inline(mgenc);
+        return new IfTrueIfFalseInlinedLiteralsNode(condition,
+            inlinedTrueNode, inlinedFalseNode, arguments.get(1), arguments.get(2)).initialize(source);
+      } else if (!VmSettings.DYNAMIC_METRICS && "to:do:".equals(msgStr) &&
+          arguments.get(2) instanceof LiteralNode) {
+        Local loopIdx = mgenc.addLocal("i:" + source.getCharIndex());
+        ExpressionNode inlinedBody = ((LiteralNode) arguments.get(2)).inline(mgenc, loopIdx);
+        inlinedBody.markAsLoopBody();
+        return IntToDoInlinedLiteralsNodeGen.create(inlinedBody, loopIdx.getSlot(),
+            arguments.get(2), arguments.get(0), arguments.get(1)).initialize(source);
+      }
+    }
+
+    return createMessageSend(msg, arguments.toArray(new ExpressionNode[0]),
+        source);
+  }
+
+  ExpressionWithTagsNode cascade(final ExpressionWithTagsNode receiver,
+      final List<ExpressionWithTagsNode> messages, final SourceSection source) {
+    return record(createCascadeMessageSend(receiver, messages, source),
+        writer == null ? null : w -> w.cascade(receiver, messages, source));
+  }
+
+  LiteralNode integer(final long value, final SourceSection source) {
+    return record(new IntegerLiteralNode(value).initialize(source),
+        writer == null ? null : w -> w.integer(value, source));
+  }
+
+  LiteralNode bigInteger(final BigInteger value, final SourceSection source) {
+    return record(new BigIntegerLiteralNode(value).initialize(source),
+        writer == null ? null : w -> w.bigInteger(value, source));
+  }
+
+  LiteralNode doubleLiteral(final double value, final SourceSection source) {
+    return record(new DoubleLiteralNode(value).initialize(source),
+        writer == null ? null : w -> w.doubleLiteral(value, source));
+  }
+
+  LiteralNode string(final String value, final SourceSection source) {
+    return record(new StringLiteralNode(value).initialize(source),
+        writer == null ? null : w -> w.string(value, source));
+  }
+
+  LiteralNode character(final char value, final SourceSection source) {
+    return record(new CharLiteralNode(value).initialize(source),
+        writer == null ? null : w -> w.character(value, source));
+  }
+
+  LiteralNode symbol(final SSymbol value, final SourceSection source) {
+    return record(new SymbolLiteralNode(value).initialize(source),
+        writer == null ? null : w -> w.symbol(value, source));
+  }
+
+  LiteralNode array(final SArray value, final SourceSection source) {
+    return record(new ArrayLiteralNode(value).initialize(source),
+        writer == null ? null : w -> w.array(value, source));
+  }
+
+  /**
+   * @param values the elements, nested literal arrays were created with this
+   *        method, too
+   */
+  SArray literalArray(final Object[] values) {
+    SArray array = internLiteralArray(values);
+    if (writer != null) { writer.literalArray(array, values); }
+    return array;
+  }
+
+  /**
+   * With -Dsom.shareLiteralArrays, methods of the class with equal literal
+   * arrays share one array. It is a mutable array like any other, so this is
+   * only correct for programs that do not change their literal arrays.
+   */
+  private SArray internLiteralArray(final Object[] values) {
+    if (!VmSettings.SHARE_LITERAL_ARRAYS) {
+      return SArray.create(values);
+    }
+
+    // elements are compared with equals(), i.e., 1 and 1.0 differ, and
+    // objects and nested arrays by identity. The key is a copy, because
+    // the array may use the values as its storage.
+    List<Object> key = Arrays.asList(values.clone());
+    SArray array = literalArrays.get(key);
+    if (array == null) {
+      array = SArray.create(values);
+      literalArrays.put(key, array);
+    }
+    return array;
+  }
+
+  private interface Encoding {
+    void write(AstWriter writer);
+  }
+
+  /** The node is encoded after it was created, so that it gets the next id. */
+  private <T extends ExpressionNode> T record(final T node, final Encoding encoding) {
+    if (encoding != null) {
+      encoding.write(writer);
+      writer.defineNode(node);
+    }
+    return node;
+  }
+}
@@ -0,0 +1,476 @@
+package som.compiler;
+
+import static som.compiler.AstWriter.ARGUMENT;
+import static som.compiler.AstWriter.ARRAY;
+import static som.compiler.AstWriter.BIG_INTEGER;
+import static som.compiler.AstWriter.BLOCK;
+import static som.compiler.AstWriter.CASCADE;
+import static som.compiler.AstWriter.CHAR;
+import static som.compiler.AstWriter.CLASS_FIELD;
+import static som.compiler.AstWriter.CLASS_NAME;
+import static som.compiler.AstWriter.CLASS_SIDE;
+import static som.compiler.AstWriter.DOUBLE;
+import static som.compiler.AstWriter.END;
+import static som.compiler.AstWriter.INSTANCE_FIELD;
+import static som.compiler.AstWriter.INTEGER;
+import static som.compiler.AstWriter.KEYWORD_SEND;
+import static som.compiler.AstWriter.LOCAL;
+import static som.compiler.AstWriter.MAGIC;
+import static som.compiler.AstWriter.METHOD;
+import static som.compiler.AstWriter.NEW_BLOCK;
+import static som.compiler.AstWriter.NEW_METHOD;
+import static som.compiler.AstWriter.NON_LOCAL_RETURN;
+import static som.compiler.AstWriter.PRIMITIVE;
+import static som.compiler.AstWriter.READ;
+import static som.compiler.AstWriter.SEND;
+import static som.compiler.AstWriter.SEQUENCE;
+import static som.compiler.AstWriter.SIGNATURE;
+import static som.compiler.AstWriter.STRING;
+import static som.compiler.AstWriter.SUPERCLASS;
+import static som.compiler.AstWriter.SYMBOL;
+import static som.compiler.AstWriter.VALUE_ARRAY;
+import static som.compiler.AstWriter.VALUE_CHAR;
+import static som.compiler.AstWriter.VALUE_DOUBLE;
+import static som.compiler.AstWriter.VALUE_FALSE;
+import static som.compiler.AstWriter.VALUE_INTEGER;
+import static som.compiler.AstWriter.VALUE_NIL;
+import static som.compiler.AstWriter.VALUE_STRING;
+import static som.compiler.AstWriter.VALUE_SYMBOL;
+import static som.compiler.AstWriter.VALUE_TRUE;
+import static som.compiler.AstWriter.VERSION;
+import static som.compiler.AstWriter.WRITE;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
+
+import som.interpreter.nodes.ExpressionNode;
+import som.interpreter.nodes.nary.ExpressionWithTagsNode;
+import som.vm.Symbols;
+import som.vm.Universe;
+import som.vm.constants.Nil;
+import som.vmobjects.SArray;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * Reads the encoding of an {@link AstWriter}, and repeats its steps with an
+ * {@link AstBuilder}, which results in the uninitialized ASTs the parser
+ * created.
+ */
+public final class AstReader {
+  private final byte[] data;
+  private int position;
+
+  private final List<String> strings = new ArrayList<>();
+
+  private final Source source;
+  private final AstBuilder builder;
+  private final List<ExpressionWithTagsNode> nodes = new ArrayList<>();
+  private final Deque<MethodGenerationContext> contexts = new ArrayDeque<>();
+
+  AstReader(final byte[] data, final Source source, final AstBuilder builder) {
+    this.data    = data;
+    this.source  = source;
+    this.builder = builder;
+  }
+
+  private void readHeader() {
+    if (data.length < MAGIC.length
+        || !Arrays.equals(MAGIC, Arrays.copyOf(data, MAGIC.length))) {
+      throw new IllegalArgumentException("Not an encoded SOM class");
+    }
+    position = MAGIC.length;
+
+    int version = readInt();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported version of the encoding: " + version);
+    }
+  }
+
+  void read(final ClassGenerationContext cgenc) {
+    readHeader();
+    String sourceName = readString();
+    if (source != null && !sourceName.equals(source.getName())) {
+      throw new IllegalArgumentException("The class was encoded from " + sourceName
+          + ", but is read with the source of " + source.getName());
+    }
+
+    byte op;
+    try {
+      while ((op = data[position++]) != END) {
+        readOperation(cgenc, op);
+      }
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated or corrupt encoding at " + position, e);
+    }
+    assert contexts.isEmpty();
+  }
+
+  private void readOperation(final ClassGenerationContext cgenc, final byte op) {
+    switch (op) {
+      case CLASS_NAME:
+        builder.className(cgenc, readSymbol());
+        break;
+      case SUPERCLASS: {
+        SSymbol superName = readSymbol();
+        if (!builder.superclass(cgenc, superName)) {
+          throw new IllegalStateException("Super class " + superName.getString()
+              + " could not be loaded");
+        }
+        break;
+      }
+      case INSTANCE_FIELD:
+        builder.instanceField(cgenc, readSymbol());
+        break;
+      case CLASS_SIDE:
+        builder.classSide(cgenc);
+        break;
+      case CLASS_FIELD:
+        builder.classField(cgenc, readSymbol());
+        break;
+
+      case NEW_METHOD:
+        contexts.push(builder.newMethod(cgenc));
+        break;
+      case NEW_BLOCK:
+        contexts.push(builder.newBlock(contexts.peek()));
+        break;
+      case ARGUMENT:
+        builder.argument(contexts.peek(), readString());
+        break;
+      case LOCAL:
+        builder.local(contexts.peek(), readString());
+        break;
+      case SIGNATURE:
+        builder.signature(contexts.peek(), readSymbol());
+        break;
+      case PRIMITIVE:
+        builder.primitive(contexts.peek());
+        break;
+      case METHOD: {
+        ExpressionWithTagsNode body = readNode();
+        SourceSection section = body == null ? null : readSection();
+        builder.method(cgenc, contexts.pop(), body, section);
+        break;
+      }
+      case BLOCK: {
+        ExpressionWithTagsNode body = readNode();
+        SourceSection methodSection = readSection();
+        SourceSection section = readSection();
+        MethodGenerationContext bgenc = contexts.pop();
+        define(builder.block(contexts.peek(), bgenc, body, methodSection, section));
+        break;
+      }
+
+      case READ: {
+        String name = readString();
+        define(builder.variableRead(contexts.peek(), name, readSection()));
+        break;
+      }
+      case WRITE: {
+        String name = readString();
+        ExpressionWithTagsNode value = readNode();
+        define(builder.variableWrite(contexts.peek(), name, value, readSection()));
+        break;
+      }
+      case NON_LOCAL_RETURN: {
+        ExpressionWithTagsNode exp = readNode();
+        define(builder.nonLocalReturn(contexts.peek(), exp, readSection()));
+        break;
+      }
+      case SEQUENCE: {
+        List<ExpressionWithTagsNode> expressions = readNodes();
+        SourceSection section = expressions.size() == 1 ? null : readSection();
+        define(builder.sequence(expressions, section));
+        break;
+      }
+      case SEND: {
+        SSymbol selector = readSymbol();
+        ExpressionNode[] arguments = readNodes().toArray(new ExpressionNode[0]);
+        define(builder.send(selector, arguments, readSection()));
+        break;
+      }
+      case KEYWORD_SEND: {
+        SSymbol selector = readSymbol();
+        List<ExpressionWithTagsNode> arguments = readNodes();
+        define(builder.keywordSend(contexts.peek(), selector, arguments, readSection()));
+        break;
+      }
+      case CASCADE: {
+        ExpressionWithTagsNode receiver = readNode();
+        List<ExpressionWithTagsNode> messages = readNodes();
+        define(builder.cascade(receiver, messages, readSection()));
+        break;
+      }
+
+      case INTEGER: {
+        long value = readLong();
+        define(builder.integer(value, readSection()));
+        break;
+      }
+      case BIG_INTEGER: {
+        BigInteger value = new BigInteger(readBytes());
+        define(builder.bigInteger(value, readSection()));
+        break;
+      }
+      case DOUBLE: {
+        double value = readDouble();
+        define(builder.doubleLiteral(value, readSection()));
+        break;
+      }
+      case STRING: {
+        String value = readString();
+        define(builder.string(value, readSection()));
+        break;
+      }
+      case CHAR: {
+        char value = (char) readInt();
+        define(builder.character(value, readSection()));
+        break;
+      }
+      case SYMBOL: {
+        SSymbol value = readSymbol();
+        define(builder.symbol(value, readSection()));
+        break;
+      }
+      case ARRAY: {
+        SArray value = readArray();
+        define(builder.array(value, readSection()));
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unknown operation " + op + " at " + (position - 1));
+    }
+  }
+
+  private void define(final ExpressionWithTagsNode node) {
+    nodes.add(node);
+  }
+
+  private ExpressionWithTagsNode readNode() {
+    int distance = readInt();
+    if (distance == 0) {
+      return null;
+    }
+    return nodes.get(nodes.size() - distance);
+  }
+
+  private List<ExpressionWithTagsNode> readNodes() {
+    int length = readInt();
+    List<ExpressionWithTagsNode> result = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      result.add(readNode());
+    }
+    return result;
+  }
+
+  private SArray readArray() {
+    Object[] values = new Object[readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readValue();
+    }
+    return builder.literalArray(values);
+  }
+
+  private Object readValue() {
+    byte tag = data[position++];
+    switch (tag) {
+      case VALUE_NIL:     return Nil.nilObject;
+      case VALUE_TRUE:    return Universe.getCurrent().getTrueObject();
+      case VALUE_FALSE:   return Universe.getCurrent().getFalseObject();
+      case VALUE_INTEGER: return readLong();
+      case VALUE_DOUBLE:  return readDouble();
+      case VALUE_STRING:  return readString();
+      case VALUE_CHAR:    return (char) readInt();
+      case VALUE_SYMBOL:  return readSymbol();
+      case VALUE_ARRAY:   return readArray();
+      default:
+        throw new IllegalArgumentException("Unknown literal array element " + tag
+            + " at " + (position - 1));
+    }
+  }
+
+  private SourceSection readSection() {
+    int charIndex = readInt();
+    return source.createSection(charIndex, readInt());
+  }
+
+  private SSymbol readSymbol() {
+    return Symbols.symbolFor(readString());
+  }
+
+  private String readString() {
+    int index = readInt();
+    if (index < strings.size()) {
+      return strings.get(index);
+    }
+    assert index == strings.size();
+    String s = new String(readBytes(), StandardCharsets.UTF_8);
+    strings.add(s);
+    return s;
+  }
+
+  private byte[] readBytes() {
+    int length = readInt();
+    byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+    position += length;
+    return bytes;
+  }
+
+  private double readDouble() {
+    long bits = 0;
+    for (int i = 0; i < 8; i++) {
+      bits |= (data[position++] & 0xFFL) << (i * 8);
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
+  private long readLong() {
+    long value = readUnsigned();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private int readInt() {
+    return (int) readUnsigned();
+  }
+
+  private long readUnsigned() {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = data[position++];
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  /**
+   * Lists the operations of an encoding, one per line, without creating
+   * anything, e.g., to compare the output of the compiler.
+   */
+  public static String disassemble(final byte[] data) {
+    AstReader reader = new AstReader(data, null, null);
+    reader.readHeader();
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("source ").append(reader.readString()).append('\n');
+
+    int numNodes = 0;
+    byte op;
+    while ((op = data[reader.position++]) != END) {
+      String line = reader.disassembleOperation(op, numNodes);
+      if (line.startsWith("%")) {
+        numNodes += 1;
+      }
+      sb.append(line).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /** Operations that create a node start with its id, e.g., <code>%3 = </code>. */
+  private String disassembleOperation(final byte op, final int numNodes) {
+    String node = "%" + numNodes + " = ";
+    switch (op) {
+      case CLASS_NAME:     return "class " + readString();
+      case SUPERCLASS:     return "superclass " + readString();
+      case INSTANCE_FIELD: return "instance field " + readString();
+      case CLASS_SIDE:     return "class side";
+      case CLASS_FIELD:    return "class field " + readString();
+      case NEW_METHOD:     return "method";
+      case NEW_BLOCK:      return "block";
+      case ARGUMENT:       return "  argument " + readString();
+      case LOCAL:          return "  local " + readString();
+      case SIGNATURE:      return "  signature " + readString();
+      case PRIMITIVE:      return "  primitive";
+      case METHOD: {
+        String body = listNode(numNodes);
+        return "end method " + body + (body.equals("null") ? "" : " " + listSection());
+      }
+      case BLOCK:
+        return node + "end block " + listNode(numNodes) + " " + listSection()
+            + " " + listSection();
+      case READ:
+        return node + "read " + readString() + " " + listSection();
+      case WRITE:
+        return node + "write " + readString() + " " + listNode(numNodes) + " " + listSection();
+      case NON_LOCAL_RETURN:
+        return node + "return " + listNode(numNodes) + " " + listSection();
+      case SEQUENCE: {
+        int length = readInt();
+        String list = listNodes(length, numNodes);
+        return node + "sequence " + list + (length == 1 ? "" : " " + listSection());
+      }
+      case SEND:
+        return node + "send #" + readString() + " " + listNodes(readInt(), numNodes)
+            + " " + listSection();
+      case KEYWORD_SEND:
+        return node + "keyword send #" + readString() + " " + listNodes(readInt(), numNodes)
+            + " " + listSection();
+      case CASCADE:
+        return node + "cascade " + listNode(numNodes) + " " + listNodes(readInt(), numNodes)
+            + " " + listSection();
+      case INTEGER:     return node + readLong() + " " + listSection();
+      case BIG_INTEGER: return node + new BigInteger(readBytes()) + " " + listSection();
+      case DOUBLE:      return node + readDouble() + " " + listSection();
+      case STRING:      return node + "'" + readString() + "' " + listSection();
+      case CHAR:        return node + "$" + (char) readInt() + " " + listSection();
+      case SYMBOL:      return node + "#" + readString() + " " + listSection();
+      case ARRAY:       return node + "#" + listArray() + " " + listSection();
+      default:
+        throw new IllegalArgumentException("Unknown operation " + op + " at " + (position - 1));
+    }
+  }
+
+  private String listNode(final int numNodes) {
+    int distance = readInt();
+    return distance == 0 ? "null" : "%" + (numNodes - distance);
+  }
+
+  private String listNodes(final int length, final int numNodes) {
+    StringBuilder sb = new StringBuilder("(");
+    for (int i = 0; i < length; i++) {
+      if (i > 0) { sb.append(", "); }
+      sb.append(listNode(numNodes));
+    }
+    return sb.append(')').toString();
+  }
+
+  private String listSection() {
+    int charIndex = readInt();
+    return "@" + charIndex + "+" + readInt();
+  }
+
+  private String listArray() {
+    int length = readInt();
+    StringBuilder sb = new StringBuilder("(");
+    for (int i = 0; i < length; i++) {
+      if (i > 0) { sb.append(' '); }
+      byte tag = data[position++];
+      switch (tag) {
+        case VALUE_NIL:     sb.append("nil");   break;
+        case VALUE_TRUE:    sb.append("true");  break;
+        case VALUE_FALSE:   sb.append("false"); break;
+        case VALUE_INTEGER: sb.append(readLong());   break;
+        case VALUE_DOUBLE:  sb.append(readDouble()); break;
+        case VALUE_STRING:  sb.append('\'').append(readString()).append('\''); break;
+        case VALUE_CHAR:    sb.append('$').append((char) readInt()); break;
+        case VALUE_SYMBOL:  sb.append('#').append(readString()); break;
+        case VALUE_ARRAY:   sb.append(listArray()); break;
+        default:
+          throw new IllegalArgumentException("Unknown literal array element " + tag
+              + " at " + (position - 1));
+      }
+    }
+    return sb.append(')').toString();
+  }
+}
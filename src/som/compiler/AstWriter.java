@@ -0,0 +1,388 @@
+package som.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.SourceSection;
+
+import som.interpreter.nodes.ExpressionNode;
+import som.vm.Universe;
+import som.vm.constants.Nil;
+import som.vmobjects.SArray;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * A compact binary encoding of a class and the ASTs of its methods, as they
+ * come out of the parser, see {@link SourcecodeCompiler#encodeClass} and
+ * {@link SourcecodeCompiler#loadClass}.
+ *
+ * The encoding is a sequence of operations, one for each step of the
+ * {@link AstBuilder}, in the order of the parser. An operation that creates
+ * a node gives it the next id, and later operations refer to their child
+ * nodes by the distance to that id. Inlining of control structures is not
+ * encoded, it is repeated when the encoding is read. Strings are encoded
+ * once, later occurrences refer to their index. Source sections are encoded
+ * as character index and length, and need the source of the class to be
+ * read.
+ *
+ * <pre>
+ * class := "SOMA" version:varint sourceName:string op* END
+ * </pre>
+ *
+ * {@link AstReader#disassemble} lists the operations of an encoding.
+ */
+public final class AstWriter {
+  static final byte[] MAGIC   = {'S', 'O', 'M', 'A'};
+  static final int    VERSION = 1;
+
+  static final byte END             = 0;
+  static final byte CLASS_NAME      = 1;
+  static final byte SUPERCLASS      = 2;
+  static final byte INSTANCE_FIELD  = 3;
+  static final byte CLASS_SIDE      = 4;
+  static final byte CLASS_FIELD     = 5;
+  static final byte NEW_METHOD      = 6;
+  static final byte NEW_BLOCK       = 7;
+  static final byte ARGUMENT        = 8;
+  static final byte LOCAL           = 9;
+  static final byte SIGNATURE       = 10;
+  static final byte PRIMITIVE       = 11;
+  static final byte METHOD          = 12;
+  static final byte BLOCK           = 13;
+  static final byte READ            = 14;
+  static final byte WRITE           = 15;
+  static final byte NON_LOCAL_RETURN = 16;
+  static final byte SEQUENCE        = 17;
+  static final byte SEND            = 18;
+  static final byte KEYWORD_SEND    = 19;
+  static final byte CASCADE         = 20;
+  static final byte INTEGER         = 21;
+  static final byte BIG_INTEGER     = 22;
+  static final byte DOUBLE          = 23;
+  static final byte STRING          = 24;
+  static final byte CHAR            = 25;
+  static final byte SYMBOL          = 26;
+  static final byte ARRAY           = 27;
+
+  /** Tags of the elements of literal arrays. */
+  static final byte VALUE_NIL     = 0;
+  static final byte VALUE_TRUE    = 1;
+  static final byte VALUE_FALSE   = 2;
+  static final byte VALUE_INTEGER = 3;
+  static final byte VALUE_DOUBLE  = 4;
+  static final byte VALUE_STRING  = 5;
+  static final byte VALUE_CHAR    = 6;
+  static final byte VALUE_SYMBOL  = 7;
+  static final byte VALUE_ARRAY   = 8;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+  private final Map<String, Integer> strings = new HashMap<>();
+  private final Map<ExpressionNode, Integer> nodeIds = new IdentityHashMap<>();
+  private final Map<SArray, Object[]> arrayValues = new IdentityHashMap<>();
+  private int numNodes;
+
+  public AstWriter(final String sourceName) {
+    out.write(MAGIC, 0, MAGIC.length);
+    writeInt(VERSION);
+    writeString(sourceName);
+  }
+
+  /** @return the encoding, after the class was compiled */
+  public byte[] toByteArray() {
+    return out.toByteArray();
+  }
+
+  void end() {
+    out.write(END);
+  }
+
+  void className(final SSymbol name) {
+    op(CLASS_NAME);
+    writeString(name.getString());
+  }
+
+  void superclass(final SSymbol name) {
+    op(SUPERCLASS);
+    writeString(name.getString());
+  }
+
+  void instanceField(final SSymbol name) {
+    op(INSTANCE_FIELD);
+    writeString(name.getString());
+  }
+
+  void classSide() {
+    op(CLASS_SIDE);
+  }
+
+  void classField(final SSymbol name) {
+    op(CLASS_FIELD);
+    writeString(name.getString());
+  }
+
+  void newMethod() {
+    op(NEW_METHOD);
+  }
+
+  void newBlock() {
+    op(NEW_BLOCK);
+  }
+
+  void argument(final String name) {
+    op(ARGUMENT);
+    writeString(name);
+  }
+
+  void local(final String name) {
+    op(LOCAL);
+    writeString(name);
+  }
+
+  void signature(final SSymbol signature) {
+    op(SIGNATURE);
+    writeString(signature.getString());
+  }
+
+  void primitive() {
+    op(PRIMITIVE);
+  }
+
+  void method(final ExpressionNode body, final SourceSection section) {
+    op(METHOD);
+    writeNode(body);
+    if (body != null) {
+      writeSection(section);
+    }
+  }
+
+  void block(final ExpressionNode body, final SourceSection methodSection,
+      final SourceSection section) {
+    op(BLOCK);
+    writeNode(body);
+    writeSection(methodSection);
+    writeSection(section);
+  }
+
+  void variableRead(final String name, final SourceSection section) {
+    op(READ);
+    writeString(name);
+    writeSection(section);
+  }
+
+  void variableWrite(final String name, final ExpressionNode value,
+      final SourceSection section) {
+    op(WRITE);
+    writeString(name);
+    writeNode(value);
+    writeSection(section);
+  }
+
+  void nonLocalReturn(final ExpressionNode exp, final SourceSection section) {
+    op(NON_LOCAL_RETURN);
+    writeNode(exp);
+    writeSection(section);
+  }
+
+  void sequence(final List<? extends ExpressionNode> expressions,
+      final SourceSection section) {
+    op(SEQUENCE);
+    writeNodes(expressions.toArray(new ExpressionNode[0]));
+    if (expressions.size() != 1) {
+      writeSection(section);
+    }
+  }
+
+  void send(final SSymbol selector, final ExpressionNode[] arguments,
+      final SourceSection section) {
+    op(SEND);
+    writeString(selector.getString());
+    writeNodes(arguments);
+    writeSection(section);
+  }
+
+  void keywordSend(final SSymbol selector, final List<? extends ExpressionNode> arguments,
+      final SourceSection section) {
+    op(KEYWORD_SEND);
+    writeString(selector.getString());
+    writeNodes(arguments.toArray(new ExpressionNode[0]));
+    writeSection(section);
+  }
+
+  void cascade(final ExpressionNode receiver, final List<? extends ExpressionNode> messages,
+      final SourceSection section) {
+    op(CASCADE);
+    writeNode(receiver);
+    writeNodes(messages.toArray(new ExpressionNode[0]));
+    writeSection(section);
+  }
+
+  void integer(final long value, final SourceSection section) {
+    op(INTEGER);
+    writeLong(value);
+    writeSection(section);
+  }
+
+  void bigInteger(final BigInteger value, final SourceSection section) {
+    op(BIG_INTEGER);
+    writeBytes(value.toByteArray());
+    writeSection(section);
+  }
+
+  void doubleLiteral(final double value, final SourceSection section) {
+    op(DOUBLE);
+    writeDouble(value);
+    writeSection(section);
+  }
+
+  void string(final String value, final SourceSection section) {
+    op(STRING);
+    writeString(value);
+    writeSection(section);
+  }
+
+  void character(final char value, final SourceSection section) {
+    op(CHAR);
+    writeInt(value);
+    writeSection(section);
+  }
+
+  void symbol(final SSymbol value, final SourceSection section) {
+    op(SYMBOL);
+    writeString(value.getString());
+    writeSection(section);
+  }
+
+  void array(final SArray value, final SourceSection section) {
+    op(ARRAY);
+    writeArray(value);
+    writeSection(section);
+  }
+
+  void literalArray(final SArray array, final Object[] values) {
+    arrayValues.put(array, values.clone());
+  }
+
+  /** Gives the next id to the node created by the last operation. */
+  void defineNode(final ExpressionNode node) {
+    nodeIds.put(node, numNodes);
+    numNodes += 1;
+  }
+
+  private void op(final byte op) {
+    out.write(op);
+  }
+
+  private void writeNode(final ExpressionNode node) {
+    if (node == null) {
+      writeInt(0);
+      return;
+    }
+    Integer id = nodeIds.get(node);
+    assert id != null : "The node was not created by the AstBuilder: " + node;
+    writeInt(numNodes - id);
+  }
+
+  private void writeNodes(final ExpressionNode[] nodes) {
+    writeInt(nodes.length);
+    for (ExpressionNode n : nodes) {
+      writeNode(n);
+    }
+  }
+
+  private void writeArray(final SArray array) {
+    Object[] values = arrayValues.get(array);
+    assert values != null : "The array was not created by the AstBuilder";
+    writeInt(values.length);
+    for (Object v : values) {
+      writeValue(v);
+    }
+  }
+
+  private void writeValue(final Object value) {
+    if (value == Nil.nilObject) {
+      out.write(VALUE_NIL);
+    } else if (value == Universe.getCurrent().getTrueObject()) {
+      out.write(VALUE_TRUE);
+    } else if (value == Universe.getCurrent().getFalseObject()) {
+      out.write(VALUE_FALSE);
+    } else if (value instanceof Long) {
+      out.write(VALUE_INTEGER);
+      writeLong((long) value);
+    } else if (value instanceof Double) {
+      out.write(VALUE_DOUBLE);
+      writeDouble((double) value);
+    } else if (value instanceof String) {
+      out.write(VALUE_STRING);
+      writeString((String) value);
+    } else if (value instanceof Character) {
+      out.write(VALUE_CHAR);
+      writeInt((char) value);
+    } else if (value instanceof SSymbol) {
+      out.write(VALUE_SYMBOL);
+      writeString(((SSymbol) value).getString());
+    } else if (value instanceof SArray) {
+      out.write(VALUE_ARRAY);
+      writeArray((SArray) value);
+    } else {
+      assert value instanceof DynamicObject;
+      throw new IllegalArgumentException("Unexpected literal array element: " + value);
+    }
+  }
+
+  private void writeSection(final SourceSection section) {
+    writeInt(section.getCharIndex());
+    writeInt(section.getCharLength());
+  }
+
+  private void writeString(final String s) {
+    Integer index = strings.get(s);
+    if (index != null) {
+      writeInt(index);
+      return;
+    }
+
+    // a new string is written as the next index, followed by its bytes
+    writeInt(strings.size());
+    strings.put(s, strings.size());
+    writeBytes(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void writeBytes(final byte[] bytes) {
+    writeInt(bytes.length);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private void writeDouble(final double value) {
+    long bits = Double.doubleToRawLongBits(value);
+    for (int i = 0; i < 8; i++) {
+      out.write((int) (bits >>> (i * 8)));
+    }
+  }
+
+  /** Zig-zag encoded, small negative numbers take few bytes, too. */
+  private void writeLong(final long value) {
+    writeUnsigned((value << 1) ^ (value >> 63));
+  }
+
+  private void writeInt(final int value) {
+    assert value >= 0;
+    writeUnsigned(value);
+  }
+
+  /** Seven bits per byte, the high bit marks that more bytes follow. */
+  private void writeUnsigned(long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+}
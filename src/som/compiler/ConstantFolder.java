@@ -0,0 +1,160 @@
+package som.compiler;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.primitives.Specializer;
+import som.VmSettings;
+import som.interpreter.nodes.ExpressionNode;
+import som.interpreter.nodes.MessageSendNode.AbstractMessageSendNode;
+import som.interpreter.nodes.MessageSendNode.AbstractUninitializedMessageSendNode;
+import som.interpreter.nodes.MessageSendNode.CascadeMessageSendNode;
+import som.interpreter.nodes.PreevaluatedExpression;
+import som.interpreter.nodes.literals.BigIntegerLiteralNode;
+import som.interpreter.nodes.literals.BlockNode;
+import som.interpreter.nodes.literals.BooleanLiteralNode;
+import som.interpreter.nodes.literals.CharLiteralNode;
+import som.interpreter.nodes.literals.DoubleLiteralNode;
+import som.interpreter.nodes.literals.IntegerLiteralNode;
+import som.interpreter.nodes.literals.LiteralNode;
+import som.interpreter.nodes.literals.StringLiteralNode;
+import som.interpreter.nodes.literals.SymbolLiteralNode;
+import som.interpreter.nodes.nary.ExpressionWithTagsNode;
+import som.vm.Universe;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * A pass over the AST of a parsed method or block that evaluates sends of
+ * side-effect free primitives, when the receiver and the arguments are
+ * literals, e.g., <code>3 + 4</code> or <code>'abc' length</code>. The send
+ * is replaced by a literal node of the result, bottom up, so that
+ * <code>1 + 2 * 3</code> becomes a single literal. The operation is done by
+ * the same primitive node that the send would specialize to at run time, so
+ * that the semantics do not change. When the primitive does not apply, or
+ * fails, the send remains.
+ *
+ * Folding is disabled with instrumentation, e.g., the dynamic metrics,
+ * which count these operations, and with the debugger, which steps through
+ * them. It is also disabled with Mate, where the semantics of a send can be
+ * changed at run time.
+ */
+final class ConstantFolder {
+
+  private static final Set<String> PURE_SELECTORS = new HashSet<>(Arrays.asList(
+      "+", "-", "*", "/", "//", "%", "rem:", "&", "bitXor:", "<<", ">>>",
+      "<", ">", "<=", ">=", "=", "<>", "max:",
+      "abs", "sqrt", "sin", "cos", "round", "asInteger",
+      "as32BitSignedValue", "as32BitUnsignedValue",
+      "length", "concatenate:", "asUppercase", "asLowercase", "asSymbol",
+      "isLetter", "isDigit", "isAlphaNumeric", "isUppercase", "isLowercase"));
+
+  private ConstantFolder() { }
+
+  private static boolean isEnabled() {
+    return !VmSettings.INSTRUMENTATION && !VmSettings.TRUFFLE_DEBUGGER_ENABLED
+        && !Universe.getCurrent().vmReflectionEnabled();
+  }
+
+  /** @return the body, or a literal node if the whole body was folded */
+  static ExpressionWithTagsNode foldConstants(final ExpressionWithTagsNode body) {
+    if (!isEnabled()) {
+      return body;
+    }
+    LiteralNode folded = foldChildrenAndSelf(body);
+    return folded != null ? folded : body;
+  }
+
+  /**
+   * The AST is not adopted yet, the nodes do not have parents, so children
+   * are replaced directly in their parent's fields.
+   */
+  private static LiteralNode foldChildrenAndSelf(final Node node) {
+    for (Node child : NodeUtil.findNodeChildren(node)) {
+      LiteralNode folded = foldChildrenAndSelf(child);
+      if (folded != null && !isCascadedMessage(node, child)) {
+        NodeUtil.replaceChild(node, child, folded);
+      }
+    }
+
+    if (node instanceof AbstractUninitializedMessageSendNode) {
+      AbstractMessageSendNode send = (AbstractMessageSendNode) node;
+      if (!send.isSuperSend()) {
+        return fold(send.getSelector(),
+            NodeUtil.findNodeChildren(send).toArray(new ExpressionNode[0]),
+            send.getSourceSection());
+      }
+    }
+    return null;
+  }
+
+  /** The messages of a cascade are sent to the cascade's receiver, they stay. */
+  private static boolean isCascadedMessage(final Node parent, final Node child) {
+    return parent instanceof CascadeMessageSendNode
+        && ((CascadeMessageSendNode) parent).getReceiver() != child;
+  }
+
+  /**
+   * @return a literal node with the result of the send, or null if the send
+   *         cannot be folded
+   */
+  private static LiteralNode fold(final SSymbol selector, final ExpressionNode[] arguments,
+      final SourceSection source) {
+    if (!PURE_SELECTORS.contains(selector.getString())) {
+      return null;
+    }
+
+    Object[] values = new Object[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      if (!(arguments[i] instanceof LiteralNode) || arguments[i] instanceof BlockNode) {
+        return null;
+      }
+      values[i] = arguments[i].executeGeneric(null);
+    }
+
+    Specializer<Universe, ExpressionNode, SSymbol> specializer =
+        Universe.getCurrent().getPrimitives().getEagerSpecializer(selector, values, arguments);
+    if (specializer == null) {
+      return null;
+    }
+
+    Object result;
+    try {
+      ExpressionNode prim = specializer.create(values, arguments, source, false,
+          Universe.getCurrent());
+      result = ((PreevaluatedExpression) prim).doPreEvaluated(null, values);
+    } catch (RuntimeException e) {
+      // e.g., a division by zero, or no specialization for the operands
+      return null;
+    }
+    return createLiteral(result, source);
+  }
+
+  private static LiteralNode createLiteral(final Object value, final SourceSection source) {
+    LiteralNode literal;
+    if (value instanceof Long) {
+      literal = new IntegerLiteralNode((long) value);
+    } else if (value instanceof BigInteger) {
+      literal = new BigIntegerLiteralNode((BigInteger) value);
+    } else if (value instanceof Double) {
+      literal = new DoubleLiteralNode((double) value);
+    } else if (value instanceof Boolean) {
+      literal = new BooleanLiteralNode((boolean) value);
+    } else if (value instanceof Character) {
+      literal = new CharLiteralNode((char) value);
+    } else if (value instanceof String) {
+      literal = new StringLiteralNode((String) value);
+    } else if (value instanceof SSymbol) {
+      literal = new SymbolLiteralNode((SSymbol) value);
+    } else {
+      return null;
+    }
+    return literal.initialize(source);
+  }
+}
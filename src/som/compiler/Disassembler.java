@@ -48,6 +48,12 @@ public final class Disassembler {
     }
   }
 
+  /** Lists the operations of a class encoded by {@link SourcecodeCompiler#encodeClass}. */
+  @TruffleBoundary
+  public static void dumpEncoded(final byte[] encodedClass) {
+    Universe.errorPrint(AstReader.disassemble(encodedClass));
+  }
+
   @TruffleBoundary
   public static void dumpMethod(final DynamicObject m, final String indent) {
     Universe.errorPrintln("(");
@@ -0,0 +1,104 @@
+package som.compiler;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.Source;
+
+import som.compiler.Lexer.LexerState;
+import som.compiler.Lexer.SourceCoordinate;
+import som.compiler.Parser.ParseError;
+import som.interpreter.SomLanguage;
+import som.interpreter.nodes.nary.ExpressionWithTagsNode;
+import som.vm.Universe;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SInvokable.SMethod;
+
+
+/**
+ * The body of a method that is parsed on its first execution, enabled with
+ * -Dsom.lazyMethods=true. At load time, the parser records the signature and
+ * the arguments of the method in its {@link MethodGenerationContext}, and the
+ * position of the lexer at the start of the body.
+ *
+ * The body is parsed once, all copies of the method, e.g., for the meta level
+ * or from splitting, use the same AST. Syntax errors in the body are only
+ * reported when the method is executed.
+ */
+public final class LazyMethodBody {
+  private final Source source;
+  private final CharSequence content;
+  private final LexerState start;
+  private final SourceCoordinate coord;
+
+  private final MethodGenerationContext mgenc;
+  private final boolean classSide;
+  private final SomLanguage language;
+
+  private DynamicObject method;
+  private ExpressionWithTagsNode body;
+
+  LazyMethodBody(final Source source, final CharSequence content,
+      final LexerState start, final SourceCoordinate coord,
+      final MethodGenerationContext mgenc, final SomLanguage language) {
+    this.source    = source;
+    this.content   = content;
+    this.start     = start;
+    this.coord     = coord;
+    this.mgenc     = mgenc;
+    this.classSide = mgenc.getHolder().isClassSide();
+    this.language  = language;
+    mgenc.setLazyBody(this);
+  }
+
+  void setMethod(final DynamicObject method) {
+    this.method = method;
+  }
+
+  Source getSource() {
+    return source;
+  }
+
+  CharSequence getContent() {
+    return content;
+  }
+
+  LexerState getLexerState() {
+    return start;
+  }
+
+  /** @return the uninitialized body, to be copied before it is used */
+  @TruffleBoundary
+  public ExpressionWithTagsNode getBody() {
+    // the class context is shared by all methods of the class
+    ClassGenerationContext holderGenc = mgenc.getHolder();
+    synchronized (holderGenc) {
+      if (body == null) {
+        boolean side = holderGenc.isClassSide();
+        holderGenc.setClassSide(classSide);
+        try {
+          body = parse();
+        } catch (ParseError e) {
+          Universe.errorExit(e.toString());
+          throw new IllegalStateException(e);
+        } finally {
+          holderGenc.setClassSide(side);
+        }
+      }
+      return body;
+    }
+  }
+
+  private ExpressionWithTagsNode parse() throws ParseError {
+    Parser parser = new Parser(this, Universe.getCurrent().getObjectMemory(), language);
+    ExpressionWithTagsNode result = mgenc.completeLazyBody(
+        parser.lazyMethodBlock(mgenc, coord));
+
+    DynamicObject[] blocks = mgenc.getEmbeddedBlockMethods();
+    DynamicObject holder = SInvokable.getHolder(method);
+    for (DynamicObject block : blocks) {
+      SInvokable.setHolder(block, holder);
+    }
+    SMethod.setEmbeddedBlocks(method, blocks);
+    return result;
+  }
+}
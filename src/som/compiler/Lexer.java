@@ -24,22 +24,23 @@
 
 package som.compiler;
 
+import som.vm.Symbols;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * Tokenizes SOM source code directly on its {@link CharSequence}, without
+ * copying it. A token is represented by its offsets into the source, its
+ * text is only materialized as String when requested with {@link #getText()},
+ * and selectors are mapped to symbols with {@link #getSymbol()}, which only
+ * creates a String the first time a selector is seen in the source.
+ */
 public final class Lexer {
 
   private static final String SEPARATOR = "----";
   private static final String PRIMITIVE = "primitive";
 
-  public static class Peek {
-    public Peek(final Symbol sym, final String text) {
-      nextSym = sym;
-      nextText = text;
-    }
-
-    public final Symbol nextSym;
-    public final String nextText;
-  }
-
-  private class LexerState {
+  static final class LexerState {
     LexerState() { }
     LexerState(final LexerState old) {
       lineNumber = old.lineNumber;
@@ -48,20 +49,28 @@ public final class Lexer {
       ptr        = old.ptr;
       sym        = old.sym;
       symc       = old.symc;
-      text = new StringBuilder(old.text);
+      textStart  = old.textStart;
+      textEnd    = old.textEnd;
+      text       = old.text;
       startCoord = old.startCoord;
     }
 
-    public void set(final Symbol sym, final char symChar, final String text) {
+    /** The token text is the source between start and end. */
+    void set(final Symbol sym, final char symChar, final int start, final int end) {
       this.sym  = sym;
       this.symc = symChar;
-      this.text = new StringBuilder(text);
+      this.textStart = start;
+      this.textEnd   = end;
+      this.text = null;
     }
 
-    public void set(final Symbol sym) {
-      this.sym = sym;
+    /** The token text is computed, e.g., a string literal with escapes. */
+    void set(final Symbol sym, final String text) {
+      this.sym  = sym;
       this.symc = 0;
-      this.text = new StringBuilder();
+      this.textStart = ptr;
+      this.textEnd   = ptr;
+      this.text = text;
     }
 
     private int                 lineNumber;
@@ -75,7 +84,12 @@ public final class Lexer {
 
     private Symbol              sym;
     private char                symc;
-    private StringBuilder       text;
+
+    private int                 textStart;
+    private int                 textEnd;
+
+    /** Null until the text is requested, unless it is not a slice of the source. */
+    private String              text;
 
     private SourceCoordinate    startCoord;
 
@@ -91,23 +105,33 @@ public final class Lexer {
     }
   }
 
-  private final String content;
+  private final CharSequence content;
+  private final SelectorTable selectors;
 
   private boolean             peekDone;
   private LexerState          state;
   private LexerState          stateAfterPeek;
 
-  protected Lexer(final String content) {
+  protected Lexer(final CharSequence content) {
     this.content = content;
+    selectors = new SelectorTable();
     peekDone = false;
     state = new LexerState();
     state.ptr = 0;
-    state.text = new StringBuilder();
+    state.set(Symbol.NONE, '\0', 0, 0);
     state.lineNumber = 1;
     state.lastLineEnd = 0;
     state.lastNonWhiteCharIdx = 0;
   }
 
+  /** Continues lexing from a state saved with {@link #getState()}. */
+  protected Lexer(final CharSequence content, final LexerState state) {
+    this.content = content;
+    selectors = new SelectorTable();
+    peekDone = false;
+    this.state = new LexerState(state);
+  }
+
   public static final class SourceCoordinate {
     public final int startLine;
     public final int startColumn;
@@ -132,8 +156,18 @@ public final class Lexer {
   }
 
   public String getCurrentLine() {
-    int endLine = content.indexOf("\n", state.lastLineEnd + 1);
-    return content.substring(state.lastLineEnd + 1, endLine);
+    int start = Math.min(state.lastLineEnd + 1, content.length());
+    int end = start;
+    while (end < content.length() && content.charAt(end) != '\n') {
+      end++;
+    }
+    return content.subSequence(start, end).toString();
+  }
+
+  /** A copy of the current state, to continue lexing from here later on. */
+  protected LexerState getState() {
+    assert !peekDone;
+    return new LexerState(state);
   }
 
   public SourceCoordinate getStartCoordinate() {
@@ -145,12 +179,11 @@ public final class Lexer {
       peekDone = false;
       state = stateAfterPeek;
       stateAfterPeek = null;
-      state.text = new StringBuilder(state.text);
       return state.sym;
     }
 
     if (endOfContent()) {
-      state.set(Symbol.NONE);
+      state.set(Symbol.NONE, '\0', state.ptr, state.ptr);
       return state.sym;
     }
 
@@ -162,6 +195,7 @@ public final class Lexer {
 
     state.startCoord = new SourceCoordinate(state.lineNumber, state.ptr - state.lastLineEnd, state.ptr, state.lastNonWhiteCharIdx);
 
+    int start = state.ptr;
     if (currentChar() == '\'') {
       lexString();
     } else if (currentChar() == '$') {
@@ -173,7 +207,7 @@ public final class Lexer {
     } else if (currentChar() == ':') {
       if (nextChar() == '=') {
         state.incPtr(2);
-        state.set(Symbol.Assign, '\0', ":=");
+        state.set(Symbol.Assign, '\0', start, state.ptr);
       } else {
         match(Symbol.Colon);
       }
@@ -190,12 +224,11 @@ public final class Lexer {
     } else if (currentChar() == ';') {
       match(Symbol.SemiColon);
     } else if (currentChar() == '-') {
-      if (content.startsWith(SEPARATOR, state.ptr)) {
-        state.text = new StringBuilder();
+      if (startsWith(SEPARATOR, state.ptr)) {
         while (currentChar() == '-') {
-          state.text.append(bufchar(state.incPtr()));
+          state.incPtr();
         }
-        state.sym = Symbol.Separator;
+        state.set(Symbol.Separator, '\0', start, state.ptr);
       } else {
         lexOperator();
       }
@@ -203,72 +236,88 @@ public final class Lexer {
       lexOperator();
     } else if (nextWordInBufferIs(PRIMITIVE)) {
       state.incPtr(PRIMITIVE.length());
-      state.set(Symbol.Primitive, '\0', PRIMITIVE);
+      state.set(Symbol.Primitive, '\0', start, state.ptr);
     } else if (Character.isLetter(currentChar())) {
-      state.set(Symbol.Identifier);
+      Symbol sym = Symbol.Identifier;
       while (isIdentifierChar(currentChar())) {
-        state.text.append(bufchar(state.incPtr()));
+        state.incPtr();
       }
       if (bufchar(state.ptr) == ':') {
-        state.sym = Symbol.Keyword;
+        sym = Symbol.Keyword;
         state.incPtr();
-        state.text.append(':');
         if (Character.isLetter(currentChar())) {
-          state.sym = Symbol.KeywordSequence;
+          sym = Symbol.KeywordSequence;
           while (Character.isLetter(currentChar()) || currentChar() == ':') {
-            state.text.append(bufchar(state.incPtr()));
+            state.incPtr();
           }
         }
       }
+      state.set(sym, '\0', start, state.ptr);
     } else if (Character.isDigit(currentChar())) {
       lexNumber();
+    } else if (endOfContent()) {
+      // only whitespace and comments were left
+      state.set(Symbol.NONE, "\0");
     } else {
-      state.set(Symbol.NONE, currentChar(), "" + currentChar());
+      state.set(Symbol.NONE, currentChar(), start, start + 1);
     }
 
     return state.sym;
   }
 
   private void lexNumber() {
-    state.set(Symbol.Integer);
+    int start = state.ptr;
+    Symbol sym = Symbol.Integer;
 
     boolean sawDecimalMark = false;
 
     do {
-      state.text.append(bufchar(state.incPtr()));
+      state.incPtr();
 
       if (!sawDecimalMark      &&
           '.' == currentChar() &&
           Character.isDigit(bufchar(state.ptr + 1))) {
-        state.sym = Symbol.Double;
-        state.text.append(bufchar(state.incPtr()));
+        sym = Symbol.Double;
+        state.incPtr();
       }
     } while (Character.isDigit(currentChar()));
+
+    state.set(sym, '\0', start, state.ptr);
   }
 
-  private void lexEscapeChar() {
+  private void lexEscapeChar(final StringBuilder text) {
     assert !endOfContent();
 
     char current = currentChar();
     switch (current) {
-      case 't': state.text.append("\t"); break;
-      case 'b': state.text.append("\b"); break;
-      case 'n': state.text.append("\n"); break;
-      case 'r': state.text.append("\r"); break;
-      case 'f': state.text.append("\f"); break;
-      case '\'': state.text.append("'"); break;
-      case '\\': state.text.append("\\"); break;
+      case 't': text.append("\t"); break;
+      case 'b': text.append("\b"); break;
+      case 'n': text.append("\n"); break;
+      case 'r': text.append("\r"); break;
+      case 'f': text.append("\f"); break;
+      case '\'': text.append("'"); break;
+      case '\\': text.append("\\"); break;
     }
     state.incPtr();
   }
 
-  private void lexStringChar() {
+  /**
+   * @param text of the string so far, null as long as there was no escape
+   * @return the text, or null if it is still a slice of the source
+   */
+  private StringBuilder lexStringChar(final int start, final StringBuilder text) {
+    StringBuilder result = text;
     char cur = currentChar();
     if (cur == '\\') {
+      if (result == null) {
+        result = new StringBuilder().append(content, start, state.ptr);
+      }
       state.incPtr();
-      lexEscapeChar();
+      lexEscapeChar(result);
     } else {
-      state.text.append(cur);
+      if (result != null) {
+        result.append(cur);
+      }
       state.incPtr();
     }
 
@@ -276,28 +325,37 @@ public final class Lexer {
       state.lineNumber += 1;
       state.lastLineEnd = state.ptr - 1;
     }
+    return result;
   }
 
   private void lexString() {
-    state.set(Symbol.STString);
     state.incPtr();
+    int start = state.ptr;
+    StringBuilder text = null;
 
     while (currentChar() != '\'') {
-      lexStringChar();
+      text = lexStringChar(start, text);
     }
+    int end = state.ptr;
 
     state.incPtr();
+    if (text == null) {
+      state.set(Symbol.STString, '\0', start, end);
+    } else {
+      state.set(Symbol.STString, text.toString());
+    }
   }
 
   private void lexCharacter() {
-    state.set(Symbol.STChar);
     state.incPtr();
+    int start = state.ptr;
     char c = currentChar();
     if (c == '"' && nextChar() == '"') {
-      state.text.append('"');
       state.incPtr(2);
+      state.set(Symbol.STChar, "\"");
     } else {
       acceptChar();
+      state.set(Symbol.STChar, '\0', start, state.ptr);
     }
 
     if (currentChar() == '"') {
@@ -308,10 +366,11 @@ public final class Lexer {
 
   private void lexOperator() {
     if (isOperator(nextChar())) {
-      state.set(Symbol.OperatorSequence);
+      int start = state.ptr;
       while (isOperator(currentChar())) {
-        state.text.append(bufchar(state.incPtr()));
+        state.incPtr();
       }
+      state.set(Symbol.OperatorSequence, '\0', start, state.ptr);
     } else if (currentChar() == '~') {
       match(Symbol.Not);
     } else if (currentChar() == '&') {
@@ -358,7 +417,45 @@ public final class Lexer {
   }
 
   protected String getText() {
-    return state.text.toString();
+    if (state.text == null) {
+      state.text = content.subSequence(state.textStart, state.textEnd).toString();
+    }
+    return state.text;
+  }
+
+  /** Compares the text of the current token without materializing it. */
+  protected boolean textEquals(final String text) {
+    if (state.text != null) {
+      return state.text.equals(text);
+    }
+    int length = state.textEnd - state.textStart;
+    if (length != text.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (content.charAt(state.textStart + i) != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the symbol for the text of the current token */
+  protected SSymbol getSymbol() {
+    if (state.text != null) {
+      return Symbols.symbolFor(state.text);
+    }
+    return selectors.symbolFor(content, state.textStart, state.textEnd);
+  }
+
+  /** @return offset of the first character of the current token's text */
+  protected int getTextStart() {
+    return state.textStart;
+  }
+
+  /** @return offset after the last character of the current token's text */
+  protected int getTextEnd() {
+    return state.textEnd;
   }
 
   protected int getCurrentLineNumber() {
@@ -415,11 +512,9 @@ public final class Lexer {
 
   protected char acceptChar() {
     char c = bufchar(state.incPtr());
-    state.text.append(c);
 
     if (Character.isHighSurrogate(c)) {
       c = bufchar(state.incPtr());
-      state.text.append(c);
       assert !Character.isHighSurrogate(c);
     }
     return c;
@@ -444,7 +539,7 @@ public final class Lexer {
   }
 
   private void match(final Symbol s) {
-    state.set(s, currentChar(), "" + currentChar());
+    state.set(s, currentChar(), state.ptr, state.ptr + 1);
     state.incPtr();
   }
 
@@ -456,11 +551,94 @@ public final class Lexer {
     return Character.isLetterOrDigit(c) || c == '_';
   }
 
+  private boolean startsWith(final String text, final int offset) {
+    if (offset + text.length() > content.length()) {
+      return false;
+    }
+    for (int i = 0; i < text.length(); i++) {
+      if (content.charAt(offset + i) != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private boolean nextWordInBufferIs(final String text) {
-    if (!content.startsWith(text, state.ptr)) {
+    if (!startsWith(text, state.ptr)) {
       return false;
     }
     char next = nextChar(text.length());
     return !(isIdentifierChar(next) || next == ':');
   }
+
+  /**
+   * Maps the selectors of a source to symbols, comparing the source
+   * characters with the known selectors, so that a String is only created
+   * for the first occurrence of a selector.
+   */
+  private static final class SelectorTable {
+    private String[]  keys    = new String[64];
+    private SSymbol[] symbols = new SSymbol[64];
+    private int size;
+
+    SSymbol symbolFor(final CharSequence content, final int start, final int end) {
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + content.charAt(i);
+      }
+
+      int mask = keys.length - 1;
+      int idx = hash & mask;
+      while (keys[idx] != null) {
+        if (matches(keys[idx], content, start, end)) {
+          return symbols[idx];
+        }
+        idx = (idx + 1) & mask;
+      }
+
+      String key = content.subSequence(start, end).toString();
+      keys[idx]    = key;
+      symbols[idx] = Symbols.symbolFor(key);
+      size += 1;
+
+      SSymbol result = symbols[idx];
+      if (size * 2 > keys.length) {
+        grow();
+      }
+      return result;
+    }
+
+    private static boolean matches(final String key, final CharSequence content,
+        final int start, final int end) {
+      if (key.length() != end - start) {
+        return false;
+      }
+      for (int i = 0; i < key.length(); i++) {
+        if (key.charAt(i) != content.charAt(start + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void grow() {
+      String[] oldKeys = keys;
+      SSymbol[] oldSymbols = symbols;
+      keys    = new String[oldKeys.length * 2];
+      symbols = new SSymbol[oldKeys.length * 2];
+
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != null) {
+          // String.hashCode() is the hash computed in symbolFor()
+          int idx = oldKeys[i].hashCode() & mask;
+          while (keys[idx] != null) {
+            idx = (idx + 1) & mask;
+          }
+          keys[idx]    = oldKeys[i];
+          symbols[idx] = oldSymbols[i];
+        }
+      }
+    }
+  }
 }
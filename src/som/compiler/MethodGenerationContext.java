@@ -80,6 +80,8 @@ public final class MethodGenerationContext {
 
   private final List<DynamicObject> embeddedBlockMethods;
 
+  private LazyMethodBody lazyBody;
+
   private final SomLanguage language;
 
 
@@ -176,6 +178,7 @@ public final class MethodGenerationContext {
     separateVariables(arguments.values(), onlyLocalAccess, nonLocalAccess);
     separateVariables(locals.values(),    onlyLocalAccess, nonLocalAccess);
 
+    body = ConstantFolder.foldConstants(body);
     if (needsToCatchNonLocalReturn()) {
       body = createCatchNonLocalReturn(body, getFrameOnStackMarkerSlot());
     }
@@ -188,11 +191,34 @@ public final class MethodGenerationContext {
         embeddedBlockMethods.toArray(new DynamicObject[0]));
 
     truffleMethod.setMethod(method);
+    if (lazyBody != null) {
+      lazyBody.setMethod(method);
+    }
 
     // return the method - the holder field is to be set later on!
     return method;
   }
 
+  void setLazyBody(final LazyMethodBody lazyBody) {
+    this.lazyBody = lazyBody;
+  }
+
+  /**
+   * Completes a body that is parsed after the method was assembled,
+   * see {@link LazyMethodBody}.
+   */
+  ExpressionWithTagsNode completeLazyBody(ExpressionWithTagsNode body) {
+    body = ConstantFolder.foldConstants(body);
+    if (needsToCatchNonLocalReturn()) {
+      return createCatchNonLocalReturn(body, getFrameOnStackMarkerSlot());
+    }
+    return body;
+  }
+
+  DynamicObject[] getEmbeddedBlockMethods() {
+    return embeddedBlockMethods.toArray(new DynamicObject[0]);
+  }
+
   private SourceSection getSourceSectionForMethod(final SourceSection ssBody) {
     SourceSection ssMethod = ssBody.getSource().createSection(
         ssBody.getStartLine(), ssBody.getStartColumn(),
@@ -60,52 +60,26 @@ import static som.compiler.Symbol.STString;
 import static som.compiler.Symbol.SemiColon;
 import static som.compiler.Symbol.Separator;
 import static som.compiler.Symbol.Star;
-import static som.interpreter.SNodeFactory.createCascadeMessageSend;
-import static som.interpreter.SNodeFactory.createGlobalRead;
-import static som.interpreter.SNodeFactory.createMessageSend;
-import static som.interpreter.SNodeFactory.createSequence;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.api.source.SourceSection;
 
 import som.VmSettings;
 import som.compiler.Lexer.SourceCoordinate;
-import som.compiler.Variable.Local;
 import som.interpreter.SomLanguage;
 import som.interpreter.nodes.ExpressionNode;
-import som.interpreter.nodes.FieldNode.FieldReadNode;
-import som.interpreter.nodes.FieldNode.FieldWriteNode;
-import som.interpreter.nodes.MessageSendNode.AbstractMessageSendNode;
-import som.interpreter.nodes.MessageSendNode.CascadeMessageSendNode;
-import som.interpreter.nodes.literals.ArrayLiteralNode;
-import som.interpreter.nodes.literals.BigIntegerLiteralNode;
-import som.interpreter.nodes.literals.BlockNode;
-import som.interpreter.nodes.literals.BlockNode.BlockNodeWithContext;
-import som.interpreter.nodes.literals.CharLiteralNode;
-import som.interpreter.nodes.literals.DoubleLiteralNode;
-import som.interpreter.nodes.literals.IntegerLiteralNode;
+import som.interpreter.nodes.LazyMethodBodyNode;
 import som.interpreter.nodes.literals.LiteralNode;
-import som.interpreter.nodes.literals.StringLiteralNode;
-import som.interpreter.nodes.literals.SymbolLiteralNode;
 import som.interpreter.nodes.nary.ExpressionWithTagsNode;
-import som.interpreter.nodes.specialized.BooleanInlinedLiteralNode.AndInlinedLiteralNode;
-import som.interpreter.nodes.specialized.BooleanInlinedLiteralNode.OrInlinedLiteralNode;
-import som.interpreter.nodes.specialized.IfInlinedLiteralNode;
-import som.interpreter.nodes.specialized.IfTrueIfFalseInlinedLiteralsNode;
-import som.interpreter.nodes.specialized.IntToDoInlinedLiteralsNodeGen;
-import som.interpreter.nodes.specialized.whileloops.WhileInlinedLiteralsNode;
 import som.vm.ObjectMemory;
 import som.vm.Symbols;
 import som.vm.Universe;
 import som.vm.constants.Nil;
 import som.vmobjects.SArray;
-import som.vmobjects.SClass;
-import som.vmobjects.SObject;
 import som.vmobjects.SSymbol;
 import tools.debugger.Tags;
 import tools.debugger.Tags.DelimiterClosingTag;
@@ -119,20 +93,19 @@ public class Parser {
   protected final ObjectMemory      objectMemory;
   private final Lexer               lexer;
   private final Source              source;
+  private final CharSequence        content;
 
   private Symbol                    sym;
-  private String                    text;
   private Symbol                    nextSym;
 
   private SourceSection             lastMethodsSourceSection;
-  private final StructuralProbe     structuralProbe;
+  private final AstBuilder          builder;
+  private final SomLanguage         language;
 
   private static final List<Symbol> singleOpSyms        = new ArrayList<Symbol>();
   private static final List<Symbol> binaryOpSyms        = new ArrayList<Symbol>();
   private static final List<Symbol> keywordSelectorSyms = new ArrayList<Symbol>();
 
-  private final SomLanguage language;
-
   static {
     for (Symbol s : new Symbol[] {Not, And, Or, Star, Div, Mod, Plus, Equal,
         More, Less, Comma, Minus, At, Per, NONE}) {
@@ -164,7 +137,7 @@ public class Parser {
 
     ParseError(final String message, final Symbol expected, final Parser parser) {
       this.message = message;
-      this.text             = parser.text;
+      this.text             = parser.lexer == null ? null : parser.lexer.getText();
       if (parser.lexer == null) {
         this.sourceCoordinate = new SourceCoordinate(0, 0, 0, 0);
         this.rawBuffer = "";
@@ -172,7 +145,7 @@ public class Parser {
         this.sourceCoordinate = parser.getCoordinate();
         this.rawBuffer = new String(parser.lexer.getCurrentLine());
       }
-      this.fileName         = parser.source.getName();
+      this.fileName         = parser.source == null ? "shell" : parser.source.getName();
       this.expected         = expected;
       this.found            = parser.sym;
     }
@@ -226,10 +199,18 @@ public class Parser {
     }
   }
 
-  public Parser(final String content, final long fileSize, final Source source,
+  public Parser(final CharSequence content, final long fileSize, final Source source,
       final ObjectMemory memory, final StructuralProbe structuralProbe, final SomLanguage language) throws ParseError {
+    this(content, fileSize, source, memory, structuralProbe, language, null);
+  }
+
+  /** @param writer encodes the parsed class, see {@link AstWriter}, or null */
+  Parser(final CharSequence content, final long fileSize, final Source source,
+      final ObjectMemory memory, final StructuralProbe structuralProbe,
+      final SomLanguage language, final AstWriter writer) throws ParseError {
     this.objectMemory = memory;
     this.source   = source;
+    this.content  = content;
 
     sym = NONE;
     nextSym = NONE;
@@ -240,7 +221,21 @@ public class Parser {
 
     lexer = new Lexer(content);
     getSymbolFromLexer();
-    this.structuralProbe = structuralProbe;
+    this.builder = new AstBuilder(language, structuralProbe, writer);
+    this.language = language;
+  }
+
+  /** Continues at the start of a method body that was skipped by {@link #classdef}. */
+  Parser(final LazyMethodBody lazy, final ObjectMemory memory,
+      final SomLanguage language) {
+    this.objectMemory = memory;
+    this.source   = lazy.getSource();
+    this.content  = lazy.getContent();
+
+    lexer = new Lexer(content, lazy.getLexerState());
+    sym = NewTerm;  // the lexer state was saved at the start of the body
+    nextSym = NONE;
+    this.builder = new AstBuilder(language, null, null);
     this.language = language;
   }
 
@@ -249,7 +244,7 @@ public class Parser {
   }
 
   public void classdef(final ClassGenerationContext cgenc) throws ParseError {
-    cgenc.setName(Symbols.symbolFor(text));
+    builder.className(cgenc, lexer.getSymbol());
     expect(Identifier, IdentifierTag.class);
     expect(Equal, KeywordTag.class);
 
@@ -260,29 +255,21 @@ public class Parser {
 
     while (isIdentifier(sym) || sym == Keyword || sym == OperatorSequence
         || symIn(binaryOpSyms)) {
-      MethodGenerationContext mgenc = new MethodGenerationContext(cgenc, language);
+      MethodGenerationContext mgenc = builder.newMethod(cgenc);
 
       ExpressionWithTagsNode methodBody = method(mgenc);
-      DynamicObject method = mgenc.assemble(methodBody, lastMethodsSourceSection);
-      cgenc.addInstanceMethod(method);
-      if (structuralProbe != null) {
-        structuralProbe.recordNewMethod(method);
-      }
+      builder.method(cgenc, mgenc, methodBody, lastMethodsSourceSection);
     }
 
     if (accept(Separator, StatementSeparatorTag.class)) {
-      cgenc.setClassSide(true);
+      builder.classSide(cgenc);
       classFields(cgenc);
       while (isIdentifier(sym) || sym == Keyword || sym == OperatorSequence
           || symIn(binaryOpSyms)) {
-        MethodGenerationContext mgenc = new MethodGenerationContext(cgenc, language);
+        MethodGenerationContext mgenc = builder.newMethod(cgenc);
 
         ExpressionWithTagsNode methodBody = method(mgenc);
-        DynamicObject method = mgenc.assemble(methodBody, lastMethodsSourceSection);
-        cgenc.addClassMethod(method);
-        if (structuralProbe != null) {
-          structuralProbe.recordNewMethod(method);
-        }
+        builder.method(cgenc, mgenc, methodBody, lastMethodsSourceSection);
       }
     }
     expect(EndTerm, null);
@@ -291,23 +278,14 @@ public class Parser {
   private void superclass(final ClassGenerationContext cgenc) throws ParseError {
     SSymbol superName;
     if (sym == Identifier) {
-      superName = Symbols.symbolFor(text);
+      superName = lexer.getSymbol();
       accept(Identifier, KeywordTag.class);
     } else {
       superName = Symbols.symbolFor("Object");
     }
-    cgenc.setSuperName(superName);
-
-    // Load the super class, if it is not nil (break the dependency cycle)
-    if (!superName.getString().equals("nil")) {
-      DynamicObject superClass = Universe.getCurrent().loadClass(superName);
-      if (superClass == null) {
-        throw new ParseError("Super class " + superName.getString() +
-            " could not be loaded", NONE, this);
-      }
-
-      cgenc.setInstanceFieldsOfSuper(SClass.getInstanceFields(superClass));
-      cgenc.setClassFieldsOfSuper(SClass.getInstanceFields(SObject.getSOMClass(superClass)));
+    if (!builder.superclass(cgenc, superName)) {
+      throw new ParseError("Super class " + superName.getString() +
+          " could not be loaded", NONE, this);
     }
   }
 
@@ -357,7 +335,7 @@ public class Parser {
     if (accept(Or, DelimiterOpeningTag.class)) {
       while (isIdentifier(sym)) {
         String var = variable();
-        cgenc.addInstanceField(Symbols.symbolFor(var));
+        builder.instanceField(cgenc, Symbols.symbolFor(var));
       }
       expect(Or, DelimiterClosingTag.class);
     }
@@ -367,7 +345,7 @@ public class Parser {
     if (accept(Or, DelimiterOpeningTag.class)) {
       while (isIdentifier(sym)) {
         String var = variable();
-        cgenc.addClassField(Symbols.symbolFor(var));
+        builder.classField(cgenc, Symbols.symbolFor(var));
       }
       expect(Or, DelimiterClosingTag.class);
     }
@@ -390,20 +368,28 @@ public class Parser {
     pattern(mgenc);
     expect(Equal, KeywordTag.class);
     if (sym == Primitive) {
-      mgenc.markAsPrimitive();
+      builder.primitive(mgenc);
       primitiveBlock();
       return null;
+    } else if (VmSettings.LAZY_METHODS && !builder.isEncoding()) {
+      return skipMethodBlock(mgenc, coord);
     } else {
       return methodBlock(mgenc, coord);
     }
   }
 
+  /** Parses the body of a method that was skipped by {@link #skipMethodBlock}. */
+  ExpressionWithTagsNode lazyMethodBlock(final MethodGenerationContext mgenc,
+      final SourceCoordinate coord) throws ParseError {
+    return methodBlock(mgenc, coord);
+  }
+
   private void primitiveBlock() throws ParseError {
     expect(Primitive, KeywordTag.class);
   }
 
   private void pattern(final MethodGenerationContext mgenc) throws ParseError {
-    mgenc.addArgumentIfAbsent("self"); // TODO: can we do that optionally?
+    builder.argument(mgenc, "self"); // TODO: can we do that optionally?
     switch (sym) {
       case Identifier:
       case Primitive:
@@ -419,23 +405,23 @@ public class Parser {
   }
 
   private void unaryPattern(final MethodGenerationContext mgenc) throws ParseError {
-    mgenc.setSignature(unarySelector());
+    builder.signature(mgenc, unarySelector());
   }
 
   private void binaryPattern(final MethodGenerationContext mgenc) throws ParseError {
-    mgenc.setSignature(binarySelector());
-    mgenc.addArgumentIfAbsent(argument());
+    builder.signature(mgenc, binarySelector());
+    builder.argument(mgenc, argument());
   }
 
   private void keywordPattern(final MethodGenerationContext mgenc) throws ParseError {
     StringBuffer kw = new StringBuffer();
     do {
       kw.append(keyword());
-      mgenc.addArgumentIfAbsent(argument());
+      builder.argument(mgenc, argument());
     }
     while (sym == Keyword);
 
-    mgenc.setSignature(Symbols.symbolFor(kw.toString()));
+    builder.signature(mgenc, Symbols.symbolFor(kw.toString()));
   }
 
   private ExpressionWithTagsNode methodBlock(final MethodGenerationContext mgenc, final SourceCoordinate coord) throws ParseError {
@@ -446,12 +432,45 @@ public class Parser {
     return methodBody;
   }
 
+  /**
+   * Only finds the end of the method body, which is parsed on the first
+   * execution of the method, see {@link LazyMethodBody}.
+   */
+  private ExpressionWithTagsNode skipMethodBlock(final MethodGenerationContext mgenc,
+      final SourceCoordinate coord) throws ParseError {
+    LazyMethodBody lazy = new LazyMethodBody(source, content, lexer.getState(),
+        coord, mgenc, language);
+
+    expect(NewTerm, null);
+    int depth = 1;
+    while (true) {
+      if (sym == NewTerm) {
+        depth += 1;
+      } else if (sym == EndTerm) {
+        depth -= 1;
+        if (depth == 0) {
+          break;
+        }
+      } else if (sym == NONE) {
+        throw new ParseError("Unexpected symbol in method body. Expected %(expected)s, "
+            + "but found %(found)s", EndTerm, this);
+      }
+      getSymbolFromLexer();
+    }
+
+    lastMethodsSourceSection = getSource(coord, 1);
+    expect(EndTerm, null);
+    return new LazyMethodBodyNode(lazy).initialize(lastMethodsSourceSection);
+  }
+
   private SSymbol unarySelector() throws ParseError {
-    return Symbols.symbolFor(identifier());
+    SSymbol s = lexer.getSymbol();
+    identifier();
+    return s;
   }
 
   private SSymbol binarySelector() throws ParseError {
-    String s = new String(text);
+    SSymbol s = lexer.getSymbol();
 
     // Checkstyle: stop
     if (accept(Or, null)) {
@@ -463,11 +482,11 @@ public class Parser {
     } else { expect(NONE, null); }
     // Checkstyle: resume
 
-    return Symbols.symbolFor(s);
+    return s;
   }
 
   private String identifier() throws ParseError {
-    String s = new String(text);
+    String s = lexer.getText();
     boolean isPrimitive = accept(Primitive, KeywordTag.class);
     if (!isPrimitive) {
       expect(Identifier, null);
@@ -476,7 +495,7 @@ public class Parser {
   }
 
   private String keyword() throws ParseError {
-    String s = new String(text);
+    String s = lexer.getText();
     expect(Keyword, null);
     return s;
   }
@@ -495,7 +514,7 @@ public class Parser {
 
   private void locals(final MethodGenerationContext mgenc) throws ParseError {
     while (isIdentifier(sym)) {
-      mgenc.addLocalIfAbsent(variable());
+      builder.local(mgenc, variable());
     }
   }
 
@@ -506,15 +525,15 @@ public class Parser {
     while (true) {
       if (accept(Exit, KeywordTag.class)) {
         expressions.add(result(mgenc));
-        return createSequenceNode(coord, expressions);
+        return builder.sequence(expressions, getSource(coord, 0));
       } else if (sym == EndBlock) {
-        return createSequenceNode(coord, expressions);
+        return builder.sequence(expressions, getSource(coord, 0));
       } else if (sym == EndTerm) {
         // the end of the method has been found (EndTerm) - make it implicitly
         // return "self"
-        ExpressionWithTagsNode self = variableRead(mgenc, "self", getSource(getCoordinate(), 0));
+        ExpressionWithTagsNode self = builder.variableRead(mgenc, "self", getSource(getCoordinate(), 0));
         expressions.add(self);
-        return createSequenceNode(coord, expressions);
+        return builder.sequence(expressions, getSource(coord, 0));
       }
 
       expressions.add(expression(mgenc));
@@ -522,16 +541,6 @@ public class Parser {
     }
   }
 
-  private ExpressionWithTagsNode createSequenceNode(final SourceCoordinate coord,
-      final List<ExpressionWithTagsNode> expressions) {
-    if (expressions.size() == 0) {
-      return createGlobalRead("nil", getSource(coord, 0));
-    } else if (expressions.size() == 1)  {
-      return expressions.get(0);
-    }
-    return createSequence(expressions, getSource(coord, 0));
-  }
-
   private ExpressionWithTagsNode result(final MethodGenerationContext mgenc) throws ParseError {
     SourceCoordinate coord = getCoordinate();
 
@@ -539,7 +548,7 @@ public class Parser {
     accept(Period, StatementSeparatorTag.class);
 
     if (mgenc.isBlockMethod()) {
-      return mgenc.getNonLocalReturn(exp, getSource(coord, 0));
+      return builder.nonLocalReturn(mgenc, exp, getSource(coord, 0));
     } else {
       return exp;
     }
@@ -578,7 +587,7 @@ public class Parser {
       value = evaluation(mgenc);
     }
 
-    return variableWrite(mgenc, variable, value, getSource(coord, 0));
+    return builder.variableWrite(mgenc, variable, value, getSource(coord, 0));
   }
 
   private String assignment() throws ParseError {
@@ -587,7 +596,7 @@ public class Parser {
     return v;
   }
 
-  private CascadeMessageSendNode cascadeMessages(final MethodGenerationContext mgenc,
+  private ExpressionWithTagsNode cascadeMessages(final MethodGenerationContext mgenc,
       final ExpressionWithTagsNode firstMessage, final ExpressionWithTagsNode receiver,
       final SourceCoordinate coord, final SourceSection section) throws ParseError {
     List<ExpressionWithTagsNode> expressions = new ArrayList<ExpressionWithTagsNode>();
@@ -596,7 +605,7 @@ public class Parser {
       ExpressionWithTagsNode message = messages(mgenc, receiver);
       expressions.add(message);
     }
-    return createCascadeMessageSend(receiver, expressions, section);
+    return builder.cascade(receiver, expressions, section);
   }
 
   private ExpressionWithTagsNode evaluation(final MethodGenerationContext mgenc) throws ParseError {
@@ -622,25 +631,18 @@ public class Parser {
       case Primitive: {
         SourceCoordinate coord = getCoordinate();
         String v = variable();
-        return variableRead(mgenc, v, getSource(coord, 0));
+        return builder.variableRead(mgenc, v, getSource(coord, 0));
       }
       case NewTerm: {
         return nestedTerm(mgenc);
       }
       case NewBlock: {
         SourceCoordinate coord = getCoordinate();
-        MethodGenerationContext bgenc = new MethodGenerationContext(mgenc.getHolder(), mgenc, language);
+        MethodGenerationContext bgenc = builder.newBlock(mgenc);
 
         ExpressionWithTagsNode blockBody = nestedBlock(bgenc);
-
-        DynamicObject blockMethod = bgenc.assemble(blockBody, lastMethodsSourceSection);
-        mgenc.addEmbeddedBlockMethod(blockMethod);
-
-        if (bgenc.requiresContext()) {
-          return new BlockNodeWithContext(blockMethod).initialize(getSource(coord, 0));
-        } else {
-          return new BlockNode(blockMethod).initialize(getSource(coord, 0));
-        }
+        return builder.block(mgenc, bgenc, blockBody, lastMethodsSourceSection,
+            getSource(coord, 0));
       }
       default: {
         return literal();
@@ -685,20 +687,20 @@ public class Parser {
     return msg;
   }
 
-  private AbstractMessageSendNode unaryMessage(final ExpressionNode receiver) throws ParseError {
+  private ExpressionWithTagsNode unaryMessage(final ExpressionNode receiver) throws ParseError {
     SourceCoordinate coord = getCoordinate();
     SSymbol selector = unarySelector();
-    return createMessageSend(selector, new ExpressionNode[] {receiver},
+    return builder.send(selector, new ExpressionNode[] {receiver},
         getSource(coord, 0));
   }
 
-  private AbstractMessageSendNode binaryMessage(final MethodGenerationContext mgenc,
+  private ExpressionWithTagsNode binaryMessage(final MethodGenerationContext mgenc,
       final ExpressionNode receiver) throws ParseError {
     SourceCoordinate coord = getCoordinate();
     SSymbol msg = binarySelector();
     ExpressionNode operand = binaryOperand(mgenc);
 
-    return createMessageSend(msg, new ExpressionNode[] {receiver, operand},
+    return builder.send(msg, new ExpressionNode[] {receiver, operand},
         getSource(coord, 0));
   }
 
@@ -728,68 +730,10 @@ public class Parser {
     }
     while (sym == Keyword);
 
-    String msgStr = kw.toString();
-    SSymbol msg = Symbols.symbolFor(msgStr);
+    SSymbol msg = Symbols.symbolFor(kw.toString());
 
     SourceSection source = getSource(coord, 0);
-
-    if (msg.getNumberOfSignatureArguments() == 2) {
-      if (arguments.get(1) instanceof LiteralNode) {
-        if ("ifTrue:".equals(msgStr)) {
-          ExpressionNode condition = arguments.get(0);
-          condition.markAsControlFlowCondition();
-          ExpressionNode inlinedBody = ((LiteralNode) arguments.get(1)).inline(mgenc);
-          return new IfInlinedLiteralNode(condition, true, inlinedBody,
-              arguments.get(1)).initialize(source);
-        } else if ("ifFalse:".equals(msgStr)) {
-          ExpressionNode condition = arguments.get(0);
-          condition.markAsControlFlowCondition();
-          ExpressionNode inlinedBody = ((LiteralNode) arguments.get(1)).inline(mgenc);
-          return new IfInlinedLiteralNode(condition, false, inlinedBody,
-              arguments.get(1)).initialize(source);
-        } else if ("whileTrue:".equals(msgStr)) {
-          ExpressionNode inlinedCondition = ((LiteralNode) arguments.get(0)).inline(mgenc);
-          inlinedCondition.markAsControlFlowCondition();
-          ExpressionNode inlinedBody      = ((LiteralNode) arguments.get(1)).inline(mgenc);
-          inlinedBody.markAsLoopBody();
-          return new WhileInlinedLiteralsNode(inlinedCondition, inlinedBody,
-              true, arguments.get(0), arguments.get(1)).initialize(source);
-        } else if ("whileFalse:".equals(msgStr)) {
-          ExpressionNode inlinedCondition = ((LiteralNode) arguments.get(0)).inline(mgenc);
-          inlinedCondition.markAsControlFlowCondition();
-          ExpressionNode inlinedBody      = ((LiteralNode) arguments.get(1)).inline(mgenc);
-          inlinedBody.markAsLoopBody();
-          return new WhileInlinedLiteralsNode(inlinedCondition, inlinedBody,
-              false, arguments.get(0), arguments.get(1)).initialize(source);
-        } else if ("or:".equals(msgStr) || "||".equals(msgStr)) {
-          ExpressionNode inlinedArg = ((LiteralNode) arguments.get(1)).inline(mgenc);
-          return new OrInlinedLiteralNode(arguments.get(0), inlinedArg, arguments.get(1)).initialize(source);
-        } else if ("and:".equals(msgStr) || "&&".equals(msgStr)) {
-          ExpressionNode inlinedArg = ((LiteralNode) arguments.get(1)).inline(mgenc);
-          return new AndInlinedLiteralNode(arguments.get(0), inlinedArg, arguments.get(1)).initialize(source);
-        }
-      }
-    } else if (msg.getNumberOfSignatureArguments() == 3) {
-      if ("ifTrue:ifFalse:".equals(msgStr) &&
-          arguments.get(1) instanceof LiteralNode && arguments.get(2) instanceof LiteralNode) {
-        ExpressionNode condition = arguments.get(0);
-        condition.markAsControlFlowCondition();
-        ExpressionNode inlinedTrueNode  = ((LiteralNode) arguments.get(1)).inline(mgenc);
-        ExpressionNode inlinedFalseNode = ((LiteralNode) arguments.get(2)).inline(mgenc);
-        return new IfTrueIfFalseInlinedLiteralsNode(condition,
-            inlinedTrueNode, inlinedFalseNode, arguments.get(1), arguments.get(2)).initialize(source);
-      } else if (!VmSettings.DYNAMIC_METRICS && "to:do:".equals(msgStr) &&
-          arguments.get(2) instanceof LiteralNode) {
-        Local loopIdx = mgenc.addLocal("i:" + source.getCharIndex());
-        ExpressionNode inlinedBody = ((LiteralNode) arguments.get(2)).inline(mgenc, loopIdx);
-        inlinedBody.markAsLoopBody();
-        return IntToDoInlinedLiteralsNodeGen.create(inlinedBody, loopIdx.getSlot(),
-            arguments.get(2), arguments.get(0), arguments.get(1)).initialize(source);
-      }
-    }
-
-    return createMessageSend(msg, arguments.toArray(new ExpressionNode[0]),
-        source);
+    return builder.keywordSend(mgenc, msg, arguments, source);
   }
 
   private ExpressionWithTagsNode formula(final MethodGenerationContext mgenc) throws ParseError {
@@ -815,24 +759,24 @@ public class Parser {
         try { peekForNextSymbolFromLexer(); } catch (IllegalStateException e) { /*Come from a trace that already peeked*/ }
         if (nextSym == NewTerm) {
           expect(Pound, null);
-          return new ArrayLiteralNode(this.literalArray()).initialize(getSource(coord, 0));
+          return builder.array(this.literalArray(), getSource(coord, 0));
         } else {
-          return new SymbolLiteralNode(literalSymbol()).initialize(getSource(coord, 0));
+          return builder.symbol(literalSymbol(), getSource(coord, 0));
         }
-      case STString:  return new StringLiteralNode(literalString()).initialize(getSource(coord, 0));
-      case STChar:    return new CharLiteralNode(literalChar()).initialize(getSource(coord, 0));
+      case STString:  return builder.string(literalString(), getSource(coord, 0));
+      case STChar:    return builder.character(literalChar(), getSource(coord, 0));
       default:
         boolean isNegative = isNegativeNumber();
         if (sym == Integer) {
           long value = literalInteger(isNegative);
           if (value < Long.MIN_VALUE || value > Long.MAX_VALUE) {
-            return new BigIntegerLiteralNode(BigInteger.valueOf(value)).initialize(getSource(coord, 0));
+            return builder.bigInteger(BigInteger.valueOf(value), getSource(coord, 0));
           } else {
-            return new IntegerLiteralNode(value).initialize(getSource(coord, 0));
+            return builder.integer(value, getSource(coord, 0));
           }
         } else {
           assert sym == Double;
-          return new DoubleLiteralNode(literalDouble(isNegative)).initialize(getSource(coord, 0));
+          return builder.doubleLiteral(literalDouble(isNegative), getSource(coord, 0));
         }
     }
   }
@@ -847,7 +791,7 @@ public class Parser {
   }
   private long literalInteger(final boolean isNegative) throws ParseError {
     try {
-       long i = Long.parseLong(text);
+       long i = Long.parseLong(lexer.getText());
        if (isNegative) {
          i = 0 - i;
        }
@@ -855,13 +799,13 @@ public class Parser {
        return i;
     } catch (NumberFormatException e) {
       throw new ParseError("Could not parse integer. Expected a number but " +
-                           "got '" + text + "'", NONE, this);
+                           "got '" + lexer.getText() + "'", NONE, this);
     }
   }
 
   private double literalDouble(final boolean isNegative) throws ParseError {
     try {
-      double d = java.lang.Double.parseDouble(text);
+      double d = java.lang.Double.parseDouble(lexer.getText());
       if (isNegative) {
         d = 0.0 - d;
       }
@@ -869,7 +813,7 @@ public class Parser {
       return d;
     } catch (NumberFormatException e) {
       throw new ParseError("Could not parse double. Expected a number but " +
-          "got '" + text + "'", NONE, this);
+          "got '" + lexer.getText() + "'", NONE, this);
     }
   }
 
@@ -892,7 +836,7 @@ public class Parser {
       literals.add(this.getObjectForCurrentLiteral());
     }
     expect(EndTerm, null);
-    return SArray.create(literals.toArray());
+    return builder.literalArray(literals.toArray());
   }
 
   private Object getObjectForCurrentLiteral() throws ParseError {
@@ -916,13 +860,13 @@ public class Parser {
       case Double:
         return literalDouble(isNegativeNumber());
       case Identifier:
-        if (text.equals("nil")) {
+        if (lexer.textEquals("nil")) {
           selector(); // Consume the text from the parser state
           return Nil.nilObject;
-        } else if (text.equals("true")) {
+        } else if (lexer.textEquals("true")) {
           selector(); // Consume the text from the parser state
           return Universe.getCurrent().getTrueObject();
-        } else if (text.equals("false")) {
+        } else if (lexer.textEquals("false")) {
           selector(); // Consume the text from the parser state
           return Universe.getCurrent().getFalseObject();
         }
@@ -941,7 +885,7 @@ public class Parser {
   }
 
   private Character literalChar() throws ParseError {
-    char value = text.charAt(0);
+    char value = lexer.getText().charAt(0);
     expect(STChar, null);
     return value;
   }
@@ -957,14 +901,13 @@ public class Parser {
   }
 
   private SSymbol keywordSelector() throws ParseError {
-    String s = new String(text);
+    SSymbol symb = lexer.getSymbol();
     expectOneOf(keywordSelectorSyms);
-    SSymbol symb = Symbols.symbolFor(s);
     return symb;
   }
 
   private String string() throws ParseError {
-    String s = new String(text);
+    String s = lexer.getText();
     expect(STString, null);
     return s;
   }
@@ -973,7 +916,7 @@ public class Parser {
     SourceCoordinate coord = getCoordinate();
     expect(NewBlock, DelimiterOpeningTag.class);
 
-    mgenc.addArgumentIfAbsent("$blockSelf");
+    builder.argument(mgenc, "$blockSelf");
 
     if (sym == Colon) {
       blockPattern(mgenc);
@@ -986,7 +929,7 @@ public class Parser {
       blockSig += ":";
     }
 
-    mgenc.setSignature(Symbols.symbolFor(blockSig));
+    builder.signature(mgenc, Symbols.symbolFor(blockSig));
 
     ExpressionWithTagsNode expressions = blockContents(mgenc);
 
@@ -1004,62 +947,12 @@ public class Parser {
   private void blockArguments(final MethodGenerationContext mgenc) throws ParseError {
     do {
       expect(Colon, KeywordTag.class);
-      mgenc.addArgumentIfAbsent(argument());
+      builder.argument(mgenc, argument());
     } while (sym == Colon);
   }
 
-  private ExpressionWithTagsNode variableRead(final MethodGenerationContext mgenc,
-                                      final String variableName,
-                                      final SourceSection source) {
-    // we need to handle super special here
-    if ("super".equals(variableName)) {
-      return mgenc.getSuperReadNode(source);
-    }
-
-    // we need to handle thisContext special here
-    if ("thisContext".equals(variableName)) {
-      return mgenc.getThisContextNode(source);
-    }
-
-    // now look up first local variables, or method arguments
-    Variable variable = mgenc.getVariable(variableName);
-    if (variable != null) {
-      return mgenc.getLocalReadNode(variableName, source);
-    }
-
-    // then object fields
-    SSymbol varName = Symbols.symbolFor(variableName);
-    FieldReadNode fieldRead = mgenc.getObjectFieldRead(varName, source);
-
-    if (fieldRead != null) {
-      return fieldRead;
-    }
-
-    // and finally assume it is a global
-    return mgenc.getGlobalRead(varName, source);
-  }
-
-  private ExpressionWithTagsNode variableWrite(final MethodGenerationContext mgenc,
-      final String variableName, final ExpressionWithTagsNode exp, final SourceSection source) {
-    Local variable = mgenc.getLocal(variableName);
-    if (variable != null) {
-      return mgenc.getLocalWriteNode(variableName, exp, source);
-    }
-
-    SSymbol fieldName = Symbols.symbolFor(variableName);
-    FieldWriteNode fieldWrite = mgenc.getObjectFieldWrite(fieldName, exp, source);
-
-    if (fieldWrite != null) {
-      return fieldWrite;
-    } else {
-      throw new RuntimeException("Neither a variable nor a field found "
-          + "in current scope that is named " + variableName + ". Arguments are read-only.");
-    }
-  }
-
   private void getSymbolFromLexer() {
     sym  = lexer.getSym();
-    text = lexer.getText();
   }
 
   private void peekForNextSymbolFromLexer() {
@@ -31,7 +31,6 @@ import com.oracle.truffle.api.source.Source;
 import som.compiler.Parser.ParseError;
 import som.interpreter.SomLanguage;
 import som.vm.ObjectMemory;
-import som.vm.Universe;
 import som.vmobjects.SClass;
 import som.vmobjects.SSymbol;
 import tools.language.StructuralProbe;
@@ -49,7 +48,7 @@ public final class SourcecodeCompiler {
   public DynamicObject compileClass(final Source source, final DynamicObject systemClass,
       final ObjectMemory memory, final StructuralProbe structuralProbe) throws ParseError {
 
-    Parser parser = new Parser(source.getCharacters().toString(), source.getLength(), source, memory, structuralProbe, language);
+    Parser parser = new Parser(source.getCharacters(), source.getLength(), source, memory, structuralProbe, language);
 
     DynamicObject result = compile(parser, systemClass, memory, structuralProbe);
 
@@ -73,17 +72,52 @@ public final class SourcecodeCompiler {
     return result;
   }
 
+  /**
+   * Compiles the class, and encodes it in a compact binary form that can be
+   * loaded with {@link #loadClass(byte[], Source, DynamicObject, StructuralProbe, AstWriter)}
+   * instead of parsing the source again, see {@link AstWriter}.
+   * The compiled class itself is discarded.
+   */
+  @TruffleBoundary
+  public byte[] encodeClass(final Source source, final ObjectMemory memory) throws ParseError {
+    AstWriter writer = new AstWriter(source.getName());
+    Parser parser = new Parser(source.getCharacters(), source.getLength(), source, memory, null, language, writer);
+    compile(parser, null, memory, null);
+    writer.end();
+    return writer.toByteArray();
+  }
+
+  /**
+   * Creates the class from its encoding, with the same uninitialized ASTs as
+   * {@link #compileClass(Source, DynamicObject, ObjectMemory, StructuralProbe)}.
+   *
+   * @param source the source the class was encoded from, for the source
+   *        sections of the nodes
+   * @param writer encodes the loaded class again, or null
+   */
+  @TruffleBoundary
+  public DynamicObject loadClass(final byte[] encoded, final Source source,
+      final DynamicObject systemClass, final StructuralProbe structuralProbe,
+      final AstWriter writer) {
+    ClassGenerationContext cgc = new ClassGenerationContext();
+    new AstReader(encoded, source, new AstBuilder(language, structuralProbe, writer)).read(cgc);
+    if (writer != null) {
+      writer.end();
+    }
+    return assemble(cgc, systemClass, structuralProbe);
+  }
+
   private static DynamicObject compile(final Parser parser,
-      final DynamicObject systemClass, final ObjectMemory memory, final StructuralProbe structuralProbe) {
+      final DynamicObject systemClass, final ObjectMemory memory,
+      final StructuralProbe structuralProbe) throws ParseError {
     ClassGenerationContext cgc = new ClassGenerationContext();
+    parser.classdef(cgc);
+    return assemble(cgc, systemClass, structuralProbe);
+  }
 
+  private static DynamicObject assemble(final ClassGenerationContext cgc,
+      final DynamicObject systemClass, final StructuralProbe structuralProbe) {
     DynamicObject result = systemClass;
-    try {
-      parser.classdef(cgc);
-    } catch (ParseError pe) {
-      Universe.errorExit(pe.toString());
-    }
-
     if (systemClass == null) {
       result = cgc.assemble();
     } else {
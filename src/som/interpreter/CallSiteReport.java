@@ -0,0 +1,180 @@
+package som.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.SourceSection;
+
+import som.VmSettings;
+import som.interpreter.nodes.MessageSendNode.GenericMessageSendNode;
+import som.interpreter.nodes.dispatch.DispatchChain;
+import som.interpreter.nodes.dispatch.ReceiverProfile;
+import som.vm.constants.ExecutionLevel;
+import som.vmobjects.SArray;
+import som.vmobjects.SClass;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SInvokable.SMethod;
+
+
+/**
+ * Describes the send sites of a method, including the ones of its blocks,
+ * as they are at the moment: the receiver classes they saw, how many sends
+ * ended in #doesNotUnderstand:arguments:, and how many entries their dispatch
+ * chain has.
+ *
+ * The receiver histogram and the DNU count need -Dsom.callSiteProfiles=true,
+ * without it only the dispatch chains are reported. Sends specialized to a
+ * primitive do not dispatch and are not included, neither are the synthetic
+ * sends of #perform: and friends.
+ */
+public final class CallSiteReport {
+
+  private CallSiteReport() { }
+
+  /**
+   * @return for each send site: an array with the selector, the line, the
+   *         column, the length of the dispatch chain, the number of DNUs,
+   *         and an array of class and count pairs, most frequent first
+   */
+  @TruffleBoundary
+  public static SArray asArray(final DynamicObject method) {
+    List<Site> sites = collect(method);
+    Object[] result = new Object[sites.size()];
+    for (int i = 0; i < result.length; i++) {
+      Site s = sites.get(i);
+      List<Entry<DynamicObject, Long>> receivers = s.getReceivers();
+      Object[] histogram = new Object[receivers.size()];
+      for (int j = 0; j < histogram.length; j++) {
+        Entry<DynamicObject, Long> r = receivers.get(j);
+        histogram[j] = SArray.create(new Object[] {r.getKey(), r.getValue()});
+      }
+
+      result[i] = SArray.create(new Object[] {
+          s.send.getSelector(),
+          (long) s.send.getSourceSection().getStartLine(),
+          (long) s.send.getSourceSection().getStartColumn(),
+          (long) s.chainLength,
+          s.getDnuCount(),
+          SArray.create(histogram)});
+    }
+    return SArray.create(result);
+  }
+
+  @TruffleBoundary
+  public static String asJson(final DynamicObject method) {
+    JsonArray sites = Json.array();
+    for (Site s : collect(method)) {
+      SourceSection source = s.send.getSourceSection();
+
+      JsonArray receivers = Json.array();
+      for (Entry<DynamicObject, Long> r : s.getReceivers()) {
+        receivers.add(Json.object()
+            .add("class", SClass.getName(r.getKey()).getString())
+            .add("count", r.getValue()));
+      }
+
+      sites.add(Json.object()
+          .add("selector",    s.send.getSelector().getString())
+          .add("line",        source.getStartLine())
+          .add("column",      source.getStartColumn())
+          .add("dispatch",    DispatchChain.Cost.getCost(s.dispatch).name())
+          .add("chainLength", s.chainLength)
+          .add("dnus",        s.getDnuCount())
+          .add("receivers",   receivers));
+    }
+
+    return Json.object()
+        .add("method",    SInvokable.toString(method))
+        .add("profiled",  VmSettings.CALL_SITE_PROFILES)
+        .add("callSites", sites).toString();
+  }
+
+  private static List<Site> collect(final DynamicObject method) {
+    // copies of a send, e.g., split or for the meta level, are reported once
+    Map<SourceSection, Site> sites = new HashMap<>();
+    List<Site> result = new ArrayList<>();
+    collect(method, sites, result);
+    return result;
+  }
+
+  private static void collect(final DynamicObject method,
+      final Map<SourceSection, Site> sites, final List<Site> result) {
+    for (ExecutionLevel level : ExecutionLevel.values()) {
+      SInvokable.getCallTarget(method, level).getRootNode().accept(node -> {
+        if (node instanceof GenericMessageSendNode && node.getSourceSection() != null) {
+          GenericMessageSendNode send = (GenericMessageSendNode) node;
+          Site s = sites.get(send.getSourceSection());
+          if (s == null) {
+            s = new Site(send);
+            sites.put(send.getSourceSection(), s);
+            result.add(s);
+          }
+          s.merge(send);
+        }
+        return true;
+      });
+    }
+
+    if (SMethod.isSMethod(method)) {
+      for (DynamicObject block : SMethod.getEmbeddedBlocks(method)) {
+        collect(block, sites, result);
+      }
+    }
+  }
+
+  private static final class Site {
+    private final GenericMessageSendNode send;
+    private final Set<ReceiverProfile> profiles;
+    private DispatchChain dispatch;
+    private int chainLength;
+
+    Site(final GenericMessageSendNode send) {
+      this.send        = send;
+      this.profiles    = Collections.newSetFromMap(new IdentityHashMap<>());
+      this.dispatch    = send.getDispatchListHead();
+      this.chainLength = dispatch.lengthOfDispatchChain();
+    }
+
+    /** The most specialized copy of the send describes the dispatch chain. */
+    void merge(final GenericMessageSendNode copy) {
+      if (copy.getReceiverProfile() != null) {
+        profiles.add(copy.getReceiverProfile());
+      }
+
+      int length = copy.getDispatchListHead().lengthOfDispatchChain();
+      if (length > chainLength) {
+        dispatch    = copy.getDispatchListHead();
+        chainLength = length;
+      }
+    }
+
+    List<Entry<DynamicObject, Long>> getReceivers() {
+      Map<DynamicObject, Long> counts = new HashMap<>();
+      for (ReceiverProfile p : profiles) {
+        p.getReceivers().forEach((klass, n) -> counts.merge(klass, n, Long::sum));
+      }
+
+      List<Entry<DynamicObject, Long>> receivers = new ArrayList<>(counts.entrySet());
+      receivers.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+      return receivers;
+    }
+
+    long getDnuCount() {
+      long n = 0;
+      for (ReceiverProfile p : profiles) {
+        n += p.getDnuCount();
+      }
+      return n;
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package som.interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameInstance;
+import com.oracle.truffle.api.instrumentation.InstrumentableNode.WrapperNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.source.SourceSection;
+
+import som.VmSettings;
+import som.vm.Universe;
+import tools.dym.CsvWriter;
+
+
+/**
+ * Records node rewrites, transfers to the interpreter, and assumption
+ * invalidations, with the SOM method and source location they happen in.
+ * Enabled with -Dsom.traceDeopt=true.
+ *
+ * It writes:
+ *   - PREFIX-events.csv   every event, in the order they happened, written as
+ *                         they happen
+ *   - PREFIX-sites.csv    the events per site, sites that flip-flop most
+ *                         first, written on exit
+ *
+ * The prefix is set with -Dsom.traceDeopt.output, default "deopt". A site
+ * flip-flops when it is rewritten back to a node class that was replaced
+ * there before, or when it invalidates compiled code more than once. New
+ * uninitialized nodes, e.g., at the end of a growing dispatch chain, do not
+ * count.
+ *
+ * Specialization changes internal to DSL nodes, e.g., from rewriteOn, are not
+ * visible here. They show up in Graal's -Dgraal.TraceTruffleTransferToInterpreter
+ * output.
+ */
+public final class DeoptTracer {
+
+  public enum Kind { REWRITE, DEOPT, TRANSFER, INVALIDATION }
+
+  private static final String OUTPUT = System.getProperty("som.traceDeopt.output", "deopt");
+  private static final long START = System.currentTimeMillis();
+
+  private static final CsvWriter events;
+  private static final Map<String, Site> sites = new LinkedHashMap<>();
+
+  static {
+    CsvWriter writer = null;
+    if (VmSettings.TRACE_DEOPT) {
+      try {
+        writer = new CsvWriter(".", OUTPUT + "-events.csv",
+            "Time (ms)", "Kind", "Compiled", "Method", "Location", "Reason");
+      } catch (RuntimeException e) {
+        Universe.errorPrintln("Could not write " + OUTPUT + "-events.csv: " + e.getMessage());
+      }
+      Runtime.getRuntime().addShutdownHook(new Thread(DeoptTracer::writeReport));
+    }
+    events = writer;
+  }
+
+  private DeoptTracer() { }
+
+  /**
+   * @param site the node rewritten, or null if not known
+   * @param compiled whether the transfer was requested from compiled code
+   */
+  @TruffleBoundary
+  public static void transfer(final Node site, final boolean invalidate,
+      final boolean compiled, final String reason) {
+    record(invalidate ? Kind.DEOPT : Kind.TRANSFER, site, compiled, reason, null, null);
+  }
+
+  @TruffleBoundary
+  public static void rewrite(final Node oldNode, final Node newNode,
+      final CharSequence reason) {
+    if (newNode instanceof WrapperNode) {
+      return;  // instrumentation, not a rewrite
+    }
+    String r = reason == null || reason.length() == 0
+        ? oldNode.getClass().getSimpleName() + " -> " + newNode.getClass().getSimpleName()
+        : reason.toString();
+    record(Kind.REWRITE, oldNode, false, r, oldNode.getClass(), newNode.getClass());
+  }
+
+  @TruffleBoundary
+  public static void invalidation(final String assumption, final String reason) {
+    record(Kind.INVALIDATION, null, false, assumption + ": " + reason, null, null);
+  }
+
+  private static synchronized void record(final Kind kind, final Node node,
+      final boolean compiled, final String reason, final Class<?> oldNodeClass,
+      final Class<?> newNodeClass) {
+    String method = methodOf(node);
+    String location = locationOf(node);
+
+    if (events != null) {
+      events.write(System.currentTimeMillis() - START, kind, compiled, method,
+          location, reason);
+    }
+
+    Site s = sites.computeIfAbsent(method + "\t" + location,
+        k -> new Site(method, location));
+    s.record(kind, compiled, reason, oldNodeClass, newNodeClass);
+  }
+
+  private static String methodOf(final Node node) {
+    RootNode root = node == null ? null : node.getRootNode();
+    if (root == null) {
+      FrameInstance current = Truffle.getRuntime().getCurrentFrame();
+      if (current != null && current.getCallTarget() instanceof RootCallTarget) {
+        root = ((RootCallTarget) current.getCallTarget()).getRootNode();
+      }
+    }
+    return root == null ? "<unknown>" : root.getName();
+  }
+
+  private static String locationOf(final Node node) {
+    SourceSection section = null;
+    for (Node n = node; n != null && section == null; n = n.getParent()) {
+      section = n.getSourceSection();
+    }
+    if (section == null) {
+      return "";
+    }
+    return section.getSource().getName() + ":" + section.getStartLine() + ":"
+        + section.getStartColumn();
+  }
+
+  private static synchronized void writeReport() {
+    if (events != null) {
+      events.close();
+    }
+
+    List<Site> sorted = new ArrayList<>(sites.values());
+    sorted.sort((a, b) -> {
+      int cmp = Integer.compare(b.flipFlops, a.flipFlops);
+      return cmp != 0 ? cmp : Integer.compare(b.total(), a.total());
+    });
+
+    try (CsvWriter out = new CsvWriter(".", OUTPUT + "-sites.csv",
+        "Method", "Location", "Flip-Flops", "Rewrites", "Deopts", "Compiled Deopts",
+        "Transfers", "Invalidations", "Most Frequent Reason")) {
+      for (Site s : sorted) {
+        out.write(s.method, s.location, s.flipFlops,
+            s.counts[Kind.REWRITE.ordinal()],
+            s.counts[Kind.DEOPT.ordinal()],
+            s.compiledDeopts,
+            s.counts[Kind.TRANSFER.ordinal()],
+            s.counts[Kind.INVALIDATION.ordinal()],
+            s.mostFrequentReason());
+      }
+    } catch (RuntimeException e) {
+      Universe.errorPrintln("Could not write " + OUTPUT + "-sites.csv: " + e.getMessage());
+    }
+  }
+
+  private static final class Site {
+    private final String method;
+    private final String location;
+
+    private final int[] counts = new int[Kind.values().length];
+    private final Map<String, Integer> reasons = new HashMap<>();
+    private final Set<Class<?>> replacedClasses = new HashSet<>();
+    private int compiledDeopts;
+    private int flipFlops;
+
+    Site(final String method, final String location) {
+      this.method   = method;
+      this.location = location;
+    }
+
+    void record(final Kind kind, final boolean compiled, final String reason,
+        final Class<?> oldNodeClass, final Class<?> newNodeClass) {
+      counts[kind.ordinal()] += 1;
+      reasons.merge(reason, 1, Integer::sum);
+
+      // a transfer from compiled code does not invalidate it
+      if (kind == Kind.DEOPT && compiled) {
+        compiledDeopts += 1;
+        if (compiledDeopts > 1) {
+          flipFlops += 1;
+        }
+      }
+      if (oldNodeClass != null) {
+        replacedClasses.add(oldNodeClass);
+        if (replacedClasses.contains(newNodeClass)
+            && !newNodeClass.getSimpleName().startsWith("Uninitialized")) {
+          flipFlops += 1;
+        }
+      }
+    }
+
+    int total() {
+      int sum = 0;
+      for (int c : counts) {
+        sum += c;
+      }
+      return sum;
+    }
+
+    String mostFrequentReason() {
+      String result = "";
+      int max = 0;
+      for (Map.Entry<String, Integer> e : reasons.entrySet()) {
+        if (e.getValue() > max) {
+          max = e.getValue();
+          result = e.getKey();
+        }
+      }
+      return result;
+    }
+  }
+}
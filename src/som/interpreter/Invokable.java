@@ -6,6 +6,7 @@ import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
 import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.source.SourceSection;
@@ -13,6 +14,7 @@ import com.oracle.truffle.api.source.SourceSection;
 import som.compiler.MethodGenerationContext;
 import som.compiler.Variable.Local;
 import som.interpreter.nodes.ExpressionNode;
+import som.interpreter.nodes.LazyMethodBodyNode;
 import som.interpreter.nodes.MateReturnNode;
 import som.vmobjects.SInvokable;
 
@@ -22,6 +24,7 @@ public abstract class Invokable extends RootNode implements ReflectiveNode {
 
   @CompilationFinal protected ExpressionNode uninitializedBody;
   @CompilationFinal protected DynamicObject belongsToMethod;
+  @CompilationFinal private boolean pureLookup;
 
   private final SourceSection sourceSection;
 
@@ -55,10 +58,39 @@ public abstract class Invokable extends RootNode implements ReflectiveNode {
     return true;
   }
 
+  /**
+   * Fresh copy of the uninitialized body. It is meant to be executed outside
+   * of this root node, with a frame created for this method's descriptor.
+   * A lazily parsed body is parsed first.
+   */
+  public ExpressionNode copyUninitializedBody() {
+    if (uninitializedBody instanceof LazyMethodBodyNode && this instanceof Method) {
+      return ((LazyMethodBodyNode) uninitializedBody).parseFor((Method) this);
+    }
+    return NodeUtil.cloneNode(uninitializedBody);
+  }
+
+  /** @return whether the body is wrapped to intercede the returned value */
+  public boolean hasMateReturn() {
+    return expressionOrSequence instanceof MateReturnNode;
+  }
+
   public DynamicObject getBelongsToMethod() {
     return this.belongsToMethod;
   }
 
+  /**
+   * A find:since: handler whose result only depends on the class and the
+   * selector it receives, so that the VM can memoize it.
+   */
+  public boolean isPureLookup() {
+    return pureLookup;
+  }
+
+  public void declarePureLookup() {
+    pureLookup = true;
+  }
+
   public final RootCallTarget createCallTarget() {
     return Truffle.getRuntime().createCallTarget(this);
   }
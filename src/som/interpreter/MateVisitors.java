@@ -26,6 +26,22 @@ public class MateVisitors {
     }
   }
 
+  public static class FindFrameWithArguments implements FrameInstanceVisitor<FrameInstance>{
+    private final Object[] arguments;
+
+    public FindFrameWithArguments(final Object[] arguments) {
+      this.arguments = arguments;
+    }
+
+    @Override
+    public FrameInstance visitFrame(final FrameInstance frameInstance) {
+      if (frameInstance.getFrame(FrameAccess.READ_ONLY).getArguments() == arguments) {
+        return frameInstance;
+      }
+      return null;
+    }
+  }
+
   public static class FindSenderFrame implements FrameInstanceVisitor<FrameInstance>{
     private final FrameOnStackMarker toFind;
     private Boolean currentFound;
@@ -33,6 +33,19 @@ public final class ReturnException extends ControlFlowException {
     this.target = target;
   }
 
+  /**
+   * A return from a block that was inlined into its home method. It is
+   * caught by the method it was thrown in, and does not need the marker of
+   * the method's frame.
+   */
+  public ReturnException(final Object result) {
+    this(result, null);
+  }
+
+  public boolean isLocal() {
+    return target == null;
+  }
+
   public Object result() {
     return result;
   }
@@ -2,6 +2,7 @@ package som.interpreter;
 
 import som.vm.constants.ExecutionLevel;
 import som.vmobjects.SArray;
+import som.vmobjects.SBlock;
 
 import com.oracle.truffle.api.frame.Frame;
 import com.oracle.truffle.api.object.DynamicObject;
@@ -25,6 +26,11 @@ public final class SArguments {
     return args(frame)[index + ARGUMENT_OFFSET];
   }
 
+  /** @param arguments the arguments array of a frame */
+  public static Object arg(final Object[] arguments, final int index) {
+    return arguments[index + ARGUMENT_OFFSET];
+  }
+
   public static Object rcvr(final Frame frame) {
     return args(frame)[RCVR_IDX];
   }
@@ -67,6 +73,17 @@ public final class SArguments {
     return SArray.create(argsArr);
   }
 
+  /** The arguments to activate a block, without an intermediate array. */
+  public static Object[] createBlockArguments(final DynamicObject environment,
+      final ExecutionLevel exLevel, final SBlock block) {
+    return new Object[] {environment, exLevel, block};
+  }
+
+  public static Object[] createBlockArguments(final DynamicObject environment,
+      final ExecutionLevel exLevel, final SBlock block, final Object argument) {
+    return new Object[] {environment, exLevel, block, argument};
+  }
+
   public static Object[] createSArguments(final DynamicObject environment,
       final ExecutionLevel exLevel, final Object[] arguments) {
     // assert SMateEnvironment.isSMateEnvironment(environment);
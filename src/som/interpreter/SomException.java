@@ -4,6 +4,13 @@ import com.oracle.truffle.api.nodes.ControlFlowException;
 import com.oracle.truffle.api.object.DynamicObject;
 
 
+/**
+ * Carries a signaled SOM exception to its handler. As a control flow
+ * exception, it does not capture a stack trace, and when the signal and the
+ * handler are compiled together, the exception is not even allocated.
+ * It is not shared between signals: an ensure: block may signal another
+ * exception while this one unwinds.
+ */
 public final class SomException extends ControlFlowException {
 
   private static final long serialVersionUID = -639789248178270606L;
@@ -1,14 +1,40 @@
 package som.interpreter;
 
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.nodes.Node;
+
+import som.VmSettings;
 
 
 public final class TruffleCompiler {
   public static void transferToInterpreter(final String reason) {
-    CompilerDirectives.transferToInterpreter();
+    transferToInterpreter(null, reason);
   }
 
   public static void transferToInterpreterAndInvalidate(final String reason) {
+    transferToInterpreterAndInvalidate(null, reason);
+  }
+
+  /**
+   * @param site the node requesting the transfer, for -Dsom.traceDeopt
+   */
+  public static void transferToInterpreter(final Node site, final String reason) {
+    // after deoptimization, the interpreter continues with the compiled value
+    boolean compiled = CompilerDirectives.inCompiledCode();
+    CompilerDirectives.transferToInterpreter();
+    if (VmSettings.TRACE_DEOPT) {
+      DeoptTracer.transfer(site, false, compiled, reason);
+    }
+  }
+
+  /**
+   * @param site the node requesting the transfer, for -Dsom.traceDeopt
+   */
+  public static void transferToInterpreterAndInvalidate(final Node site, final String reason) {
+    boolean compiled = CompilerDirectives.inCompiledCode();
     CompilerDirectives.transferToInterpreterAndInvalidate();
+    if (VmSettings.TRACE_DEOPT) {
+      DeoptTracer.transfer(site, true, compiled, reason);
+    }
   }
 }
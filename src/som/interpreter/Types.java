@@ -29,6 +29,7 @@ import com.oracle.truffle.api.dsl.TypeSystem;
 import com.oracle.truffle.api.frame.FrameInstance;
 import com.oracle.truffle.api.object.DynamicObject;
 
+import som.interpreter.objectstorage.ObjectLayout;
 import som.primitives.LengthPrim;
 import som.primitives.LengthPrimFactory;
 import som.vm.constants.Classes;
@@ -105,6 +106,9 @@ public class Types {
     }
 
     DynamicObject o = (DynamicObject) obj;
+    if (ObjectLayout.hasFixedLayout(o)) {
+      return ObjectLayout.getNumberOfWrittenFields(o);
+    }
     return o.getShape().getPropertyCount();
   }
 
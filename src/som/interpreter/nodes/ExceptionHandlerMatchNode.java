@@ -0,0 +1,49 @@
+package som.interpreter.nodes;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.vmobjects.SClass;
+import som.vmobjects.SObject;
+
+
+/**
+ * Decides whether a handler for an exception class catches a signaled
+ * exception. The answers for the classes a site sees are cached, so that a
+ * compiled handler does not walk the superclass chain.
+ */
+public abstract class ExceptionHandlerMatchNode extends Node {
+  protected static final int LIMIT = 4;
+
+  public abstract boolean executeMatch(DynamicObject exception, DynamicObject handlerClass);
+
+  protected static DynamicObject classOf(final DynamicObject exception) {
+    return SObject.getSOMClass(exception);
+  }
+
+  @Specialization(guards = {"classOf(exception) == cachedClass", "handlerClass == cachedHandlerClass"},
+      assumptions = "superclassesUnchanged", limit = "LIMIT")
+  public final boolean doCached(final DynamicObject exception, final DynamicObject handlerClass,
+      @Cached("classOf(exception)") final DynamicObject cachedClass,
+      @Cached("handlerClass") final DynamicObject cachedHandlerClass,
+      @Cached("isKindOf(cachedClass, cachedHandlerClass)") final boolean matches,
+      @Cached("getSuperclassesAssumption(cachedClass)") final Assumption superclassesUnchanged) {
+    return matches;
+  }
+
+  @Specialization(replaces = "doCached")
+  public final boolean doUncached(final DynamicObject exception, final DynamicObject handlerClass) {
+    return SClass.isKindOf(classOf(exception), handlerClass);
+  }
+
+  protected static boolean isKindOf(final DynamicObject clazz, final DynamicObject handlerClass) {
+    return SClass.isKindOf(clazz, handlerClass);
+  }
+
+  protected static Assumption getSuperclassesAssumption(final DynamicObject clazz) {
+    return SClass.getSuperclassesAssumption(clazz);
+  }
+}
@@ -21,11 +21,13 @@
  */
 package som.interpreter.nodes;
 
+import com.oracle.truffle.api.dsl.Introspectable;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.instrumentation.Tag;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 import com.oracle.truffle.api.object.DynamicObject;
 
 import som.interpreter.nodes.MateFieldNodesFactory.MateFieldReadNodeGen;
@@ -41,6 +43,7 @@ public abstract class FieldNode extends ExpressionWithTagsNode {
 
   public abstract ExpressionNode getSelf();
 
+  @Introspectable
   @NodeChild(value = "self", type = ExpressionNode.class)
   public abstract static class FieldReadNode extends FieldNode {
 
@@ -51,7 +54,27 @@ public abstract class FieldNode extends ExpressionWithTagsNode {
       read = FieldAccessorNode.createRead(fieldIndex);
     }
 
-    @Specialization
+    /**
+     * Fields stored in unboxed long and double locations are read without
+     * boxing, as long as they do not hold another value.
+     */
+    protected boolean typedReads() {
+      return true;
+    }
+
+    @Specialization(guards = "typedReads()", rewriteOn = UnexpectedResultException.class)
+    public long readLong(final VirtualFrame frame, final DynamicObject obj)
+        throws UnexpectedResultException {
+      return read.executeLong(obj);
+    }
+
+    @Specialization(guards = "typedReads()", rewriteOn = UnexpectedResultException.class)
+    public double readDouble(final VirtualFrame frame, final DynamicObject obj)
+        throws UnexpectedResultException {
+      return read.executeDouble(obj);
+    }
+
+    @Specialization(replaces = {"readLong", "readDouble"})
     public Object executeEvaluated(final VirtualFrame frame, final DynamicObject obj) {
       return read.executeRead(obj);
     }
@@ -77,6 +100,7 @@ public abstract class FieldNode extends ExpressionWithTagsNode {
     }
   }
 
+  @Introspectable
   @NodeChildren({
     @NodeChild(value = "self", type = ExpressionNode.class),
     @NodeChild(value = "value", type = ExpressionNode.class)})
@@ -90,6 +114,22 @@ public abstract class FieldNode extends ExpressionWithTagsNode {
       write = FieldAccessorNode.createWrite(fieldIndex);
     }
 
+    protected boolean typedWrites() {
+      return true;
+    }
+
+    @Specialization(guards = "typedWrites()")
+    public long writeLong(final VirtualFrame frame, final DynamicObject self, final long value) {
+      write.executeWriteLong(self, value, false);
+      return value;
+    }
+
+    @Specialization(guards = "typedWrites()")
+    public double writeDouble(final VirtualFrame frame, final DynamicObject self, final double value) {
+      write.executeWriteDouble(self, value, false);
+      return value;
+    }
+
     @Specialization
     public Object executeEvaluated(final VirtualFrame frame, final DynamicObject self, final Object value) {
       return write.write(self, value);
@@ -56,7 +56,7 @@ public abstract class GlobalNode extends ExpressionWithTagsNode {
 
     @Override
     public Object executeGeneric(final VirtualFrame frame) {
-      TruffleCompiler.transferToInterpreterAndInvalidate("Uninitialized Global Node");
+      TruffleCompiler.transferToInterpreterAndInvalidate(this, "Uninitialized Global Node");
 
       // first let's check whether it is one of the well known globals
       switch (globalName.getString()) {
@@ -0,0 +1,57 @@
+package som.interpreter.nodes;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+
+import som.compiler.LazyMethodBody;
+import som.interpreter.Method;
+import som.interpreter.SplitterForLexicallyEmbeddedCode;
+import som.interpreter.nodes.nary.ExpressionWithTagsNode;
+import som.vm.Universe;
+
+
+/**
+ * Stands in for the body of a method that was not parsed yet. On its first
+ * execution, it replaces itself with the body, see {@link LazyMethodBody}.
+ */
+public final class LazyMethodBodyNode extends ExpressionWithTagsNode {
+
+  private final LazyMethodBody lazy;
+  private boolean mateified;
+
+  public LazyMethodBodyNode(final LazyMethodBody lazy) {
+    this.lazy = lazy;
+  }
+
+  @Override
+  public Object executeGeneric(final VirtualFrame frame) {
+    CompilerDirectives.transferToInterpreterAndInvalidate();
+    return materialize().executeGeneric(frame);
+  }
+
+  private ExpressionNode materialize() {
+    return replace(parseFor((Method) getRootNode()), "lazily parsed method body");
+  }
+
+  /**
+   * Parses the body, if needed, without replacing this node.
+   *
+   * @return a copy of the body, adapted to the lexical scope of the method
+   */
+  public ExpressionNode parseFor(final Method method) {
+    ExpressionNode body = SplitterForLexicallyEmbeddedCode.doInline(
+        lazy.getBody(), method.getLexicalScope());
+    if (mateified) {
+      body = (ExpressionNode) Universe.getCurrent().mateifyNode(body);
+    }
+    return body;
+  }
+
+  @Override
+  public Node asMateNode() {
+    // the body is mateified once it is parsed
+    mateified = true;
+    return null;
+  }
+}
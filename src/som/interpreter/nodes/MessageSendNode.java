@@ -12,11 +12,13 @@ import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.source.SourceSection;
 
 import bd.primitives.Specializer;
+import som.VmSettings;
 import som.instrumentation.MessageSendNodeWrapper;
 import som.interpreter.SArguments;
 import som.interpreter.TruffleCompiler;
 import som.interpreter.nodes.dispatch.AbstractDispatchNode;
 import som.interpreter.nodes.dispatch.GenericDispatchNode;
+import som.interpreter.nodes.dispatch.ReceiverProfile;
 import som.interpreter.nodes.dispatch.SuperDispatchNode;
 import som.interpreter.nodes.nary.EagerlySpecializableNode;
 import som.interpreter.nodes.nary.ExpressionWithReceiver;
@@ -150,7 +152,7 @@ public final class MessageSendNode {
     }
 
     protected PreevaluatedExpression specialize(final Object[] arguments, final VirtualFrame frame) {
-      TruffleCompiler.transferToInterpreterAndInvalidate("Specialize Message Node");
+      TruffleCompiler.transferToInterpreterAndInvalidate(this, "Specialize Message Node");
 
       if (isSuperSend()) {
         return makeSuperSend();
@@ -295,11 +297,16 @@ public final class MessageSendNode {
 
     @Child private AbstractDispatchNode dispatchNode;
 
+    /** Null, unless enabled with -Dsom.callSiteProfiles=true. */
+    private final ReceiverProfile receiverProfile;
+
     protected GenericMessageSendNode(final SSymbol selector,
         final ExpressionNode[] arguments,
         final AbstractDispatchNode dispatchNode) {
       super(selector, arguments);
       this.dispatchNode = dispatchNode;
+      this.receiverProfile = VmSettings.CALL_SITE_PROFILES
+          ? new ReceiverProfile(selector) : null;
       this.adoptChildren();
     }
 
@@ -311,6 +318,9 @@ public final class MessageSendNode {
     @Override
     public Object doPreEvaluated(final VirtualFrame frame,
         final Object[] arguments) {
+      if (VmSettings.CALL_SITE_PROFILES) {
+        receiverProfile.record(arguments[0]);
+      }
       return dispatchNode.executeDispatch(frame, MateClasses.STANDARD_ENVIRONMENT, SArguments.getExecutionLevel(frame), arguments);
     }
 
@@ -324,6 +334,10 @@ public final class MessageSendNode {
       return dispatchNode;
     }
 
+    public ReceiverProfile getReceiverProfile() {
+      return receiverProfile;
+    }
+
     @Override
     public String toString() {
       return "GMsgSend(" + selector.getString() + ")";
@@ -355,6 +369,10 @@ public final class MessageSendNode {
       this.messages = messages;
     }
 
+    public ExpressionNode getReceiver() {
+      return receiver;
+    }
+
     @Override
     @ExplodeLoop
     public Object executeGeneric(final VirtualFrame frame) {
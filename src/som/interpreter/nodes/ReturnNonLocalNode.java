@@ -21,6 +21,7 @@
  */
 package som.interpreter.nodes;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.FrameUtil;
@@ -133,19 +134,24 @@ public final class ReturnNonLocalNode extends ContextualNode {
       this.frameOnStackMarker = frameOnStackMarker;
     }
 
+    private boolean isFrameOnStack(final VirtualFrame frame) {
+      FrameOnStackMarker marker = (FrameOnStackMarker) FrameUtil.getObjectSafe(
+          frame, frameOnStackMarker);
+      return marker.isOnStack();
+    }
+
     @Override
     public Object executeGeneric(final VirtualFrame frame) {
       Object result = expression.executeGeneric(frame);
 
-      FrameOnStackMarker marker = (FrameOnStackMarker) FrameUtil.getObjectSafe(
-          frame, frameOnStackMarker);
-
       // this ReturnLocalNode should only become part of an AST because of
       // inlining a literal block, and that block, should never be
       // captured as a value and passed around. Because, we should only ever
       // do the inlining for blocks where we know this doesn't happen.
-      assert marker.isOnStack();
-      throw new ReturnException(result, marker);
+      // The return is caught by the CatchNonLocalReturnNode of this method,
+      // so, it does not need to read the marker.
+      assert isFrameOnStack(frame);
+      throw new ReturnException(result);
 
 //      if (marker.isOnStack()) {
 //      } else {
@@ -187,17 +193,26 @@ public final class ReturnNonLocalNode extends ContextualNode {
       return methodBody;
     }
 
+    /**
+     * The marker only escapes with the frame, i.e., when a block of this
+     * method is not compiled together with it. Otherwise, the marker, the
+     * ReturnException, and the catch become local control flow. So, the
+     * frame descriptor is only updated in the interpreter.
+     */
     @Override
     public Object executeGeneric(final VirtualFrame frame) {
+      if (frame.getFrameDescriptor().getFrameSlotKind(frameOnStackMarker) != FrameSlotKind.Object) {
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        frame.getFrameDescriptor().setFrameSlotKind(frameOnStackMarker, FrameSlotKind.Object);
+      }
       FrameOnStackMarker marker = new FrameOnStackMarker();
-      frame.getFrameDescriptor().setFrameSlotKind(frameOnStackMarker, FrameSlotKind.Object);
       frame.setObject(frameOnStackMarker, marker);
 
       try {
         return methodBody.executeGeneric(frame);
       } catch (ReturnException e) {
         nonLocalReturnHandler.enter();
-        if (!e.reachedTarget(marker)) {
+        if (!e.isLocal() && !e.reachedTarget(marker)) {
           doPropagate.enter();
           marker.frameNoLongerOnStack();
           throw e;
@@ -28,6 +28,8 @@ import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.source.SourceSection;
 
 import bd.inlining.nodes.WithSource;
+import som.VmSettings;
+import som.interpreter.DeoptTracer;
 import som.interpreter.InlinerAdaptToEmbeddedOuterContext;
 import som.interpreter.InlinerForLexicallyEmbeddedMethods;
 import som.interpreter.ReflectiveNode;
@@ -112,4 +114,11 @@ public abstract class SOMNode extends Node implements ReflectiveNode, WithSource
   public SourceSection getSourceSection() {
     return sourceSection;
   }
+
+  @Override
+  protected void onReplace(final Node newNode, final CharSequence reason) {
+    if (VmSettings.TRACE_DEOPT) {
+      DeoptTracer.rewrite(this, newNode, reason);
+    }
+  }
 }
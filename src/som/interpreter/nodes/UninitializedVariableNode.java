@@ -42,7 +42,7 @@ public abstract class UninitializedVariableNode extends ContextualNode {
 
     @Override
     public Object executeGeneric(final VirtualFrame frame) {
-      transferToInterpreterAndInvalidate("UninitializedVariableReadNode");
+      transferToInterpreterAndInvalidate(this, "UninitializedVariableReadNode");
 
       if (contextLevel > 0) {
         NonLocalVariableReadNode node = NonLocalVariableReadNodeGen.create(
@@ -123,7 +123,7 @@ public abstract class UninitializedVariableNode extends ContextualNode {
 
     @Override
     public Object executeGeneric(final VirtualFrame frame) {
-      transferToInterpreterAndInvalidate("UninitializedVariableWriteNode");
+      transferToInterpreterAndInvalidate(this, "UninitializedVariableWriteNode");
 
       if (accessesOuterContext()) {
         NonLocalVariableWriteNode node = NonLocalVariableWriteNodeGen.create(
@@ -11,7 +11,9 @@ import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.source.SourceSection;
 
+import som.VmSettings;
 import som.instrumentation.DispatchNodeWrapper;
+import som.interpreter.DeoptTracer;
 import som.vm.constants.ExecutionLevel;
 import som.vmobjects.SInvokable;
 
@@ -48,6 +50,13 @@ public abstract class AbstractDispatchNode extends Node implements DispatchChain
     return sourceSection;
   }
 
+  @Override
+  protected void onReplace(final Node newNode, final CharSequence reason) {
+    if (VmSettings.TRACE_DEOPT) {
+      DeoptTracer.rewrite(this, newNode, reason);
+    }
+  }
+
   public abstract Object executeDispatch(
       VirtualFrame frame, DynamicObject environment, ExecutionLevel exLevel, Object[] arguments);
 
@@ -34,10 +34,12 @@ public abstract class BlockDispatchNode extends Node {
     return method;
   }
 
-  protected static final DirectCallNode createCallNode(final Object[] arguments,
+  protected final DirectCallNode createCallNode(final Object[] arguments,
       final VirtualFrame frame) {
-    return Truffle.getRuntime().createDirectCallNode(
+    DirectCallNode call = Truffle.getRuntime().createDirectCallNode(
         SInvokable.getCallTarget(getMethod(arguments), SArguments.getExecutionLevel(frame)));
+    NonEscapingBlocks.inlineIfSmallBlock(call, this);
+    return call;
   }
 
   @Specialization(guards = "isSameMethod(arguments, cached)", limit = "INLINE_CACHE_SIZE")
@@ -1,6 +1,5 @@
 package som.interpreter.nodes.dispatch;
 
-import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.InvalidAssumptionException;
 import com.oracle.truffle.api.object.DynamicObject;
@@ -9,7 +8,9 @@ import com.oracle.truffle.api.profiles.ConditionProfile;
 import som.VmSettings;
 import som.instrumentation.InstrumentableDirectCallNode;
 import som.interpreter.SArguments;
+import som.interpreter.TruffleCompiler;
 import som.interpreter.nodes.dispatch.AbstractDispatchNode.AbstractCachedDispatchNode;
+import som.interpreter.nodes.dispatch.SplittingPolicy.Decision;
 import som.vm.Universe;
 import som.vm.constants.ExecutionLevel;
 
@@ -17,21 +18,28 @@ import som.vm.constants.ExecutionLevel;
 public class CachedDispatchNode extends AbstractCachedDispatchNode {
   final ConditionProfile morphicness = ConditionProfile.createBinaryProfile();
   protected final DispatchGuard guard;
+  private final Decision splitting;
 
   public CachedDispatchNode(final DispatchGuard guard, final DynamicObject methodToCall,
-      final AbstractDispatchNode nextInCache, final boolean shouldSplit, final ExecutionLevel level) {
+      final AbstractDispatchNode nextInCache, final Decision splitting, final ExecutionLevel level) {
     super(methodToCall, nextInCache, level);
     this.guard = guard;
+    this.splitting = splitting;
     if (VmSettings.DYNAMIC_METRICS) {
       this.cachedMethod = insert(new InstrumentableDirectCallNode(cachedMethod,
           nextInCache.getSourceSection()));
       Universe.insertInstrumentationWrapper(cachedMethod);
     }
-    if (shouldSplit) {
+    if (splitting.isSplit()) {
       cachedMethod.cloneCallTarget();
     }
   }
 
+  /** @return whether the call of this entry was split, and why */
+  public Decision getSplittingDecision() {
+    return splitting;
+  }
+
   @Override
   public Object executeDispatch(final VirtualFrame frame,
       final DynamicObject environment, final ExecutionLevel exLevel, final Object[] arguments) {
@@ -43,7 +51,7 @@ public class CachedDispatchNode extends AbstractCachedDispatchNode {
         return nextInCache.executeDispatch(frame, environment, exLevel, arguments);
       }
     } catch (InvalidAssumptionException e) {
-      CompilerDirectives.transferToInterpreter();
+      TruffleCompiler.transferToInterpreter(this, "receiver shape became invalid");
       return replace(nextInCache).
           executeDispatch(frame, environment, exLevel, arguments);
     }
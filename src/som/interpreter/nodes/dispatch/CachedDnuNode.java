@@ -1,11 +1,11 @@
 package som.interpreter.nodes.dispatch;
 
-import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.InvalidAssumptionException;
 import com.oracle.truffle.api.object.DynamicObject;
 
 import som.interpreter.SArguments;
+import som.interpreter.TruffleCompiler;
 import som.interpreter.nodes.dispatch.AbstractDispatchNode.AbstractCachedDispatchNode;
 import som.vm.Universe;
 import som.vm.constants.ExecutionLevel;
@@ -34,7 +34,7 @@ public final class CachedDnuNode extends AbstractCachedDispatchNode {
         return nextInCache.executeDispatch(frame, environment, exLevel, arguments);
       }
     } catch (InvalidAssumptionException e) {
-      CompilerDirectives.transferToInterpreter();
+      TruffleCompiler.transferToInterpreter(this, "receiver shape became invalid");
       return replace(nextInCache).
           executeDispatch(frame, environment, exLevel, arguments);
     }
@@ -0,0 +1,92 @@
+package som.interpreter.nodes.dispatch;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.vm.constants.Nil;
+import som.vmobjects.SClass;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * The results of method lookups for sends that are not cached at their
+ * site, e.g., perform: with a selector that changes from call to call.
+ *
+ * A direct-mapped table of {@link #SIZE} entries, hashed on the identity of
+ * the class and the selector. A hit costs one array read and two
+ * comparisons, and does not leave compiled code. A miss does the lookup
+ * behind a boundary and replaces the entry. Failed lookups are not cached.
+ *
+ * A change to the methods or the superclass of a class flushes the whole
+ * table, if a cached lookup went through the class. Loading new classes
+ * does not flush it.
+ */
+public final class GlobalMethodCache {
+  private static final int SIZE = 1024;
+
+  private static final class Entry {
+    private final DynamicObject clazz;
+    private final SSymbol selector;
+    private final DynamicObject method;
+
+    Entry(final DynamicObject clazz, final SSymbol selector, final DynamicObject method) {
+      this.clazz    = clazz;
+      this.selector = selector;
+      this.method   = method;
+    }
+  }
+
+  // entries are immutable, a flush publishes a new table
+  private static volatile Entry[] entries = new Entry[SIZE];
+
+  /** The classes from the receiver classes up to the holders of the cached methods. */
+  private static final Set<DynamicObject> lookedUpThrough =
+      Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+  private GlobalMethodCache() { }
+
+  private static int indexOf(final DynamicObject clazz, final SSymbol selector) {
+    return (System.identityHashCode(clazz) ^ System.identityHashCode(selector)) & (SIZE - 1);
+  }
+
+  /** @return the method, or null if the class does not understand the selector */
+  public static DynamicObject lookup(final DynamicObject clazz, final SSymbol selector) {
+    Entry[] table = entries;
+    int index = indexOf(clazz, selector);
+    Entry entry = table[index];
+    if (entry != null && entry.clazz == clazz && entry.selector == selector) {
+      return entry.method;
+    }
+    return lookupAndRecord(table, index, clazz, selector);
+  }
+
+  @TruffleBoundary
+  private static DynamicObject lookupAndRecord(final Entry[] table, final int index,
+      final DynamicObject clazz, final SSymbol selector) {
+    DynamicObject method = SClass.lookupInvokable(clazz, selector);
+    if (method != null) {
+      DynamicObject holder = SInvokable.getHolder(method);
+      for (DynamicObject c = clazz; c != Nil.nilObject; c = SClass.getSuperClass(c)) {
+        lookedUpThrough.add(c);
+        if (c == holder) {
+          break;
+        }
+      }
+      table[index] = new Entry(clazz, selector, method);
+    }
+    return method;
+  }
+
+  /** To be called whenever the methods or the superclass of a class change. */
+  public static void invalidate(final DynamicObject clazz) {
+    if (lookedUpThrough.contains(clazz)) {
+      lookedUpThrough.clear();
+      entries = new Entry[SIZE];
+    }
+  }
+}
@@ -36,7 +36,7 @@ public abstract class InvokeOnCache extends Node implements DispatchChain {
     }
 
     private InvokeOnCache specialize(final DynamicObject invokable, ExecutionLevel level) {
-      transferToInterpreterAndInvalidate("Initialize a dispatch node.");
+      transferToInterpreterAndInvalidate(this, "Initialize a dispatch node.");
 
       if (depth < INLINE_CACHE_SIZE) {
         CachedDispatchNode specialized = new CachedDispatchNode(invokable,
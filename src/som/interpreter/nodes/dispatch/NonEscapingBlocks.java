@@ -0,0 +1,90 @@
+package som.interpreter.nodes.dispatch;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.nodes.RootNode;
+
+import som.VmSettings;
+import som.interpreter.Invokable;
+import som.interpreter.nodes.LazyMethodBodyNode;
+import som.vmobjects.SBlock;
+
+
+/**
+ * Speculation that blocks do not escape the small methods they are passed
+ * to. It is off by default, enable it with -Dsom.inlineBlockCallees=true.
+ *
+ * A block literal allocates an SBlock with the materialized frame it closes
+ * over. When the block is created, passed on, and called within one
+ * compilation unit, partial escape analysis keeps both virtual, and only
+ * allocates them on the paths on which the block escapes, e.g., into a
+ * field. This needs the method the block is passed to, and the block
+ * itself, to be inlined, which the inlining budget does not guarantee in
+ * larger methods. Sends that pass a block to a small method, and calls of
+ * small blocks, therefore force the inlining of their callee.
+ */
+public final class NonEscapingBlocks {
+  /** Callees with more AST nodes are left to the inlining heuristics. */
+  public static final int MAX_CALLEE_SIZE = 120;
+
+  private NonEscapingBlocks() { }
+
+  static boolean passesBlock(final Object[] arguments) {
+    for (int i = 1; i < arguments.length; i++) {
+      if (arguments[i] instanceof SBlock) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean isSmall(final RootNode callee, final Node site) {
+    // recursive methods, e.g., tree traversals, cannot be inlined completely
+    return !isRecursive(callee, site) && sizeOf(callee) <= MAX_CALLEE_SIZE;
+  }
+
+  /**
+   * @return the number of AST nodes of the callee, or Integer.MAX_VALUE if
+   *         its body is not parsed yet, see -Dsom.lazyMethods. Parsing it
+   *         here would defeat the lazy parsing of methods that never run.
+   */
+  static int sizeOf(final RootNode callee) {
+    if (VmSettings.LAZY_METHODS
+        && NodeUtil.findFirstNodeInstance(callee, LazyMethodBodyNode.class) != null) {
+      return Integer.MAX_VALUE;
+    }
+    return NodeUtil.countNodes(callee);
+  }
+
+  /** Compares methods, the root of the site may be a split of the callee. */
+  static boolean isRecursive(final RootNode callee, final Node site) {
+    RootNode caller = site.getRootNode();
+    if (caller instanceof Invokable && callee instanceof Invokable) {
+      return ((Invokable) caller).getBelongsToMethod()
+          == ((Invokable) callee).getBelongsToMethod();
+    }
+    return caller == callee;
+  }
+
+  /** For a send at the site that passes the arguments to the callee. */
+  public static void inlineIfPassedBlock(final DirectCallNode call,
+      final Object[] arguments, final Node site) {
+    CompilerAsserts.neverPartOfCompilation("NonEscapingBlocks.inlineIfPassedBlock");
+    if (VmSettings.INLINE_BLOCK_CALLEES && passesBlock(arguments)
+        && isSmall(((RootCallTarget) call.getCallTarget()).getRootNode(), site)) {
+      call.forceInlining();
+    }
+  }
+
+  /** For the call of a block at the site. */
+  public static void inlineIfSmallBlock(final DirectCallNode call, final Node site) {
+    CompilerAsserts.neverPartOfCompilation("NonEscapingBlocks.inlineIfSmallBlock");
+    if (VmSettings.INLINE_BLOCK_CALLEES
+        && isSmall(((RootCallTarget) call.getCallTarget()).getRootNode(), site)) {
+      call.forceInlining();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package som.interpreter.nodes.dispatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.interpreter.Types;
+import som.vmobjects.SClass;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * Counts the classes of the receivers a send site sees, enabled with
+ * -Dsom.callSiteProfiles=true. Unlike the dynamic metrics, it is available
+ * while the program runs, also when compiled, see
+ * {@link som.interpreter.CallSiteReport}.
+ *
+ * Copies of a send node, e.g., in split call targets, share their profile.
+ */
+public final class ReceiverProfile {
+  private final SSymbol selector;
+  private final Map<DynamicObject, Receiver> receivers;
+
+  public ReceiverProfile(final SSymbol selector) {
+    this.selector  = selector;
+    this.receivers = new ConcurrentHashMap<>();
+  }
+
+  @TruffleBoundary
+  public void record(final Object rcvr) {
+    DynamicObject rcvrClass = Types.getClassOf(rcvr);
+    Receiver r = receivers.get(rcvrClass);
+    if (r == null) {
+      r = receivers.computeIfAbsent(rcvrClass, k -> new Receiver(
+          SClass.lookupInvokable(k, selector) == null));
+    }
+    r.count.increment();
+  }
+
+  public SSymbol getSelector() {
+    return selector;
+  }
+
+  /** @return the number of sends per receiver class */
+  public Map<DynamicObject, Long> getReceivers() {
+    Map<DynamicObject, Long> result = new HashMap<>();
+    receivers.forEach((klass, r) -> result.put(klass, r.count.sum()));
+    return result;
+  }
+
+  /** @return the number of sends that ended in #doesNotUnderstand:arguments: */
+  public long getDnuCount() {
+    long n = 0;
+    for (Receiver r : receivers.values()) {
+      if (r.dnu) {
+        n += r.count.sum();
+      }
+    }
+    return n;
+  }
+
+  private static final class Receiver {
+    private final boolean dnu;
+    private final LongAdder count;
+
+    Receiver(final boolean dnu) {
+      this.dnu   = dnu;
+      this.count = new LongAdder();
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package som.interpreter.nodes.dispatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.SourceSection;
+
+import som.VmSettings;
+import som.interpreter.Types;
+import som.vm.Universe;
+import som.vm.constants.ExecutionLevel;
+import som.vmobjects.SBlock;
+import som.vmobjects.SClass;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SSymbol;
+import tools.dym.CsvWriter;
+
+
+/**
+ * Decides which call sites get their own copy of the method they call.
+ *
+ * The caches in a copy only see the receivers and arguments of its call
+ * site. new is always split. With -Dsom.splitting=true, two more kinds of
+ * methods are split:
+ *
+ *   - small methods that receive a block, or are sent to one, if enabled
+ *     with -Dsom.splitBlockCallees=true. The block calls in methods such as
+ *     do:, select: or value: then stay monomorphic at each caller, even if
+ *     the method is used with many different blocks.
+ *   - small methods that are called with different classes of receivers or
+ *     arguments from different sites, e.g., accessors and iterators of
+ *     collections of different elements.
+ *
+ * The profile of a method records the classes of the receiver and the
+ * arguments each site called it with first. A method is polymorphic once
+ * this differs between sites. The sites that called it before keep sharing
+ * the original, which then only sees their classes.
+ *
+ * Each method is split at most {@link #MAX_SPLITS} times, which bounds the
+ * copies made for recursive methods. With -Dsom.traceSplitting=true, the
+ * decisions are written to a file on exit, see -Dsom.traceSplitting.output.
+ */
+public final class SplittingPolicy {
+  /** Polymorphic methods with more AST nodes are not split. */
+  public static final int MAX_POLYMORPHIC_CALLEE_SIZE = 60;
+
+  private static final int MAX_SPLITS = 64;
+
+  /** Methods called with more signatures are not profiled further. */
+  private static final int MAX_SIGNATURES = 8;
+
+  private static final String OUTPUT = System.getProperty("som.traceSplitting.output", "splitting");
+
+  public enum Decision {
+    NEW(true), BLOCK(true), POLYMORPHIC(true),
+    MONOMORPHIC(false), RECURSIVE(false), TOO_LARGE(false), BUDGET(false),
+    DISABLED(false);
+
+    private final boolean split;
+
+    Decision(final boolean split) {
+      this.split = split;
+    }
+
+    public boolean isSplit() {
+      return split;
+    }
+  }
+
+  private static final class Profile {
+    private final List<DynamicObject[]> signatures = new ArrayList<>();
+    private int splits;
+
+    /** @return whether the method was called with other classes before */
+    boolean recordIsPolymorphic(final DynamicObject[] signature) {
+      for (DynamicObject[] s : signatures) {
+        if (Arrays.equals(s, signature)) {
+          return signatures.size() > 1;
+        }
+      }
+      if (signatures.size() < MAX_SIGNATURES) {
+        signatures.add(signature);
+      }
+      return signatures.size() > 1;
+    }
+
+    boolean takeSplit() {
+      if (splits >= MAX_SPLITS) {
+        return false;
+      }
+      splits += 1;
+      return true;
+    }
+  }
+
+  // methods are the keys, the profiles do not refer to their method
+  private static final Map<DynamicObject, Profile> profiles = new WeakHashMap<>();
+
+  private static final List<Object[]> trace = new ArrayList<>();
+  private static final Map<Decision, Integer> counts = new EnumMap<>(Decision.class);
+
+  static {
+    if (VmSettings.TRACE_SPLITTING) {
+      Runtime.getRuntime().addShutdownHook(new Thread(SplittingPolicy::writeReport));
+    }
+  }
+
+  private SplittingPolicy() { }
+
+  private static boolean isSentToBlock(final Object[] arguments) {
+    return arguments[0] instanceof SBlock;
+  }
+
+  private static DynamicObject[] signatureOf(final Object[] arguments) {
+    DynamicObject[] signature = new DynamicObject[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      signature[i] = Types.getClassOf(arguments[i]);
+    }
+    return signature;
+  }
+
+  /**
+   * @return whether the cached dispatch of the send at the site should call
+   *         a copy of the method, see {@link Decision#isSplit()}
+   */
+  public static Decision decide(final SSymbol selector, final DynamicObject method,
+      final Object[] arguments, final ExecutionLevel level, final Node site) {
+    CompilerAsserts.neverPartOfCompilation("SplittingPolicy.decide");
+    RootNode callee = SInvokable.getCallTarget(method, level).getRootNode();
+    Decision decision;
+    synchronized (profiles) {
+      decision = decideFor(selector, method, callee, arguments, site);
+    }
+    if (VmSettings.TRACE_SPLITTING) {
+      record(decision, selector, method, callee, site);
+    }
+    return decision;
+  }
+
+  private static Decision decideFor(final SSymbol selector, final DynamicObject method,
+      final RootNode callee, final Object[] arguments, final Node site) {
+    if (selector.getString().equals("new")) {
+      return Decision.NEW;
+    }
+    if (!VmSettings.SPLITTING) {
+      return Decision.DISABLED;
+    }
+
+    Profile profile = profiles.computeIfAbsent(method, k -> new Profile());
+    boolean takesBlock = VmSettings.SPLIT_BLOCK_CALLEES
+        && (isSentToBlock(arguments) || NonEscapingBlocks.passesBlock(arguments));
+    boolean polymorphic = profile.recordIsPolymorphic(signatureOf(arguments));
+
+    if (!takesBlock && !polymorphic) {
+      return Decision.MONOMORPHIC;
+    }
+    if (NonEscapingBlocks.isRecursive(callee, site)) {
+      return Decision.RECURSIVE;
+    }
+    int maxSize = takesBlock
+        ? NonEscapingBlocks.MAX_CALLEE_SIZE : MAX_POLYMORPHIC_CALLEE_SIZE;
+    if (NonEscapingBlocks.sizeOf(callee) > maxSize) {
+      return Decision.TOO_LARGE;
+    }
+    if (!profile.takeSplit()) {
+      return Decision.BUDGET;
+    }
+    return takesBlock ? Decision.BLOCK : Decision.POLYMORPHIC;
+  }
+
+  private static synchronized void record(final Decision decision, final SSymbol selector,
+      final DynamicObject method, final RootNode callee, final Node site) {
+    counts.merge(decision, 1, Integer::sum);
+    if (decision == Decision.MONOMORPHIC || decision == Decision.DISABLED) {
+      return;  // the common case, only counted
+    }
+
+    RootNode caller = site.getRootNode();
+    SourceSection section = site.getSourceSection();
+    String location = section == null ? "" : section.getSource().getName() + ":"
+        + section.getStartLine() + ":" + section.getStartColumn();
+    DynamicObject holder = SInvokable.getHolder(method);
+    trace.add(new Object[] {decision, caller == null ? "<unknown>" : caller.getName(),
+        location, selector.getString(),
+        SClass.isSClass(holder) ? SClass.getName(holder).getString() : "",
+        NonEscapingBlocks.sizeOf(callee)});
+  }
+
+  private static synchronized void writeReport() {
+    try (CsvWriter out = new CsvWriter(".", OUTPUT + ".csv",
+        "Decision", "Caller", "Location", "Selector", "Holder", "Callee Size")) {
+      for (Object[] row : trace) {
+        out.write(row);
+      }
+    } catch (RuntimeException e) {
+      Universe.errorPrintln("Could not write " + OUTPUT + ".csv: " + e.getMessage());
+    }
+
+    StringBuilder summary = new StringBuilder("Splitting decisions:");
+    for (Map.Entry<Decision, Integer> e : counts.entrySet()) {
+      summary.append(' ').append(e.getKey()).append('=').append(e.getValue());
+    }
+    Universe.errorPrintln(summary.toString());
+  }
+}
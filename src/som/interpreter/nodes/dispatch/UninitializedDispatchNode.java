@@ -10,6 +10,7 @@ import com.oracle.truffle.api.source.SourceSection;
 import som.interpreter.SArguments;
 import som.interpreter.Types;
 import som.interpreter.nodes.MessageSendNode.GenericMessageSendNode;
+import som.interpreter.nodes.dispatch.SplittingPolicy.Decision;
 import som.vm.Universe;
 import som.vm.constants.ExecutionLevel;
 import som.vmobjects.SClass;
@@ -43,8 +44,11 @@ public class UninitializedDispatchNode extends AbstractDispatchNode {
       DispatchGuard guard = DispatchGuard.create(rcvr);
       AbstractCachedDispatchNode node;
       if (method != null) {
-        boolean shouldSplit = selector.getString().equals("new") ? true : false;
-        node = this.cacheNode(guard, method, newChainEnd, shouldSplit, SArguments.getExecutionLevel(frame));
+        ExecutionLevel level = SArguments.getExecutionLevel(frame);
+        Decision splitting = SplittingPolicy.decide(selector, method, arguments, level, this);
+        CachedDispatchNode cached = this.cacheNode(guard, method, newChainEnd, splitting, level);
+        NonEscapingBlocks.inlineIfPassedBlock(cached.getCallNode(), arguments, this);
+        node = cached;
       } else {
         node = new CachedDnuNode(rcvrClass, guard, selector, newChainEnd, SArguments.getExecutionLevel(frame));
       }
@@ -66,7 +70,7 @@ public class UninitializedDispatchNode extends AbstractDispatchNode {
   @Override
   public Object executeDispatch(final VirtualFrame frame,
       final DynamicObject environment, final ExecutionLevel exLevel, final Object[] arguments) {
-    transferToInterpreterAndInvalidate("Initialize a dispatch node.");
+    transferToInterpreterAndInvalidate(this, "Initialize a dispatch node.");
     return specialize(frame, arguments).
         executeDispatch(frame, environment, exLevel, arguments);
   }
@@ -77,8 +81,8 @@ public class UninitializedDispatchNode extends AbstractDispatchNode {
   }
 
   protected CachedDispatchNode cacheNode(final DispatchGuard guard, final DynamicObject methodToCall,
-      final UninitializedDispatchNode newChainEnd, final Boolean shouldSplit, final ExecutionLevel level) {
-    return new CachedDispatchNode(guard, methodToCall, newChainEnd, shouldSplit, level);
+      final UninitializedDispatchNode newChainEnd, final Decision splitting, final ExecutionLevel level) {
+    return new CachedDispatchNode(guard, methodToCall, newChainEnd, splitting, level);
   }
 
   protected UninitializedDispatchNode uninitializedNode(final SourceSection section, final SSymbol selector) {
@@ -0,0 +1,24 @@
+package som.interpreter.nodes.literals;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+
+/** The result of a folded comparison, see {@link som.compiler.ConstantFolder}. */
+public final class BooleanLiteralNode extends LiteralNode {
+
+  private final boolean value;
+
+  public BooleanLiteralNode(final boolean value) {
+    this.value = value;
+  }
+
+  @Override
+  public boolean executeBoolean(final VirtualFrame frame) {
+    return value;
+  }
+
+  @Override
+  public Object executeGeneric(final VirtualFrame frame) {
+    return value;
+  }
+}
@@ -44,7 +44,7 @@ public class EagerBinaryPrimitiveNode extends EagerPrimitive {
     try {
       return primitive.executeEvaluated(frame, receiver, argument);
     } catch (UnsupportedSpecializationException e) {
-      TruffleCompiler.transferToInterpreterAndInvalidate("Eager Primitive with unsupported specialization.");
+      TruffleCompiler.transferToInterpreterAndInvalidate(this, "Eager Primitive with unsupported specialization.");
       return replaceWithGenericSend(SArguments.getExecutionLevel(frame)).doPreEvaluated(frame,
           new Object[] {receiver, argument});
     }
@@ -53,7 +53,7 @@ public class EagerQuaternaryPrimitiveNode extends EagerPrimitive {
     try {
       return primitive.executeEvaluated(frame, receiver, argument1, argument2, argument3);
     } catch (UnsupportedSpecializationException e) {
-      TruffleCompiler.transferToInterpreterAndInvalidate("Eager Primitive with unsupported specialization.");
+      TruffleCompiler.transferToInterpreterAndInvalidate(this, "Eager Primitive with unsupported specialization.");
       return replaceWithGenericSend(SArguments.getExecutionLevel(frame)).doPreEvaluated(frame,
           new Object[] {receiver, argument1, argument2, argument3});
     }
@@ -39,7 +39,7 @@ public class EagerUnaryPrimitiveNode extends EagerPrimitive {
     try {
       return primitive.executeEvaluated(frame, receiver);
     } catch (UnsupportedSpecializationException e) {
-      TruffleCompiler.transferToInterpreterAndInvalidate("Eager Primitive with unsupported specialization.");
+      TruffleCompiler.transferToInterpreterAndInvalidate(this, "Eager Primitive with unsupported specialization.");
       return replaceWithGenericSend(SArguments.getExecutionLevel(frame)).doPreEvaluated(frame, new Object[] {receiver});
     }
   }
@@ -51,6 +51,7 @@ public class EagerUnaryPrimitiveNode extends EagerPrimitive {
 
   @Override
   protected void onReplace(final Node newNode, final CharSequence reason) {
+    super.onReplace(newNode, reason);
     if (newNode instanceof ExpressionWithTagsNode) {
       ((ExpressionWithTagsNode) newNode).tagMark = primitive.tagMark;
     } else if (newNode instanceof WrapperNode) {
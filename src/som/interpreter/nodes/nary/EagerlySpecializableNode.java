@@ -6,6 +6,8 @@ import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.source.SourceSection;
 
 import bd.primitives.nodes.EagerlySpecializable;
+import som.VmSettings;
+import som.interpreter.DeoptTracer;
 import som.interpreter.nodes.ExpressionNode;
 import som.interpreter.nodes.PreevaluatedExpression;
 import som.vm.Universe;
@@ -45,7 +47,12 @@ public abstract class EagerlySpecializableNode extends ExpressionWithTagsNode
   @Override
   protected void onReplace(final Node newNode, final CharSequence reason) {
     if (newNode instanceof WrapperNode ||
-        !(newNode instanceof EagerlySpecializableNode)) { return; }
+        !(newNode instanceof EagerlySpecializableNode)) {
+      if (VmSettings.TRACE_DEOPT) {
+        DeoptTracer.rewrite(this, newNode, reason);
+      }
+      return;
+    }
 
     EagerlySpecializableNode n = (EagerlySpecializableNode) newNode;
     n.eagerlyWrapped = eagerlyWrapped;
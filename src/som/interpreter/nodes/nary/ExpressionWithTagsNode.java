@@ -121,6 +121,7 @@ public abstract class ExpressionWithTagsNode extends ExpressionNode {
 
   @Override
   protected void onReplace(final Node newNode, final CharSequence reason) {
+    super.onReplace(newNode, reason);
     if (newNode instanceof WrapperNode) { return; }
 
     if (newNode instanceof ExpressionWithTagsNode) {
@@ -2,22 +2,27 @@ package som.interpreter.objectstorage;
 
 
 import com.oracle.truffle.api.Assumption;
-import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Introspectable;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
+import com.oracle.truffle.api.object.DoubleLocation;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.FinalLocationException;
 import com.oracle.truffle.api.object.IncompatibleLocationException;
 import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.LongLocation;
 import com.oracle.truffle.api.object.Property;
 import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.utilities.NeverValidAssumption;
 
 import som.interpreter.ReflectiveNode;
 import som.interpreter.objectstorage.FieldAccessorNodeFactory.ReadFieldNodeGen;
 import som.interpreter.objectstorage.FieldAccessorNodeFactory.WriteFieldNodeGen;
+import som.interpreter.objectstorage.ObjectLayout.LayoutProperties;
 import som.vm.constants.Nil;
 
 
@@ -50,6 +55,25 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
     }
   }
 
+  /** @return the location of the field, if it stores unboxed longs */
+  protected LongLocation getLongLocation(final DynamicObject obj) {
+    Location location = getLocation(obj);
+    if (location instanceof LongLocation) {
+      return (LongLocation) location;
+    } else {
+      return null;
+    }
+  }
+
+  protected DoubleLocation getDoubleLocation(final DynamicObject obj) {
+    Location location = getLocation(obj);
+    if (location instanceof DoubleLocation) {
+      return (DoubleLocation) location;
+    } else {
+      return null;
+    }
+  }
+
   protected Location getLocation(final DynamicObject obj, final Object value) {
     Location location = getLocation(obj);
     if (location != null && location.canSet(obj, value)) {
@@ -59,10 +83,45 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
     }
   }
 
+  protected final MegamorphicFieldCache createMegamorphicCache() {
+    return new MegamorphicFieldCache(fieldIndex);
+  }
+
   protected static final Assumption createAssumption() {
     return Truffle.getRuntime().createAssumption();
   }
 
+  protected static boolean hasFixedLayout(final Shape shape) {
+    return ObjectLayout.hasFixedLayout(shape);
+  }
+
+  protected static LayoutProperties getLayoutProperties(final Shape shape) {
+    return LayoutProperties.forShape(shape);
+  }
+
+  protected static ObjectLayout getObjectLayout(final DynamicObject obj,
+      final Shape shape, final LayoutProperties properties) {
+    if (properties == null) {
+      return null;
+    }
+    return properties.getLayout(obj, shape);
+  }
+
+  protected final StorageLocation getStorageLocation(final ObjectLayout layout) {
+    if (layout == null) {
+      return null;
+    }
+    return layout.getStorageLocation(fieldIndex);
+  }
+
+  /** Objects without a fixed layout, and outdated layouts, are not cached. */
+  protected static Assumption getLayoutAssumption(final ObjectLayout layout) {
+    if (layout == null) {
+      return NeverValidAssumption.INSTANCE;
+    }
+    return layout.getAssumption();
+  }
+
   @Introspectable
   public abstract static class ReadFieldNode extends FieldAccessorNode {
     public ReadFieldNode(final int fieldIndex) {
@@ -71,6 +130,28 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
 
     public abstract Object executeRead(DynamicObject obj);
 
+    public abstract long executeLong(DynamicObject obj) throws UnexpectedResultException;
+
+    public abstract double executeDouble(DynamicObject obj) throws UnexpectedResultException;
+
+    @Specialization(guards = {"self.getShape() == cachedShape", "location != null"},
+        assumptions = "cachedShape.getValidAssumption()",
+        limit = "LIMIT")
+    protected final long readLongField(final DynamicObject self,
+        @Cached("self.getShape()") final Shape cachedShape,
+        @Cached("getLongLocation(self)") final LongLocation location) {
+      return location.getLong(self, cachedShape);
+    }
+
+    @Specialization(guards = {"self.getShape() == cachedShape", "location != null"},
+        assumptions = "cachedShape.getValidAssumption()",
+        limit = "LIMIT")
+    protected final double readDoubleField(final DynamicObject self,
+        @Cached("self.getShape()") final Shape cachedShape,
+        @Cached("getDoubleLocation(self)") final DoubleLocation location) {
+      return location.getDouble(self, cachedShape);
+    }
+
     @Specialization(guards = {"self.getShape() == cachedShape", "location != null"},
         assumptions = "cachedShape.getValidAssumption()",
         limit = "LIMIT")
@@ -80,18 +161,43 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
       return location.get(self, cachedShape);
     }
 
-    @Specialization(guards = {"self.getShape() == cachedShape", "location == null"},
+    @Specialization(guards = {"self.getShape() == cachedShape", "location == null", "!fixed"},
         assumptions = "cachedShape.getValidAssumption()",
         limit = "LIMIT")
     protected final Object readUnsetField(final DynamicObject self,
         @Cached("self.getShape()") final Shape cachedShape,
-        @Cached("getLocation(self)") final Location location) {
+        @Cached("getLocation(self)") final Location location,
+        @Cached("hasFixedLayout(cachedShape)") final boolean fixed) {
       return Nil.nilObject;
     }
 
-    @Specialization(replaces = {"readSetField", "readUnsetField"})
-    public final Object readFieldUncached(final DynamicObject receiver) {
-      return receiver.get(fieldIndex, Nil.nilObject);
+    @Specialization(guards = {"self.getShape() == cachedShape", "properties != null",
+        "properties.getLayout(self, cachedShape) == cachedLayout"},
+        assumptions = {"cachedShape.getValidAssumption()", "getLayoutAssumption(cachedLayout)"},
+        limit = "LIMIT")
+    protected final Object readFixedLayout(final DynamicObject self,
+        @Cached("self.getShape()") final Shape cachedShape,
+        @Cached("getLayoutProperties(cachedShape)") final LayoutProperties properties,
+        @Cached("getObjectLayout(self, cachedShape, properties)") final ObjectLayout cachedLayout,
+        @Cached("getStorageLocation(cachedLayout)") final StorageLocation location) {
+      return location.read(properties.getPrimFields(self, cachedShape),
+          properties.getObjFields(self, cachedShape));
+    }
+
+    /** Objects that are not yet, or no longer, in the latest layout of their class. */
+    @Specialization(guards = "hasFixedLayout(self.getShape())")
+    public final Object readFixedLayoutUncached(final DynamicObject self) {
+      return ObjectLayout.read(self, fieldIndex);
+    }
+
+    @Specialization(replaces = {"readLongField", "readDoubleField", "readSetField",
+        "readUnsetField", "readFixedLayout", "readFixedLayoutUncached"})
+    public final Object readFieldUncached(final DynamicObject receiver,
+        @Cached("createMegamorphicCache()") final MegamorphicFieldCache cache) {
+      if (ObjectLayout.hasFixedLayout(receiver)) {
+        return ObjectLayout.read(receiver, fieldIndex);
+      }
+      return cache.read(receiver);
     }
   }
 
@@ -107,6 +213,32 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
 
     public abstract Object executeWithGeneralized(DynamicObject obj, Object value, boolean generalized);
 
+    public abstract void executeWriteLong(DynamicObject obj, long value, boolean generalized);
+
+    public abstract void executeWriteDouble(DynamicObject obj, double value, boolean generalized);
+
+    @Specialization(guards = {"self.getShape() == cachedShape", "location != null"},
+        assumptions = "cachedShape.getValidAssumption()",
+        limit = "LIMIT", rewriteOn = FinalLocationException.class)
+    public final long writeLongField(final DynamicObject self,
+        final long value, final boolean generalized,
+        @Cached("self.getShape()") final Shape cachedShape,
+        @Cached("getLongLocation(self)") final LongLocation location) throws FinalLocationException {
+      location.setLong(self, value, cachedShape);
+      return value;
+    }
+
+    @Specialization(guards = {"self.getShape() == cachedShape", "location != null"},
+        assumptions = "cachedShape.getValidAssumption()",
+        limit = "LIMIT", rewriteOn = FinalLocationException.class)
+    public final double writeDoubleField(final DynamicObject self,
+        final double value, final boolean generalized,
+        @Cached("self.getShape()") final Shape cachedShape,
+        @Cached("getDoubleLocation(self)") final DoubleLocation location) throws FinalLocationException {
+      location.setDouble(self, value, cachedShape);
+      return value;
+    }
+
     @Specialization(guards = {"self.getShape() == cachedShape", "location != null"},
         assumptions = {"locationAssignable", "cachedShape.getValidAssumption()"},
         limit = "LIMIT", rewriteOn = {IncompatibleLocationException.class, FinalLocationException.class})
@@ -119,7 +251,7 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
       return value;
     }
 
-    @Specialization(guards = {"self.getShape() == oldShape", "oldLocation == null"},
+    @Specialization(guards = {"self.getShape() == oldShape", "oldLocation == null", "!fixed"},
         assumptions = {"locationAssignable", "oldShape.getValidAssumption()", "newShape.getValidAssumption()"},
         limit = "LIMIT",
         rewriteOn = IncompatibleLocationException.class)
@@ -127,10 +259,15 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
         final Object value, final boolean generalized,
         @Cached("self.getShape()") final Shape oldShape,
         @Cached("getLocation(self, value)") final Location oldLocation,
+        @Cached("hasFixedLayout(oldShape)") final boolean fixed,
         @Cached("defineProperty(oldShape, value, generalized)") final Shape newShape,
         @Cached("newShape.getProperty(fieldIndex).getLocation()") final Location newLocation,
+        @Cached("completesFields(newShape)") final boolean completes,
         @Cached("createAssumption()") final Assumption locationAssignable) throws IncompatibleLocationException {
         newLocation.set(self, value, oldShape, newShape);
+        if (completes && CompilerDirectives.inInterpreter()) {
+          InstanceShapes.reached(newShape);
+        }
         return value;
     }
 
@@ -147,13 +284,68 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
         return executeWithGeneralized(object, value, generalize);
     }*/
 
-    @TruffleBoundary
-    @Specialization(replaces = {"writeFieldCached", "writeUnwrittenField"})
-    public final Object writeUncached(final DynamicObject self, final Object value, final boolean generalize) {
-      self.define(fieldIndex, value);
+    @Specialization(guards = {"self.getShape() == cachedShape", "properties != null",
+        "properties.getLayout(self, cachedShape) == cachedLayout", "location.accepts(value)"},
+        assumptions = {"cachedShape.getValidAssumption()", "getLayoutAssumption(cachedLayout)"},
+        limit = "LIMIT")
+    public final Object writeFixedLayout(final DynamicObject self,
+        final Object value, final boolean generalized,
+        @Cached("self.getShape()") final Shape cachedShape,
+        @Cached("getLayoutProperties(cachedShape)") final LayoutProperties properties,
+        @Cached("getObjectLayout(self, cachedShape, properties)") final ObjectLayout cachedLayout,
+        @Cached("getStorageLocation(cachedLayout)") final StorageLocation location) {
+      location.write(properties.getPrimFields(self, cachedShape),
+          properties.getObjFields(self, cachedShape), value);
+      return value;
+    }
+
+    /** The first write to a new object allocates the storage for the latest layout. */
+    @Specialization(guards = {"self.getShape() == cachedShape", "properties != null",
+        "properties.getLayout(self, cachedShape) == EMPTY", "location.accepts(value)"},
+        assumptions = {"cachedShape.getValidAssumption()", "getLayoutAssumption(latestLayout)"},
+        limit = "LIMIT")
+    public final Object writeFixedLayoutInitializing(final DynamicObject self,
+        final Object value, final boolean generalized,
+        @Cached("self.getShape()") final Shape cachedShape,
+        @Cached("getLayoutProperties(cachedShape)") final LayoutProperties properties,
+        @Cached("getLatestLayout(self, properties)") final ObjectLayout latestLayout,
+        @Cached("getStorageLocation(latestLayout)") final StorageLocation location) {
+      properties.initialize(self, latestLayout);
+      location.write(properties.getPrimFields(self, cachedShape),
+          properties.getObjFields(self, cachedShape), value);
+      return value;
+    }
+
+    /** Writes that change the layout of the class, or migrate the object to it. */
+    @Specialization(guards = "hasFixedLayout(self.getShape())")
+    public final Object writeFixedLayoutUncached(final DynamicObject self,
+        final Object value, final boolean generalized) {
+      ObjectLayout.write(self, fieldIndex, value);
+      return value;
+    }
+
+    @Specialization(replaces = {"writeLongField", "writeDoubleField", "writeFieldCached",
+        "writeUnwrittenField", "writeFixedLayout", "writeFixedLayoutInitializing", "writeFixedLayoutUncached"})
+    public final Object writeUncached(final DynamicObject self, final Object value, final boolean generalize,
+        @Cached("createMegamorphicCache()") final MegamorphicFieldCache cache) {
+      if (ObjectLayout.hasFixedLayout(self)) {
+        ObjectLayout.write(self, fieldIndex, value);
+      } else {
+        cache.write(self, value);
+      }
       return value;
     }
 
+    protected static final ObjectLayout EMPTY = ObjectLayout.EMPTY;
+
+    protected static ObjectLayout getLatestLayout(final DynamicObject obj,
+        final LayoutProperties properties) {
+      if (properties == null) {
+        return null;
+      }
+      return ObjectLayout.getLatest(obj);
+    }
+
     private static final Object SOME_OBJECT = new Object();
 
     protected Shape defineProperty(final Shape oldShape, Object value, final boolean generalize) {
@@ -165,6 +357,10 @@ public abstract class FieldAccessorNode extends Node implements ReflectiveNode {
       return newShape;
     }
 
+    protected static boolean completesFields(final Shape shape) {
+      return InstanceShapes.completesFields(shape);
+    }
+
     protected boolean updateShape(final DynamicObject obj) {
       return obj.updateShape();
     }
@@ -0,0 +1,257 @@
+package som.interpreter.objectstorage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.DynamicObjectFactory;
+import com.oracle.truffle.api.object.Property;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.utilities.AlwaysValidAssumption;
+
+import som.VmSettings;
+import som.vm.Universe;
+import som.vm.constants.Nil;
+import som.vmobjects.SClass;
+import som.vmobjects.SObject;
+
+
+/**
+ * Type feedback on the shapes the instances of a class reach, to allocate
+ * new instances pre-sized, see -Dsom.presizedShapes.
+ *
+ * A new object starts with the empty shape of its class, and the first
+ * write to each field is a shape transition. The write nodes report the
+ * transitions that complete the fields declared by the class. Once
+ * {@link #STABLE_AFTER} objects reached a complete shape, the factory of the
+ * class is replaced with one for the last of them. New objects are then
+ * allocated with all fields, set to nil, and initializing them in a
+ * different order does not change their shape either. Unboxed long and
+ * double locations cannot hold nil. For a shape with such fields, the
+ * factory uses the deepest ancestor of the complete shape that has none, and
+ * only the transitions of the remaining fields are left.
+ *
+ * When a pre-sized shape becomes invalid, because a location of it was
+ * generalized, the class goes back to its empty shape, and the feedback
+ * starts again.
+ *
+ * With -Dsom.traceShapes=true, also without pre-sizing, the complete shapes
+ * are recorded, and for each class, the number of final shapes and the
+ * transitions new objects take to reach them are printed on exit. Only
+ * transitions executed in the interpreter are recorded.
+ */
+public final class InstanceShapes {
+  private static final int STABLE_AFTER = 16;
+
+  /** Classes whose pre-sized shape keeps getting invalid are not pre-sized again. */
+  private static final int MAX_RESETS = 8;
+
+  // classes are the keys, the feedback does not refer to its class
+  private static final Map<DynamicObject, InstanceShapes> feedback =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final DynamicObjectFactory emptyFactory;
+  private final Shape emptyShape;
+
+  private Assumption factoryUnchanged;
+  private int reached;
+  private int resets;
+  private boolean presized;
+
+  /** The complete shapes instances reached, with -Dsom.traceShapes. */
+  private final Set<Shape> finalShapes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  static {
+    if (VmSettings.TRACE_SHAPES) {
+      Runtime.getRuntime().addShutdownHook(new Thread(InstanceShapes::writeReport));
+    }
+  }
+
+  private InstanceShapes(final DynamicObjectFactory emptyFactory) {
+    this.emptyFactory = emptyFactory;
+    this.emptyShape   = emptyFactory.getShape();
+    factoryUnchanged  = createAssumption();
+  }
+
+  private static Assumption createAssumption() {
+    return Truffle.getRuntime().createAssumption("instances factory unchanged");
+  }
+
+  public static boolean isEnabled() {
+    return VmSettings.PRESIZED_SHAPES && !Universe.getCurrent().vmReflectionEnabled();
+  }
+
+  /** Whether the write nodes report the shapes that complete the fields. */
+  private static boolean isReported() {
+    return isEnabled() || VmSettings.TRACE_SHAPES;
+  }
+
+  private static InstanceShapes of(final DynamicObject clazz) {
+    InstanceShapes shapes = feedback.get(clazz);
+    if (shapes == null) {
+      shapes = new InstanceShapes(SClass.getFactory(clazz));
+      feedback.put(clazz, shapes);
+    }
+    return shapes;
+  }
+
+  /**
+   * @return the factory for new instances of the class, the empty one if the
+   *         pre-sized shape became invalid
+   */
+  public static DynamicObjectFactory getFactory(final DynamicObject clazz) {
+    CompilerAsserts.neverPartOfCompilation("InstanceShapes.getFactory");
+    DynamicObjectFactory factory = SClass.getFactory(clazz);
+    if (isEnabled() && !factory.getShape().isValid()) {
+      of(clazz).reset(clazz);
+      factory = SClass.getFactory(clazz);
+    }
+    return factory;
+  }
+
+  /** Valid until the factory of the class is replaced. */
+  public static Assumption getFactoryAssumption(final DynamicObject clazz) {
+    CompilerAsserts.neverPartOfCompilation("InstanceShapes.getFactoryAssumption");
+    if (!isEnabled()) {
+      return AlwaysValidAssumption.INSTANCE;
+    }
+    return of(clazz).factoryUnchanged;
+  }
+
+  /**
+   * @return the arguments of the builder, followed by nil for the fields of
+   *         a pre-sized shape
+   */
+  public static Object[] getArguments(final DynamicObjectFactory factory, final SObject builder) {
+    Object[] arguments = builder.buildArguments();
+    int numFields = factory.getShape().getPropertyCount() - arguments.length;
+    if (numFields == 0) {
+      return arguments;
+    }
+    Object[] withFields = Arrays.copyOf(arguments, arguments.length + numFields);
+    Arrays.fill(withFields, arguments.length, withFields.length, Nil.nilObject);
+    return withFields;
+  }
+
+  /**
+   * @return whether objects of the shape have all fields of their class, and
+   *         should be reported with {@link #reached}
+   */
+  public static boolean completesFields(final Shape shape) {
+    CompilerAsserts.neverPartOfCompilation("InstanceShapes.completesFields");
+    if (!isReported() || !SObject.isSObject(shape.getObjectType())) {
+      return false;
+    }
+
+    DynamicObject clazz = SObject.getSOMClass(shape.getObjectType());
+    if (!SClass.isSClass(clazz)) {
+      return false;
+    }
+    InstanceShapes shapes = of(clazz);
+    return shapes.isInstanceShape(shape) && shapes.isComplete(clazz, shape);
+  }
+
+  /** An object reached a shape for which {@link #completesFields} holds. */
+  @TruffleBoundary
+  public static void reached(final Shape shape) {
+    DynamicObject clazz = SObject.getSOMClass(shape.getObjectType());
+    of(clazz).reachedComplete(clazz, shape);
+  }
+
+  private boolean isComplete(final DynamicObject clazz, final Shape shape) {
+    return shape.getPropertyCount() - emptyShape.getPropertyCount()
+        == SClass.getNumberOfInstanceFields(clazz);
+  }
+
+  private boolean isInstanceShape(final Shape shape) {
+    for (Shape s = shape; s != null; s = s.getParent()) {
+      if (s == emptyShape) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private synchronized void reachedComplete(final DynamicObject clazz, final Shape shape) {
+    if (VmSettings.TRACE_SHAPES) {
+      finalShapes.add(shape);
+    }
+    if (!isEnabled() || presized || resets > MAX_RESETS) {
+      return;
+    }
+
+    reached += 1;
+    if (reached >= STABLE_AFTER && shape.isValid()) {
+      presize(clazz, shape);
+    }
+  }
+
+  private void presize(final DynamicObject clazz, final Shape completeShape) {
+    presized = true;
+
+    List<Property> properties = completeShape.getPropertyList();
+    int numNillable = emptyShape.getPropertyCount();
+    while (numNillable < properties.size()
+        && properties.get(numNillable).getLocation().canStore(Nil.nilObject)) {
+      numNillable += 1;
+    }
+    if (numNillable == emptyShape.getPropertyCount()) {
+      return;
+    }
+
+    Shape shape = completeShape;
+    while (shape.getPropertyCount() > numNillable) {
+      shape = shape.getParent();
+    }
+    setFactory(clazz, shape.createFactory());
+  }
+
+  private synchronized void reset(final DynamicObject clazz) {
+    presized = false;
+    reached  = 0;
+    resets  += 1;
+    setFactory(clazz, emptyFactory);
+  }
+
+  private void setFactory(final DynamicObject clazz, final DynamicObjectFactory factory) {
+    SClass.setInstancesFactory(clazz, factory);
+    Assumption old = factoryUnchanged;
+    factoryUnchanged = createAssumption();
+    old.invalidate();
+  }
+
+  private static void writeReport() {
+    synchronized (feedback) {
+      for (Map.Entry<DynamicObject, InstanceShapes> e : feedback.entrySet()) {
+        e.getValue().report(e.getKey());
+      }
+    }
+  }
+
+  /** Objects allocated with a complete shape keep it, it is a final shape too. */
+  private synchronized void report(final DynamicObject clazz) {
+    Shape allocated = SClass.getFactory(clazz).getShape();
+    Set<Shape> shapes = Collections.newSetFromMap(new IdentityHashMap<>());
+    shapes.addAll(finalShapes);
+    if (isComplete(clazz, allocated)) {
+      shapes.add(allocated);
+    }
+    if (shapes.isEmpty()) {
+      return;
+    }
+
+    int transitions = shapes.iterator().next().getPropertyCount()
+        - allocated.getPropertyCount();
+    Universe.errorPrintln(SClass.getName(clazz).getString() + ": " + shapes.size()
+        + " final shapes, " + transitions + " transitions per new object");
+  }
+}
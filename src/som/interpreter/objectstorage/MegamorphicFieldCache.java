@@ -0,0 +1,139 @@
+package som.interpreter.objectstorage;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.FinalLocationException;
+import com.oracle.truffle.api.object.IncompatibleLocationException;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Property;
+import com.oracle.truffle.api.object.Shape;
+
+import som.vm.constants.Nil;
+
+
+/**
+ * The locations of a field for the shapes that reach a megamorphic field
+ * access, once the access saw more than {@link FieldAccessorNode#LIMIT}
+ * shapes.
+ *
+ * The cache is a direct-mapped table of {@link #SIZE} entries, hashed on the
+ * identity of the shape. A hit costs one array read and one comparison, and
+ * does not leave compiled code. A miss looks up the property of the field
+ * in the shape, behind a boundary, and replaces the entry the shape maps to.
+ *
+ * An entry for a write either stores into the field of the shape, or adds
+ * it with the transition to the new shape. Writes of values that do not fit
+ * the location, and to shapes that became invalid, take the slow path, which
+ * defines the field like the uncached write did before.
+ */
+public final class MegamorphicFieldCache {
+  private static final int SIZE = 64;
+
+  private static final class Entry {
+    private final Shape    shape;
+    private final Location location;
+
+    /** The shape after a write, the same shape if the field exists. */
+    private final Shape newShape;
+
+    Entry(final Shape shape, final Location location, final Shape newShape) {
+      this.shape    = shape;
+      this.location = location;
+      this.newShape = newShape;
+    }
+  }
+
+  private final int fieldIndex;
+
+  // entries are immutable, concurrent updates only replace them
+  private final Entry[] entries = new Entry[SIZE];
+
+  public MegamorphicFieldCache(final int fieldIndex) {
+    this.fieldIndex = fieldIndex;
+  }
+
+  private static int indexOf(final Shape shape) {
+    return System.identityHashCode(shape) & (SIZE - 1);
+  }
+
+  private Entry lookup(final Shape shape) {
+    Entry entry = entries[indexOf(shape)];
+    if (entry != null && entry.shape == shape) {
+      return entry;
+    }
+    return null;
+  }
+
+  /** @return whether the next access to an object of the shape hits */
+  public boolean isCached(final Shape shape) {
+    return lookup(shape) != null;
+  }
+
+  public Object read(final DynamicObject obj) {
+    Shape shape = obj.getShape();
+    Entry entry = lookup(shape);
+    if (entry == null) {
+      return readMiss(obj);
+    }
+
+    if (entry.location == null) {
+      return Nil.nilObject;
+    }
+    return entry.location.get(obj, shape);
+  }
+
+  public void write(final DynamicObject obj, final Object value) {
+    Shape shape = obj.getShape();
+    Entry entry = lookup(shape);
+    if (entry == null || !shape.isValid() || !entry.newShape.isValid()) {
+      writeMiss(obj, value);
+      return;
+    }
+
+    try {
+      if (entry.newShape == shape) {
+        entry.location.set(obj, value, shape);
+      } else {
+        entry.location.set(obj, value, shape, entry.newShape);
+      }
+    } catch (IncompatibleLocationException | FinalLocationException e) {
+      writeMiss(obj, value);
+    }
+  }
+
+  @TruffleBoundary
+  private Object readMiss(final DynamicObject obj) {
+    obj.updateShape();
+    Shape shape = obj.getShape();
+    Location location = getLocation(shape);
+    entries[indexOf(shape)] = new Entry(shape, location, shape);
+
+    if (location == null) {
+      return Nil.nilObject;
+    }
+    return location.get(obj, shape);
+  }
+
+  @TruffleBoundary
+  private void writeMiss(final DynamicObject obj, final Object value) {
+    obj.updateShape();
+    Shape oldShape = obj.getShape();
+    obj.define(fieldIndex, value);
+    Shape newShape = obj.getShape();
+
+    // generalizing a location is not a transition that can be repeated
+    boolean sameOrTransition = newShape == oldShape || newShape.getParent() == oldShape;
+    if (sameOrTransition && oldShape.isValid() && newShape.isValid()) {
+      entries[indexOf(oldShape)] = new Entry(oldShape, getLocation(newShape), newShape);
+    }
+  }
+
+  private Location getLocation(final Shape shape) {
+    Property property = shape.getProperty(fieldIndex);
+    if (property != null) {
+      return property.getLocation();
+    } else {
+      return null;
+    }
+  }
+}
@@ -1,122 +1,349 @@
-/*package som.interpreter.objectstorage;
+package som.interpreter.objectstorage;
 
-import som.interpreter.objectstorage.StorageLocation.UnwrittenStorageLocation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.DynamicObjectFactory;
+import com.oracle.truffle.api.object.FinalLocationException;
+import com.oracle.truffle.api.object.IncompatibleLocationException;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Property;
+import com.oracle.truffle.api.object.Shape;
+
+import som.VmSettings;
+import som.vm.constants.Nil;
 import som.vmobjects.SClass;
 import som.vmobjects.SObject;
 
 
-
+/**
+ * The fixed object layout, enabled with -Dsom.fixedObjectLayouts=true.
+ *
+ * Instead of one shape property per field, the instances of a class have
+ * three properties, defined by the factory of their class: their layout,
+ * a long[] for the unboxed longs and doubles, and an Object[] for the other
+ * fields. The shape of an instance therefore never changes. The layout maps
+ * each field to a {@link StorageLocation}, it is inferred from the values
+ * written to the fields of the instances of a class.
+ *
+ * A layout is immutable. Each class has a latest layout, which is replaced
+ * when a field is written the first time, or with a value the location
+ * cannot store. Objects keep the layout their storage was allocated for and
+ * are migrated to the latest one of their class when a field is written.
+ * New objects start with {@link #EMPTY}, and shared empty storage.
+ */
 public final class ObjectLayout {
-  private final SClass forClass;
+  private static final Object LAYOUT      = "!layout";
+  private static final Object PRIM_FIELDS = "!primFields";
+  private static final Object OBJ_FIELDS  = "!objFields";
 
-  private final int primitiveStorageLocationsUsed;
-  private final int objectStorageLocationsUsed;
-  private final int totalNumberOfStorageLocations;
+  private static final long[]   NO_PRIM_FIELDS = new long[0];
+  private static final Object[] NO_OBJ_FIELDS  = new Object[0];
 
-  private final StorageLocation[] storageLocations;
-  private final Class<?>[]        storageTypes;
+  public static final ObjectLayout EMPTY = new ObjectLayout(new Class<?>[0]);
+
+  // classes are the keys, a layout does not refer to its class
+  private static final Map<DynamicObject, ObjectLayout> latestLayouts =
+      Collections.synchronizedMap(new WeakHashMap<>());
 
-  public ObjectLayout(final int numberOfFields, final SClass forClass) {
-    this(new Class<?>[numberOfFields], forClass);
+  static {
+    EMPTY.latest.invalidate();
   }
 
-  public ObjectLayout(final Class<?>[] knownFieldTypes, final SClass forClass) {
-    this.forClass = forClass;
+  private final Class<?>[]        storageTypes;
+  private final StorageLocation[] storageLocations;
+  private final int primFieldsUsed;
+  private final int objFieldsUsed;
+
+  private final Assumption latest;
 
-    storageTypes = knownFieldTypes;
-    totalNumberOfStorageLocations = knownFieldTypes.length;
+  private ObjectLayout(final Class<?>[] knownFieldTypes) {
+    storageTypes     = knownFieldTypes;
     storageLocations = new StorageLocation[knownFieldTypes.length];
+    latest = Truffle.getRuntime().createAssumption("latest object layout");
 
     int nextFreePrimIdx = 0;
     int nextFreeObjIdx  = 0;
 
-    for (int i = 0; i < totalNumberOfStorageLocations; i++) {
+    for (int i = 0; i < knownFieldTypes.length; i++) {
       Class<?> type = knownFieldTypes[i];
+      boolean primLeft = nextFreePrimIdx < StorageLocation.MAX_PRIMITIVE_LOCATIONS;
 
       StorageLocation storage;
-      if (type == Long.class) {
-        storage = StorageLocation.createForLong(this, nextFreePrimIdx);
+      if (type == Long.class && primLeft) {
+        storage = StorageLocation.createForLong(nextFreePrimIdx);
         nextFreePrimIdx++;
-      } else if (type == Double.class) {
-        storage = StorageLocation.createForDouble(this, nextFreePrimIdx);
+      } else if (type == Double.class && primLeft) {
+        storage = StorageLocation.createForDouble(nextFreePrimIdx);
         nextFreePrimIdx++;
-      } else if (type == Object.class) {
-        storage = StorageLocation.createForObject(this, nextFreeObjIdx);
+      } else if (type != null) {
+        storage = StorageLocation.createForObject(nextFreeObjIdx);
         nextFreeObjIdx++;
       } else {
-        assert type == null;
-        storage = new UnwrittenStorageLocation(this);
+        storage = StorageLocation.UNWRITTEN;
       }
-
       storageLocations[i] = storage;
     }
 
-    primitiveStorageLocationsUsed = nextFreePrimIdx;
-    objectStorageLocationsUsed    = nextFreeObjIdx;
-  }
-
-  public boolean layoutForSameClass(final ObjectLayout other) {
-    return forClass == other.forClass;
+    primFieldsUsed = nextFreePrimIdx;
+    objFieldsUsed  = nextFreeObjIdx;
   }
 
   public int getNumberOfFields() {
     return storageTypes.length;
   }
 
-  public ObjectLayout withGeneralizedField(final long fieldIndex) {
-    return withGeneralizedField((int) fieldIndex);
+  public StorageLocation getStorageLocation(final int fieldIndex) {
+    if (fieldIndex < storageLocations.length) {
+      return storageLocations[fieldIndex];
+    } else {
+      return StorageLocation.UNWRITTEN;
+    }
   }
 
-  public ObjectLayout withGeneralizedField(final int fieldIndex) {
-    if (storageTypes[fieldIndex] == Object.class) {
-      return this;
+  /** Valid as long as this is the latest layout of its class. */
+  public Assumption getAssumption() {
+    return latest;
+  }
+
+  private ObjectLayout withFieldFor(final int fieldIndex, final Object value) {
+    Class<?> type;
+    if (value instanceof Long || value instanceof Double) {
+      type = value.getClass();
     } else {
-      assert storageTypes[fieldIndex] != Object.class;
-      Class<?>[] withGeneralizedField = storageTypes.clone();
-      withGeneralizedField[fieldIndex] = Object.class;
-      return new ObjectLayout(withGeneralizedField, forClass);
+      type = Object.class;
+    }
+
+    Class<?> current = fieldIndex < storageTypes.length ? storageTypes[fieldIndex] : null;
+    if (current == type) {
+      return this;
     }
+
+    Class<?>[] types = Arrays.copyOf(storageTypes,
+        Math.max(storageTypes.length, fieldIndex + 1));
+    types[fieldIndex] = current == null ? type : Object.class;
+    return new ObjectLayout(types);
   }
 
-  public ObjectLayout withInitializedField(final long fieldIndex, final Class<?> type) {
-    Class <?> specType;
-    if (type == Long.class || type == Double.class) {
-      specType = type;
-    } else {
-      specType = Object.class;
+  /** @return the length of the long[] of the objects in this layout */
+  public int getPrimFieldsLength() {
+    return primFieldsUsed == 0 ? 0 : primFieldsUsed + 1;
+  }
+
+  public int getObjFieldsLength() {
+    return objFieldsUsed;
+  }
+
+  long[] createPrimFields() {
+    if (primFieldsUsed == 0) {
+      return NO_PRIM_FIELDS;
     }
-    return withInitializedField((int) fieldIndex, specType);
+    return new long[getPrimFieldsLength()];
   }
 
-  private ObjectLayout withInitializedField(final int fieldIndex, final Class<?> type) {
-    if (storageTypes[fieldIndex] == type) {
-      return this;
-    } else {
-      assert storageTypes[fieldIndex] == null;
-      Class<?>[] withInitializedField = storageTypes.clone();
-      withInitializedField[fieldIndex] = type;
-      return new ObjectLayout(withInitializedField, forClass);
+  Object[] createObjFields() {
+    if (objFieldsUsed == 0) {
+      return NO_OBJ_FIELDS;
     }
+    Object[] fields = new Object[objFieldsUsed];
+    Arrays.fill(fields, Nil.nilObject);
+    return fields;
   }
 
-  public StorageLocation getStorageLocation(final long fieldIndex) {
-    return getStorageLocation((int) fieldIndex);
+  /**
+   * Adds the layout properties to the shape of the factory of a class.
+   * The instances need to be created with the {@link ArgumentsBuilder}.
+   */
+  public static DynamicObjectFactory createFactory(final DynamicObjectFactory factory) {
+    Shape shape = factory.getShape().
+        defineProperty(LAYOUT, EMPTY, 0).
+        defineProperty(PRIM_FIELDS, NO_PRIM_FIELDS, 0).
+        defineProperty(OBJ_FIELDS, NO_OBJ_FIELDS, 0);
+    return shape.createFactory();
   }
 
-  public StorageLocation getStorageLocation(final int fieldIndex) {
-    return storageLocations[fieldIndex];
+  /** The initial values of the layout properties, in the order of the shape. */
+  public static final class ArgumentsBuilder extends SObject {
+    @Override
+    public Object[] buildArguments() {
+      return new Object[] {EMPTY, NO_PRIM_FIELDS, NO_OBJ_FIELDS};
+    }
   }
 
-  public int getNumberOfUsedExtendedObjectStorageLocations() {
-    int requiredExtensionFields = objectStorageLocationsUsed - SObject.NUM_OBJECT_FIELDS;
-    if (requiredExtensionFields < 0) { return 0; }
-    return requiredExtensionFields;
+  public static boolean hasFixedLayout(final Shape shape) {
+    return VmSettings.FIXED_OBJECT_LAYOUTS && shape.hasProperty(LAYOUT);
   }
 
-  public int getNumberOfUsedExtendedPrimStorageLocations() {
-    int requiredExtensionFields = primitiveStorageLocationsUsed - SObject.NUM_PRIMITIVE_FIELDS;
-    if (requiredExtensionFields < 0) { return 0;  }
-    return requiredExtensionFields;
+  public static boolean hasFixedLayout(final DynamicObject obj) {
+    return hasFixedLayout(obj.getShape());
+  }
+
+  public static ObjectLayout getLayout(final DynamicObject obj) {
+    return (ObjectLayout) obj.get(LAYOUT);
+  }
+
+  public static long[] getPrimFields(final DynamicObject obj) {
+    return (long[]) obj.get(PRIM_FIELDS);
+  }
+
+  public static Object[] getObjFields(final DynamicObject obj) {
+    return (Object[]) obj.get(OBJ_FIELDS);
+  }
+
+  @TruffleBoundary
+  public static Object read(final DynamicObject obj, final int fieldIndex) {
+    return getLayout(obj).getStorageLocation(fieldIndex).read(
+        getPrimFields(obj), getObjFields(obj));
+  }
+
+  @TruffleBoundary
+  public static void write(final DynamicObject obj, final int fieldIndex, final Object value) {
+    ObjectLayout layout = updateToLatest(obj);
+    StorageLocation location = layout.getStorageLocation(fieldIndex);
+
+    if (!location.accepts(value)) {
+      layout = layout.withFieldFor(fieldIndex, value);
+      setLatest(SObject.getSOMClass(obj), layout);
+      migrate(obj, layout);
+      location = getLayout(obj).getStorageLocation(fieldIndex);
+    }
+    location.write(getPrimFields(obj), getObjFields(obj), value);
+  }
+
+  /** @return the number of fields that were written, like the properties of a shape */
+  @TruffleBoundary
+  public static int getNumberOfWrittenFields(final DynamicObject obj) {
+    ObjectLayout layout = getLayout(obj);
+    long[] primFields  = getPrimFields(obj);
+    Object[] objFields = getObjFields(obj);
+
+    int written = 0;
+    for (int i = 0; i < layout.getNumberOfFields(); i++) {
+      if (layout.getStorageLocation(i).isSet(primFields, objFields)) {
+        written++;
+      }
+    }
+    return written;
+  }
+
+  /** @return the latest layout of the class of the object */
+  public static ObjectLayout getLatest(final DynamicObject obj) {
+    CompilerAsserts.neverPartOfCompilation("ObjectLayout.getLatest");
+    DynamicObject clazz = SObject.getSOMClass(obj);
+    ObjectLayout layout = latestLayouts.get(clazz);
+    if (layout == null) {
+      layout = new ObjectLayout(new Class<?>[SClass.getNumberOfInstanceFields(clazz)]);
+      latestLayouts.put(clazz, layout);
+    }
+    return layout;
+  }
+
+  private static void setLatest(final DynamicObject clazz, final ObjectLayout layout) {
+    ObjectLayout old = latestLayouts.put(clazz, layout);
+    if (old != null) {
+      old.latest.invalidate();
+    }
+  }
+
+  private static ObjectLayout updateToLatest(final DynamicObject obj) {
+    ObjectLayout layout = getLatest(obj);
+    if (getLayout(obj) != layout) {
+      migrate(obj, layout);
+    }
+    return getLayout(obj);
+  }
+
+  /**
+   * Moves the fields of the object into new storage for the given layout,
+   * or a generalization of it when the object has a field the layout
+   * cannot store, e.g., after the class of the object was changed.
+   */
+  private static void migrate(final DynamicObject obj, final ObjectLayout layout) {
+    ObjectLayout old = getLayout(obj);
+    long[] oldPrimFields  = getPrimFields(obj);
+    Object[] oldObjFields = getObjFields(obj);
+
+    ObjectLayout target = layout;
+    for (int i = 0; i < old.getNumberOfFields(); i++) {
+      StorageLocation location = old.getStorageLocation(i);
+      if (location.isSet(oldPrimFields, oldObjFields)) {
+        Object value = location.read(oldPrimFields, oldObjFields);
+        if (!target.getStorageLocation(i).accepts(value)) {
+          target = target.withFieldFor(i, value);
+        }
+      }
+    }
+    if (target != layout) {
+      setLatest(SObject.getSOMClass(obj), target);
+    }
+
+    long[] primFields  = target.createPrimFields();
+    Object[] objFields = target.createObjFields();
+    for (int i = 0; i < old.getNumberOfFields(); i++) {
+      StorageLocation location = old.getStorageLocation(i);
+      if (location.isSet(oldPrimFields, oldObjFields)) {
+        target.getStorageLocation(i).write(primFields, objFields,
+            location.read(oldPrimFields, oldObjFields));
+      }
+    }
+
+    obj.set(LAYOUT, target);
+    obj.set(PRIM_FIELDS, primFields);
+    obj.set(OBJ_FIELDS, objFields);
+  }
+
+  /**
+   * The locations of the layout properties in a shape, for the nodes that
+   * cache the shape of the objects they access.
+   */
+  public static final class LayoutProperties {
+    private final Location layout;
+    private final Location primFields;
+    private final Location objFields;
+
+    private LayoutProperties(final Shape shape) {
+      layout     = shape.getProperty(LAYOUT).getLocation();
+      primFields = shape.getProperty(PRIM_FIELDS).getLocation();
+      objFields  = shape.getProperty(OBJ_FIELDS).getLocation();
+    }
+
+    /** @return null, if the shape does not have a fixed layout */
+    public static LayoutProperties forShape(final Shape shape) {
+      Property property = shape.getProperty(LAYOUT);
+      if (property == null) {
+        return null;
+      }
+      return new LayoutProperties(shape);
+    }
+
+    public ObjectLayout getLayout(final DynamicObject obj, final Shape shape) {
+      return (ObjectLayout) layout.get(obj, shape);
+    }
+
+    public long[] getPrimFields(final DynamicObject obj, final Shape shape) {
+      return (long[]) primFields.get(obj, shape);
+    }
+
+    public Object[] getObjFields(final DynamicObject obj, final Shape shape) {
+      return (Object[]) objFields.get(obj, shape);
+    }
+
+    /** Allocates the storage for the first write to an object with the {@link #EMPTY} layout. */
+    public void initialize(final DynamicObject obj, final ObjectLayout newLayout) {
+      try {
+        layout.set(obj, newLayout);
+        primFields.set(obj, newLayout.createPrimFields());
+        objFields.set(obj, newLayout.createObjFields());
+      } catch (IncompatibleLocationException | FinalLocationException e) {
+        throw new IllegalStateException("The layout properties are defined as plain object locations", e);
+      }
+    }
   }
 }
-*/
@@ -15,17 +15,18 @@ import bd.primitives.Primitive;
 import som.VmSettings;
 import som.interpreter.SArguments;
 import som.interpreter.SomException;
+import som.interpreter.nodes.ExceptionHandlerMatchNode;
+import som.interpreter.nodes.ExceptionHandlerMatchNodeGen;
 import som.interpreter.nodes.dispatch.BlockDispatchNode;
 import som.interpreter.nodes.dispatch.BlockDispatchNodeGen;
 import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.QuaternaryExpressionNode;
 import som.interpreter.nodes.nary.TernaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
+import som.vm.constants.ExecutionLevel;
 import som.vmobjects.SAbstractObject;
 import som.vmobjects.SBlock;
-import som.vmobjects.SClass;
 import som.vmobjects.SInvokable;
-import som.vmobjects.SObject;
 import tools.dym.Tags.OpClosureApplication;
 
 
@@ -145,7 +146,8 @@ public abstract class BlockPrims {
   public abstract static class ExceptionDoOnPrim extends TernaryExpressionNode {
 
     protected static final int INLINE_CACHE_SIZE = VmSettings.DYNAMIC_METRICS ? 100 : 6;
-    protected static final IndirectCallNode indirect = Truffle.getRuntime().createIndirectCallNode();
+
+    @Child protected ExceptionHandlerMatchNode handles = ExceptionHandlerMatchNodeGen.create();
 
     public static final DirectCallNode createCallNode(final SBlock block, final VirtualFrame frame) {
       return Truffle.getRuntime().createDirectCallNode(
@@ -166,12 +168,12 @@ public abstract class BlockPrims {
         @Cached("exceptionHandler.getMethod()") final DynamicObject cachedExceptionMethod,
         @Cached("createCallNode(exceptionHandler, frame)") final DirectCallNode exceptionCall) {
       try {
-        return bodyCall.call(SArguments.createSArguments(SArguments.getEnvironment(frame),
-            SArguments.getExecutionLevel(frame), new Object[] {body}));
+        return bodyCall.call(SArguments.createBlockArguments(SArguments.getEnvironment(frame),
+            SArguments.getExecutionLevel(frame), body));
       } catch (SomException e) {
-        if (SClass.isKindOf(SObject.getSOMClass(e.getSomObject()), exceptionClass)) {
-          return exceptionCall.call(SArguments.createSArguments(SArguments.getEnvironment(frame),
-              SArguments.getExecutionLevel(frame), new Object[] {exceptionHandler, e.getSomObject()}));
+        if (handles.executeMatch(e.getSomObject(), exceptionClass)) {
+          return exceptionCall.call(SArguments.createBlockArguments(SArguments.getEnvironment(frame),
+              SArguments.getExecutionLevel(frame), exceptionHandler, e.getSomObject()));
         } else {
           throw e;
         }
@@ -180,13 +182,17 @@ public abstract class BlockPrims {
 
     @Specialization(replaces = "doException")
     public final Object doExceptionUncached(final VirtualFrame frame, final SBlock body,
-        final DynamicObject exceptionClass, final SBlock exceptionHandler) {
+        final DynamicObject exceptionClass, final SBlock exceptionHandler,
+        @Cached("create()") final IndirectCallNode indirect) {
+      ExecutionLevel level = SArguments.getExecutionLevel(frame);
       try {
-        return SInvokable.invoke(body.getMethod(), frame, indirect, new Object[] {body});
+        return indirect.call(SInvokable.getCallTarget(body.getMethod(), level),
+            SArguments.createBlockArguments(SArguments.getEnvironment(frame), level, body));
       } catch (SomException e) {
-        if (SClass.isKindOf(SObject.getSOMClass(e.getSomObject()), exceptionClass)) {
-          return SInvokable.invoke(exceptionHandler.getMethod(), frame, indirect,
-              new Object[] {exceptionHandler, e.getSomObject()});
+        if (handles.executeMatch(e.getSomObject(), exceptionClass)) {
+          return indirect.call(SInvokable.getCallTarget(exceptionHandler.getMethod(), level),
+              SArguments.createBlockArguments(SArguments.getEnvironment(frame), level,
+                  exceptionHandler, e.getSomObject()));
         } else {
           throw e;
         }
@@ -199,16 +205,44 @@ public abstract class BlockPrims {
   @Primitive(primitive = "ensure:", receiverType = SBlock.class)
   public abstract static class EnsurePrim extends BinaryExpressionNode {
 
-    @Child private BlockDispatchNode dispatchBody = BlockDispatchNodeGen.create();
-    @Child private BlockDispatchNode dispatchHandler = BlockDispatchNodeGen.create();
+    protected static final int INLINE_CACHE_SIZE = ExceptionDoOnPrim.INLINE_CACHE_SIZE;
 
-    @Specialization
-    public final Object doException(final VirtualFrame frame, final SBlock body, final SBlock ensureHandler) {
+    @Specialization(limit = "INLINE_CACHE_SIZE",
+        guards = {"sameBlock(body, cachedBody)", "sameBlock(ensureHandler, cachedHandler)"})
+    public final Object doException(final VirtualFrame frame, final SBlock body, final SBlock ensureHandler,
+        @Cached("body.getMethod()") final DynamicObject cachedBody,
+        @Cached("createCallNode(body, frame)") final DirectCallNode bodyCall,
+        @Cached("ensureHandler.getMethod()") final DynamicObject cachedHandler,
+        @Cached("createCallNode(ensureHandler, frame)") final DirectCallNode handlerCall) {
+      DynamicObject environment = SArguments.getEnvironment(frame);
+      ExecutionLevel level = SArguments.getExecutionLevel(frame);
       try {
-        return dispatchBody.executeDispatch(frame, new Object[] {body});
+        return bodyCall.call(SArguments.createBlockArguments(environment, level, body));
       } finally {
-        dispatchHandler.executeDispatch(frame, new Object[] {ensureHandler});
+        handlerCall.call(SArguments.createBlockArguments(environment, level, ensureHandler));
       }
     }
+
+    @Specialization(replaces = "doException")
+    public final Object doExceptionUncached(final VirtualFrame frame, final SBlock body,
+        final SBlock ensureHandler, @Cached("create()") final IndirectCallNode indirect) {
+      DynamicObject environment = SArguments.getEnvironment(frame);
+      ExecutionLevel level = SArguments.getExecutionLevel(frame);
+      try {
+        return indirect.call(SInvokable.getCallTarget(body.getMethod(), level),
+            SArguments.createBlockArguments(environment, level, body));
+      } finally {
+        indirect.call(SInvokable.getCallTarget(ensureHandler.getMethod(), level),
+            SArguments.createBlockArguments(environment, level, ensureHandler));
+      }
+    }
+
+    protected static final DirectCallNode createCallNode(final SBlock block, final VirtualFrame frame) {
+      return ExceptionDoOnPrim.createCallNode(block, frame);
+    }
+
+    protected static final boolean sameBlock(final SBlock block, final DynamicObject method) {
+      return ExceptionDoOnPrim.sameBlock(block, method);
+    }
   }
 }
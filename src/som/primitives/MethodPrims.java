@@ -6,10 +6,12 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.object.DynamicObject;
 
 import bd.primitives.Primitive;
+import som.interpreter.CallSiteReport;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
 import som.vm.constants.MateClasses;
 import som.vmobjects.MockJavaObject;
 import som.vmobjects.SAbstractObject;
+import som.vmobjects.SArray;
 import som.vmobjects.SInvokable;
 
 
@@ -54,4 +56,26 @@ public abstract class MethodPrims {
       return SInvokable.getInvokable(receiver).getSourceSection().getCharacters().toString();
     }
   }
+
+  /**
+   * The send sites of the method and its blocks, with their receiver
+   * classes, see {@link CallSiteReport}.
+   */
+  @GenerateNodeFactory
+  @Primitive(className = "Method", primitive = "callSites")
+  public abstract static class CallSitesPrim extends UnaryExpressionNode {
+    @Specialization
+    public final SArray doSMethod(final DynamicObject receiver) {
+      return CallSiteReport.asArray(receiver);
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(className = "Method", primitive = "callSitesAsJson")
+  public abstract static class CallSitesAsJsonPrim extends UnaryExpressionNode {
+    @Specialization
+    public final String doSMethod(final DynamicObject receiver) {
+      return CallSiteReport.asJson(receiver);
+    }
+  }
 }
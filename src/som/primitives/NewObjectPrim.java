@@ -11,29 +11,32 @@ import com.oracle.truffle.api.object.DynamicObjectFactory;
 
 import bd.primitives.Primitive;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
+import som.interpreter.objectstorage.InstanceShapes;
 import som.vm.Universe;
-import som.vmobjects.SClass;
 import som.vmobjects.SObject;
 import tools.dym.Tags.NewObject;
 
 
 @GenerateNodeFactory
-@ImportStatic(SClass.class)
+@ImportStatic(InstanceShapes.class)
 @Primitive(className = "Class", primitive = "basicNew", selector = "basicNew")
 public abstract class NewObjectPrim extends UnaryExpressionNode {
   private static final SObject layoutClass = Universe.getCurrent().getInstanceArgumentsBuilder();
 
-  @Specialization(guards = "receiver == cachedClass")
+  @Specialization(guards = "receiver == cachedClass",
+      assumptions = {"factory.getShape().getValidAssumption()", "getFactoryAssumption(cachedClass)"})
   public final DynamicObject cachedClass(final DynamicObject receiver,
       @Cached("receiver") final DynamicObject cachedClass,
-      @Cached("getFactory(cachedClass)") final DynamicObjectFactory factory) {
-    return factory.newInstance(layoutClass.buildArguments());
+      @Cached("getFactory(cachedClass)") final DynamicObjectFactory factory,
+      @Cached("getArguments(factory, layoutClass)") final Object[] arguments) {
+    return factory.newInstance(arguments);
   }
 
   @TruffleBoundary
   @Specialization(replaces = "cachedClass")
   public DynamicObject uncached(final DynamicObject receiver) {
-    return SClass.getFactory(receiver).newInstance(layoutClass.buildArguments());
+    DynamicObjectFactory factory = InstanceShapes.getFactory(receiver);
+    return factory.newInstance(InstanceShapes.getArguments(factory, layoutClass));
   }
 
   @Override
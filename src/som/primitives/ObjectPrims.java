@@ -12,6 +12,7 @@ import som.interpreter.Types;
 import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.TernaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
+import som.interpreter.objectstorage.ObjectLayout;
 import som.primitives.reflection.IndexDispatch;
 import som.vm.Universe;
 import som.vm.constants.Nil;
@@ -95,7 +96,11 @@ public final class ObjectPrims {
     @Specialization
     public final Object doSObject(final DynamicObject receiver, final SSymbol fieldName) {
       // CompilerAsserts.neverPartOfCompilation("InstVarNamedPrim");
-      return receiver.get(SClass.lookupFieldIndex(SObject.getSOMClass(receiver), fieldName), Nil.nilObject);
+      int index = SClass.lookupFieldIndex(SObject.getSOMClass(receiver), fieldName);
+      if (ObjectLayout.hasFixedLayout(receiver)) {
+        return ObjectLayout.read(receiver, index);
+      }
+      return receiver.get(index, Nil.nilObject);
     }
   }
 
@@ -107,7 +112,12 @@ public final class ObjectPrims {
     @TruffleBoundary
     @Specialization
     public final Object doSObject(final DynamicObject receiver, final SSymbol fieldName, final Object val) {
-      receiver.define(SClass.lookupFieldIndex(SObject.getSOMClass(receiver), fieldName), val);
+      int index = SClass.lookupFieldIndex(SObject.getSOMClass(receiver), fieldName);
+      if (ObjectLayout.hasFixedLayout(receiver)) {
+        ObjectLayout.write(receiver, index, val);
+      } else {
+        receiver.define(index, val);
+      }
       return val;
     }
   }
@@ -80,6 +80,7 @@ import som.primitives.reflection.PerformInSuperclassPrimFactory;
 import som.primitives.reflection.PerformPrimFactory;
 import som.primitives.reflection.PerformWithArgumentsInSuperclassPrimFactory;
 import som.primitives.reflection.PerformWithArgumentsPrimFactory;
+import som.primitives.reflection.PerformWithPrimsFactory;
 import som.vm.Symbols;
 import som.vm.Universe;
 import som.vmobjects.SSymbol;
@@ -173,6 +174,7 @@ public class Primitives extends PrimitiveLoader<Universe, ExpressionNode, SSymbo
     allFactories.addAll(MatePrimsFactory.getFactories());
     allFactories.addAll(MethodPrimsFactory.getFactories());
     allFactories.addAll(ObjectPrimsFactory.getFactories());
+    allFactories.addAll(PerformWithPrimsFactory.getFactories());
     allFactories.addAll(ShapePrimsFactory.getFactories());
     allFactories.addAll(StringPrimsFactory.getFactories());
     allFactories.addAll(SystemPrimsFactory.getFactories());
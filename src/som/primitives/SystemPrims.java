@@ -1,21 +1,31 @@
 package som.primitives;
 
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.Source;
 
 import bd.primitives.Primitive;
+import som.compiler.Parser.ParseError;
+import som.interpreter.SArguments;
 import som.interpreter.SomLanguage;
 import som.interpreter.nodes.nary.BinaryExpressionNode;
 import som.interpreter.nodes.nary.TernaryExpressionNode;
 import som.interpreter.nodes.nary.UnaryBasicOperation;
 import som.interpreter.nodes.nary.UnaryExpressionNode;
+import som.vm.ObjectMemory;
 import som.vm.Universe;
 import som.vm.constants.ExecutionLevel;
 import som.vm.constants.Globals;
 import som.vm.constants.Nil;
+import som.vmobjects.SAbstractObject;
+import som.vmobjects.SArray;
+import som.vmobjects.SArray.ArrayType;
 import som.vmobjects.SBlock;
 import som.vmobjects.SClass;
 import som.vmobjects.SSymbol;
@@ -49,6 +59,96 @@ public final class SystemPrims {
     }
   }
 
+  /** Source of a class that is not loaded from a file. */
+  @TruffleBoundary
+  private static Source sourceOf(final String text) {
+    return Source.newBuilder(SomLanguage.LANG_NAME, text, "shell").
+        mimeType(SomLanguage.MIME_TYPE).build();
+  }
+
+  /** Sends error: to the system object for a class that cannot be created. */
+  private static Object classError(final VirtualFrame frame, final DynamicObject receiver,
+      final String message) {
+    CompilerDirectives.transferToInterpreter();
+    return SAbstractObject.sendError(receiver, message,
+        SArguments.getEnvironment(frame), SArguments.getExecutionLevel(frame));
+  }
+
+  /** Parses a class from its source, without installing it as global. */
+  @ImportStatic(SystemPrims.class)
+  @Primitive(className = "System", primitive = "compileClass:")
+  public abstract static class CompileClassPrim extends BinarySystemNode {
+    @Specialization(guards = "receiverIsSystemObject(receiver)")
+    public final Object doSObject(final VirtualFrame frame, final DynamicObject receiver,
+        final String source) {
+      try {
+        return compile(source);
+      } catch (ParseError e) {
+        return classError(frame, receiver, e.toString());
+      }
+    }
+
+    @TruffleBoundary
+    private DynamicObject compile(final String source) throws ParseError {
+      ObjectMemory memory = universe.getObjectMemory();
+      return memory.getCompiler().compileClass(source, null, memory, null);
+    }
+  }
+
+  /**
+   * Compiles a class from its source, and answers its binary encoding as a
+   * byte array (see {@link som.compiler.SourcecodeCompiler#encodeClass}).
+   */
+  @ImportStatic(SystemPrims.class)
+  @Primitive(className = "System", primitive = "encodeClass:")
+  public abstract static class EncodeClassPrim extends BinarySystemNode {
+    @Specialization(guards = "receiverIsSystemObject(receiver)")
+    public final Object doSObject(final VirtualFrame frame, final DynamicObject receiver,
+        final String source) {
+      try {
+        return SArray.create(encode(source));
+      } catch (ParseError e) {
+        return classError(frame, receiver, e.toString());
+      }
+    }
+
+    @TruffleBoundary
+    private byte[] encode(final String source) throws ParseError {
+      ObjectMemory memory = universe.getObjectMemory();
+      return memory.getCompiler().encodeClass(sourceOf(source), memory);
+    }
+  }
+
+  /** Creates a class from the encoding of its source, without installing it as global. */
+  @ImportStatic(SystemPrims.class)
+  @GenerateNodeFactory
+  @Primitive(className = "System", primitive = "decodeClass:source:")
+  public abstract static class DecodeClassPrim extends TernaryExpressionNode {
+    private final Universe universe;
+    public DecodeClassPrim() {
+      this.universe = Universe.getCurrent();
+    }
+
+    @Specialization(guards = "receiverIsSystemObject(receiver)")
+    public final Object doSObject(final VirtualFrame frame, final DynamicObject receiver,
+        final SArray encoded, final String source) {
+      if (encoded.getType() != ArrayType.BYTE) {
+        return classError(frame, receiver, "The encoding of a class is a byte array");
+      }
+      try {
+        return decode((byte[]) encoded.getStoragePlain(), source);
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        return classError(frame, receiver, e.getMessage());
+      }
+    }
+
+    @TruffleBoundary
+    private DynamicObject decode(final byte[] encoded, final String source) {
+      return universe.getObjectMemory().getCompiler().loadClass(
+          encoded, sourceOf(source), null, null, null);
+    }
+  }
+
   @ImportStatic(SystemPrims.class)
   @Primitive(className = "System", primitive = "exit:")
   public abstract static class ExitPrim extends BinarySystemNode {
@@ -1,6 +1,5 @@
 package som.primitives.reflection;
 
-import com.oracle.truffle.api.CallTarget;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
@@ -14,12 +13,14 @@ import som.interpreter.Types;
 import som.interpreter.nodes.MessageSendNode;
 import som.interpreter.nodes.MessageSendNode.AbstractMessageSendNode;
 import som.interpreter.nodes.PreevaluatedExpression;
+import som.interpreter.nodes.dispatch.CachedDnuNode;
+import som.interpreter.nodes.dispatch.GlobalMethodCache;
 import som.primitives.arrays.ToArgumentsArrayNode;
 import som.primitives.arrays.ToArgumentsArrayNodeFactory;
+import som.vm.Symbols;
 import som.vm.constants.ExecutionLevel;
-import som.vmobjects.InvokableLayoutImpl;
 import som.vmobjects.SArray;
-import som.vmobjects.SClass;
+import som.vmobjects.SInvokable;
 import som.vmobjects.SSymbol;
 
 
@@ -38,6 +39,10 @@ public abstract class AbstractSymbolDispatch extends Node {
     return sourceSection;
   }
 
+  /**
+   * @param argsArr null for a unary selector, an SArray with the arguments,
+   *          or an Object[] with the receiver and the arguments
+   */
   public abstract Object executeDispatch(VirtualFrame frame, Object receiver,
       SSymbol selector, Object argsArr);
 
@@ -72,21 +77,21 @@ public abstract class AbstractSymbolDispatch extends Node {
     return realCachedSend.doPreEvaluated(frame, arguments);
   }
 
+  /** The arguments are passed on directly, including the receiver. */
+  @Specialization(limit = "INLINE_CACHE_SIZE", guards = "selector == cachedSelector")
+  public Object doCachedWithArguments(final VirtualFrame frame,
+      final Object receiver, final SSymbol selector, final Object[] arguments,
+      @Cached("selector") final SSymbol cachedSelector,
+      @Cached("createForPerformNodes(selector)") final AbstractMessageSendNode cachedSend) {
+    PreevaluatedExpression realCachedSend = cachedSend;
+    return realCachedSend.doPreEvaluated(frame, arguments);
+  }
+
   @Specialization(replaces = "doCachedWithoutArgArr", guards = "argsArr == null")
   public Object doUncached(final VirtualFrame frame,
       final Object receiver, final SSymbol selector, final Object argsArr,
       @Cached("create()") final IndirectCallNode call) {
-    DynamicObject invokable = SClass.lookupInvokable(Types.getClassOf(receiver), selector);
-
-    /*Todo: Analyze what is the best to do here with the Mate arguments*/
-    Object[] arguments = {receiver};
-    CallTarget target;
-    if (SArguments.getExecutionLevel(frame) == ExecutionLevel.Meta) {
-      target = InvokableLayoutImpl.INSTANCE.getCallTargetMeta(invokable);
-    } else {
-      target = InvokableLayoutImpl.INSTANCE.getCallTarget(invokable);
-    }
-    return call.call(target, SArguments.createSArguments(SArguments.getEnvironment(frame), ExecutionLevel.Base, arguments));
+    return dispatchUncached(frame, selector, new Object[] {receiver}, call);
   }
 
   @Specialization(replaces = "doCached")
@@ -94,15 +99,34 @@ public abstract class AbstractSymbolDispatch extends Node {
       final Object receiver, final SSymbol selector, final SArray argsArr,
       @Cached("create()") final IndirectCallNode call,
       @Cached("createArgArrayNode()") final ToArgumentsArrayNode toArgArray) {
-    DynamicObject invokable = SClass.lookupInvokable(Types.getClassOf(receiver), selector);
+    return dispatchUncached(frame, selector, toArgArray.executedEvaluated(argsArr, receiver), call);
+  }
 
-    Object[] arguments = toArgArray.executedEvaluated(argsArr, receiver);
-    CallTarget target;
-    if (SArguments.getExecutionLevel(frame) == ExecutionLevel.Meta) {
-      target = InvokableLayoutImpl.INSTANCE.getCallTargetMeta(invokable);
-    } else {
-      target = InvokableLayoutImpl.INSTANCE.getCallTarget(invokable);
+  @Specialization(replaces = "doCachedWithArguments")
+  public Object doUncachedWithArguments(final VirtualFrame frame,
+      final Object receiver, final SSymbol selector, final Object[] arguments,
+      @Cached("create()") final IndirectCallNode call) {
+    return dispatchUncached(frame, selector, arguments, call);
+  }
+
+  /**
+   * The method is invoked on the execution level of the caller, like a cached
+   * send. A selector the receiver does not understand goes to
+   * doesNotUnderstand:arguments:, like in {@link CachedDnuNode}.
+   */
+  private static Object dispatchUncached(final VirtualFrame frame, final SSymbol selector,
+      final Object[] arguments, final IndirectCallNode call) {
+    DynamicObject rcvrClass = Types.getClassOf(arguments[0]);
+    DynamicObject invokable = GlobalMethodCache.lookup(rcvrClass, selector);
+    DynamicObject environment = SArguments.getEnvironment(frame);
+    ExecutionLevel level = SArguments.getExecutionLevel(frame);
+    if (invokable == null) {
+      DynamicObject dnu = GlobalMethodCache.lookup(rcvrClass, Symbols.DNU);
+      return call.call(SInvokable.getCallTarget(dnu, level), new Object[] {
+          environment, level, arguments[0], selector,
+          SArguments.getArgumentsWithoutReceiver(arguments)});
     }
-    return call.call(target, SArguments.createSArguments(SArguments.getEnvironment(frame), ExecutionLevel.Base, arguments));
+    return call.call(SInvokable.getCallTarget(invokable, level),
+        SArguments.createSArguments(environment, level, arguments));
   }
 }
@@ -10,6 +10,7 @@ import som.interpreter.nodes.dispatch.DispatchChain;
 import som.interpreter.objectstorage.FieldAccessorNode;
 import som.interpreter.objectstorage.FieldAccessorNode.ReadFieldNode;
 import som.interpreter.objectstorage.FieldAccessorNode.WriteFieldNode;
+import som.interpreter.objectstorage.ObjectLayout;
 import som.vm.constants.Nil;
 
 
@@ -36,7 +37,7 @@ public abstract class IndexDispatch extends Node implements DispatchChain {
     }
 
     private IndexDispatch specialize(final int index, final boolean read) {
-      transferToInterpreterAndInvalidate("Initialize a dispatch node.");
+      transferToInterpreterAndInvalidate(this, "Initialize a dispatch node.");
 
       if (depth < INLINE_CACHE_SIZE) {
         IndexDispatch specialized;
@@ -159,11 +160,18 @@ public abstract class IndexDispatch extends Node implements DispatchChain {
     public Object executeDispatch(final DynamicObject obj, final int index) {
       /*The nil as default value is needed for the case when the object has not been still initialized.
         See ReadFieldNode when location == null*/
+      if (ObjectLayout.hasFixedLayout(obj)) {
+        return ObjectLayout.read(obj, index);
+      }
       return obj.get(index, Nil.nilObject);
     }
 
     @Override
     public Object executeDispatch(final DynamicObject obj, final int index, final Object value) {
+      if (ObjectLayout.hasFixedLayout(obj)) {
+        ObjectLayout.write(obj, index, value);
+        return value;
+      }
       obj.set(index, value);
       obj.define(index, value);
       return value;
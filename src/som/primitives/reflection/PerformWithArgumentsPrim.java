@@ -34,23 +34,22 @@ public abstract class PerformWithArgumentsPrim extends TernaryExpressionNode {
     return dispatch.executeDispatch(frame, receiver, selector, argsArr);
   }
 
-  /*Todo: Remove the conversion to SArray and then conversion to normal array in the dispatch if a performance problem emerges*/
   @Specialization
   public final Object doObject(final VirtualFrame frame,
       final Object receiver, final SSymbol selector, final long arg) {
-    return dispatch.executeDispatch(frame, receiver, selector, SArray.create(new Object[]{arg}));
+    return dispatch.executeDispatch(frame, receiver, selector, new Object[] {receiver, arg});
   }
 
   @Specialization
   public final Object doObject(final VirtualFrame frame,
       final Object receiver, final SSymbol selector, final double arg) {
-    return dispatch.executeDispatch(frame, receiver, selector, SArray.create(new Object[]{arg}));
+    return dispatch.executeDispatch(frame, receiver, selector, new Object[] {receiver, arg});
   }
 
   @Specialization
   public final Object doObject(final VirtualFrame frame,
       final Object receiver, final SSymbol selector, final DynamicObject arg) {
-    return dispatch.executeDispatch(frame, receiver, selector, SArray.create(new Object[]{arg}));
+    return dispatch.executeDispatch(frame, receiver, selector, new Object[] {receiver, arg});
   }
 
   @Override
@@ -0,0 +1,73 @@
+package som.primitives.reflection;
+
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.NodeCost;
+import com.oracle.truffle.api.source.SourceSection;
+
+import bd.primitives.Primitive;
+import som.interpreter.nodes.nary.QuaternaryExpressionNode;
+import som.interpreter.nodes.nary.TernaryExpressionNode;
+import som.vmobjects.SSymbol;
+
+
+/**
+ * perform:with: and perform:with:with: pass their arguments to the dispatch
+ * directly, without an intermediate SArray.
+ */
+public final class PerformWithPrims {
+
+  @GenerateNodeFactory
+  @Primitive(className = "Object", primitive = "perform:with:", selector = "perform:with:")
+  public abstract static class PerformWithOnePrim extends TernaryExpressionNode {
+    @Child protected AbstractSymbolDispatch dispatch;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public PerformWithOnePrim initialize(final SourceSection sourceSection) {
+      assert sourceSection != null;
+      super.initialize(sourceSection);
+      dispatch = AbstractSymbolDispatchNodeGen.create(sourceSection);
+      return this;
+    }
+
+    @Specialization
+    public final Object doObject(final VirtualFrame frame,
+        final Object receiver, final SSymbol selector, final Object arg) {
+      return dispatch.executeDispatch(frame, receiver, selector, new Object[] {receiver, arg});
+    }
+
+    @Override
+    public NodeCost getCost() {
+      return dispatch.getCost();
+    }
+  }
+
+  @GenerateNodeFactory
+  @Primitive(className = "Object", primitive = "perform:with:with:", selector = "perform:with:with:")
+  public abstract static class PerformWithTwoPrim extends QuaternaryExpressionNode {
+    @Child protected AbstractSymbolDispatch dispatch;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public PerformWithTwoPrim initialize(final SourceSection sourceSection) {
+      assert sourceSection != null;
+      super.initialize(sourceSection);
+      dispatch = AbstractSymbolDispatchNodeGen.create(sourceSection);
+      return this;
+    }
+
+    @Specialization
+    public final Object doObject(final VirtualFrame frame,
+        final Object receiver, final SSymbol selector, final Object arg1, final Object arg2) {
+      return dispatch.executeDispatch(frame, receiver, selector,
+          new Object[] {receiver, arg1, arg2});
+    }
+
+    @Override
+    public NodeCost getCost() {
+      return dispatch.getCost();
+    }
+  }
+}
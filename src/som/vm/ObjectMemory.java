@@ -36,6 +36,7 @@ import com.oracle.truffle.api.source.Source;
 import som.compiler.Disassembler;
 import som.compiler.Parser.ParseError;
 import som.compiler.SourcecodeCompiler;
+import som.interpreter.objectstorage.InstanceShapes;
 import som.primitives.Primitives;
 import som.vm.constants.Globals;
 import som.vm.constants.Nil;
@@ -282,8 +283,8 @@ public class ObjectMemory {
 
   public DynamicObject newObject(final DynamicObject instanceClass) {
     CompilerAsserts.neverPartOfCompilation("Basic create without factory caching");
-    DynamicObjectFactory factory = SClass.getFactory(instanceClass);
-    return factory.newInstance(layoutClass.buildArguments());
+    DynamicObjectFactory factory = InstanceShapes.getFactory(instanceClass);
+    return factory.newInstance(InstanceShapes.getArguments(factory, layoutClass));
   }
 
   public DynamicObject getTrueObject()   { return trueObject; }
@@ -294,4 +295,6 @@ public class ObjectMemory {
   public DynamicObject getSystemClass() { return systemClass; }
 
   public Primitives getPrimitives() { return primitives; }
+
+  public SourcecodeCompiler getCompiler() { return compiler; }
 }
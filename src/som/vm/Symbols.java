@@ -12,15 +12,15 @@ public final class Symbols implements IdProvider<SSymbol> {
 
   @TruffleBoundary
   public static SSymbol symbolFor(final String string) {
-    String interned = string.intern();
-
-    SSymbol result = symbolTable.get(interned);
+    SSymbol result = symbolTable.get(string);
     if (result != null) {
       return result;
     }
 
+    // only new symbols need to be interned
+    String interned = string.intern();
     result = new SSymbol(interned);
-    symbolTable.put(string, result);
+    symbolTable.put(interned, result);
     return result;
   }
 
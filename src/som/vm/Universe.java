@@ -63,6 +63,7 @@ import som.VMOptions;
 import som.VmSettings;
 import som.compiler.Parser.ParseError;
 import som.compiler.SourcecodeCompiler;
+import som.interpreter.DeoptTracer;
 import som.interpreter.Invokable;
 import som.interpreter.MateifyVisitor;
 import som.interpreter.NodeVisitorUtil;
@@ -72,6 +73,7 @@ import som.interpreter.TruffleCompiler;
 import som.interpreter.nodes.AbstractMessageSpecializationsFactory;
 import som.interpreter.nodes.ExpressionNode;
 import som.interpreter.nodes.MateMessageSpecializationsFactory;
+import som.interpreter.objectstorage.ObjectLayout;
 import som.primitives.Primitives;
 import som.vm.constants.ExecutionLevel;
 import som.vm.constants.MateClasses;
@@ -93,6 +95,7 @@ import som.vmobjects.SReflectiveObjectLayoutImpl.SReflectiveObjectType;
 import som.vmobjects.SSymbol;
 import tools.debugger.Tags;
 import tools.language.StructuralProbe;
+import tools.profiler.SamplingProfiler;
 
 public class Universe {
   final Env env;
@@ -144,11 +147,11 @@ public class Universe {
   private void initializeIntruments() {
     Map<String, InstrumentInfo> instruments = env.getInstruments();
 
-    InstrumentInfo profilerInfo = instruments.get("profiler");
+    InstrumentInfo profilerInfo = instruments.get(SamplingProfiler.ID);
     if (options.profilingEnabled && profilerInfo  == null) {
-      errorPrintln("Truffle profiler not available. Might be a class path issue");
-    } else if (profilerInfo != null) {
-      // profiler.setEnabled(vmOptions.profilingEnabled);
+      errorPrintln("Sampling profiler not available. Might be a class path issue");
+    } else if (options.profilingEnabled) {
+      env.lookup(profilerInfo, SamplingProfiler.class).startSampling();
     }
 
     if (options.dynamicMetricsEnabled) {
@@ -397,6 +400,8 @@ public class Universe {
     if (vmReflectionEnabled()) {
       // return new SReflectiveObjectEnvInObj();
       return new SReflectiveObject();
+    } else if (VmSettings.FIXED_OBJECT_LAYOUTS) {
+      return new ObjectLayout.ArgumentsBuilder();
     } else {
       return new SObject();
     }
@@ -426,6 +431,8 @@ public class Universe {
     if (options.vmReflectionEnabled) {
       return SReflectiveObject.createObjectShapeFactoryForClass(clazz);
       // return SReflectiveObjectEnvInObj.createObjectShapeFactoryForClass(clazz);
+    } else if (VmSettings.FIXED_OBJECT_LAYOUTS) {
+      return ObjectLayout.createFactory(SObject.createObjectShapeFactoryForClass(clazz));
     } else {
       return SObject.createObjectShapeFactoryForClass(clazz);
    }
@@ -439,6 +446,10 @@ public class Universe {
     return options.envInObject;
   }
 
+  public boolean splicedIH() {
+    return options.splicedIH;
+  }
+
   public boolean printAST() {
     return options.printAST;
   }
@@ -491,6 +502,9 @@ public class Universe {
   public void activatedMate() {
     if (this.getMateDeactivatedAssumption().isValid()) {
       this.getMateDeactivatedAssumption().invalidate();
+      if (VmSettings.TRACE_DEOPT) {
+        DeoptTracer.invalidation("mate deactivated", "mate activated");
+      }
     }
     if (mateActivated == null || !this.getMateActivatedAssumption().isValid()) {
       mateActivated = this.getTruffleRuntime().createAssumption();
@@ -499,11 +513,17 @@ public class Universe {
 
   public void unoptimizedIH() {
     optimizedIH.invalidate();
+    if (VmSettings.TRACE_DEOPT) {
+      DeoptTracer.invalidation("optimized IH", "unoptimizedIH");
+    }
   }
 
   public void deactivateMate() {
     if (this.getMateActivatedAssumption().isValid()) {
       this.getMateActivatedAssumption().invalidate();
+      if (VmSettings.TRACE_DEOPT) {
+        DeoptTracer.invalidation("mate activated", "mate deactivated");
+      }
     }
     mateDeactivated = this.getTruffleRuntime().createAssumption();
   }
@@ -559,6 +579,9 @@ public class Universe {
     } else {
       globalSemanticsDeactivated.invalidate();
     }
+    if (VmSettings.TRACE_DEOPT) {
+      DeoptTracer.invalidation("global semantics", "global environment changed");
+    }
     if (environment == Nil.nilObject) {
       globalSemanticsDeactivated = Truffle.getRuntime().createAssumption();
     } else {
@@ -44,6 +44,13 @@ public abstract class SAbstractObject implements TruffleObject {
     return send("unknownGlobal:", arguments, environment, exLevel);
   }
 
+  /** Sends error: to the receiver, for errors of primitives in SOM code. */
+  public static final Object sendError(final Object receiver, final String message,
+      final DynamicObject environment, final ExecutionLevel exLevel) {
+    Object[] arguments = {receiver, message};
+    return send("error:", arguments, environment, exLevel);
+  }
+
   public static final Object sendEscapedBlock(final Object receiver,
       final SBlock block) {
     Object[] arguments = {receiver, block};
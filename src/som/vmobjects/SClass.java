@@ -25,15 +25,23 @@
 package som.vmobjects;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
 
+import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.DynamicObjectFactory;
 import com.oracle.truffle.api.object.ObjectType;
 import com.oracle.truffle.api.object.dsl.Layout;
 import com.oracle.truffle.api.profiles.ValueProfile;
 
+import som.interpreter.nodes.dispatch.GlobalMethodCache;
+import som.vm.PureLookupCache;
 import som.vm.Universe;
 import som.vm.constants.ExecutionLevel;
 import som.vm.constants.Nil;
@@ -212,6 +220,8 @@ public final class SClass {
     if (invokablesTable.containsKey(SInvokable.getSignature(value))) {
       invokablesTable.put(SInvokable.getSignature(value), value);
     }
+    PureLookupCache.invalidate();
+    GlobalMethodCache.invalidate(classObj);
   }
 
   @SuppressWarnings("unchecked")
@@ -289,7 +299,42 @@ public final class SClass {
     return true;
   }
 
+  private static final Map<DynamicObject, Assumption> superclassesUnchanged =
+      new WeakHashMap<>();
+
+  /**
+   * Valid until the superclass of the class, or of one of its superclasses,
+   * is replaced, for caching {@link #isKindOf}.
+   */
+  @TruffleBoundary
+  public static Assumption getSuperclassesAssumption(final DynamicObject classObj) {
+    synchronized (superclassesUnchanged) {
+      Assumption assumption = superclassesUnchanged.get(classObj);
+      if (assumption == null) {
+        assumption = Truffle.getRuntime().createAssumption("superclasses unchanged");
+        superclassesUnchanged.put(classObj, assumption);
+      }
+      return assumption;
+    }
+  }
+
+  private static void invalidateSuperclassesAssumptions(final DynamicObject classObj) {
+    synchronized (superclassesUnchanged) {
+      Iterator<Entry<DynamicObject, Assumption>> i = superclassesUnchanged.entrySet().iterator();
+      while (i.hasNext()) {
+        Entry<DynamicObject, Assumption> entry = i.next();
+        if (isKindOf(entry.getKey(), classObj)) {
+          entry.getValue().invalidate();
+          i.remove();
+        }
+      }
+    }
+  }
+
   public static void setSuperclass(final DynamicObject classObj, final DynamicObject klass) {
+    PureLookupCache.invalidate();
+    GlobalMethodCache.invalidate(classObj);
+    invalidateSuperclassesAssumptions(classObj);
     if (Universe.getCurrent().environmentInObect()) {
       SClassEnvInObjectLayoutImpl.INSTANCE.setSuperclassUnsafe(classObj, klass);
     } else {
@@ -306,6 +351,8 @@ public final class SClass {
   }
 
   public static void setInstanceInvokables(final DynamicObject classObj, final SArray value) {
+    PureLookupCache.invalidate();
+    GlobalMethodCache.invalidate(classObj);
     if (Universe.getCurrent().environmentInObect()) {
       SClassEnvInObjectLayoutImpl.INSTANCE.setInstanceInvokablesUnsafe(classObj, value);
     } else {
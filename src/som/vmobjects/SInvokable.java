@@ -164,6 +164,7 @@ public class SInvokable {
     @Layout
     public interface MethodLayout extends InvokableLayout {
       DynamicObject[] getEmbeddedBlocks(DynamicObject object);
+      void setEmbeddedBlocksUnsafe(DynamicObject object, DynamicObject[] value);
       DynamicObject createMethod(DynamicObjectFactory factory, SSymbol signature, Invokable invokable,
           RootCallTarget callTarget, Invokable invokableMeta, RootCallTarget callTargetMeta, DynamicObject holder, DynamicObject[] embeddedBlocks);
       DynamicObjectFactory createMethodShape(DynamicObject klass, DynamicObject environment);
@@ -174,6 +175,7 @@ public class SInvokable {
     @Layout
     public interface MethodEnvInObjectLayout extends InvokableEnvInObjectLayout {
       DynamicObject[] getEmbeddedBlocks(DynamicObject object);
+      void setEmbeddedBlocksUnsafe(DynamicObject object, DynamicObject[] value);
       DynamicObject createMethodEnvInObject(DynamicObjectFactory factory, DynamicObject environment, SSymbol signature, Invokable invokable,
           RootCallTarget callTarget, Invokable invokableMeta, RootCallTarget callTargetMeta, DynamicObject holder, DynamicObject[] embeddedBlocks);
       DynamicObjectFactory createMethodEnvInObjectShape(DynamicObject klass);
@@ -212,6 +214,21 @@ public class SInvokable {
       }
     }
 
+    public static DynamicObject[] getEmbeddedBlocks(final DynamicObject invokable) {
+      return Universe.getCurrent().environmentInObect() ?
+          MethodEnvInObjectLayoutImpl.INSTANCE.getEmbeddedBlocks(invokable) :
+          MethodLayoutImpl.INSTANCE.getEmbeddedBlocks(invokable);
+    }
+
+    /** Only for methods whose body is parsed lazily, see {@link som.compiler.LazyMethodBody}. */
+    public static void setEmbeddedBlocks(final DynamicObject invokable, final DynamicObject[] value) {
+      if (Universe.getCurrent().environmentInObect()) {
+        MethodEnvInObjectLayoutImpl.INSTANCE.setEmbeddedBlocksUnsafe(invokable, value);
+      } else {
+        MethodLayoutImpl.INSTANCE.setEmbeddedBlocksUnsafe(invokable, value);
+      }
+    }
+
     public static boolean isSMethod(final DynamicObject obj) {
       return Universe.getCurrent().environmentInObect() ?
           MethodEnvInObjectLayoutImpl.INSTANCE.isMethodEnvInObject(obj) :
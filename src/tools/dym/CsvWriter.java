@@ -5,7 +5,7 @@ import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 
 
-public class CsvWriter implements AutoCloseable {
+public class CsvWriter implements MetricsTable {
 
   private final PrintWriter writer;
   private final String[] columns;
@@ -24,6 +24,7 @@ public class CsvWriter implements AutoCloseable {
     write((Object[]) columns);
   }
 
+  @Override
   public void write(final Object... columns) {
     if (columns.length != this.columns.length) {
       throw new IllegalArgumentException(
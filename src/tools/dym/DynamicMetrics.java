@@ -6,9 +6,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.instrumentation.EventContext;
@@ -68,6 +71,7 @@ import tools.dym.nodes.ReadProfilingNode;
 import tools.dym.nodes.ReportReceiverNode;
 import tools.dym.nodes.ReportResultNode;
 import tools.dym.profiles.AllocationProfile;
+import tools.dym.profiles.AllocationSampler;
 import tools.dym.profiles.ArrayCreationProfile;
 import tools.dym.profiles.BranchProfile;
 import tools.dym.profiles.CallsiteProfile;
@@ -84,8 +88,22 @@ import tools.language.StructuralProbe;
  * DynamicMetric is a Truffle instrumentation tool to measure a wide range of
  * dynamic metrics to characterize the behavior of executing code.
  *
+ * With -Ddm.stream=FILE, the metrics are also exported periodically while
+ * the program runs (see {@link MetricsStreamWriter}).
+ *
+ * With -Ddm.memory=true, it also estimates the bytes allocated per site,
+ * class, and array strategy, and samples allocations to find the allocating
+ * call paths and the lifetime of objects (see
+ * {@link tools.dym.profiles.AllocationSampler}).
+ *
+ * Counters are thread-safe. With -Ddm.sampling=N, they only update their
+ * shared state every N-th event, and the profiles of argument and value
+ * types only record every N-th event, which keeps the contention and the
+ * overhead low enough to also run larger programs (see
+ * {@link tools.dym.profiles.SampledCounter}). Counts are then exact, while
+ * the types are a sample.
+ *
  * WARNING:
- *   - designed for single-threaded use only
  *   - designed for use in interpreted mode only
  */
 
@@ -103,8 +121,8 @@ public class DynamicMetrics extends TruffleInstrument {
 
   public static final String ID = "dym-dynamic-metrics";
 
-  private int methodStackDepth;
-  private int maxStackDepth;
+  private final ThreadLocal<int[]> methodStackDepth;
+  private final AtomicInteger maxStackDepth;
 
   private final Map<SourceSection, InvocationProfile>    methodInvocationCounter;
   private final Map<SourceSection, CallsiteProfile>      methodCallsiteProfiles;
@@ -128,6 +146,11 @@ public class DynamicMetrics extends TruffleInstrument {
 
   private final Set<RootNode> rootNodes;
 
+  private MetricsStreamWriter streamWriter;
+
+  /** Null, unless the memory profile is requested with -Ddm.memory=true. */
+  private final AllocationSampler allocationSampler;
+
   @CompilationFinal private static Instrumenter instrumenter; // TODO: this is one of those evil hacks
 
   public static boolean isTaggedWith(final Node node, final Class<?> tag) {
@@ -138,40 +161,49 @@ public class DynamicMetrics extends TruffleInstrument {
   public DynamicMetrics() {
     structuralProbe = new StructuralProbe();
 
-    methodInvocationCounter = new HashMap<>();
-    methodCallsiteProfiles  = new HashMap<>();
-    closureProfiles         = new HashMap<>();
-    operationProfiles       = new HashMap<>();
+    methodInvocationCounter = new ConcurrentHashMap<>();
+    methodCallsiteProfiles  = new ConcurrentHashMap<>();
+    closureProfiles         = new ConcurrentHashMap<>();
+    operationProfiles       = new ConcurrentHashMap<>();
+
+    newObjectCounter        = new ConcurrentHashMap<>();
+    newArrayCounter         = new ConcurrentHashMap<>();
+
+    controlFlowProfiles     = new ConcurrentHashMap<>();
+    loopProfiles            = new ConcurrentHashMap<>();
 
-    newObjectCounter        = new HashMap<>();
-    newArrayCounter         = new HashMap<>();
+    fieldReadProfiles       = new ConcurrentHashMap<>();
+    fieldWriteProfiles      = new ConcurrentHashMap<>();
+    classReadProfiles       = new ConcurrentHashMap<>();
+    literalReadCounter      = new ConcurrentHashMap<>();
+    localsReadProfiles      = new ConcurrentHashMap<>();
+    localsWriteProfiles     = new ConcurrentHashMap<>();
 
-    controlFlowProfiles     = new HashMap<>();
-    loopProfiles            = new HashMap<>();
+    rootNodes = ConcurrentHashMap.newKeySet();
 
-    fieldReadProfiles       = new HashMap<>();
-    fieldWriteProfiles      = new HashMap<>();
-    classReadProfiles       = new HashMap<>();
-    literalReadCounter      = new HashMap<>();
-    localsReadProfiles      = new HashMap<>();
-    localsWriteProfiles     = new HashMap<>();
+    allocationSampler = Boolean.getBoolean("dm.memory") ? new AllocationSampler() : null;
 
-    rootNodes = new HashSet<>();
+    methodStackDepth = ThreadLocal.withInitial(() -> new int[1]);
+    maxStackDepth    = new AtomicInteger();
 
     assert "DefaultTruffleRuntime".equals(
         Truffle.getRuntime().getClass().getSimpleName())
         : "To get metrics for the lexical, unoptimized behavior, please run this tool without Graal";
   }
 
+  @TruffleBoundary
   public void enterMethod() {
-    methodStackDepth += 1;
-    maxStackDepth = Math.max(methodStackDepth, maxStackDepth);
-    assert methodStackDepth > 0;
+    int[] depth = methodStackDepth.get();
+    depth[0] += 1;
+    maxStackDepth.accumulateAndGet(depth[0], Math::max);
+    assert depth[0] > 0;
   }
 
+  @TruffleBoundary
   public void leaveMethod() {
-    methodStackDepth -= 1;
-    assert methodStackDepth >= 0;
+    int[] depth = methodStackDepth.get();
+    depth[0] -= 1;
+    assert depth[0] >= 0;
   }
 
   private <N extends ExecutionEventNode, PRO extends Counter>
@@ -347,10 +379,12 @@ public class DynamicMetrics extends TruffleInstrument {
 
     addInstrumentation(instrumenter, newObjectCounter,
         new Class<?>[] {NewObject.class}, NO_TAGS,
-        AllocationProfile::new, AllocationProfilingNode::new);
+        AllocationProfile::new,
+        p -> new AllocationProfilingNode(p, allocationSampler));
     addInstrumentation(instrumenter, newArrayCounter,
         new Class<?>[] {NewArray.class}, NO_TAGS,
-        ArrayCreationProfile::new, ArrayAllocationProfilingNode::new);
+        ArrayCreationProfile::new,
+        p -> new ArrayAllocationProfilingNode(p, allocationSampler));
 
     addInstrumentation(instrumenter, literalReadCounter,
         new Class<?>[] {LiteralTag.class}, NO_TAGS,
@@ -393,6 +427,13 @@ public class DynamicMetrics extends TruffleInstrument {
         true);
 
     env.registerService(structuralProbe);
+
+    String streamFile = System.getProperty("dm.stream");
+    if (streamFile != null) {
+      streamWriter = new MetricsStreamWriter(streamFile,
+          Long.getLong("dm.stream.interval", 1000), this::writeTables);
+      streamWriter.start();
+    }
   }
 
   private void addLoopBodyInstrumentation(
@@ -420,11 +461,20 @@ public class DynamicMetrics extends TruffleInstrument {
 
     String metricsFolder = System.getProperty("dm.metrics", "metrics");
     MetricsCsvWriter.fileOut(data, metricsFolder, structuralProbe,
-        maxStackDepth, getAllStatementsAlsoNotExecuted());
+        maxStackDepth.get(), getAllStatementsAlsoNotExecuted(), allocationSampler);
+
+    if (streamWriter != null) {
+      streamWriter.stop();
+    }
 
     // outputAllTruffleMethodsToIGV();
   }
 
+  private void writeTables(final MetricsTable.Factory tables) {
+    MetricsCsvWriter.writeTables(collectData(), tables, structuralProbe,
+        maxStackDepth.get(), getAllStatementsAlsoNotExecuted(), allocationSampler);
+  }
+
   private List<SourceSection> getAllStatementsAlsoNotExecuted() {
     List<SourceSection> allSourceSections = new ArrayList<>();
 
@@ -0,0 +1,203 @@
+package tools.dym;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+
+
+/**
+ * Turns the records written by the {@link MetricsStreamWriter} into the CSV
+ * files of the {@link MetricsCsvWriter}.
+ *
+ * Usage: MetricsAggregator stream-file metrics-folder
+ *
+ * An incomplete last line, as left by a crashed run, is ignored.
+ */
+public final class MetricsAggregator {
+
+  private final Map<String, Table> tables = new LinkedHashMap<>();
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: MetricsAggregator stream-file metrics-folder");
+      System.exit(1);
+    }
+
+    MetricsAggregator aggregator = new MetricsAggregator();
+    aggregator.read(args[0]);
+    aggregator.writeCsvFiles(args[1]);
+  }
+
+  private void read(final String fileName) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        JsonObject record;
+        try {
+          record = Json.parse(line).asObject();
+        } catch (RuntimeException e) {
+          continue;
+        }
+        process(record);
+      }
+    }
+  }
+
+  private void process(final JsonObject record) {
+    String type = record.getString("type", "");
+    if (type.equals("export")) {
+      return;
+    }
+
+    String tableName = record.getString("table", null);
+    if (type.equals("table")) {
+      tables.put(tableName, new Table(
+          record.getString("kinds", ""), toStrings(record.get("columns").asArray())));
+      return;
+    }
+
+    Table table = tables.get(tableName);
+    String id = record.getString("id", null);
+    switch (type) {
+      case "add":
+        JsonValue after = record.get("after");
+        table.add(id, after.isNull() ? null : after.asString(),
+            toJava(record.get("values").asArray()));
+        break;
+      case "update":
+        table.update(id, toJava(record.get("values").asArray()));
+        break;
+      case "remove":
+        table.remove(id);
+        break;
+      case "order":
+        table.reorder(toStrings(record.get("ids").asArray()));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown record type: " + type);
+    }
+  }
+
+  private static Object[] toJava(final JsonArray values) {
+    Object[] result = new Object[values.size()];
+    for (int i = 0; i < result.length; i++) {
+      JsonValue v = values.get(i);
+      result[i] = v.isNumber() ? (Object) v.asLong() : v.asString();
+    }
+    return result;
+  }
+
+  private static String[] toStrings(final JsonArray values) {
+    String[] result = new String[values.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = values.get(i).asString();
+    }
+    return result;
+  }
+
+  private void writeCsvFiles(final String metricsFolder) {
+    new File(metricsFolder).mkdirs();
+
+    for (Map.Entry<String, Table> e : tables.entrySet()) {
+      Table t = e.getValue();
+      try (CsvWriter file = new CsvWriter(metricsFolder, e.getKey(), t.columns)) {
+        for (Row row = t.first; row != null; row = row.next) {
+          file.write(row.values);
+        }
+      }
+    }
+  }
+
+  private static final class Row {
+    private final String id;
+    private Object[] values;
+    private Row prev;
+    private Row next;
+
+    Row(final String id, final Object[] values) {
+      this.id     = id;
+      this.values = values;
+    }
+  }
+
+  /**
+   * Rows are linked in table order and indexed by id, so that adding a row
+   * after another one, and removing one, do not search the table.
+   */
+  private static final class Table {
+    private final String kinds;
+    private final String[] columns;
+    private final Map<String, Row> rows;
+    private Row first;
+    private Row last;
+
+    Table(final String kinds, final String[] columns) {
+      this.kinds   = kinds;
+      this.columns = columns;
+      this.rows    = new HashMap<>();
+    }
+
+    void add(final String id, final String after, final Object[] values) {
+      Row row = new Row(id, values);
+      rows.put(id, row);
+      insertAfter(after == null ? null : rows.get(after), row);
+    }
+
+    private void insertAfter(final Row prev, final Row row) {
+      row.prev = prev;
+      row.next = prev == null ? first : prev.next;
+      if (row.next == null) {
+        last = row;
+      } else {
+        row.next.prev = row;
+      }
+      if (prev == null) {
+        first = row;
+      } else {
+        prev.next = row;
+      }
+    }
+
+    void update(final String id, final Object[] changes) {
+      Object[] values = rows.get(id).values;
+      for (int i = 0; i < values.length; i++) {
+        if (MetricsStreamWriter.isCounter(kinds, i, values[i], changes[i])) {
+          values[i] = (Long) values[i] + (Long) changes[i];
+        } else {
+          values[i] = changes[i];
+        }
+      }
+    }
+
+    void remove(final String id) {
+      Row row = rows.remove(id);
+      if (row.prev == null) {
+        first = row.next;
+      } else {
+        row.prev.next = row.next;
+      }
+      if (row.next == null) {
+        last = row.prev;
+      } else {
+        row.next.prev = row.prev;
+      }
+    }
+
+    void reorder(final String[] ids) {
+      first = null;
+      last  = null;
+      for (String id : ids) {
+        insertAfter(last, rows.get(id));
+      }
+    }
+  }
+}
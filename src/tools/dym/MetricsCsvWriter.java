@@ -19,6 +19,7 @@ import com.oracle.truffle.api.source.SourceSection;
 
 import som.interpreter.Invokable;
 import som.vm.NotYetImplementedException;
+import som.vmobjects.SArray.ArrayType;
 import som.vmobjects.SClass;
 import som.vmobjects.SInvokable;
 import som.vmobjects.SSymbol;
@@ -30,6 +31,8 @@ import tools.dym.Tags.OpComparison;
 import tools.dym.Tags.OpLength;
 import tools.dym.Tags.StringAccess;
 import tools.dym.profiles.AllocationProfile;
+import tools.dym.profiles.AllocationSampler;
+import tools.dym.profiles.AllocationSampler.SiteLifetimes;
 import tools.dym.profiles.Arguments;
 import tools.dym.profiles.ArrayCreationProfile;
 import tools.dym.profiles.BranchProfile;
@@ -46,34 +49,50 @@ import tools.language.StructuralProbe;
 public final class MetricsCsvWriter {
 
   private final Map<String, Map<SourceSection, ? extends JsonSerializable>> data;
-  private final String metricsFolder;
+  private final MetricsTable.Factory tables;
   private final StructuralProbe structuralProbe; // TODO: not sure, we should probably not depend on the probe here
   private final int maxStackHeight;
   private final List<SourceSection> allStatements;
+  private final AllocationSampler allocationSampler;
 
   private MetricsCsvWriter(
       final Map<String, Map<SourceSection, ? extends JsonSerializable>> data,
-      final String metricsFolder, final StructuralProbe probe,
-      final int maxStackHeight, final List<SourceSection> allStatements) {
+      final MetricsTable.Factory tables, final StructuralProbe probe,
+      final int maxStackHeight, final List<SourceSection> allStatements,
+      final AllocationSampler allocationSampler) {
     this.data          = data;
-    this.metricsFolder = metricsFolder;
+    this.tables        = tables;
     this.structuralProbe = probe;
     this.maxStackHeight = maxStackHeight;
     this.allStatements  = allStatements;
+    this.allocationSampler = allocationSampler;
   }
 
   public static void fileOut(
       final Map<String, Map<SourceSection, ? extends JsonSerializable>> data,
       final String metricsFolder,
       final StructuralProbe structuralProbe, // TODO: remove direct StructuralProbe passing hack
-      final int maxStackHeight, final List<SourceSection> allStatements) {
-    new MetricsCsvWriter(data, metricsFolder, structuralProbe, maxStackHeight,
-        allStatements).createCsvFiles();
+      final int maxStackHeight, final List<SourceSection> allStatements,
+      final AllocationSampler allocationSampler) {
+    new File(metricsFolder).mkdirs();
+    writeTables(data, (name, kinds, columns) -> new CsvWriter(metricsFolder, name, columns),
+        structuralProbe, maxStackHeight, allStatements, allocationSampler);
   }
 
-  private void createCsvFiles() {
-    new File(metricsFolder).mkdirs();
+  /**
+   * @param allocationSampler null, unless the memory profile was requested
+   */
+  public static void writeTables(
+      final Map<String, Map<SourceSection, ? extends JsonSerializable>> data,
+      final MetricsTable.Factory tables,
+      final StructuralProbe structuralProbe,
+      final int maxStackHeight, final List<SourceSection> allStatements,
+      final AllocationSampler allocationSampler) {
+    new MetricsCsvWriter(data, tables, structuralProbe, maxStackHeight,
+        allStatements, allocationSampler).createTables();
+  }
 
+  private void createTables() {
     methodActivations();
     methodCallsites();
     closureApplications();
@@ -86,6 +105,12 @@ public final class MetricsCsvWriter {
     branchProfiles();
     operationProfiles();
     loopProfiles();
+
+    if (allocationSampler != null) {
+      allocatedBytes();
+      allocationLifetimes();
+      allocationPaths();
+    }
   }
 
   private static void processCoverage(final long counterVal,
@@ -174,7 +199,7 @@ public final class MetricsCsvWriter {
     CovStats stats = getCoverageStats(getCoverageMap());
 
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "general-stats.csv",
+    try (MetricsTable file = tables.open("general-stats.csv", "kv",
         "Statistic", "Value")) {
       file.write("Max Stack Height", maxStackHeight);
       file.write("Lines Loaded",          stats.linesLoaded);
@@ -276,12 +301,12 @@ public final class MetricsCsvWriter {
   private void operationProfiles() {
     @SuppressWarnings("unchecked")
     Map<SourceSection, OperationProfile> ops = (Map<SourceSection, OperationProfile>) data.get(JsonWriter.OPERATIONS);
-    try (CsvWriter file = new CsvWriter(metricsFolder, "operations.csv",
+    try (MetricsTable file = tables.open("operations.csv", "kkkkc",
         "Source Section", "Operation", "Category", "Type", "Invocations")) {
 
       for (Entry<SourceSection, OperationProfile> e : sortSS(ops)) {
-        for (Entry<Arguments, Integer> a : sortArg(e.getValue().getArgumentTypes())) {
-          file.write(
+        for (Entry<Arguments, Long> a : sortArg(e.getValue().getArgumentTypes())) {
+          file.writeDistinct(a.getKey(),
               getSourceSectionAbbrv(e.getKey()),
               e.getValue().getOperation(),
               String.join(" ", toNameArray(e.getValue().getTags())),
@@ -303,10 +328,10 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, InvocationProfile> profiles = (Map<SourceSection, InvocationProfile>) data.get(JsonWriter.METHOD_INVOCATION_PROFILE);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "method-activations.csv",
+    try (MetricsTable file = tables.open("method-activations.csv", "kc",
         "Source Identifier", "Activation Count")) {
       for (Entry<SourceSection, InvocationProfile> e : sortSS(profiles)) {
-        file.write(
+        file.writeDistinct(getSourceSectionAbbrv(e.getKey()),
             e.getValue().getMethod().getRootNode().getName(),
             e.getValue().getValue());
       }
@@ -317,7 +342,7 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, CallsiteProfile> profiles = (Map<SourceSection, CallsiteProfile>) data.get(JsonWriter.METHOD_CALLSITE);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "method-callsites.csv",
+    try (MetricsTable file = tables.open("method-callsites.csv", "kcvv",
         "Source Section", "Call Count", "Num Rcvrs", "Num Targets")) {
       for (Entry<SourceSection, CallsiteProfile> e : sortSS(profiles)) {
         CallsiteProfile p = e.getValue();
@@ -329,10 +354,10 @@ public final class MetricsCsvWriter {
 
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
 
-        Map<DynamicObject, Integer> receivers = p.getReceivers();
-//      int numRcvrsRecorded = receivers.values().stream().reduce(0, Integer::sum);
-        Map<Invokable, Integer> calltargets = p.getCallTargets();
-//      int numCalltargetsInvoked = calltargets.values().stream().reduce(0, Integer::sum);
+        Map<DynamicObject, Long> receivers = p.getReceivers();
+//      long numRcvrsRecorded = receivers.values().stream().reduce(0L, Long::sum);
+        Map<Invokable, Long> calltargets = p.getCallTargets();
+//      long numCalltargetsInvoked = calltargets.values().stream().reduce(0L, Long::sum);
 
         file.write(
             abbrv,
@@ -347,12 +372,12 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, ClosureApplicationProfile> profiles = (Map<SourceSection, ClosureApplicationProfile>) data.get(JsonWriter.CLOSURE_APPLICATIONS);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "closure-applications.csv",
+    try (MetricsTable file = tables.open("closure-applications.csv", "kcv",
         "Source Section", "Call Count", "Num Targets")) {
       for (Entry<SourceSection, ClosureApplicationProfile> e : sortSS(profiles)) {
         ClosureApplicationProfile p = e.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        Map<Invokable, Integer> calltargets = p.getCallTargets();
+        Map<Invokable, Long> calltargets = p.getCallTargets();
 
         file.write(abbrv, p.getValue(), calltargets.values().size());
       }
@@ -363,13 +388,13 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, AllocationProfile> profiles = (Map<SourceSection, AllocationProfile>) data.get(JsonWriter.NEW_OBJECT_COUNT);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "new-objects.csv",
+    try (MetricsTable file = tables.open("new-objects.csv", "kcvk",
         "Source Section", "New Objects", "Number of Fields", "Class")) {
       for (Entry<SourceSection, AllocationProfile> ee : sortSS(profiles)) {
         AllocationProfile p = ee.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
         final ValueProfile storageType = ValueProfile.createClassProfile();
-        for (Entry<DynamicObject, Integer> e : sortCF(p.getAllocations())) {
+        for (Entry<DynamicObject, Long> e : sortCF(p.getAllocations())) {
           file.write(abbrv, e.getValue(),
               SClass.getInstanceFields(e.getKey()).getObjectStorage(storageType).length,
               SClass.getName(e.getKey()).getString());
@@ -382,12 +407,12 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, ArrayCreationProfile> profiles = (Map<SourceSection, ArrayCreationProfile>) data.get(JsonWriter.NEW_ARRAY_COUNT);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "new-arrays.csv",
+    try (MetricsTable file = tables.open("new-arrays.csv", "kck",
         "Source Section", "New Arrays", "Size")) {
       for (Entry<SourceSection, ArrayCreationProfile> ee : sortSS(profiles)) {
         ArrayCreationProfile p = ee.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        for (Entry<Integer, Integer> e : sortInt(p.getSizes())) {
+        for (Entry<Integer, Long> e : sortInt(p.getSizes())) {
           file.write(abbrv, e.getValue(), e.getKey());
         }
       }
@@ -400,13 +425,13 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, Counter> writes = (Map<SourceSection, Counter>) data.get(JsonWriter.FIELD_WRITES);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "field-accesses.csv",
+    try (MetricsTable file = tables.open("field-accesses.csv", "kkkc",
         "Source Section", "Access Type", "Data Type", "Count")) {
 
       for (Entry<SourceSection, ReadValueProfile> ee : sortSS(reads)) {
         ReadValueProfile p = ee.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        for (Entry<DynamicObject, Integer> e : sortCF(p.getTypeProfile())) {
+        for (Entry<DynamicObject, Long> e : sortCF(p.getTypeProfile())) {
           file.write(abbrv, "read", SClass.getName(e.getKey()).toString().substring(1), e.getValue());
         }
 
@@ -427,12 +452,12 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, Counter> writes = (Map<SourceSection, Counter>) data.get(JsonWriter.LOCAL_WRITES);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "local-accesses.csv",
+    try (MetricsTable file = tables.open("local-accesses.csv", "kkkc",
         "Source Section", "Access Type", "Data Type", "Count")) {
       for (Entry<SourceSection, ReadValueProfile> ee : sortSS(reads)) {
         ReadValueProfile p = ee.getValue();
         String abbrv = getSourceSectionAbbrv(p.getSourceSection());
-        for (Entry<DynamicObject, Integer> e : sortCF(p.getTypeProfile())) {
+        for (Entry<DynamicObject, Long> e : sortCF(p.getTypeProfile())) {
           file.write(
               abbrv,
               "read",
@@ -451,6 +476,69 @@ public final class MetricsCsvWriter {
     }
   }
 
+  private void allocatedBytes() {
+    @SuppressWarnings("unchecked")
+    Map<SourceSection, AllocationProfile> objects = (Map<SourceSection, AllocationProfile>) data.get(JsonWriter.NEW_OBJECT_COUNT);
+    @SuppressWarnings("unchecked")
+    Map<SourceSection, ArrayCreationProfile> arrays = (Map<SourceSection, ArrayCreationProfile>) data.get(JsonWriter.NEW_ARRAY_COUNT);
+
+    try (MetricsTable file = tables.open("allocated-bytes.csv", "kkkcc",
+        "Source Section", "Kind", "Type", "Allocations", "Estimated Bytes")) {
+      for (Entry<SourceSection, AllocationProfile> ee : sortSS(objects)) {
+        AllocationProfile p = ee.getValue();
+        String abbrv = getSourceSectionAbbrv(p.getSourceSection());
+        Map<DynamicObject, Long> bytes = p.getAllocatedBytes();
+        for (Entry<DynamicObject, Long> e : sortCF(p.getAllocations())) {
+          file.write(abbrv, "object", SClass.getName(e.getKey()).getString(),
+              e.getValue(), bytes.get(e.getKey()));
+        }
+      }
+
+      for (Entry<SourceSection, ArrayCreationProfile> ee : sortSS(arrays)) {
+        ArrayCreationProfile p = ee.getValue();
+        String abbrv = getSourceSectionAbbrv(p.getSourceSection());
+        for (Entry<ArrayType, long[]> e : p.getStorageProfile().entrySet()) {
+          file.write(abbrv, "array", e.getKey().name().toLowerCase(),
+              e.getValue()[0], e.getValue()[1]);
+        }
+      }
+    }
+  }
+
+  private void allocationLifetimes() {
+    try (MetricsTable file = tables.open("allocation-lifetimes.csv", "kccvcv",
+        "Source Section", "Sampled", "Collected", "Mean Lifetime (ms)",
+        "Survived GC", "Alive")) {
+      for (Entry<SourceSection, SiteLifetimes> e : sortSS(allocationSampler.getSites())) {
+        SiteLifetimes l = e.getValue();
+        file.write(
+            getSourceSectionAbbrv(e.getKey()),
+            l.getSampled(),
+            l.getCollected(),
+            String.format("%.3f", l.getMeanLifetimeMillis()),
+            l.getSurvivedCollection(),
+            l.getAlive());
+      }
+    }
+  }
+
+  private void allocationPaths() {
+    int period = AllocationSampler.getSamplingPeriod();
+    int numPaths = Integer.getInteger("dm.memory.paths", 50);
+
+    try (MetricsTable file = tables.open("allocation-paths.csv", "kcvv",
+        "Call Path", "Sampled Allocations", "Estimated Allocations", "Estimated Bytes")) {
+      allocationSampler.getPaths().entrySet().stream()
+        .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+        .limit(numPaths)
+        .forEach(e -> file.write(
+            e.getKey(),
+            e.getValue()[0],
+            e.getValue()[0] * period,
+            e.getValue()[1] * period));
+    }
+  }
+
   private static String getSourceSectionAbbrv(final SourceSection source) {
     String result;
     if (source.getSource() == null) {
@@ -461,7 +549,7 @@ public final class MetricsCsvWriter {
     return result;
   }
 
-  private int methodInvocationCount(final DynamicObject method, final Collection<InvocationProfile> profiles) {
+  private long methodInvocationCount(final DynamicObject method, final Collection<InvocationProfile> profiles) {
     InvocationProfile profile = null;
 
     for (InvocationProfile p : profiles) {
@@ -482,7 +570,7 @@ public final class MetricsCsvWriter {
     int numMethodsExecuted = 0;
     Map<SSymbol, DynamicObject> disps = SClass.getInvokablesTable(clazz);
     for (DynamicObject d : disps.values()) {
-      int invokeCount = methodInvocationCount(d, profiles);
+      long invokeCount = methodInvocationCount(d, profiles);
       if (invokeCount > 0) {
         numMethodsExecuted += 1;
       }
@@ -494,7 +582,7 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, InvocationProfile> profiles = (Map<SourceSection, InvocationProfile>) data.get(JsonWriter.METHOD_INVOCATION_PROFILE);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "defined-classes.csv",
+    try (MetricsTable file = tables.open("defined-classes.csv", "kkv",
         "Class Name", "Source Section", "Methods Executed")) {
 
       for (DynamicObject clazz : sortMD(structuralProbe.getClasses())) {
@@ -507,13 +595,14 @@ public final class MetricsCsvWriter {
       }
     }
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "defined-methods.csv",
+    try (MetricsTable file = tables.open("defined-methods.csv", "kvv",
         "Name", "Executed", "Execution Count")) {
 
       for (DynamicObject i : sortInv(structuralProbe.getMethods())) {
-        int numInvokations = methodInvocationCount(i, profiles.values());
+        long numInvokations = methodInvocationCount(i, profiles.values());
         String executed = (numInvokations == 0) ? "false" : "true";
-        file.write(SInvokable.toString(i), executed, numInvokations);
+        file.writeDistinct(System.identityHashCode(i),
+            SInvokable.toString(i), executed, numInvokations);
       }
     }
   }
@@ -522,7 +611,7 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, BranchProfile> branches = (Map<SourceSection, BranchProfile>) data.get(JsonWriter.BRANCH_PROFILES);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "branches.csv",
+    try (MetricsTable file = tables.open("branches.csv", "kccc",
         "Source Section", "TrueCnt", "FalseCnt", "Total")) {
       for (Entry<SourceSection, BranchProfile> e : sortSS(branches)) {
         file.write(
@@ -538,11 +627,11 @@ public final class MetricsCsvWriter {
     @SuppressWarnings("unchecked")
     Map<SourceSection, LoopProfile> loops = (Map<SourceSection, LoopProfile>) data.get(JsonWriter.LOOPS);
 
-    try (CsvWriter file = new CsvWriter(metricsFolder, "loops.csv",
+    try (MetricsTable file = tables.open("loops.csv", "kkc",
         "Source Section", "Loop Activations", "Num Iterations")) {
 
       for (Entry<SourceSection, LoopProfile> e : sortSS(loops)) {
-        for (Entry<Integer, Integer> l : sortInt(e.getValue().getIterations())) {
+        for (Entry<Integer, Long> l : sortInt(e.getValue().getIterations())) {
           file.write(
               getSourceSectionAbbrv(e.getKey()),
               l.getKey(),
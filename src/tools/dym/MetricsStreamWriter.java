@@ -0,0 +1,304 @@
+package tools.dym;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+
+
+/**
+ * Periodically appends the changes of the metrics tables to a JSON-lines
+ * file, so that long-running or crashing programs do not lose their metrics.
+ * {@link MetricsAggregator} turns such a file back into the CSV files
+ * written by {@link MetricsCsvWriter}.
+ *
+ * Settings, as system properties:
+ *   - dm.stream           file to write to, enables streaming
+ *   - dm.stream.interval  interval between exports in milliseconds, default 1000
+ *
+ * Records, one JSON object per line:
+ *   {"type":"export","seq":N,"time":MS}
+ *   {"type":"table","table":T,"kinds":K,"columns":[...]}
+ *   {"type":"add","table":T,"id":ID,"after":ID or null,"values":[...]}
+ *   {"type":"update","table":T,"id":ID,"values":[...]}
+ *   {"type":"remove","table":T,"id":ID}
+ *   {"type":"order","table":T,"ids":[...]}
+ *
+ * Counter columns, 'c' in the kinds of a table, hold the increment since the
+ * previous record of the row; all other columns hold their current value.
+ * Added rows are placed after the row preceding them in the table, which
+ * preserves the order of the CSV files. Only tables not sorted by an
+ * immutable key, e.g., by the number of allocations, need to reorder
+ * existing rows, which is recorded with the full list of ids.
+ */
+public final class MetricsStreamWriter {
+
+  private final Consumer<MetricsTable.Factory> tableWriter;
+  private final long intervalMillis;
+  private final PrintWriter out;
+
+  /** Rows of the last export, per table, in table order. */
+  private final Map<String, ExportedTable> exported;
+  private long numExports;
+
+  private volatile boolean exporting;
+  private Thread exporter;
+
+  public MetricsStreamWriter(final String fileName, final long intervalMillis,
+      final Consumer<MetricsTable.Factory> tableWriter) {
+    this.tableWriter    = tableWriter;
+    this.intervalMillis = intervalMillis;
+    this.exported       = new HashMap<>();
+    try {
+      out = new PrintWriter(new FileWriter(fileName));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public synchronized void start() {
+    if (exporter != null) {
+      return;
+    }
+    exporting = true;
+    exporter = new Thread(this::exportPeriodically, "DynamicMetrics Exporter");
+    exporter.setDaemon(true);
+    exporter.start();
+  }
+
+  private void exportPeriodically() {
+    long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    while (exporting) {
+      LockSupport.parkNanos(intervalNanos);
+      try {
+        export();
+      } catch (RuntimeException e) {
+        // the program may be modifying the classes or ASTs we are reading,
+        // the next export catches up
+        System.err.println("DynamicMetrics: periodic export failed, retrying: " + e);
+      }
+    }
+  }
+
+  /** Stops the periodic exports, writes the final state, and closes the file. */
+  public void stop() {
+    exporting = false;
+    if (exporter != null) {
+      try {
+        exporter.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    export();
+    out.close();
+  }
+
+  private synchronized void export() {
+    numExports += 1;
+    out.println(Json.object()
+        .add("type", "export")
+        .add("seq",  numExports)
+        .add("time", System.currentTimeMillis()));
+
+    // the changes are written while the tables are produced, without a
+    // snapshot of the current rows
+    try {
+      tableWriter.accept(this::openTable);
+    } finally {
+      out.flush();
+    }
+  }
+
+  private MetricsTable openTable(final String name, final String kinds,
+      final String[] columns) {
+    assert kinds.length() == columns.length;
+    ExportedTable previous = exported.get(name);
+    if (previous == null) {
+      previous = new ExportedTable(kinds);
+      exported.put(name, previous);
+      out.println(Json.object()
+          .add("type",    "table")
+          .add("table",   name)
+          .add("kinds",   kinds)
+          .add("columns", toJson(columns)));
+    }
+    return new StreamedTable(name, previous);
+  }
+
+  private static JsonObject rowRecord(final String type, final String table,
+      final String id) {
+    return Json.object()
+        .add("type",  type)
+        .add("table", table)
+        .add("id",    id);
+  }
+
+  /** @return the update for a row, or null if it did not change */
+  private static JsonArray changes(final String kinds, final Object[] old,
+      final Object[] current) {
+    boolean changed = false;
+    JsonArray values = Json.array();
+    for (int i = 0; i < current.length; i++) {
+      if (isCounter(kinds, i, old[i], current[i])) {
+        long delta = ((Number) current[i]).longValue() - ((Number) old[i]).longValue();
+        changed |= delta != 0;
+        values.add(delta);
+      } else {
+        changed |= !String.valueOf(old[i]).equals(String.valueOf(current[i]));
+        values.add(toJson(current[i]));
+      }
+    }
+    return changed ? values : null;
+  }
+
+  static boolean isCounter(final String kinds, final int column,
+      final Object... values) {
+    if (kinds.charAt(column) != 'c') {
+      return false;
+    }
+    for (Object v : values) {
+      if (!(v instanceof Number)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static JsonArray toJson(final Object[] values) {
+    JsonArray result = Json.array();
+    for (Object v : values) {
+      result.add(toJson(v));
+    }
+    return result;
+  }
+
+  private static JsonValue toJson(final Object value) {
+    if (value instanceof Long || value instanceof Integer) {
+      return Json.value(((Number) value).longValue());
+    }
+    return Json.value(String.valueOf(value));
+  }
+
+  /** The rows of a table as last exported, and thus known to the reader. */
+  private static final class ExportedTable {
+    private final String kinds;
+    private Map<String, Object[]> rows;
+
+    /** Set while an export of the table is not completed. */
+    private boolean incomplete;
+
+    ExportedTable(final String kinds) {
+      this.kinds = kinds;
+      this.rows  = new LinkedHashMap<>();
+    }
+  }
+
+  /** Writes the changes of the rows of a table while they are produced. */
+  private final class StreamedTable implements MetricsTable {
+    private final String name;
+    private final ExportedTable previous;
+
+    /** The ids of the rows written so far, in table order. */
+    private final List<String> order;
+    private final Set<String> added;
+    private final boolean reorder;
+
+    StreamedTable(final String name, final ExportedTable previous) {
+      this.name     = name;
+      this.previous = previous;
+      this.order    = new ArrayList<>();
+      this.added    = new HashSet<>();
+      // an incomplete export may have added rows at other places than the
+      // reader, which an explicit order corrects
+      this.reorder  = previous.incomplete;
+      previous.incomplete = true;
+    }
+
+    @Override
+    public void write(final Object... values) {
+      writeRow(key(values), values);
+    }
+
+    @Override
+    public void writeDistinct(final Object id, final Object... values) {
+      writeRow(key(values) + "#" + id, values);
+    }
+
+    private String key(final Object[] values) {
+      StringBuilder key = new StringBuilder();
+      for (int i = 0; i < values.length; i++) {
+        if (previous.kinds.charAt(i) == 'k') {
+          key.append(values[i]).append('\t');
+        }
+      }
+      return key.toString();
+    }
+
+    private void writeRow(final String id, final Object[] values) {
+      Object[] old = previous.rows.put(id, values);
+      if (old == null) {
+        added.add(id);
+        String after = order.isEmpty() ? null : order.get(order.size() - 1);
+        out.println(rowRecord("add", name, id)
+            .add("after",  after == null ? Json.NULL : Json.value(after))
+            .add("values", toJson(values)));
+      } else {
+        JsonArray changes = changes(previous.kinds, old, values);
+        if (changes != null) {
+          out.println(rowRecord("update", name, id)
+              .add("values", changes));
+        }
+      }
+      order.add(id);
+    }
+
+    @Override
+    public void close() {
+      Set<String> written = new HashSet<>(order);
+      List<String> kept = new ArrayList<>();
+      Map<String, Object[]> rows = new LinkedHashMap<>();
+      for (String id : previous.rows.keySet()) {
+        if (!written.contains(id)) {
+          out.println(rowRecord("remove", name, id));
+        } else if (!added.contains(id)) {
+          kept.add(id);
+        }
+      }
+
+      List<String> keptInCurrentOrder = new ArrayList<>();
+      for (String id : order) {
+        rows.put(id, previous.rows.get(id));
+        if (!added.contains(id)) {
+          keptInCurrentOrder.add(id);
+        }
+      }
+
+      if (reorder || !kept.equals(keptInCurrentOrder)) {
+        JsonArray ids = Json.array();
+        order.forEach(ids::add);
+        out.println(Json.object()
+            .add("type",  "order")
+            .add("table", name)
+            .add("ids",   ids));
+      }
+
+      previous.rows = rows;
+      previous.incomplete = false;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package tools.dym;
+
+
+/**
+ * Destination for the rows of one of the tables produced by
+ * {@link MetricsCsvWriter}, either a CSV file or the changes streamed by the
+ * {@link MetricsStreamWriter}.
+ */
+public interface MetricsTable extends AutoCloseable {
+
+  void write(Object... columns);
+
+  /**
+   * Writes a row whose key columns are not unique in the table. The id only
+   * needs to be stable for the duration of the run, it is not part of the
+   * output.
+   */
+  default void writeDistinct(final Object id, final Object... columns) {
+    write(columns);
+  }
+
+  @Override
+  void close();
+
+  interface Factory {
+    /**
+     * @param kinds one character per column: 'k' for the columns identifying
+     *              a row, 'c' for counters, and 'v' for other values
+     */
+    MetricsTable open(String fileName, String kinds, String... columns);
+  }
+}
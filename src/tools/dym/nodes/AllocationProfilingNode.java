@@ -5,18 +5,30 @@ import com.oracle.truffle.api.object.DynamicObject;
 
 import tools.dym.profiles.AllocationProfile;
 import tools.dym.profiles.AllocationProfile.AllocProfileNode;
+import tools.dym.profiles.AllocationSampler;
+import tools.dym.profiles.AllocationSize;
 
 
 public final class AllocationProfilingNode extends CountingNode<AllocationProfile> {
   @Child private AllocProfileNode profile;
 
-  public AllocationProfilingNode(final AllocationProfile profile) {
+  /** Null, unless the memory profile was requested. */
+  private final AllocationSampler sampler;
+
+  public AllocationProfilingNode(final AllocationProfile profile,
+      final AllocationSampler sampler) {
     super(profile);
     this.profile = profile.getProfile();
+    this.sampler = sampler;
   }
 
   @Override
   protected void onReturnValue(final VirtualFrame frame, final Object result) {
-    profile.executeProfiling((DynamicObject) result);
+    DynamicObject obj = (DynamicObject) result;
+    profile.executeProfiling(obj);
+
+    if (sampler != null && sampler.shouldSample()) {
+      sampler.sample(counter.getSourceSection(), obj, AllocationSize.of(obj));
+    }
   }
 }
@@ -5,6 +5,8 @@ import com.oracle.truffle.api.frame.VirtualFrame;
 import som.primitives.LengthPrim;
 import som.primitives.LengthPrimFactory;
 import som.vmobjects.SArray;
+import tools.dym.profiles.AllocationSampler;
+import tools.dym.profiles.AllocationSize;
 import tools.dym.profiles.ArrayCreationProfile;
 
 
@@ -12,13 +14,27 @@ public class ArrayAllocationProfilingNode extends CountingNode<ArrayCreationProf
 
   @Child protected LengthPrim size;
 
-  public ArrayAllocationProfilingNode(final ArrayCreationProfile counter) {
+  /** Null, unless the memory profile was requested. */
+  private final AllocationSampler sampler;
+
+  public ArrayAllocationProfilingNode(final ArrayCreationProfile counter,
+      final AllocationSampler sampler) {
     super(counter);
     size = LengthPrimFactory.create(null);
+    this.sampler = sampler;
   }
 
   @Override
   protected void onReturnValue(final VirtualFrame frame, final Object result) {
-    counter.profileArraySize((int) size.executeEvaluated((SArray) result));
+    SArray arr = (SArray) result;
+    counter.profileArraySize((int) size.executeEvaluated(arr));
+
+    if (sampler != null) {
+      long bytes = AllocationSize.of(arr);
+      counter.profileStorage(arr.getType(), bytes);
+      if (sampler.shouldSample()) {
+        sampler.sample(counter.getSourceSection(), arr, bytes);
+      }
+    }
   }
 }
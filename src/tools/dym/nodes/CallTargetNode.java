@@ -4,12 +4,12 @@ import com.oracle.truffle.api.frame.VirtualFrame;
 
 import som.interpreter.Invokable;
 import tools.dym.profiles.CallsiteProfile;
-import tools.dym.profiles.CallsiteProfile.Counter;
+import tools.dym.profiles.SampledCounter;
 
 
 public class CallTargetNode extends CountingNode<CallsiteProfile> {
 
-  protected final Counter cnt;
+  protected final SampledCounter cnt;
 
   public CallTargetNode(final CallsiteProfile profile, final Invokable invokable) {
     super(profile);
@@ -4,12 +4,12 @@ import com.oracle.truffle.api.frame.VirtualFrame;
 
 import som.interpreter.Invokable;
 import tools.dym.profiles.ClosureApplicationProfile;
-import tools.dym.profiles.ClosureApplicationProfile.ActivationCounter;
+import tools.dym.profiles.SampledCounter;
 
 
 public final class ClosureTargetNode extends CountingNode<ClosureApplicationProfile> {
 
-  protected final ActivationCounter cnt;
+  protected final SampledCounter cnt;
 
   public ClosureTargetNode(final ClosureApplicationProfile profile, final Invokable invokable) {
     super(profile);
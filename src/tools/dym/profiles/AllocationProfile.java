@@ -3,10 +3,10 @@ package tools.dym.profiles;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import som.vmobjects.SObject;
 import tools.dym.profiles.AllocationProfileFactory.AllocProfileNodeGen;
-import tools.dym.profiles.CallsiteProfile.Counter;
 
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -28,37 +28,47 @@ public class AllocationProfile extends tools.dym.profiles.Counter {
     return profile;
   }
 
-  public Map<DynamicObject, Integer> getAllocations() {
+  public Map<DynamicObject, Long> getAllocations() {
     return profile.getAllocations();
   }
 
+  /** @return the estimated number of bytes allocated per class */
+  public Map<DynamicObject, Long> getAllocatedBytes() {
+    return profile.getAllocatedBytes();
+  }
+
   public abstract static class AllocProfileNode extends Node {
-    protected Map<DynamicObject, Counter> allocationMap = new HashMap<>();
+    protected Map<DynamicObject, SampledCounter> allocationMap = new ConcurrentHashMap<>();
+    protected Map<DynamicObject, Long> instanceSizes = new ConcurrentHashMap<>();
 
     public abstract void executeProfiling(DynamicObject obj);
 
-    public Map<DynamicObject, Integer> getAllocations() {
-      HashMap<DynamicObject, Integer> result = new HashMap<>();
-      for (Entry<DynamicObject, Counter> e : allocationMap.entrySet()) {
-        result.put(e.getKey(), e.getValue().val);
+    public Map<DynamicObject, Long> getAllocations() {
+      HashMap<DynamicObject, Long> result = new HashMap<>();
+      for (Entry<DynamicObject, SampledCounter> e : allocationMap.entrySet()) {
+        result.put(e.getKey(), e.getValue().getValue());
       }
       return result;
     }
 
-    protected Counter createCounterFor(final DynamicObject klass) {
-      Counter c = allocationMap.get(klass);
-      if (c != null) {
-        return c;
+    public Map<DynamicObject, Long> getAllocatedBytes() {
+      HashMap<DynamicObject, Long> result = new HashMap<>();
+      for (Entry<DynamicObject, SampledCounter> e : allocationMap.entrySet()) {
+        result.put(e.getKey(), e.getValue().getValue() * instanceSizes.get(e.getKey()));
       }
-      c = new Counter();
-      allocationMap.put(klass, c);
-      return c;
+      return result;
+    }
+
+    protected SampledCounter createCounterFor(final DynamicObject klass,
+        final DynamicObject instance) {
+      instanceSizes.putIfAbsent(klass, AllocationSize.of(instance));
+      return allocationMap.computeIfAbsent(klass, k -> new SampledCounter());
     }
 
     @Specialization(guards = "getClass(object) == cachedClass", limit = "100")
     public void doDynamicObject(final DynamicObject object,
         @Cached("getClass(object)") final DynamicObject cachedClass,
-        @Cached("createCounterFor(cachedClass)") final Counter counter) {
+        @Cached("createCounterFor(cachedClass, object)") final SampledCounter counter) {
       counter.inc();
     }
 
@@ -0,0 +1,207 @@
+package tools.dym.profiles;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameInstance;
+import com.oracle.truffle.api.source.SourceSection;
+
+
+/**
+ * Samples allocations to find the call paths that allocate the most, and to
+ * estimate how long objects live.
+ *
+ * Every n-th allocation, set with -Ddm.memory.sampling=n (default 100), is
+ * recorded with the call path leading to it, up to -Ddm.memory.depth frames
+ * (default 8). The sampled object is tracked with a weak reference: once it
+ * is collected, its lifetime and the number of garbage collections it
+ * survived are attributed to its allocation site.
+ */
+public final class AllocationSampler {
+  private static final int PERIOD    = Integer.getInteger("dm.memory.sampling", 100);
+  private static final int MAX_DEPTH = Integer.getInteger("dm.memory.depth", 8);
+
+  private final ReferenceQueue<Object> collected;
+  private final Set<Sample> alive;
+
+  private final Map<SourceSection, SiteLifetimes> sites;
+  private final Map<String, long[]> paths;
+
+  private int countdown;
+
+  public AllocationSampler() {
+    collected = new ReferenceQueue<>();
+    alive     = ConcurrentHashMap.newKeySet();
+    sites     = new HashMap<>();
+    paths     = new HashMap<>();
+    countdown = PERIOD;
+
+    Thread reaper = new Thread(this::processCollected, "DynamicMetrics Lifetime Sampler");
+    reaper.setDaemon(true);
+    reaper.start();
+  }
+
+  /** Racy on purpose, a lost update only shifts the next sample. */
+  public boolean shouldSample() {
+    int remaining = countdown - 1;
+    if (remaining > 0) {
+      countdown = remaining;
+      return false;
+    }
+    countdown = PERIOD;
+    return true;
+  }
+
+  @TruffleBoundary
+  public void sample(final SourceSection site, final Object obj, final long bytes) {
+    String path = currentPath();
+    synchronized (this) {
+      long[] p = paths.computeIfAbsent(path, k -> new long[2]);
+      p[0] += 1;
+      p[1] += bytes;
+      sites.computeIfAbsent(site, k -> new SiteLifetimes()).sampled += 1;
+    }
+    alive.add(new Sample(obj, collected, site));
+  }
+
+  private static String currentPath() {
+    List<String> frames = new ArrayList<>();
+    Truffle.getRuntime().iterateFrames((final FrameInstance frame) -> {
+      if (frame.getCallTarget() instanceof RootCallTarget) {
+        frames.add(((RootCallTarget) frame.getCallTarget()).getRootNode().getName());
+      }
+      return frames.size() >= MAX_DEPTH ? frame : null;
+    });
+
+    // outermost frame first, as for the sampling profiler
+    StringBuilder path = new StringBuilder();
+    for (int i = frames.size() - 1; i >= 0; i--) {
+      path.append(frames.get(i));
+      if (i > 0) {
+        path.append(';');
+      }
+    }
+    return path.toString();
+  }
+
+  private void processCollected() {
+    while (true) {
+      Reference<?> ref;
+      try {
+        ref = collected.remove();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      Sample s = (Sample) ref;
+      if (alive.remove(s)) {
+        long gcs = numberOfCollections() - s.collectionsAtAllocation;
+        synchronized (this) {
+          SiteLifetimes l = sites.get(s.site);
+          l.collected += 1;
+          l.lifetimeNanos += System.nanoTime() - s.allocatedAt;
+          // the collection that freed the object does not count
+          if (gcs > 1) {
+            l.survivedCollection += 1;
+          }
+        }
+      }
+    }
+  }
+
+  private static long numberOfCollections() {
+    long n = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      n += Math.max(0, gc.getCollectionCount());
+    }
+    return n;
+  }
+
+  public static int getSamplingPeriod() {
+    return PERIOD;
+  }
+
+  /** @return for each call path: {sampled allocations, bytes of the samples} */
+  public synchronized Map<String, long[]> getPaths() {
+    Map<String, long[]> result = new HashMap<>();
+    paths.forEach((path, p) -> result.put(path, p.clone()));
+    return result;
+  }
+
+  public synchronized Map<SourceSection, SiteLifetimes> getSites() {
+    Map<SourceSection, SiteLifetimes> result = new HashMap<>();
+    sites.forEach((site, l) -> result.put(site, l.copy()));
+
+    for (Sample s : alive) {
+      SiteLifetimes l = result.get(s.site);
+      if (l != null) {
+        l.alive += 1;
+      }
+    }
+    return result;
+  }
+
+  public static final class SiteLifetimes {
+    private long sampled;
+    private long collected;
+    private long lifetimeNanos;
+    private long survivedCollection;
+    private long alive;
+
+    private SiteLifetimes copy() {
+      SiteLifetimes c = new SiteLifetimes();
+      c.sampled            = sampled;
+      c.collected          = collected;
+      c.lifetimeNanos      = lifetimeNanos;
+      c.survivedCollection = survivedCollection;
+      return c;
+    }
+
+    public long getSampled() {
+      return sampled;
+    }
+
+    public long getCollected() {
+      return collected;
+    }
+
+    /** Only covers the collected samples. */
+    public double getMeanLifetimeMillis() {
+      return collected == 0 ? 0 : lifetimeNanos / 1e6 / collected;
+    }
+
+    public long getSurvivedCollection() {
+      return survivedCollection;
+    }
+
+    public long getAlive() {
+      return alive;
+    }
+  }
+
+  private static final class Sample extends WeakReference<Object> {
+    private final SourceSection site;
+    private final long allocatedAt;
+    private final long collectionsAtAllocation;
+
+    Sample(final Object obj, final ReferenceQueue<Object> queue,
+        final SourceSection site) {
+      super(obj, queue);
+      this.site = site;
+      this.allocatedAt = System.nanoTime();
+      this.collectionsAtAllocation = numberOfCollections();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package tools.dym.profiles;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.interpreter.objectstorage.ObjectLayout;
+import som.vmobjects.SArray;
+import som.vmobjects.SArray.PartiallyEmptyArray;
+import som.vmobjects.SClass;
+import som.vmobjects.SObject;
+
+
+/**
+ * Estimates the number of bytes allocated for SOM objects, assuming a 64-bit
+ * HotSpot with compressed oops. The estimate is based on the fields of the
+ * class, as allocation sites see objects before their fields are written. It
+ * ignores the storage a DynamicObject preallocates beyond them, it is meant
+ * to rank allocation sites, not to account for the heap.
+ */
+public final class AllocationSize {
+  private static final int HEADER    = 12;
+  private static final int REFERENCE = 4;
+  private static final int ALIGNMENT = 8;
+
+  private AllocationSize() { }
+
+  @TruffleBoundary
+  public static long of(final DynamicObject obj) {
+    if (ObjectLayout.hasFixedLayout(obj)) {
+      // header, shape, layout, and the two arrays, as allocated on the
+      // first write to the object
+      ObjectLayout layout = ObjectLayout.getLatest(obj);
+      return align(HEADER + 4 * REFERENCE)
+          + array(layout.getPrimFieldsLength(), 8)
+          + array(layout.getObjFieldsLength(), REFERENCE);
+    }
+
+    // header, shape, and one 8-byte slot per field
+    int numFields = SClass.getNumberOfInstanceFields(SObject.getSOMClass(obj));
+    return align(HEADER + REFERENCE + 8L * numFields);
+  }
+
+  @TruffleBoundary
+  public static long of(final SArray arr) {
+    // header, type, and storage
+    long size = align(HEADER + 2 * REFERENCE);
+    Object storage = arr.getStoragePlain();
+
+    switch (arr.getType()) {
+      case EMPTY:
+        return size;
+      case PARTIAL_EMPTY:
+        PartiallyEmptyArray partial = (PartiallyEmptyArray) storage;
+        return size + align(HEADER + 4 + 2 * REFERENCE)
+            + array(partial.getLength(), REFERENCE);
+      case LONG:
+        return size + array(((long[]) storage).length, 8);
+      case DOUBLE:
+        return size + array(((double[]) storage).length, 8);
+      case BOOLEAN:
+        return size + array(((boolean[]) storage).length, 1);
+      case BYTE:
+        return size + array(((byte[]) storage).length, 1);
+      case CHAR:
+        return size + array(((char[]) storage).length, 2);
+      case OBJECT:
+        return size + array(((Object[]) storage).length, REFERENCE);
+      default:
+        throw new IllegalArgumentException("Unknown array type: " + arr.getType());
+    }
+  }
+
+  private static long array(final int length, final int elementSize) {
+    return align(HEADER + 4 + (long) length * elementSize);
+  }
+
+  private static long align(final long size) {
+    return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+}
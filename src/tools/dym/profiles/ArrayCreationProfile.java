@@ -1,25 +1,59 @@
 package tools.dym.profiles;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.source.SourceSection;
 
+import som.vmobjects.SArray.ArrayType;
+
 
 public class ArrayCreationProfile extends Counter {
 
-  private final Map<Integer, Integer> arraySizes;
+  private final Map<Integer, Long> arraySizes;
+
+  private final LongAdder[] allocationsPerType;
+  private final LongAdder[] bytesPerType;
 
   public ArrayCreationProfile(final SourceSection source) {
     super(source);
-    arraySizes = new HashMap<>();
+    arraySizes = new ConcurrentHashMap<>();
+
+    int numTypes = ArrayType.values().length;
+    allocationsPerType = new LongAdder[numTypes];
+    bytesPerType       = new LongAdder[numTypes];
+    for (int i = 0; i < numTypes; i++) {
+      allocationsPerType[i] = new LongAdder();
+      bytesPerType[i]       = new LongAdder();
+    }
   }
 
   public void profileArraySize(final int size) {
-    arraySizes.merge(size, 1, Integer::sum);
+    arraySizes.merge(size, 1L, Long::sum);
+  }
+
+  @TruffleBoundary
+  public void profileStorage(final ArrayType type, final long bytes) {
+    allocationsPerType[type.ordinal()].increment();
+    bytesPerType[type.ordinal()].add(bytes);
   }
 
-  public Map<Integer, Integer> getSizes() {
+  public Map<Integer, Long> getSizes() {
     return arraySizes;
   }
+
+  /** @return for each storage strategy: {allocations, estimated bytes} */
+  public Map<ArrayType, long[]> getStorageProfile() {
+    Map<ArrayType, long[]> result = new EnumMap<>(ArrayType.class);
+    for (ArrayType t : ArrayType.values()) {
+      long allocations = allocationsPerType[t.ordinal()].sum();
+      if (allocations > 0) {
+        result.put(t, new long[] {allocations, bytesPerType[t.ordinal()].sum()});
+      }
+    }
+    return result;
+  }
 }
@@ -7,36 +7,36 @@ import com.oracle.truffle.api.utilities.JSONHelper.JSONStringBuilder;
 
 
 public class BranchProfile extends Counter {
-  private long trueCount;
-  private long falseCount;
+  private final SampledCounter trueCount;
+  private final SampledCounter falseCount;
 
   public BranchProfile(final SourceSection source) {
     super(source);
+    trueCount  = new SampledCounter();
+    falseCount = new SampledCounter();
   }
 
   public void profile(final boolean branchValue) {
     if (branchValue) {
-      trueCount += 1;
-      assert trueCount > 0 : "TODO: handle overflow, by calculating a ratio";
+      trueCount.inc();
     } else {
-      falseCount += 1;
-      assert falseCount > 0 : "TODO: handle overflow, by calculating a ratio";
+      falseCount.inc();
     }
   }
 
   public long getTrueCount() {
-    return trueCount;
+    return trueCount.getValue();
   }
 
   public long getFalseCount() {
-    return falseCount;
+    return falseCount.getValue();
   }
 
   @Override
   public JSONStringBuilder toJson() {
     JSONObjectBuilder result = JSONHelper.object();
-    result.add("trueCount",  trueCount);
-    result.add("falseCount", falseCount);
+    result.add("trueCount",  getTrueCount());
+    result.add("falseCount", getFalseCount());
     return result;
   }
 }
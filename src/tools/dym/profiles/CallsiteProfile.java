@@ -1,10 +1,11 @@
 package tools.dym.profiles;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import som.interpreter.Invokable;
 import tools.dym.profiles.ReadValueProfile.ProfileCounter;
@@ -15,16 +16,16 @@ import com.oracle.truffle.api.source.SourceSection;
 
 public class CallsiteProfile extends Counter implements CreateCounter {
 
-  private final Map<Invokable, Counter> callTargetMap;
-  private final Map<DynamicObject, Integer> receiverMap;
+  private final Map<Invokable, SampledCounter> callTargetMap;
+  private final Map<DynamicObject, Long> receiverMap;
   private final List<ProfileCounter> counters;
   // private TypeProfileNode typeProfile;
 
   public CallsiteProfile(final SourceSection source) {
     super(source);
-    callTargetMap = new HashMap<>();
-    receiverMap   = new HashMap<>();
-    counters = new ArrayList<>();
+    callTargetMap = new ConcurrentHashMap<>();
+    receiverMap   = new ConcurrentHashMap<>();
+    counters = new CopyOnWriteArrayList<>();
   }
 
   @Override
@@ -38,28 +39,22 @@ public class CallsiteProfile extends Counter implements CreateCounter {
     this.typeProfile = rcvrProfile;
   }*/
 
-  public Counter createCounter(final Invokable invokable) {
-    Counter c = callTargetMap.get(invokable);
-    if (c != null) {
-      return c;
-    }
-    c = new Counter();
-    callTargetMap.put(invokable, c);
-    return c;
+  public SampledCounter createCounter(final Invokable invokable) {
+    return callTargetMap.computeIfAbsent(invokable, i -> new SampledCounter());
   }
 
-  public Map<Invokable, Integer> getCallTargets() {
-    HashMap<Invokable, Integer> result = new HashMap<>();
-    for (Entry<Invokable, Counter> e : callTargetMap.entrySet()) {
-      result.put(e.getKey(), e.getValue().val);
+  public Map<Invokable, Long> getCallTargets() {
+    HashMap<Invokable, Long> result = new HashMap<>();
+    for (Entry<Invokable, SampledCounter> e : callTargetMap.entrySet()) {
+      result.put(e.getKey(), e.getValue().getValue());
     }
     return result;
   }
 
-  public Map<DynamicObject, Integer> getReceivers() {
-    Map<DynamicObject, Integer> result = new HashMap<>(receiverMap);
+  public Map<DynamicObject, Long> getReceivers() {
+    Map<DynamicObject, Long> result = new HashMap<>(receiverMap);
     for (ProfileCounter c : counters) {
-      Integer val = result.get(c.getType());
+      Long val = result.get(c.getType());
       if (val == null) {
         result.put(c.getType(), c.getValue());
       } else {
@@ -68,12 +63,4 @@ public class CallsiteProfile extends Counter implements CreateCounter {
     }
     return result;
   }
-
-  public static final class Counter {
-    int val;
-
-    public void inc() {
-      val += 1;
-    }
-  }
 }
@@ -3,6 +3,7 @@ package tools.dym.profiles;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.oracle.truffle.api.source.SourceSection;
 
@@ -10,39 +11,25 @@ import som.interpreter.Invokable;
 
 public class ClosureApplicationProfile extends Counter {
 
-  private final Map<Invokable, ActivationCounter> callTargetMap;
+  private final Map<Invokable, SampledCounter> callTargetMap;
 
   public ClosureApplicationProfile(final SourceSection source) {
     super(source);
-    callTargetMap = new HashMap<>();
+    callTargetMap = new ConcurrentHashMap<>();
   }
 
 
   // TODO: remove code duplication with CallsiteProfile
 
-  public ActivationCounter createCounter(final Invokable invokable) {
-    ActivationCounter c = callTargetMap.get(invokable);
-    if (c != null) {
-      return c;
-    }
-    c = new ActivationCounter();
-    callTargetMap.put(invokable, c);
-    return c;
+  public SampledCounter createCounter(final Invokable invokable) {
+    return callTargetMap.computeIfAbsent(invokable, i -> new SampledCounter());
   }
 
-  public Map<Invokable, Integer> getCallTargets() {
-    HashMap<Invokable, Integer> result = new HashMap<>();
-    for (Entry<Invokable, ActivationCounter> e : callTargetMap.entrySet()) {
-      result.put(e.getKey(), e.getValue().val);
+  public Map<Invokable, Long> getCallTargets() {
+    HashMap<Invokable, Long> result = new HashMap<>();
+    for (Entry<Invokable, SampledCounter> e : callTargetMap.entrySet()) {
+      result.put(e.getKey(), e.getValue().getValue());
     }
     return result;
   }
-
-  public static final class ActivationCounter {
-    private int val;
-
-    public void inc() {
-      val += 1;
-    }
-  }
 }
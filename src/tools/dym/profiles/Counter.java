@@ -9,10 +9,11 @@ import tools.dym.JsonSerializable;
 
 public class Counter implements JsonSerializable {
   protected final SourceSection source;
-  private int invocationCount;
+  private final SampledCounter invocationCount;
 
   public Counter(final SourceSection source) {
     this.source = source;
+    this.invocationCount = new SampledCounter();
   }
 
   public SourceSection getSourceSection() {
@@ -20,22 +21,22 @@ public class Counter implements JsonSerializable {
   }
 
   public void inc() {
-    invocationCount += 1;
+    invocationCount.inc();
   }
 
-  public int getValue() {
-    return invocationCount;
+  public long getValue() {
+    return invocationCount.getValue();
   }
 
   @Override
   public String toString() {
-    return "Cnt[" + invocationCount + "]";
+    return "Cnt[" + getValue() + "]";
   }
 
   @Override
   public JSONStringBuilder toJson() {
     JSONObjectBuilder result = JSONHelper.object();
-    result.add("count", invocationCount);
+    result.add("count", getValue());
     return result;
   }
 }
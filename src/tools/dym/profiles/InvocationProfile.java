@@ -1,8 +1,8 @@
 package tools.dym.profiles;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.source.SourceSection;
@@ -15,11 +15,13 @@ import som.interpreter.Invokable;
 public class InvocationProfile extends Counter {
 
   private final Invokable method;
-  private final Map<Arguments, Integer> argumentTypes;
+  private final Map<Arguments, Long> argumentTypes;
+  private final Sampler sampler;
 
   public InvocationProfile(final SourceSection source, final Invokable method) {
     super(source);
-    argumentTypes = new HashMap<>();
+    argumentTypes = new ConcurrentHashMap<>();
+    sampler       = new Sampler();
     this.method   = method;
   }
 
@@ -29,14 +31,16 @@ public class InvocationProfile extends Counter {
 
   @TruffleBoundary
   public void profileArguments(final Object[] args) {
-    argumentTypes.merge(
-        new Arguments(args), 1, Integer::sum);
+    if (sampler.sample()) {
+      argumentTypes.merge(
+          new Arguments(args), (long) Sampler.PERIOD, Long::sum);
+    }
   }
 
   @Override
   public JSONArrayBuilder toJson() {
     JSONArrayBuilder result = JSONHelper.array();
-    for (Entry<Arguments, Integer> e : argumentTypes.entrySet()) {
+    for (Entry<Arguments, Long> e : argumentTypes.entrySet()) {
       JSONObjectBuilder invocations = e.getKey().toJson();
       invocations.add("invocations", e.getValue());
       result.add(invocations);
@@ -49,9 +53,9 @@ public class InvocationProfile extends Counter {
     return "InvProf" + argumentsMapToString(argumentTypes);
   }
 
-  public static String argumentsMapToString(final Map<Arguments, Integer> args) {
+  public static String argumentsMapToString(final Map<Arguments, Long> args) {
     String result = "[";
-    for (Entry<Arguments, Integer> e : args.entrySet()) {
+    for (Entry<Arguments, Long> e : args.entrySet()) {
       if (!result.equals("[")) {
         result += "; ";
       }
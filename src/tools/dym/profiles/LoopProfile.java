@@ -1,8 +1,8 @@
 package tools.dym.profiles;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.source.SourceSection;
@@ -10,27 +10,33 @@ import com.oracle.truffle.api.source.SourceSection;
 
 public class LoopProfile extends Counter {
 
-  private int currentIterations;
-  private final Map<Integer, Integer> loopIterations;
+  /** Iterations of the loop executing on each thread. */
+  private final ThreadLocal<int[]> currentIterations;
+  private final Map<Integer, Long> loopIterations;
 
   public LoopProfile(final SourceSection source) {
     super(source);
-    loopIterations = new HashMap<>();
-    currentIterations = 0;
+    loopIterations = new ConcurrentHashMap<>();
+    currentIterations = ThreadLocal.withInitial(() -> new int[1]);
   }
 
+  /** Saturates, loops with more iterations count as Integer.MAX_VALUE. */
+  @TruffleBoundary
   public void recordLoopIteration() {
-    currentIterations += 1;
-    assert currentIterations >= 0 : "TODO: handle overflow";
+    int[] current = currentIterations.get();
+    if (current[0] < Integer.MAX_VALUE) {
+      current[0] += 1;
+    }
   }
 
   @TruffleBoundary
   public void recordLoopExit() {
-    loopIterations.merge(currentIterations, 1, Integer::sum);
-    currentIterations = 0;
+    int[] current = currentIterations.get();
+    loopIterations.merge(current[0], 1L, Long::sum);
+    current[0] = 0;
   }
 
-  public Map<Integer, Integer> getIterations() {
+  public Map<Integer, Long> getIterations() {
     return loopIterations;
   }
 
@@ -41,7 +47,7 @@ public class LoopProfile extends Counter {
 
   private String mapToString() {
     String result = "[";
-    for (Entry<Integer, Integer> e : loopIterations.entrySet()) {
+    for (Entry<Integer, Long> e : loopIterations.entrySet()) {
       if (!result.equals("[")) {
         result += "; ";
       }
@@ -2,9 +2,9 @@ package tools.dym.profiles;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.source.SourceSection;
@@ -13,27 +13,32 @@ public final class OperationProfile extends Counter {
 
   private final String operation;
   private final Set<Class<?>> tags;
-  private final Deque<Object[]> argumentsForExecutions;
+  private final ThreadLocal<Deque<Object[]>> argumentsForExecutions;
   protected final int numSubexpressions;
-  protected final Map<Arguments, Integer> argumentTypes;
+  protected final Map<Arguments, Long> argumentTypes;
+  private final Sampler sampler;
 
   public OperationProfile(final SourceSection source, final String operation, final Set<Class<?>> tags, final int numSubexpressions) {
     super(source);
     this.numSubexpressions = numSubexpressions;
     this.operation         = operation;
     this.tags              = tags;
-    argumentsForExecutions = new ArrayDeque<>();
-    argumentTypes = new HashMap<>();
+    argumentsForExecutions = ThreadLocal.withInitial(ArrayDeque::new);
+    argumentTypes = new ConcurrentHashMap<>();
+    sampler = new Sampler();
     assert operation != null;
   }
 
   protected void recordArguments(final Object[] args) {
-    argumentTypes.merge(
-        new Arguments(args), 1, Integer::sum);
+    if (sampler.sample()) {
+      argumentTypes.merge(
+          new Arguments(args), (long) Sampler.PERIOD, Long::sum);
+    }
   }
 
+  @TruffleBoundary
   public void enterMainNode() {
-    argumentsForExecutions.push(new Object[numSubexpressions]);
+    argumentsForExecutions.get().push(new Object[numSubexpressions]);
   }
 
   public String getOperation() {
@@ -44,7 +49,7 @@ public final class OperationProfile extends Counter {
     return tags;
   }
 
-  public Map<Arguments, Integer> getArgumentTypes() {
+  public Map<Arguments, Long> getArgumentTypes() {
     return argumentTypes;
   }
 
@@ -56,8 +61,9 @@ public final class OperationProfile extends Counter {
     // so, the final results might be off by one, but this should not be
     // critical
     // Example: the `+` is problematic in `def length: 1 + self.length()`
-    if (!argumentsForExecutions.isEmpty()) {
-      argumentsForExecutions.peek()[argIdx] = value;
+    Deque<Object[]> executions = argumentsForExecutions.get();
+    if (!executions.isEmpty()) {
+      executions.peek()[argIdx] = value;
     }
   }
 
@@ -69,8 +75,9 @@ public final class OperationProfile extends Counter {
     // so, the final results might be off by one, but this should not be
     // critical
     // Example: the `+` is problematic in `def length: 1 + self.length()`
-    if (!argumentsForExecutions.isEmpty()) {
-      Object[] arguments = argumentsForExecutions.pop();
+    Deque<Object[]> executions = argumentsForExecutions.get();
+    if (!executions.isEmpty()) {
+      Object[] arguments = executions.pop();
       arguments[0] = returnValue;
       recordArguments(arguments);
     }
@@ -1,9 +1,10 @@
 package tools.dym.profiles;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import som.vm.Universe;
 
@@ -13,27 +14,31 @@ import com.oracle.truffle.api.source.SourceSection;
 
 public class ReadValueProfile extends Counter implements CreateCounter {
 
-  private final Map<DynamicObject, Integer> typesOfReadValue;
+  private final Map<DynamicObject, Long> typesOfReadValue;
   private final List<ProfileCounter> counters;
+  private final Sampler sampler;
 
   // TODO: add support for reading fields from profiled type of receiver objects.
   // need subexpression support for that
 
   public ReadValueProfile(final SourceSection source) {
     super(source);
-    typesOfReadValue = new HashMap<>();
-    counters = new ArrayList<>();
+    typesOfReadValue = new ConcurrentHashMap<>();
+    counters = new CopyOnWriteArrayList<>();
+    sampler  = new Sampler();
   }
 
   public void profileValueType(final DynamicObject valueType) {
     Universe.callerNeedsToBeOptimized("This is a fallback method");
-    typesOfReadValue.merge(valueType, 1, Integer::sum);
+    if (sampler.sample()) {
+      typesOfReadValue.merge(valueType, (long) Sampler.PERIOD, Long::sum);
+    }
   }
 
-  public Map<DynamicObject, Integer> getTypeProfile() {
-    Map<DynamicObject, Integer> result = new HashMap<>(typesOfReadValue);
+  public Map<DynamicObject, Long> getTypeProfile() {
+    Map<DynamicObject, Long> result = new HashMap<>(typesOfReadValue);
     for (ProfileCounter c : counters) {
-      Integer val = result.get(c.getType());
+      Long val = result.get(c.getType());
       if (val == null) {
         result.put(c.getType(), c.getValue());
       } else {
@@ -51,23 +56,24 @@ public class ReadValueProfile extends Counter implements CreateCounter {
   }
 
   public static final class ProfileCounter {
-    private int count;
+    private final SampledCounter count;
     private final DynamicObject type;
 
     public ProfileCounter(final DynamicObject type) {
-      this.type = type;
+      this.type  = type;
+      this.count = new SampledCounter();
     }
 
     public void inc() {
-      count += 1;
+      count.inc();
     }
 
     public DynamicObject getType() {
       return type;
     }
 
-    public int getValue() {
-      return count;
+    public long getValue() {
+      return count.getValue();
     }
   }
 }
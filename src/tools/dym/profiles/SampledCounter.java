@@ -0,0 +1,42 @@
+package tools.dym.profiles;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+
+/**
+ * Thread-safe long counter used by all dynamic metrics.
+ *
+ * Increments are striped over the cells of a {@link LongAdder}. With
+ * -Ddm.sampling=N, only one in N increments reaches the adder and counts N
+ * times, which keeps the cost of counting in compiled code to a decrement and
+ * a branch (see {@link Sampler}). The value includes the increments since
+ * the last sample.
+ */
+public final class SampledCounter {
+  public static final int SAMPLING_PERIOD = Sampler.PERIOD;
+
+  private final LongAdder count;
+  private final Sampler sampler;
+
+  public SampledCounter() {
+    count   = new LongAdder();
+    sampler = new Sampler();
+  }
+
+  public void inc() {
+    if (sampler.sample()) {
+      add(SAMPLING_PERIOD);
+    }
+  }
+
+  @TruffleBoundary
+  private void add(final long n) {
+    count.add(n);
+  }
+
+  public long getValue() {
+    return count.sum() + sampler.getPending();
+  }
+}
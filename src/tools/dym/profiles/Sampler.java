@@ -0,0 +1,48 @@
+package tools.dym.profiles;
+
+
+/**
+ * Selects one in N events of a profile, with -Ddm.sampling=N.
+ *
+ * A sampled event stands for the N events since the previous one. The
+ * countdown is deliberately unsynchronized: concurrent updates may lose a
+ * step, which only affects when the next sample is taken.
+ */
+public final class Sampler {
+  public static final int PERIOD = samplingPeriod();
+
+  private int countdown;
+
+  public Sampler() {
+    countdown = PERIOD;
+  }
+
+  private static int samplingPeriod() {
+    int period = Integer.getInteger("dm.sampling", 1);
+    if (period <= 0) {
+      throw new IllegalArgumentException(
+          "-Ddm.sampling needs to be a positive number of events, but was " + period);
+    }
+    return period;
+  }
+
+  /** @return whether the event is sampled, it then counts {@link #PERIOD} times */
+  public boolean sample() {
+    if (PERIOD == 1) {
+      return true;
+    }
+
+    int remaining = countdown - 1;
+    if (remaining > 0) {
+      countdown = remaining;
+      return false;
+    }
+    countdown = PERIOD;
+    return true;
+  }
+
+  /** @return the number of events since the last sample */
+  public int getPending() {
+    return PERIOD - countdown;
+  }
+}
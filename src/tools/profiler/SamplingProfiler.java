@@ -0,0 +1,215 @@
+package tools.profiler;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.instrumentation.EventContext;
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags.RootTag;
+import com.oracle.truffle.api.instrumentation.StandardTags.StatementTag;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument.Registration;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.source.SourceSection;
+
+import tools.dym.CsvWriter;
+import tools.profiler.nodes.MethodSamplingNode;
+import tools.profiler.nodes.StatementSamplingNode;
+
+
+/**
+ * SamplingProfiler is a Truffle instrumentation tool that periodically
+ * samples the SOM call stack. Contrary to DynamicMetrics, it is meant to be
+ * used on compiled code: the instrumentation only maintains a shadow stack,
+ * and all the accounting happens in a separate sampler thread.
+ *
+ * Settings, as system properties:
+ *   - som.profile.interval  sampling interval in microseconds, default 1000
+ *   - som.profile.lines     also attribute samples to lines, default true
+ *   - som.profile.output    prefix of the output files, default "profile"
+ *
+ * Output:
+ *   - PREFIX.collapsed      one stack per line, frames separated by ';' and
+ *                           followed by the number of samples, as consumed
+ *                           by flamegraph.pl and similar tools
+ *   - PREFIX-methods.csv    self and total time per method
+ *   - PREFIX-lines.csv      self and total time per line
+ */
+@Registration(id = SamplingProfiler.ID, services = {SamplingProfiler.class})
+public class SamplingProfiler extends TruffleInstrument {
+
+  public static final String ID = "som-sampling-profiler";
+
+  private final long intervalMicros;
+  private final boolean lines;
+  private final String outputPrefix;
+
+  private final Map<Thread, ShadowStack> stacks;
+
+  /** Accessed by the sampler thread only, until it is stopped. */
+  private final Map<String, long[]> collapsedStacks;
+  private final Map<String, long[]> methods;
+  private final Map<String, long[]> statements;
+  private long numSamples;
+
+  private volatile boolean sampling;
+  private Thread sampler;
+
+  public SamplingProfiler() {
+    intervalMicros = Long.getLong("som.profile.interval", 1000);
+    lines          = Boolean.parseBoolean(System.getProperty("som.profile.lines", "true"));
+    outputPrefix   = System.getProperty("som.profile.output", "profile");
+
+    stacks          = new ConcurrentHashMap<>();
+    collapsedStacks = new HashMap<>();
+    methods         = new HashMap<>();
+    statements      = new HashMap<>();
+  }
+
+  @Override
+  protected void onCreate(final Env env) {
+    env.getInstrumenter().attachFactory(
+        SourceSectionFilter.newBuilder().tagIs(RootTag.class).build(),
+        (final EventContext ctx) -> {
+          RootNode root = ctx.getInstrumentedNode().getRootNode();
+          return new MethodSamplingNode(this, root.getName(), ctx.getInstrumentedSourceSection());
+        });
+
+    if (lines) {
+      env.getInstrumenter().attachFactory(
+          SourceSectionFilter.newBuilder().tagIs(StatementTag.class).build(),
+          (final EventContext ctx) -> new StatementSamplingNode(this, ctx.getInstrumentedSourceSection()));
+    }
+
+    env.registerService(this);
+  }
+
+  @TruffleBoundary
+  public ShadowStack getStack(final Thread thread) {
+    return stacks.computeIfAbsent(thread, t -> new ShadowStack());
+  }
+
+  public synchronized void startSampling() {
+    if (sampler != null) {
+      return;
+    }
+    sampling = true;
+    sampler = new Thread(this::sample, "SOM Sampling Profiler");
+    sampler.setDaemon(true);
+    sampler.start();
+  }
+
+  private void sample() {
+    String[] frames = new String[ShadowStack.getMaxDepth()];
+    SourceSection[] locations = new SourceSection[ShadowStack.getMaxDepth()];
+    long intervalNanos = TimeUnit.MICROSECONDS.toNanos(intervalMicros);
+
+    while (sampling) {
+      LockSupport.parkNanos(intervalNanos);
+      for (ShadowStack stack : stacks.values()) {
+        int depth = stack.snapshot(frames, locations);
+        if (depth > 0) {
+          record(frames, locations, depth);
+        }
+      }
+    }
+  }
+
+  private void record(final String[] frames, final SourceSection[] locations, final int depth) {
+    numSamples += 1;
+
+    StringBuilder collapsed = new StringBuilder();
+    Set<String> seenMethods = new HashSet<>();
+    Set<String> seenLines = new HashSet<>();
+
+    for (int i = 0; i < depth; i++) {
+      String method = frames[i] == null ? "<unknown>" : frames[i];
+      if (i > 0) {
+        collapsed.append(';');
+      }
+      collapsed.append(method);
+
+      boolean top = i == depth - 1;
+      count(methods, method, top, seenMethods.add(method));
+      if (lines && locations[i] != null) {
+        String line = lineOf(locations[i]);
+        count(statements, line, top, seenLines.add(line));
+      }
+    }
+
+    collapsedStacks.computeIfAbsent(collapsed.toString(), k -> new long[1])[0] += 1;
+  }
+
+  /** Counters are {self, total}; recursive frames only count once for total. */
+  private static void count(final Map<String, long[]> counters, final String key,
+      final boolean self, final boolean firstOnStack) {
+    long[] counter = counters.computeIfAbsent(key, k -> new long[2]);
+    if (self) {
+      counter[0] += 1;
+    }
+    if (firstOnStack) {
+      counter[1] += 1;
+    }
+  }
+
+  private static String lineOf(final SourceSection section) {
+    return section.getSource().getName() + ":" + section.getStartLine();
+  }
+
+  private void stopSampling() {
+    sampling = false;
+    if (sampler != null) {
+      try {
+        sampler.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  protected void onDispose(final Env env) {
+    if (sampler == null) {
+      return;
+    }
+    stopSampling();
+
+    try (PrintWriter out = new PrintWriter(outputPrefix + ".collapsed")) {
+      for (Entry<String, long[]> e : collapsedStacks.entrySet()) {
+        out.println(e.getKey() + " " + e.getValue()[0]);
+      }
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+
+    writeTimes(outputPrefix + "-methods.csv", "method", methods);
+    if (lines) {
+      writeTimes(outputPrefix + "-lines.csv", "line", statements);
+    }
+  }
+
+  private void writeTimes(final String fileName, final String kind,
+      final Map<String, long[]> counters) {
+    double msPerSample = intervalMicros / 1000.0;
+    try (CsvWriter file = new CsvWriter(".", fileName,
+        kind, "self samples", "total samples", "self ms", "total ms", "self %")) {
+      for (Entry<String, long[]> e : counters.entrySet()) {
+        long self = e.getValue()[0];
+        long total = e.getValue()[1];
+        file.write(e.getKey(), self, total,
+            String.format("%.1f", self * msPerSample),
+            String.format("%.1f", total * msPerSample),
+            String.format("%.2f", 100.0 * self / numSamples));
+      }
+    }
+  }
+}
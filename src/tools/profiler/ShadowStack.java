@@ -0,0 +1,74 @@
+package tools.profiler;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import com.oracle.truffle.api.source.SourceSection;
+
+
+/**
+ * Stack of the SOM methods executing on one thread, maintained by the
+ * instrumentation of the {@link SamplingProfiler} and read by its sampler
+ * thread.
+ *
+ * Only the owning thread writes to the stack. It publishes the depth with an
+ * ordered store, after the frames below it, so that the sampler, which reads
+ * the depth first, sees these frames. The ordered store does not need the
+ * fence of a volatile write on the executing thread. The statement of the
+ * top frame is updated without publication, a sample may thus see the
+ * previous statement, which is fine for statistical profiling.
+ */
+public final class ShadowStack {
+  private static final int MAX_DEPTH = 10_000;
+
+  private static final AtomicIntegerFieldUpdater<ShadowStack> DEPTH =
+      AtomicIntegerFieldUpdater.newUpdater(ShadowStack.class, "depth");
+
+  private final String[] methods;
+  private final SourceSection[] locations;
+  private volatile int depth;
+
+  public ShadowStack() {
+    methods   = new String[MAX_DEPTH];
+    locations = new SourceSection[MAX_DEPTH];
+  }
+
+  public void enter(final String method, final SourceSection location) {
+    int d = depth;
+    if (d < MAX_DEPTH) {
+      methods[d]   = method;
+      locations[d] = location;
+    }
+    DEPTH.lazySet(this, d + 1);
+  }
+
+  public void leave() {
+    DEPTH.lazySet(this, depth - 1);
+  }
+
+  /** Remembers the statement currently executing in the top method. */
+  public void executing(final SourceSection statement) {
+    int d = depth - 1;
+    if (d >= 0 && d < MAX_DEPTH) {
+      locations[d] = statement;
+    }
+  }
+
+  /**
+   * Copies the current stack, bottom frame first.
+   *
+   * @return the number of frames copied into the given arrays
+   */
+  public int snapshot(final String[] methodsOut, final SourceSection[] locationsOut) {
+    int d = Math.min(Math.min(depth, MAX_DEPTH), methodsOut.length);
+    if (d <= 0) {
+      return 0;
+    }
+    System.arraycopy(methods, 0, methodsOut, 0, d);
+    System.arraycopy(locations, 0, locationsOut, 0, d);
+    return d;
+  }
+
+  public static int getMaxDepth() {
+    return MAX_DEPTH;
+  }
+}
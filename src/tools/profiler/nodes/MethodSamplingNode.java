@@ -0,0 +1,37 @@
+package tools.profiler.nodes;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.source.SourceSection;
+
+import tools.profiler.SamplingProfiler;
+
+
+/**
+ * Pushes the method on the shadow stack on entry and pops it on exit.
+ */
+public final class MethodSamplingNode extends ShadowStackNode {
+  private final String method;
+  private final SourceSection source;
+
+  public MethodSamplingNode(final SamplingProfiler profiler, final String method,
+      final SourceSection source) {
+    super(profiler);
+    this.method = method;
+    this.source = source;
+  }
+
+  @Override
+  protected void onEnter(final VirtualFrame frame) {
+    getStack().enter(method, source);
+  }
+
+  @Override
+  protected void onReturnValue(final VirtualFrame frame, final Object result) {
+    getStack().leave();
+  }
+
+  @Override
+  protected void onReturnExceptional(final VirtualFrame frame, final Throwable e) {
+    getStack().leave();
+  }
+}
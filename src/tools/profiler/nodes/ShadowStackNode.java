@@ -0,0 +1,45 @@
+package tools.profiler.nodes;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
+import com.oracle.truffle.api.nodes.NodeCost;
+
+import tools.profiler.SamplingProfiler;
+import tools.profiler.ShadowStack;
+
+
+/**
+ * Common superclass of the event nodes maintaining the shadow stack. The stack
+ * of the first thread executing the node is cached, other threads go through
+ * the profiler's registry.
+ */
+public abstract class ShadowStackNode extends ExecutionEventNode {
+  protected final SamplingProfiler profiler;
+
+  @CompilationFinal private Thread      cachedThread;
+  @CompilationFinal private ShadowStack cachedStack;
+
+  protected ShadowStackNode(final SamplingProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  protected final ShadowStack getStack() {
+    Thread current = Thread.currentThread();
+    if (current == cachedThread) {
+      return cachedStack;
+    }
+    if (cachedThread == null) {
+      CompilerDirectives.transferToInterpreterAndInvalidate();
+      cachedStack  = profiler.getStack(current);
+      cachedThread = current;
+      return cachedStack;
+    }
+    return profiler.getStack(current);
+  }
+
+  @Override
+  public NodeCost getCost() {
+    return NodeCost.NONE;
+  }
+}
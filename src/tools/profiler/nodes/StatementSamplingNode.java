@@ -0,0 +1,26 @@
+package tools.profiler.nodes;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.source.SourceSection;
+
+import tools.profiler.SamplingProfiler;
+
+
+/**
+ * Records the statement being executed in the top frame of the shadow stack,
+ * to attribute samples to lines.
+ */
+public final class StatementSamplingNode extends ShadowStackNode {
+  private final SourceSection statement;
+
+  public StatementSamplingNode(final SamplingProfiler profiler,
+      final SourceSection statement) {
+    super(profiler);
+    this.statement = statement;
+  }
+
+  @Override
+  protected void onEnter(final VirtualFrame frame) {
+    getStack().executing(statement);
+  }
+}
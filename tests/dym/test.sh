@@ -13,20 +13,29 @@ popd > /dev/null
 
 SOM_DIR=$SCRIPT_PATH/../..
 
-## create folder for new results
+## create folders for new results
 mkdir -p $SCRIPT_PATH/results/
+mkdir -p $SCRIPT_PATH/streamed/
 
 ## extract expected results
 tar xf $SCRIPT_PATH/expected-results.tar.bz2 -C $SCRIPT_PATH/
 
+AGGREGATOR="java -cp $SOM_DIR/build/classes:$SOM_DIR/libs/json/build/minimal-json.jar \
+  tools.dym.MetricsAggregator"
+
 function runBenchmark {
   BENCH=$1
   HARNESS="$SOM_DIR/som -dm -Ddm.metrics=$SCRIPT_PATH/results/$BENCH \
+    -Ddm.stream=$SCRIPT_PATH/results/$BENCH.jsonl \
     -G BenchmarkHarness"
   echo $HARNESS $@
   $HARNESS $@
   
   diff -r $SCRIPT_PATH/expected-results/$BENCH $SCRIPT_PATH/results/$BENCH
+
+  ## the streamed metrics need to aggregate to the same results
+  $AGGREGATOR $SCRIPT_PATH/results/$BENCH.jsonl $SCRIPT_PATH/streamed/$BENCH
+  diff -r $SCRIPT_PATH/expected-results/$BENCH $SCRIPT_PATH/streamed/$BENCH
 }
 
 ## Language Features
@@ -65,6 +74,8 @@ then
   rm -Rf $SCRIPT_PATH/old-results
   mv $SCRIPT_PATH/expected-results $SCRIPT_PATH/old-results
   mv $SCRIPT_PATH/results $SCRIPT_PATH/expected-results
+  rm -f $SCRIPT_PATH/expected-results/*.jsonl
+  rm -Rf $SCRIPT_PATH/streamed
   ## update the archive
   tar cjf $SCRIPT_PATH/expected-results.tar.bz2 -C $SCRIPT_PATH expected-results
 fi
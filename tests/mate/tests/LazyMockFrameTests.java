@@ -0,0 +1,106 @@
+package mate.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.Frame;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.RootNode;
+
+import som.interpreter.SArguments;
+import som.vm.constants.ExecutionLevel;
+import som.vmobjects.LazyMockFrame;
+
+/**
+ * Checks that the frame handed to local-variable metaobjects is only
+ * materialized when the handler actually asks for it, and that a context
+ * kept by the handler is only valid if it was materialized while the
+ * handler ran.
+ */
+public class LazyMockFrameTests {
+
+  private static final class HandlerNode extends RootNode {
+    private final boolean touchesFrame;
+
+    HandlerNode(final boolean touchesFrame) {
+      super(null);
+      this.touchesFrame = touchesFrame;
+    }
+
+    @Override
+    public Object execute(final VirtualFrame frame) {
+      LazyMockFrame context = (LazyMockFrame) frame.getArguments()[0];
+      if (touchesFrame) {
+        assertEquals(42L, SArguments.rcvr((Frame) context.getMockedObject()));
+      } else {
+        assertEquals(42L, context.getArgument(0));
+        assertFalse(context.isMaterialized());
+      }
+      return context;
+    }
+  }
+
+  private static final class BaseLevelNode extends RootNode {
+    @Child private DirectCallNode handler;
+
+    BaseLevelNode(final RootCallTarget handlerTarget) {
+      super(null);
+      handler = Truffle.getRuntime().createDirectCallNode(handlerTarget);
+    }
+
+    @Override
+    public Object execute(final VirtualFrame frame) {
+      // like the Mate dispatch of local variable accesses
+      LazyMockFrame context = new LazyMockFrame(frame.getArguments(), null);
+      Object result = handler.call(new Object[] {context});
+      context.leave();
+      return result;
+    }
+  }
+
+  /** @return the context the handler received */
+  private static LazyMockFrame runWithHandler(final boolean touchesFrame) {
+    RootCallTarget handler = Truffle.getRuntime().createCallTarget(new HandlerNode(touchesFrame));
+    RootCallTarget base = Truffle.getRuntime().createCallTarget(new BaseLevelNode(handler));
+    return (LazyMockFrame) base.call(new Object[] {null, ExecutionLevel.Base, 42L});
+  }
+
+  @Test
+  public void testArgumentsAreReadWithoutTheFrame() {
+    LazyMockFrame context = runWithHandler(false);
+    assertFalse(context.isMaterialized());
+    assertEquals(42L, context.getArgument(0));
+  }
+
+  @Test
+  public void testUnusedContextIsInvalidAfterTheHandlerReturned() {
+    assertTrue(runWithHandler(false).isInvalid());
+  }
+
+  @Test
+  public void testFrameMaterializedByTheHandlerStaysValid() {
+    LazyMockFrame context = runWithHandler(true);
+    assertFalse(context.isInvalid());
+    assertEquals(42L, SArguments.rcvr((Frame) context.getMockedObject()));
+  }
+
+  @Test
+  public void testMaterializedFrameIsCached() {
+    RootCallTarget base = Truffle.getRuntime().createCallTarget(new RootNode(null) {
+      @Override
+      public Object execute(final VirtualFrame frame) {
+        LazyMockFrame context = new LazyMockFrame(frame.getArguments(), null);
+        Object first = context.getMockedObject();
+        assertTrue(context.isMaterialized());
+        return first == context.getMockedObject();
+      }
+    });
+    assertEquals(true, base.call(new Object[] {null, ExecutionLevel.Base, 42L}));
+  }
+}
@@ -20,6 +20,7 @@ public class MateSOMTests extends SomTests {
     mateTests.addAll(somTests);
     mateTests.add(new String[]{"BasicOperations"});
     mateTests.add(new String[]{"Files"});
+    mateTests.add(new String[]{"BulkFields"});
 
     return mateTests;
   }
@@ -32,7 +33,7 @@ public class MateSOMTests extends SomTests {
         "-cp",
         "Smalltalk:Smalltalk/Mate:Smalltalk/Mate/MOP:Smalltalk/Mate/Compiler:" +
         "Smalltalk/FileSystem/Disk:Smalltalk/FileSystem/Core:Smalltalk/FileSystem/Streams:Smalltalk/Collections/Streams:" +
-        "TestSuite:TestSuite/Mate:TestSuite/FileSystem",
+        "TestSuite:TestSuite/Mate:TestSuite/FileSystem:tests/som/TestSuite:tests/mate/TestSuite",
         "TestHarness",
         testName};
     return args;
@@ -0,0 +1,59 @@
+package mate.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.Layout;
+import com.oracle.truffle.api.object.ObjectType;
+import com.oracle.truffle.api.object.Shape;
+
+import som.vm.PureLookupCache;
+import som.vmobjects.SSymbol;
+
+/**
+ * Checks the memoization of find:since: handlers declared as pure lookups.
+ */
+public class PureLookupCacheTests {
+  private static final Shape SHAPE = Layout.newLayout().build().createShape(new ObjectType());
+
+  private static DynamicObject newObject() {
+    return SHAPE.newInstance();
+  }
+
+  @Test
+  public void testResultsAreKeptPerHandlerClassAndSelector() {
+    DynamicObject handler = newObject();
+    DynamicObject otherHandler = newObject();
+    DynamicObject klass = newObject();
+    DynamicObject method = newObject();
+    SSymbol selector = new SSymbol("foo");
+
+    PureLookupCache.record(handler, klass, selector, method);
+
+    assertSame(method, PureLookupCache.lookup(handler, klass, selector));
+    assertNull(PureLookupCache.lookup(otherHandler, klass, selector));
+    assertNull(PureLookupCache.lookup(handler, newObject(), selector));
+    assertNull(PureLookupCache.lookup(handler, klass, new SSymbol("bar")));
+  }
+
+  @Test
+  public void testInvalidationFlushesResultsAndAssumption() {
+    DynamicObject handler = newObject();
+    DynamicObject klass = newObject();
+    SSymbol selector = new SSymbol("foo");
+    PureLookupCache.record(handler, klass, selector, newObject());
+    Assumption stable = PureLookupCache.getAssumption();
+
+    PureLookupCache.invalidate();
+
+    assertFalse(stable.isValid());
+    assertTrue(PureLookupCache.getAssumption().isValid());
+    assertNull(PureLookupCache.lookup(handler, klass, selector));
+  }
+}
@@ -0,0 +1,64 @@
+package som.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.vmobjects.SObject;
+import tools.dym.profiles.AllocationProfile;
+import tools.dym.profiles.AllocationSize;
+
+/**
+ * Checks the bytes the dynamic metrics report for the allocations of a
+ * class with several fields. The allocation sites see the objects before
+ * their fields are written, so the estimate is based on the class.
+ */
+public class AllocationSizeTests extends ShellSubjects {
+  private static final String SUBJECT =
+      "AllocationSizeSubject = (\n"
+      + "  | a b c d e |\n"
+      + "  init = ( a := 1. b := 2. c := 3. d := 4. e := 5 )\n"
+      + ")\n";
+
+  // header, shape, and five 8-byte slots, aligned to 8 bytes
+  private static final long INSTANCE_SIZE = 56;
+
+  private static DynamicObject subject;
+
+  @BeforeClass
+  public static void loadSubject() throws Exception {
+    subject = load(SUBJECT);
+  }
+
+  private static DynamicObject newInstance() {
+    return (DynamicObject) send(subject, "new");
+  }
+
+  @Test
+  public void testNewObjectsAreSizedByTheirClass() {
+    assertEquals(INSTANCE_SIZE, AllocationSize.of(newInstance()));
+  }
+
+  @Test
+  public void testSizeDoesNotDependOnWrittenFields() {
+    DynamicObject obj = newInstance();
+    long size = AllocationSize.of(obj);
+    send(obj, "init");
+    assertEquals(size, AllocationSize.of(obj));
+  }
+
+  @Test
+  public void testProfileReportsBytesOfAllAllocations() {
+    AllocationProfile profile = new AllocationProfile(null);
+    for (int i = 0; i < 3; i++) {
+      profile.getProfile().executeProfiling(newInstance());
+    }
+
+    DynamicObject klass = SObject.getSOMClass(newInstance());
+    assertEquals(3L, (long) profile.getAllocations().get(klass));
+    assertEquals(3 * INSTANCE_SIZE, (long) profile.getAllocatedBytes().get(klass));
+  }
+}
@@ -0,0 +1,107 @@
+package som.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.Source;
+
+import som.compiler.AstReader;
+import som.compiler.AstWriter;
+import som.compiler.Parser.ParseError;
+import som.compiler.SourcecodeCompiler;
+import som.vm.ObjectMemory;
+import som.vm.Universe;
+import som.vmobjects.SClass;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SInvokable.SMethod;
+import som.vmobjects.SObject;
+
+/**
+ * Encodes each class of the TestSuite, loads it from the encoding, and
+ * checks that the loaded class has the same ASTs as the parsed one, and that
+ * it encodes to the same bytes again.
+ */
+@RunWith(Parameterized.class)
+public class AstSerializationTests {
+
+  @Parameters(name = "{0}")
+  public static Iterable<Object[]> data() {
+    List<Object[]> classes = new ArrayList<>();
+    for (String file : new File("TestSuite").list()) {
+      if (file.endsWith(".som")) {
+        classes.add(new Object[] {file.substring(0, file.length() - 4)});
+      }
+    }
+    classes.sort((a, b) -> ((String) a[0]).compareTo((String) b[0]));
+    return classes;
+  }
+
+  private final String className;
+
+  public AstSerializationTests(final String className) {
+    this.className = className;
+  }
+
+  @Before
+  public void initialize() {
+    String[] args = new String[] {"-cp", "Smalltalk:TestSuite"};
+    if (Universe.getCurrent() == null) {
+      Universe.createVM(args);
+    } else {
+      Universe.getCurrent().updateArguments(args);
+    }
+    Universe.getCurrent().setAvoidExit(true);
+  }
+
+  @Test
+  public void testRoundTrip() throws ParseError {
+    Universe vm = Universe.getCurrent();
+    ObjectMemory memory = vm.getObjectMemory();
+    SourcecodeCompiler compiler = memory.getCompiler();
+    Source source = vm.getSourceForClassName(vm.symbolFor(className));
+
+    byte[] encoded = compiler.encodeClass(source, memory);
+    DynamicObject parsed = compiler.compileClass(source, null, memory, null);
+
+    AstWriter writer = new AstWriter(source.getName());
+    DynamicObject loaded = compiler.loadClass(encoded, source, null, null, writer);
+
+    assertEquals(AstReader.disassemble(encoded), AstReader.disassemble(writer.toByteArray()));
+    assertEquals(describe(parsed), describe(loaded));
+    assertEquals(describe(SObject.getSOMClass(parsed)), describe(SObject.getSOMClass(loaded)));
+  }
+
+  private static String describe(final DynamicObject clazz) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(SClass.getName(clazz).getString()).append('\n');
+    for (int i = 0; i < SClass.getNumberOfInstanceFields(clazz); i++) {
+      sb.append(SClass.getInstanceFieldName(clazz, i).getString()).append(' ');
+    }
+    sb.append('\n');
+    for (int i = 0; i < SClass.getNumberOfInstanceInvokables(clazz); i++) {
+      describe(SClass.getInstanceInvokable(clazz, i), sb);
+    }
+    return sb.toString();
+  }
+
+  private static void describe(final DynamicObject invokable, final StringBuilder sb) {
+    sb.append(SInvokable.getSignature(invokable).getString()).append('\n');
+    sb.append(NodeUtil.printCompactTreeToString(SInvokable.getInvokable(invokable)));
+    if (SMethod.isSMethod(invokable)) {
+      for (DynamicObject block : SMethod.getEmbeddedBlocks(invokable)) {
+        describe(block, sb);
+      }
+    }
+  }
+}
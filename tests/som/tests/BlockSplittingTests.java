@@ -0,0 +1,71 @@
+package som.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.VmSettings;
+import som.interpreter.nodes.dispatch.SplittingPolicy.Decision;
+import som.vmobjects.SObject;
+
+/**
+ * Calls a method that takes a block from two sites, with different blocks,
+ * and checks that the splitting policy gives each site its own copy of the
+ * method. The copies themselves are only made by an optimizing runtime.
+ * The test JVM is forked per test class, -Dsom.splitting=true and
+ * -Dsom.splitBlockCallees=true are set before the settings are read.
+ */
+public class BlockSplittingTests extends ShellSubjects {
+  static {
+    System.setProperty("som.splitting", "true");
+    System.setProperty("som.splitBlockCallees", "true");
+  }
+
+  private static final String SUBJECT =
+      "BlockSplittingSubject = (\n"
+      + "  apply: aBlock = ( ^ aBlock value )\n"
+      + "  plain: anInteger = ( ^ anInteger )\n"
+      + "----\n"
+      + "  run = ( | o a b | o := self new. a := 0. b := 0.\n"
+      + "    1 to: 10 do: [:i |\n"
+      + "      a := a + (o apply: [ 1 ]) + (o plain: 1).\n"
+      + "      b := b + (o apply: [ 2 ]) + (o plain: 2) ].\n"
+      + "    ^ a + b )\n"
+      + ")\n";
+
+  private static DynamicObject run;
+
+  @BeforeClass
+  public static void runSites() throws Exception {
+    assertTrue(VmSettings.SPLITTING && VmSettings.SPLIT_BLOCK_CALLEES);
+    DynamicObject subject = load(SUBJECT);
+    assertEquals(60L, send(subject, "run"));
+    run = method(SObject.getSOMClass(subject), "run");
+  }
+
+  private static List<Decision> decisionsFor(final String selector) {
+    List<Decision> decisions = decisionsFor(run, selector);
+    assertEquals(2, decisions.size());
+    return decisions;
+  }
+
+  @Test
+  public void testMethodsTakingBlocksAreSplit() {
+    for (Decision decision : decisionsFor("apply:")) {
+      assertEquals(Decision.BLOCK, decision);
+    }
+  }
+
+  @Test
+  public void testOtherMethodsAreShared() {
+    for (Decision decision : decisionsFor("plain:")) {
+      assertEquals(Decision.MONOMORPHIC, decision);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package som.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.interpreter.nodes.MessageSendNode.AbstractMessageSendNode;
+import som.vmobjects.SInvokable;
+import som.vmobjects.SObject;
+
+/**
+ * Checks which sends on literals are folded. That the results do not
+ * change is tested by ConstantFoldingTest.som.
+ */
+public class ConstantFoldingTests extends ShellSubjects {
+  private static final String SUBJECT =
+      "ConstantFoldingSubject = (\n"
+      + "----\n"
+      + "  three = ( ^ 3 )\n"
+      + "  sum       = ( ^ 3 + 4 )\n"
+      + "  sumSent   = ( ^ self three + 4 )\n"
+      + "  nested    = ( ^ 1 + (2 * 3) - 10 )\n"
+      + "  concat    = ( ^ 'ab' concatenate: 'c' )\n"
+      + "  length    = ( ^ 'abc' length )\n"
+      + "  overflow  = ( ^ 4611686018427387904 * 4 )\n"
+      + "  divByZero = ( ^ 1 / 0 )\n"
+      + "  cascade   = ( ^ (3 + 4) + 1; + 2 )\n"
+      + ")\n";
+
+  private static DynamicObject subject;
+
+  @BeforeClass
+  public static void loadSubject() throws Exception {
+    subject = load(SUBJECT);
+  }
+
+  private static boolean hasSends(final String selector) {
+    DynamicObject method = method(SObject.getSOMClass(subject), selector);
+    return NodeUtil.findFirstNodeInstance(SInvokable.getInvokable(method),
+        AbstractMessageSendNode.class) != null;
+  }
+
+  @Test
+  public void testSendsOnLiteralsAreFolded() {
+    for (String selector : new String[] {"sum", "nested", "concat", "length", "overflow"}) {
+      assertFalse(selector + " has sends", hasSends(selector));
+    }
+  }
+
+  @Test
+  public void testSendsOnOtherReceiversRemain() {
+    assertTrue(hasSends("sumSent"));
+  }
+
+  /** The division fails at run time. */
+  @Test
+  public void testFailingPrimitiveIsNotFolded() {
+    assertTrue(hasSends("divByZero"));
+  }
+
+  @Test
+  public void testCascadedMessagesRemain() {
+    assertTrue(hasSends("cascade"));
+  }
+}
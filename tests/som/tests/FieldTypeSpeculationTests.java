@@ -0,0 +1,75 @@
+package som.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.interpreter.nodes.FieldNode.FieldReadNode;
+import som.interpreter.nodes.FieldNode.FieldWriteNode;
+import som.interpreter.objectstorage.FieldAccessorNode.ReadFieldNode;
+import som.interpreter.objectstorage.FieldAccessorNode.WriteFieldNode;
+
+/**
+ * Runs the inner loop of NBody, and checks that the field nodes of the body
+ * specialized on the unboxed double locations of its fields, and on the
+ * long location of its counter. None of them uses a boxing specialization.
+ * Fields that change their type are tested by FieldTypesTest.som.
+ */
+public class FieldTypeSpeculationTests extends ShellSubjects {
+  private static final String SUBJECT =
+      "FieldTypeSpeculationSubject = (\n"
+      + "  | x y z vx vy vz mass steps |\n"
+      + "  init = ( x := 4.84. y := -1.16. z := -0.10.\n"
+      + "    vx := 0.60. vy := 2.81. vz := -0.02. mass := 0.03. steps := 0 )\n"
+      + "  advance: dt = (\n"
+      + "    x := x + (dt * vx). y := y + (dt * vy). z := z + (dt * vz).\n"
+      + "    vx := vx - (x * dt * mass). vy := vy - (y * dt * mass). vz := vz - (z * dt * mass).\n"
+      + "    steps := steps + 1 )\n"
+      + "  steps = ( ^ steps )\n"
+      + "----\n"
+      + "  run: n = ( | body | body := self new init.\n"
+      + "    1 to: n do: [:i | body advance: 0.01 ]. ^ body steps )\n"
+      + ")\n";
+
+  private static DynamicObject subject;
+
+  @BeforeClass
+  public static void runInnerLoop() throws Exception {
+    subject = load(SUBJECT);
+    assertEquals(1000L, send(subject, "run:", 1000L));
+  }
+
+  private static void assertSpecializedOn(final Node node, final String... specializations) {
+    List<String> active = activeSpecializations(node);
+    assertEquals(active.toString(), 1, active.size());
+    assertTrue(active.toString(), Arrays.asList(specializations).contains(active.get(0)));
+  }
+
+  @Test
+  public void testFieldReadsAreUnboxed() {
+    for (FieldReadNode node : nodesOf(subject, "advance:", FieldReadNode.class)) {
+      assertSpecializedOn(node, "readDouble", "readLong");
+    }
+    for (ReadFieldNode node : nodesOf(subject, "advance:", ReadFieldNode.class)) {
+      assertSpecializedOn(node, "readDoubleField", "readLongField");
+    }
+  }
+
+  @Test
+  public void testFieldWritesAreUnboxed() {
+    for (FieldWriteNode node : nodesOf(subject, "advance:", FieldWriteNode.class)) {
+      assertSpecializedOn(node, "writeDouble", "writeLong");
+    }
+    for (WriteFieldNode node : nodesOf(subject, "advance:", WriteFieldNode.class)) {
+      assertSpecializedOn(node, "writeDoubleField", "writeLongField");
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package som.tests;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+
+import som.VmSettings;
+
+/**
+ * Runs the SOM test suite with -Dsom.lazyMethods=true, so that the methods
+ * are only parsed when they are first executed. The test JVM is forked per
+ * test class, the property is set before the settings are read.
+ */
+public class LazyMethodsTests extends SomTests {
+  static {
+    System.setProperty("som.lazyMethods", "true");
+  }
+
+  public LazyMethodsTests(final String testName) {
+    super(testName);
+  }
+
+  @BeforeClass
+  public static void checkLazyMethods() {
+    assertTrue(VmSettings.LAZY_METHODS);
+  }
+}
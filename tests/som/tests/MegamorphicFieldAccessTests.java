@@ -0,0 +1,137 @@
+package som.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.Shape;
+
+import som.interpreter.objectstorage.FieldAccessorNode.ReadFieldNode;
+import som.interpreter.objectstorage.FieldAccessorNode.WriteFieldNode;
+import som.interpreter.objectstorage.MegamorphicFieldCache;
+
+/**
+ * Initializes the four fields of a class in all 24 orders, which gives 24
+ * shapes, more than the field accesses cache, and checks that reads and
+ * writes of all objects then go through the megamorphic field cache. The
+ * cache itself is checked to hit for all shapes, also for the transition
+ * that adds the fifth field. That the sends still see the values of their
+ * own fields is tested by MegamorphicFieldAccessTest.som.
+ */
+public class MegamorphicFieldAccessTests extends ShellSubjects {
+  private static final String[] FIELDS = {"a", "b", "c", "d"};
+  private static final int SHAPES = 24;
+  private static final int E_INDEX = 4;
+
+  private static DynamicObject subject;
+
+  private static void permutations(final List<String> prefix, final List<String> rest,
+      final List<List<String>> result) {
+    if (rest.isEmpty()) {
+      result.add(prefix);
+    }
+    for (String field : rest) {
+      List<String> p = new ArrayList<>(prefix);
+      p.add(field);
+      List<String> r = new ArrayList<>(rest);
+      r.remove(field);
+      permutations(p, r, result);
+    }
+  }
+
+  private static String createSubject() {
+    List<List<String>> orders = new ArrayList<>();
+    permutations(new ArrayList<>(), Arrays.asList(FIELDS), orders);
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("MegamorphicFieldAccessSubject = (\n");
+    sb.append("  | a b c d e |\n");
+    for (int i = 0; i < orders.size(); i++) {
+      sb.append("  init").append(i).append(" = ( ");
+      for (String field : orders.get(i)) {
+        sb.append(field).append(" := ").append(field.charAt(0) - 'a' + 1).append(". ");
+      }
+      sb.append(")\n");
+    }
+    sb.append("  sum = ( ^ a + b + c + d )\n");
+    sb.append("  bump = ( a := a + 10 )\n");
+    sb.append("----\n");
+    sb.append("  objects = ( | arr | arr := Array new: ").append(orders.size()).append(".\n");
+    for (int i = 0; i < orders.size(); i++) {
+      sb.append("    arr at: ").append(i + 1).append(" put: self new init").append(i).append(".\n");
+    }
+    sb.append("    ^ arr )\n");
+    sb.append("  sum: objects = ( | sum | sum := 0. objects do: [:o | sum := sum + o sum]. ^ sum )\n");
+    sb.append("  bump: objects = ( objects do: [:o | o bump] )\n");
+    sb.append(")\n");
+    return sb.toString();
+  }
+
+  @BeforeClass
+  public static void loadSubject() throws Exception {
+    subject = load(createSubject());
+    Object objects = send(subject, "objects");
+    send(subject, "sum:", objects);
+    send(subject, "bump:", objects);
+  }
+
+  @Test
+  public void testReadsAreUncached() {
+    for (ReadFieldNode node : nodesOf(subject, "sum", ReadFieldNode.class)) {
+      assertTrue(activeSpecializations(node).contains("readFieldUncached"));
+    }
+  }
+
+  @Test
+  public void testWritesAreUncached() {
+    for (WriteFieldNode node : nodesOf(subject, "bump", WriteFieldNode.class)) {
+      assertTrue(activeSpecializations(node).contains("writeUncached"));
+    }
+  }
+
+  /** @return a new object whose fields a to d are initialized in the i-th order */
+  private static DynamicObject newObject(final int i) {
+    DynamicObject obj = (DynamicObject) send(subject, "new");
+    send(obj, "init" + i);
+    return obj;
+  }
+
+  @Test
+  public void testCacheHitsReadTheFieldOfEachShape() {
+    MegamorphicFieldCache cache = new MegamorphicFieldCache(0);
+    for (int i = 0; i < SHAPES; i++) {
+      DynamicObject obj = newObject(i);
+      assertEquals(1L, cache.read(obj));
+      assertTrue(cache.isCached(obj.getShape()));
+      assertEquals(1L, cache.read(obj));
+    }
+  }
+
+  @Test
+  public void testCacheHitsAddTheFieldWithTheTransition() {
+    MegamorphicFieldCache cache = new MegamorphicFieldCache(E_INDEX);
+    for (int i = 0; i < SHAPES; i++) {
+      DynamicObject first  = newObject(i);
+      DynamicObject second = newObject(i);
+      Shape shape = second.getShape();
+      assertSame(first.getShape(), shape);
+
+      cache.write(first, 5L);
+      assertTrue(cache.isCached(shape));
+      cache.write(second, 6L);
+
+      assertSame(first.getShape(), second.getShape());
+      assertEquals(5L, cache.read(first));
+      assertEquals(6L, cache.read(second));
+      assertEquals(10L, send(second, "sum"));
+    }
+  }
+}
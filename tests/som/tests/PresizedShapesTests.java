@@ -0,0 +1,63 @@
+package som.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.profiles.ValueProfile;
+
+import som.VmSettings;
+import som.vmobjects.SArray;
+
+/**
+ * Initializes the eight fields of a class in alternating orders, and checks
+ * that once the class is pre-sized, all its new instances end up with one
+ * final shape, see -Dsom.presizedShapes.
+ */
+public class PresizedShapesTests extends ShellSubjects {
+  private static final String SUBJECT =
+      "PresizedShapesSubject = (\n"
+      + "  | a b c d e f g h |\n"
+      + "  fillAscending  = ( a := #a. b := #b. c := #c. d := #d. e := #e. f := #f. g := #g. h := #h )\n"
+      + "  fillDescending = ( h := #h. g := #g. f := #f. e := #e. d := #d. c := #c. b := #b. a := #a )\n"
+      + "----\n"
+      + "  alternating: n = ( | arr | arr := Array new: n.\n"
+      + "    1 to: n do: [:i | arr at: i put: (i even\n"
+      + "      ifTrue:  [ self new fillAscending ]\n"
+      + "      ifFalse: [ self new fillDescending ]) ]. ^ arr )\n"
+      + ")\n";
+
+  private static DynamicObject subject;
+
+  @BeforeClass
+  public static void loadSubject() throws Exception {
+    assumeTrue(VmSettings.PRESIZED_SHAPES);
+    subject = load(SUBJECT);
+  }
+
+  private static Set<Shape> finalShapes(final long numObjects) {
+    SArray objects = (SArray) send(subject, "alternating:", numObjects);
+    Set<Shape> shapes = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Object o : objects.getObjectStorage(ValueProfile.createIdentityProfile())) {
+      shapes.add(((DynamicObject) o).getShape());
+    }
+    return shapes;
+  }
+
+  @Test
+  public void testAlternatingOrdersEndInOneShape() {
+    assertEquals(2, finalShapes(2).size());
+
+    // the feedback of enough objects pre-sizes the class
+    finalShapes(100);
+    assertEquals(1, finalShapes(100).size());
+  }
+}
@@ -0,0 +1,96 @@
+package som.tests;
+
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.dsl.Introspection;
+import com.oracle.truffle.api.dsl.Introspection.SpecializationInfo;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.compiler.Parser.ParseError;
+import som.interpreter.Invokable;
+import som.interpreter.Types;
+import som.interpreter.nodes.dispatch.CachedDispatchNode;
+import som.interpreter.nodes.dispatch.SplittingPolicy.Decision;
+import som.vm.Universe;
+import som.vm.constants.ExecutionLevel;
+import som.vm.constants.MateClasses;
+import som.vmobjects.SClass;
+import som.vmobjects.SInvokable;
+
+/**
+ * Base of the tests of node-level details. It loads the classes they run
+ * into a VM shared by these tests. Behavior that does not need to look at
+ * nodes is tested in SOM instead, see {@link SomTests}.
+ */
+public abstract class ShellSubjects {
+
+  /** @return the class defined by the source */
+  protected static DynamicObject load(final String source) throws IOException, ParseError {
+    if (Universe.getCurrent() == null) {
+      Universe.createVM(new String[] {"-cp", "Smalltalk"});
+    }
+    Universe.getCurrent().setAvoidExit(true);
+    return Universe.getCurrent().getObjectMemory().loadShellClass(source);
+  }
+
+  /** @return the instance-side method of the class */
+  protected static DynamicObject method(final DynamicObject subject, final String selector) {
+    return SClass.lookupInvokable(subject, Universe.getCurrent().symbolFor(selector));
+  }
+
+  /** Sends the selector to the receiver, e.g., a loaded class, at the base level. */
+  protected static Object send(final Object receiver, final String selector,
+      final Object... arguments) {
+    Object[] args = new Object[arguments.length + 1];
+    args[0] = receiver;
+    System.arraycopy(arguments, 0, args, 1, arguments.length);
+    DynamicObject method = method(Types.getClassOf(receiver), selector);
+    return SInvokable.invoke(method, MateClasses.STANDARD_ENVIRONMENT,
+        ExecutionLevel.Base, args);
+  }
+
+  /** @return the nodes of the class in the instance-side method, at least one */
+  protected static <T extends Node> List<T> nodesOf(final DynamicObject subject,
+      final String selector, final Class<T> nodeClass) {
+    DynamicObject method = method(subject, selector);
+    List<T> nodes = NodeUtil.findAllNodeInstances(SInvokable.getInvokable(method), nodeClass);
+    assertFalse(nodes.isEmpty());
+    return nodes;
+  }
+
+  /**
+   * @return the splitting decisions of the cached sends in the method that
+   *         call the selector, in the order of their sites, at least one
+   */
+  protected static List<Decision> decisionsFor(final DynamicObject method,
+      final String selector) {
+    List<Decision> decisions = new ArrayList<>();
+    for (CachedDispatchNode node : NodeUtil.findAllNodeInstances(
+        SInvokable.getInvokable(method), CachedDispatchNode.class)) {
+      Invokable callee = (Invokable) ((RootCallTarget) node.getCallNode().getCallTarget()).getRootNode();
+      if (SInvokable.getSignature(callee.getBelongsToMethod()).getString().equals(selector)) {
+        decisions.add(node.getSplittingDecision());
+      }
+    }
+    assertFalse(decisions.isEmpty());
+    return decisions;
+  }
+
+  /** @return the names of the specializations the node currently uses */
+  protected static List<String> activeSpecializations(final Node node) {
+    List<String> names = new ArrayList<>();
+    for (SpecializationInfo info : Introspection.getSpecializations(node)) {
+      if (info.isActive()) {
+        names.add(info.getMethodName());
+      }
+    }
+    return names;
+  }
+}
@@ -38,6 +38,9 @@ import som.vm.Universe;
 
 @RunWith(Parameterized.class)
 public class SomTests {
+  /** The tests of this VM's optimizations, the others are shared by all SOMs. */
+  private static final String SUITE = "tests/som/TestSuite";
+
   @Parameters
   public static Iterable<Object[]> data() {
     return Arrays.asList(new Object[][] {
@@ -49,14 +52,18 @@ public class SomTests {
         {"Closure"       },
         {"Coercion"      },
         {"CompilerReturn"},
+        {"ConstantFolding"},
         {"DoesNotUnderstand"},
         {"Double"        },
 
         {"Empty"         },
+        {"FieldTypes"    },
         {"Global"        },
         {"Hash"          },
         {"Integer"       },
+        {"MegamorphicFieldAccess"},
 
+        {"Perform"       },
         {"Preliminary"   },
         {"Reflection"    },
         {"SelfBlock"     },
@@ -98,7 +105,7 @@ public class SomTests {
   protected String[] getArguments() {
     String[] arg = {
         "-cp",
-        "Smalltalk:TestSuite",
+        "Smalltalk:TestSuite:" + SUITE,
         "TestHarness",
         testName};
     return arg;
@@ -0,0 +1,78 @@
+package som.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.api.object.DynamicObject;
+
+import som.VmSettings;
+import som.interpreter.nodes.dispatch.SplittingPolicy.Decision;
+import som.vmobjects.SObject;
+
+/**
+ * Calls a small and a large method from two sites, first with an integer,
+ * then with a string, and checks that the splitting policy only splits the
+ * second call of the small method. The test JVM is forked per test class,
+ * -Dsom.splitting=true is set before the settings are read.
+ */
+public class SplittingPolicyTests extends ShellSubjects {
+  static {
+    System.setProperty("som.splitting", "true");
+  }
+
+  private static final String SUBJECT =
+      "SplittingPolicySubject = (\n"
+      + "  | content |\n"
+      + "  content = ( ^ content )\n"
+      + "  content: aValue = ( content := aValue )\n"
+      + "  large: aValue = ( | a | " + repeat("a := aValue. ", 40) + "^ a )\n"
+      + "----\n"
+      + "  run = ( | a b | a := self new. b := self new.\n"
+      + "    a content: 1. b content: 'one'.\n"
+      + "    a large: 1. b large: 'one'.\n"
+      + "    ^ a content )\n"
+      + ")\n";
+
+  private static DynamicObject run;
+
+  private static String repeat(final String str, final int times) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      result.append(str);
+    }
+    return result.toString();
+  }
+
+  @BeforeClass
+  public static void runSites() throws Exception {
+    assertTrue(VmSettings.SPLITTING);
+    DynamicObject subject = load(SUBJECT);
+    assertEquals(1L, send(subject, "run"));
+    run = method(SObject.getSOMClass(subject), "run");
+  }
+
+  private static List<Decision> decisionsFor(final String selector) {
+    List<Decision> decisions = decisionsFor(run, selector);
+    assertEquals(2, decisions.size());
+    return decisions;
+  }
+
+  @Test
+  public void testPolymorphicSmallMethodIsSplit() {
+    List<Decision> decisions = decisionsFor("content:");
+    assertEquals(Decision.MONOMORPHIC, decisions.get(0));
+    assertEquals(Decision.POLYMORPHIC, decisions.get(1));
+  }
+
+  @Test
+  public void testPolymorphicLargeMethodIsShared() {
+    List<Decision> decisions = decisionsFor("large:");
+    assertEquals(Decision.MONOMORPHIC, decisions.get(0));
+    assertEquals(Decision.TOO_LARGE, decisions.get(1));
+  }
+}